@@ -55,6 +55,7 @@ const MapView = ({ modelResults, weatherData, onMapClick, selectedLocation }) =>
   const [concentrationMarkers, setConcentrationMarkers] = useState([]);
   const [modelType, setModelType] = useState(null);
   const [loading, setLoading] = useState(false);
+  const [tileRunId, setTileRunId] = useState(null);
 
   const MILES_TO_METERS = 1609.34;
   const HOURS_TO_SECONDS = 3600;
@@ -93,6 +94,28 @@ const MapView = ({ modelResults, weatherData, onMapClick, selectedLocation }) =>
     }
   }, [modelResults, selectedLocation, weatherData, METERS_PER_DEGREE_LAT]);
 
+  // Register the run for server-rendered concentration tiles
+  useEffect(() => {
+    if (!modelResults || !selectedLocation) {
+      setTileRunId(null);
+      return;
+    }
+    let cancelled = false;
+    axios.post(`${API_BASE}/tiles`, {
+      model_type: modelResults.type,
+      source_lat: selectedLocation.lat,
+      source_lon: selectedLocation.lng,
+      wind_speed: weatherData?.wind_speed ?? 6.5,
+      wind_direction: weatherData?.wind_direction ?? 270,
+      stability_class: weatherData?.stability_class ?? 'D'
+    }).then(response => {
+      if (!cancelled) setTileRunId(response.data.run_id);
+    }).catch(error => {
+      console.error('Error registering tile run:', error);
+    });
+    return () => { cancelled = true; };
+  }, [modelResults, selectedLocation, weatherData]);
+
   const weather = useMemo(() => {
     if (!weatherData) return null;
     return {
@@ -220,6 +243,14 @@ const MapView = ({ modelResults, weatherData, onMapClick, selectedLocation }) =>
           attribution='&copy; <a href="https://www.openstreetmap.org/copyright">OpenStreetMap</a> contributors'
         />
         
+        {tileRunId && (
+          <TileLayer
+            key={tileRunId}
+            url={`${API_BASE}/tiles/${tileRunId}/{z}/{x}/{y}.png`}
+            opacity={0.8}
+          />
+        )}
+
         <MapClickHandler onMapClick={onMapClick} />
         
         {selectedLocation && (
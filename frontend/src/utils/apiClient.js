@@ -46,4 +46,24 @@ apiClient.interceptors.response.use(
   }
 );
 
+/**
+ * Runs a model request through the job queue (/api/jobs/{kind}) so long runs are not cut off by
+ * the request timeout. Polls until the job finishes and resolves with its result.
+ */
+export async function runModelJob(kind, params, { onProgress, pollMs = 1000 } = {}) {
+  const { data: job } = await apiClient.post(`/jobs/${kind}`, params);
+  for (;;) {
+    const { data: status } = await apiClient.get(`/jobs/${job.job_id}`);
+    if (onProgress) onProgress(status);
+    if (status.status === 'succeeded') {
+      const { data: result } = await apiClient.get(`/jobs/${job.job_id}/result`);
+      return result;
+    }
+    if (status.status === 'failed' || status.status === 'cancelled') {
+      throw new Error(status.error || `Model job ${status.status}`);
+    }
+    await new Promise((resolve) => setTimeout(resolve, pollMs));
+  }
+}
+
 export default apiClient;
\ No newline at end of file
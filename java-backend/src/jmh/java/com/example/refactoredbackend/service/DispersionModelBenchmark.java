@@ -0,0 +1,82 @@
+package com.example.refactoredbackend.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-receptor cost of the three models through the Map-based API, next to the same
+ * receptor evaluated on an already parsed DispersionScenario.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DispersionModelBenchmark {
+
+    private final DispersionService dispersionService = new DispersionService();
+    private Map<String, Object> params;
+    private DispersionScenario plume;
+    private DispersionScenario puff;
+    private DispersionScenario instantaneous;
+
+    @Setup
+    public void setUp() {
+        params = new HashMap<>();
+        params.put("x", 750.0);
+        params.put("y", 20.0);
+        params.put("z", 1.5);
+        params.put("Q", 10.0);
+        params.put("release_height", 30.0);
+        params.put("wind_speed", 6.0);
+        params.put("wind_direction", 270.0);
+        params.put("temperature", 20.0);
+        params.put("stability_class", "D");
+        params.put("molecular_weight", 64.0);
+        params.put("t", 120.0);
+
+        plume = scenario("plume");
+        puff = scenario("puff");
+        instantaneous = scenario("instantaneous");
+    }
+
+    private DispersionScenario scenario(String modelType) {
+        Map<String, Object> scenarioParams = new HashMap<>(params);
+        scenarioParams.put("model_type", modelType);
+        return DispersionScenario.fromParams(scenarioParams);
+    }
+
+    @Benchmark
+    public Map<String, Object> plumeMap() {
+        return dispersionService.calculatePlume(params);
+    }
+
+    @Benchmark
+    public Map<String, Object> puffMap() {
+        return dispersionService.calculatePuff(params);
+    }
+
+    @Benchmark
+    public Map<String, Object> instantaneousMap() {
+        return dispersionService.calculateInstantaneous(params);
+    }
+
+    @Benchmark
+    public double plumeScenario() {
+        return plume.concentrationAt(750.0, 20.0, 1.5);
+    }
+
+    @Benchmark
+    public double puffScenario() {
+        return puff.concentrationAt(750.0, 20.0, 1.5);
+    }
+
+    @Benchmark
+    public double instantaneousScenario() {
+        return instantaneous.concentrationAt(750.0, 20.0, 1.5);
+    }
+}
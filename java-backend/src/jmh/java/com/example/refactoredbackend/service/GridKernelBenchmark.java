@@ -0,0 +1,72 @@
+package com.example.refactoredbackend.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scalar against SIMD row kernels on large plume grids, through the grid engine and on a
+ * single row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GridKernelBenchmark {
+
+    /** Cells along each horizontal axis. */
+    @Param({"500", "1000"})
+    public int cellsPerSide;
+
+    @Param({RowKernels.SCALAR, RowKernels.SIMD})
+    public String kernel;
+
+    private final GridDispersionEngine engine = new GridDispersionEngine();
+    private RowKernel rowKernel;
+    private DispersionScenario scenario;
+    private GridSpec spec;
+    private double[] factor;
+    private double[] k;
+    private double[] row;
+
+    @Setup
+    public void setUp() {
+        engine.setKernel(kernel);
+        rowKernel = RowKernels.select(kernel);
+
+        double resolution = 2.0;
+        Map<String, Object> params = new HashMap<>();
+        params.put("model_type", "plume");
+        params.put("resolution", resolution);
+        params.put("extent", cellsPerSide * resolution);
+        params.put("crosswind_extent", (cellsPerSide / 2) * resolution);
+        params.put("release_height", 10.0);
+        scenario = DispersionScenario.fromParams(params);
+        spec = GridSpec.fromParams(params);
+
+        factor = new double[cellsPerSide];
+        k = new double[cellsPerSide];
+        double[] terms = new double[2];
+        for (int i = 0; i < cellsPerSide; i++) {
+            scenario.columnTerms((i + 1) * resolution, 1.5, terms);
+            factor[i] = terms[0];
+            k[i] = terms[1];
+        }
+        row = new double[cellsPerSide];
+    }
+
+    @Benchmark
+    public ConcentrationField grid() {
+        return engine.compute(scenario, spec);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int row() {
+        return rowKernel.fill(factor, k, 0, 400.0, row, 0, cellsPerSide);
+    }
+}
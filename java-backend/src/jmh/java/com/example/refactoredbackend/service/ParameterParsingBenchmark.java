@@ -0,0 +1,48 @@
+package com.example.refactoredbackend.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of reading model inputs out of a JSON-decoded map, with numeric values and with the
+ * string values some clients send, which go through Double.parseDouble.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParameterParsingBenchmark {
+
+    private Map<String, Object> numericParams;
+    private Map<String, Object> stringParams;
+
+    @Setup
+    public void setUp() {
+        numericParams = new HashMap<>();
+        numericParams.put("model_type", "plume");
+        numericParams.put("Q", 10.0);
+        numericParams.put("release_height", 30.0);
+        numericParams.put("wind_speed", 6.0);
+        numericParams.put("t", 120.0);
+        numericParams.put("stability_class", "D");
+        numericParams.put("molecular_weight", 64.0);
+
+        stringParams = new HashMap<>();
+        numericParams.forEach((key, value) -> stringParams.put(key, String.valueOf(value)));
+    }
+
+    @Benchmark
+    public DispersionScenario numericValues() {
+        return DispersionScenario.fromParams(numericParams);
+    }
+
+    @Benchmark
+    public DispersionScenario stringValues() {
+        return DispersionScenario.fromParams(stringParams);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.refactoredbackend.service;
+
+import com.example.refactoredbackend.controller.DataController;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The /model/run-grid path at several grid sizes: the engine on its own, and the controller
+ * method including response construction.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RunGridBenchmark {
+
+    /** Cells along each horizontal axis. */
+    @Param({"50", "250", "1000"})
+    public int cellsPerSide;
+
+    @Param({"plume", "puff", "instantaneous"})
+    public String modelType;
+
+    private final GridDispersionEngine engine = new GridDispersionEngine();
+    private final DataController controller = new DataController();
+    private Map<String, Object> params;
+    private DispersionScenario scenario;
+    private GridSpec spec;
+
+    @Setup
+    public void setUp() {
+        ReflectionTestUtils.setField(controller, "gridDispersionEngine", engine);
+        // A one-byte cache evicts every result, so each call recomputes the grid
+        ReflectionTestUtils.setField(controller, "modelResultCache", new ModelResultCache(1, 1, 300, 6));
+
+        double resolution = 2.0;
+        params = new HashMap<>();
+        params.put("model_type", modelType);
+        params.put("resolution", resolution);
+        params.put("extent", cellsPerSide * resolution);
+        params.put("crosswind_extent", (cellsPerSide / 2) * resolution);
+        params.put("release_height", 10.0);
+        params.put("t", 120.0);
+
+        scenario = DispersionScenario.fromParams(params);
+        spec = GridSpec.fromParams(params);
+    }
+
+    @Benchmark
+    public ConcentrationField engine() {
+        return engine.compute(scenario, spec);
+    }
+
+    @Benchmark
+    public ResponseEntity<Map<String, Object>> controller() {
+        return controller.runModelGrid(params);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.refactoredbackend.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-form Pasquill-Gifford sigmas against SigmaTable lookups over a 1000x1000 grid's
+ * worth of downwind distances.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SigmaTableBenchmark {
+
+    private static final int RECEPTORS = 1_000_000;
+
+    private final double[] distances = new double[RECEPTORS];
+    private final double[] sigmas = new double[2];
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < RECEPTORS; i++) {
+            distances[i] = 1.0 + (i % 1000) * 10.0 + (i / 1000) * 0.001;
+        }
+    }
+
+    @Benchmark
+    public double closedForm() {
+        double sum = 0.0;
+        for (double x : distances) {
+            DispersionService.getSigmas(3, x, sigmas);
+            sum += sigmas[0] + sigmas[1];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double table() {
+        SigmaTable table = DispersionService.SIGMA_TABLE;
+        double sum = 0.0;
+        for (double x : distances) {
+            table.lookup(3, x, sigmas);
+            sum += sigmas[0] + sigmas[1];
+        }
+        return sum;
+    }
+}
@@ -1,19 +1,91 @@
 package com.example.refactoredbackend.controller;
 
 import com.example.refactoredbackend.model.*;
+import com.example.refactoredbackend.service.AdaptiveGrid;
+import com.example.refactoredbackend.service.AdaptiveGridEngine;
+import com.example.refactoredbackend.service.AdaptiveGridSpec;
+import com.example.refactoredbackend.service.CombinedField;
+import com.example.refactoredbackend.service.ConcentrationField;
+import com.example.refactoredbackend.service.ContourExtractor;
 import com.example.refactoredbackend.service.DataService;
+import com.example.refactoredbackend.service.DispersionScenario;
 import com.example.refactoredbackend.service.DispersionService;
+import com.example.refactoredbackend.service.EnsembleEngine;
+import com.example.refactoredbackend.service.EnsembleField;
+import com.example.refactoredbackend.service.EnsembleSpec;
+import com.example.refactoredbackend.service.EventField;
+import com.example.refactoredbackend.service.EventFieldInputs;
+import com.example.refactoredbackend.service.EventFieldService;
+import com.example.refactoredbackend.service.GridDispersionEngine;
+import com.example.refactoredbackend.service.GridRasterFormat;
+import com.example.refactoredbackend.service.GridSpec;
+import com.example.refactoredbackend.service.GeoFrame;
+import com.example.refactoredbackend.service.GridStreamWriters;
+import com.example.refactoredbackend.service.InversionObservations;
+import com.example.refactoredbackend.service.InversionResult;
+import com.example.refactoredbackend.service.InversionSpec;
+import com.example.refactoredbackend.service.JobProgress;
+import com.example.refactoredbackend.service.LatestWeatherSnapshot;
+import com.example.refactoredbackend.service.ModelJob;
+import com.example.refactoredbackend.service.ModelJobService;
+import com.example.refactoredbackend.service.ModelResultCache;
+import com.example.refactoredbackend.service.MultiSourceEngine;
+import com.example.refactoredbackend.service.OpenMeteoClient;
+import com.example.refactoredbackend.service.PuffSimulationEngine;
+import com.example.refactoredbackend.service.RasterStore;
+import com.example.refactoredbackend.service.RasterWindow;
+import com.example.refactoredbackend.service.SimulationSpec;
+import com.example.refactoredbackend.service.SourceInversionEngine;
+import com.example.refactoredbackend.service.StoredRaster;
+import com.example.refactoredbackend.service.ThresholdExtent;
+import com.example.refactoredbackend.service.ThresholdExtentSolver;
+import com.example.refactoredbackend.service.ThresholdSpec;
+import com.example.refactoredbackend.service.TileRun;
+import com.example.refactoredbackend.service.TileService;
+import com.example.refactoredbackend.service.WeatherIngestionService;
+import com.example.refactoredbackend.service.WeatherRollup;
+import com.example.refactoredbackend.service.WeatherRollupService;
 import com.example.refactoredbackend.service.WeatherService;
+import com.example.refactoredbackend.service.WindField;
+import com.example.refactoredbackend.service.WindFieldService;
+import com.example.refactoredbackend.service.WindRose;
+import com.example.refactoredbackend.service.WindRoseService;
+import com.example.refactoredbackend.service.WindSeries;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/api")
 public class DataController {
 
+    /** Largest grid that is also returned as a list of point objects. */
+    private static final long MAX_GRID_POINTS = 5_000;
+
+    /** Largest raster window returned as JSON; bigger windows should use format=raster. */
+    private static final long MAX_WINDOW_JSON_CELLS = 250_000;
+
+    /** Default side, in cells, of the per-step simulation snapshots. */
+    private static final int DEFAULT_SNAPSHOT_CELLS = 32;
+
+    /** Rough size of a cached single-point model response in bytes. */
+    private static final long POINT_RESULT_BYTES = 512;
+
     @Autowired
     private DataService dataService;
 
@@ -23,6 +95,60 @@ public class DataController {
     @Autowired
     private WeatherService weatherService;
 
+    @Autowired
+    private GridDispersionEngine gridDispersionEngine;
+
+    @Autowired
+    private PuffSimulationEngine puffSimulationEngine;
+
+    @Autowired
+    private EnsembleEngine ensembleEngine;
+
+    @Autowired
+    private ModelResultCache modelResultCache;
+
+    @Autowired
+    private MultiSourceEngine multiSourceEngine;
+
+    @Autowired
+    private AdaptiveGridEngine adaptiveGridEngine;
+
+    @Autowired
+    private SourceInversionEngine sourceInversionEngine;
+
+    @Autowired
+    private ThresholdExtentSolver thresholdExtentSolver;
+
+    @Autowired
+    private RasterStore rasterStore;
+
+    @Autowired
+    private TileService tileService;
+
+    @Autowired
+    private ModelJobService modelJobService;
+
+    @Autowired
+    private EventFieldService eventFieldService;
+
+    @Autowired
+    private OpenMeteoClient openMeteoClient;
+
+    @Autowired
+    private WeatherIngestionService weatherIngestionService;
+
+    @Autowired
+    private WeatherRollupService weatherRollupService;
+
+    @Autowired
+    private WindRoseService windRoseService;
+
+    @Autowired
+    private WindFieldService windFieldService;
+
+    @Autowired
+    private LatestWeatherSnapshot latestWeatherSnapshot;
+
     // ============ STATIONS ============
     @GetMapping("/stations")
     public ResponseEntity<List<Station>> getAllStations() {
@@ -70,6 +196,70 @@ public class DataController {
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    /**
+     * The event's footprint under its current weather and chemical, kept up to date by
+     * EventFieldService: it is only recomputed after inputs it depends on have changed.
+     */
+    @GetMapping("/events/{id}/field")
+    public ResponseEntity<Map<String, Object>> getEventField(
+            @PathVariable Long id,
+            @RequestParam(name = "include_field", defaultValue = "false") boolean includeField) {
+        Optional<EventField> found;
+        try {
+            found = eventFieldService.get(id);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        EventField eventField = found.get();
+        EventFieldInputs inputs = eventField.getInputs();
+        CombinedField field = eventField.getField();
+
+        Map<String, Object> weather = new HashMap<>();
+        weather.put("station_id", inputs.stationId());
+        weather.put("weather_id", inputs.weatherId());
+        weather.put("time", inputs.weatherTime() != null ? inputs.weatherTime().toString() : null);
+        weather.put("wind_speed", inputs.windSpeed());
+        weather.put("wind_direction", inputs.windDirection());
+        weather.put("stability_class", inputs.stabilityClass());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("event_id", id);
+        response.put("version", eventField.getVersion());
+        response.put("computed_at", eventField.getComputedAt().toString());
+        response.put("weather", weather);
+        response.put("molecular_weight", inputs.molecularWeight());
+        response.put("units", "µg/m³");
+        response.put("origin", Map.of("lat", field.getFrame().getOriginLat(), "lon", field.getFrame().getOriginLon()));
+        response.put("nx", field.getNx());
+        response.put("ny", field.getNy());
+        response.put("x0", field.getX0());
+        response.put("y0", field.getY0());
+        response.put("resolution", field.getResolution());
+        response.put("max_concentration", field.getMaxValue());
+        if (field.getMaxIndex() >= 0) {
+            double east = field.eastOf(field.getMaxIndex());
+            double north = field.northOf(field.getMaxIndex());
+            response.put("max_location", Map.of(
+                "x", east,
+                "y", north,
+                "lat", field.getFrame().lat(north),
+                "lon", field.getFrame().lon(east)
+            ));
+        }
+        if (includeField) {
+            response.put("field", field.getValues());
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/events/fields/stats")
+    public ResponseEntity<Map<String, Object>> getEventFieldStats() {
+        return ResponseEntity.ok(eventFieldService.stats());
+    }
+
     // ============ CHEMICALS ============
     @GetMapping("/chemicals")
     public ResponseEntity<List<Chemical>> getAllChemicals() {
@@ -129,14 +319,186 @@ public class DataController {
     }
 
     @GetMapping("/weather/latest")
-    public ResponseEntity<Map<String, Object>> getLatestWeather() {
+    public ResponseEntity<Map<String, Object>> getLatestWeather(@RequestParam(required = false) Long stationId) {
+        if (stationId != null) {
+            return ResponseEntity.ok(weatherService.getLatestWeather(stationId));
+        }
         return ResponseEntity.ok(weatherService.getLatestWeather());
     }
 
+    @GetMapping("/weather/latest/stats")
+    public ResponseEntity<Map<String, Object>> getLatestWeatherStats() {
+        return ResponseEntity.ok(latestWeatherSnapshot.stats());
+    }
+
     @PostMapping("/weather/store")
-    public ResponseEntity<Weather> storeWeatherData(@RequestBody Map<String, Object> data) {
-        Weather weather = weatherService.storeWeatherData(data);
-        return ResponseEntity.ok(weather);
+    public ResponseEntity<?> storeWeatherData(@RequestBody Map<String, Object> data) {
+        try {
+            Weather weather = weatherService.storeWeatherData(data);
+            return ResponseEntity.ok(weather);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Polls every station now instead of waiting for the schedule; the readings are written
+     * by the ingestion pipeline shortly after.
+     */
+    @PostMapping("/weather/ingest")
+    public ResponseEntity<Map<String, Object>> ingestWeather() {
+        int queued = weatherIngestionService.poll();
+        if (queued < 0) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "a poll is already running"));
+        }
+        return ResponseEntity.accepted().body(Map.of("queued", queued));
+    }
+
+    @GetMapping("/weather/ingest/stats")
+    public ResponseEntity<Map<String, Object>> getWeatherIngestStats() {
+        return ResponseEntity.ok(weatherIngestionService.stats());
+    }
+
+    /**
+     * Weather between start and end, from the daily or hourly rollups or the raw readings.
+     * resolution=auto picks the coarsest one that still gives at least points buckets.
+     */
+    @GetMapping("/weather/history")
+    public ResponseEntity<Map<String, Object>> getWeatherHistory(
+            @RequestParam(required = false) String start,
+            @RequestParam(required = false) String end,
+            @RequestParam(required = false) Long stationId,
+            @RequestParam(defaultValue = "200") int points,
+            @RequestParam(defaultValue = "auto") String resolution) {
+        LocalDateTime to;
+        LocalDateTime from;
+        WeatherRollupService.Resolution chosen;
+        try {
+            to = end != null ? LocalDateTime.parse(end) : LocalDateTime.now();
+            from = start != null ? LocalDateTime.parse(start) : to.minusHours(24);
+            if (!from.isBefore(to)) {
+                throw new IllegalArgumentException("start must be before end");
+            }
+            if (points < 1) {
+                throw new IllegalArgumentException("points must be positive");
+            }
+            chosen = "auto".equalsIgnoreCase(resolution)
+                ? WeatherRollupService.choose(from, to, points)
+                : WeatherRollupService.Resolution.fromName(resolution);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        List<Map<String, Object>> series = new ArrayList<>();
+        for (WeatherRollup rollup : weatherRollupService.query(stationId, from, to, chosen)) {
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("time", rollup.getBucket());
+            point.put("samples", rollup.getSamples());
+            point.put("wind_speed", Map.of("min", rollup.getWindSpeedMin(), "max", rollup.getWindSpeedMax(),
+                "mean", rollup.getWindSpeedMean()));
+            point.put("wind_direction", rollup.getWindDirectionMean());
+            point.put("wind_direction_steadiness", rollup.getWindDirectionSteadiness());
+            point.put("temperature", Map.of("min", rollup.getTemperatureMin(), "max", rollup.getTemperatureMax(),
+                "mean", rollup.getTemperatureMean()));
+            point.put("humidity", rollup.getHumidityMean());
+            point.put("pressure", rollup.getPressureMean());
+            point.put("precipitation", rollup.getPrecipitationSum());
+            series.add(point);
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("resolution", chosen.name().toLowerCase(Locale.ROOT));
+        response.put("station_id", stationId);
+        response.put("start", from);
+        response.put("end", to);
+        response.put("count", series.size());
+        response.put("points", series);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Wind rose between start and end (default the last 30 days), summed from the stored
+     * histograms at hour resolution.
+     */
+    @GetMapping("/weather/wind-rose")
+    public ResponseEntity<Map<String, Object>> getWindRose(
+            @RequestParam(required = false) String start,
+            @RequestParam(required = false) String end,
+            @RequestParam(required = false) Long stationId) {
+        LocalDateTime to;
+        LocalDateTime from;
+        try {
+            to = end != null ? LocalDateTime.parse(end) : LocalDateTime.now();
+            from = start != null ? LocalDateTime.parse(start) : to.minusDays(30);
+            if (!from.isBefore(to)) {
+                throw new IllegalArgumentException("start must be before end");
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        WindRose rose = windRoseService.query(stationId, from, to);
+        List<double[]> speedBins = new ArrayList<>();
+        for (int b = 0; b < WindRose.SPEED_BINS; b++) {
+            speedBins.add(WindRose.speedBinRange(b));
+        }
+        List<Map<String, Object>> sectors = new ArrayList<>();
+        for (int s = 0; s < WindRose.SECTORS; s++) {
+            sectors.add(Map.of("direction", WindRose.sectorDirection(s), "counts", rose.sector(s)));
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("station_id", stationId);
+        response.put("start", from);
+        response.put("end", to);
+        response.put("total", rose.total());
+        response.put("calm", rose.calm());
+        response.put("speed_bins", speedBins);
+        response.put("sectors", sectors);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Latest station winds interpolated onto a lattice around (lat, lon), as row-major speed
+     * (mph) and direction (degrees) arrays. 404 when no station has a reading.
+     */
+    @GetMapping("/weather/wind-field")
+    public ResponseEntity<Map<String, Object>> getWindField(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @RequestParam(defaultValue = "5000") double extent,
+            @RequestParam(defaultValue = "250") double resolution) {
+        Optional<WindField> found;
+        try {
+            found = windFieldService.field(lat, lon, extent, resolution);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        WindField field = found.get();
+        double[] speed = new double[field.getNx() * field.getNy()];
+        double[] direction = new double[speed.length];
+        for (int j = 0; j < field.getNy(); j++) {
+            for (int i = 0; i < field.getNx(); i++) {
+                speed[j * field.getNx() + i] = field.speedAt(i, j);
+                direction[j * field.getNx() + i] = field.directionAt(i, j);
+            }
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("nx", field.getNx());
+        response.put("ny", field.getNy());
+        response.put("x0", field.getX0());
+        response.put("y0", field.getY0());
+        response.put("resolution", field.getResolution());
+        response.put("stations", field.getStations());
+        response.put("wind_speed", speed);
+        response.put("wind_direction", direction);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/weather/wind-field/stats")
+    public ResponseEntity<Map<String, Object>> getWindFieldStats() {
+        return ResponseEntity.ok(windFieldService.stats());
     }
 
     @GetMapping("/weather/open-meteo")
@@ -147,6 +509,29 @@ public class DataController {
         return ResponseEntity.ok(weather);
     }
 
+    /**
+     * Current Open-Meteo weather at every station. Stations are fetched concurrently in
+     * multi-location requests, so the whole refresh takes about one round trip.
+     */
+    @GetMapping("/stations/weather")
+    public ResponseEntity<Map<String, Object>> getStationsWeather() {
+        long started = System.nanoTime();
+        List<Map<String, Object>> stations = weatherService.getCurrentWeatherForStations(dataService.getAllStations());
+        long failed = stations.stream().filter(station -> station.containsKey("error")).count();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("stations", stations);
+        response.put("count", stations.size());
+        response.put("failed", failed);
+        response.put("elapsed_ms", (System.nanoTime() - started) / 1_000_000);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/weather/open-meteo/cache/stats")
+    public ResponseEntity<Map<String, Object>> getOpenMeteoCacheStats() {
+        return ResponseEntity.ok(openMeteoClient.stats());
+    }
+
     @GetMapping("/weather/noaa")
     public ResponseEntity<Map<String, Object>> getWeatherNOAA(
             @RequestParam double lat,
@@ -166,70 +551,1091 @@ public class DataController {
     // ============ DISPERSION MODELS ============
     @PostMapping("/model/plume")
     public ResponseEntity<Map<String, Object>> calculatePlume(@RequestBody Map<String, Object> params) {
-        Map<String, Object> result = dispersionService.calculatePlume(params);
+        Map<String, Object> result = modelResultCache.get("plume", params, r -> POINT_RESULT_BYTES,
+            () -> Collections.unmodifiableMap(dispersionService.calculatePlume(params)));
         return ResponseEntity.ok(result);
     }
 
     @PostMapping("/model/puff")
     public ResponseEntity<Map<String, Object>> calculatePuff(@RequestBody Map<String, Object> params) {
-        Map<String, Object> result = dispersionService.calculatePuff(params);
+        Map<String, Object> result = modelResultCache.get("puff", params, r -> POINT_RESULT_BYTES,
+            () -> Collections.unmodifiableMap(dispersionService.calculatePuff(params)));
         return ResponseEntity.ok(result);
     }
 
     @PostMapping("/model/instantaneous")
     public ResponseEntity<Map<String, Object>> calculateInstantaneous(@RequestBody Map<String, Object> params) {
-        Map<String, Object> result = dispersionService.calculateInstantaneous(params);
+        Map<String, Object> result = modelResultCache.get("instantaneous", params, r -> POINT_RESULT_BYTES,
+            () -> Collections.unmodifiableMap(dispersionService.calculateInstantaneous(params)));
         return ResponseEntity.ok(result);
     }
 
+    @PostMapping("/model/batch")
+    public ResponseEntity<Map<String, Object>> calculateBatch(@RequestBody BatchRequest request) {
+        if (request.getReceptors() == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "receptors are required"));
+        }
+        Map<String, Object> scenarioParams = request.getScenario() != null ? request.getScenario() : Map.of();
+        double[] concentrations;
+        try {
+            concentrations = dispersionService.calculateBatch(scenarioParams, request.getReceptors());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        double maxConcentration = 0.0;
+        for (double c : concentrations) {
+            maxConcentration = Math.max(maxConcentration, c);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("model_type", DispersionScenario.normalizeModelType(String.valueOf(scenarioParams.get("model_type"))));
+        response.put("units", "µg/m³");
+        response.put("count", concentrations.length);
+        response.put("concentrations", concentrations);
+        response.put("max_concentration", maxConcentration);
+        return ResponseEntity.ok(response);
+    }
+
     @PostMapping("/model/run-grid")
     public ResponseEntity<Map<String, Object>> runModelGrid(@RequestBody Map<String, Object> params) {
-        String modelType = (String) params.get("model_type");
-        List<Map<String, Object>> gridPoints = new ArrayList<>();
-        
-        double[] distances = {50, 100, 200, 300, 500, 1000};
-        double[] offsets = {-50, -25, 0, 25, 50};
-        
-        for (double x : distances) {
-            for (double y : offsets) {
-                Map<String, Object> pointParams = new HashMap<>(params);
-                pointParams.put("x", x);
-                pointParams.put("y", y);
-                
-                Map<String, Object> result;
-                switch (modelType) {
-                    case "puff":
-                        result = dispersionService.calculatePuff(pointParams);
-                        break;
-                    case "instantaneous":
-                        result = dispersionService.calculateInstantaneous(pointParams);
-                        break;
-                    default:
-                        result = dispersionService.calculatePlume(pointParams);
-                }
-                
+        return runModelGrid(params, JobProgress.NONE);
+    }
+
+    private ResponseEntity<Map<String, Object>> runModelGrid(Map<String, Object> params, JobProgress progress) {
+        DispersionScenario scenario;
+        GridSpec spec;
+        try {
+            scenario = DispersionScenario.fromParams(params);
+            spec = GridSpec.fromParams(params);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        ConcentrationField field = modelResultCache.get("run-grid", params,
+            f -> 8 * f.getSpec().cellCount() + 256,
+            () -> gridDispersionEngine.compute(scenario, spec, progress));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("type", scenario.getModelType());
+        response.put("nx", spec.getNx());
+        response.put("ny", spec.getNy());
+        response.put("nz", spec.getNz());
+        response.put("x0", spec.xAt(0));
+        response.put("y0", spec.yAt(0));
+        response.put("resolution", spec.getResolution());
+        response.put("z_levels", spec.getZLevels());
+        response.put("max_concentration", field.getMaxValue());
+        if (field.getMaxIndex() >= 0) {
+            int maxIndex = field.getMaxIndex();
+            response.put("max_location", Map.of(
+                "x", field.xOf(maxIndex),
+                "y", field.yOf(maxIndex),
+                "z", field.zOf(maxIndex)
+            ));
+        }
+        response.put("stability_class", scenario.getStabilityClass());
+
+        // Point list for map markers; large grids should request the raw field instead.
+        if (spec.cellCount() <= MAX_GRID_POINTS) {
+            List<Map<String, Object>> gridPoints = new ArrayList<>();
+            double[] values = field.getValues();
+            for (int i = 0; i < values.length; i++) {
                 Map<String, Object> gridPoint = new HashMap<>();
-                gridPoint.put("x", x);
-                gridPoint.put("y", y);
-                gridPoint.put("concentration", result.get("concentration"));
+                gridPoint.put("x", field.xOf(i));
+                gridPoint.put("y", field.yOf(i));
+                gridPoint.put("z", field.zOf(i));
+                gridPoint.put("concentration", values[i]);
                 gridPoints.add(gridPoint);
             }
+            response.put("grid", gridPoints);
+        }
+        if (Boolean.parseBoolean(String.valueOf(params.get("include_field")))) {
+            response.put("field", field.getValues());
+        }
+        if (Boolean.parseBoolean(String.valueOf(params.get("store")))) {
+            try {
+                response.put("raster_id", rasterStore.save(field));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+        }
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Solves for how far downwind and how wide the centreline exceeds a level of concern,
+     * without evaluating a grid.
+     */
+    @PostMapping("/model/threshold-distance")
+    public ResponseEntity<Map<String, Object>> solveThresholdDistance(@RequestBody Map<String, Object> params) {
+        return solveThresholdDistance(params, JobProgress.NONE);
+    }
+
+    private ResponseEntity<Map<String, Object>> solveThresholdDistance(Map<String, Object> params, JobProgress progress) {
+        DispersionScenario scenario;
+        ThresholdSpec spec;
+        ThresholdExtent extent;
+        // A single short solve; one unit of progress
+        progress.start(1);
+        try {
+            scenario = DispersionScenario.fromParams(params);
+            spec = ThresholdSpec.fromParams(params);
+            progress.checkCancelled();
+            extent = thresholdExtentSolver.solve(scenario, spec);
+            progress.advance(1);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
-        
-        double maxConcentration = gridPoints.stream()
-            .mapToDouble(p -> ((Number) p.get("concentration")).doubleValue())
-            .max()
-            .orElse(0.0);
-        
+
         Map<String, Object> response = new HashMap<>();
-        response.put("type", modelType);
-        response.put("grid", gridPoints);
-        response.put("max_concentration", maxConcentration);
-        response.put("stability_class", params.get("stability_class"));
-        
+        response.put("type", scenario.getModelType());
+        response.put("units", "µg/m³");
+        response.put("threshold", extent.getThreshold());
+        response.put("z", spec.getZ());
+        response.put("exceeded", extent.isExceeded());
+        response.put("nearest_distance", extent.getNearestDistance());
+        response.put("downwind_distance", extent.getDownwindDistance());
+        response.put("beyond_max_distance", extent.isBeyondMaxDistance());
+        response.put("max_half_width", extent.getMaxHalfWidth());
+        response.put("half_width_distance", extent.getHalfWidthDistance());
+        response.put("peak_concentration", extent.getPeakConcentration());
+        response.put("peak_distance", extent.getPeakDistance());
+        response.put("evaluations", extent.getEvaluations());
+        response.put("stability_class", scenario.getStabilityClass());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Adaptive (quadtree) grid: a sparse list of [x, y, size, concentration] cells, finest along
+     * the plume and at the optional level-of-concern boundaries (levels), coarse elsewhere.
+     */
+    @PostMapping("/model/run-adaptive")
+    public ResponseEntity<Map<String, Object>> runAdaptiveGrid(@RequestBody Map<String, Object> params) {
+        return runAdaptiveGrid(params, JobProgress.NONE);
+    }
+
+    private ResponseEntity<Map<String, Object>> runAdaptiveGrid(Map<String, Object> params, JobProgress progress) {
+        DispersionScenario scenario;
+        AdaptiveGridSpec spec;
+        AdaptiveGrid grid;
+        try {
+            scenario = DispersionScenario.fromParams(params);
+            spec = AdaptiveGridSpec.fromParams(params);
+            grid = adaptiveGridEngine.compute(scenario, spec, progress);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        double[][] cells = new double[grid.getCellCount()][];
+        for (int c = 0; c < cells.length; c++) {
+            cells[c] = new double[]{grid.xAt(c), grid.yAt(c), grid.sizeAt(c), grid.valueAt(c)};
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("type", scenario.getModelType());
+        response.put("units", "µg/m³");
+        response.put("z", spec.getZ());
+        response.put("resolution", spec.getResolution());
+        response.put("root_size", spec.getRootSize());
+        response.put("cell_count", grid.getCellCount());
+        response.put("evaluations", grid.getEvaluations());
+        response.put("dense_cells", spec.denseCellCount());
+        response.put("max_concentration", grid.getMaxValue());
+        response.put("stability_class", scenario.getStabilityClass());
+        response.put("cells", cells);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/model/cache/stats")
+    public ResponseEntity<Map<String, Object>> getModelCacheStats() {
+        return ResponseEntity.ok(modelResultCache.stats());
+    }
+
+    /**
+     * Streams the grid as it is computed instead of materializing it, either as NDJSON rows
+     * or as a float32 raster (see GridRasterFormat).
+     */
+    @PostMapping("/model/run-grid/stream")
+    public ResponseEntity<?> streamModelGrid(
+            @RequestBody Map<String, Object> params,
+            @RequestParam(defaultValue = GridStreamWriters.NDJSON) String format) {
+        DispersionScenario scenario;
+        GridSpec spec;
+        try {
+            scenario = DispersionScenario.fromParams(params);
+            spec = GridSpec.fromParams(params);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        StreamingResponseBody body;
+        MediaType mediaType;
+        switch (format) {
+            case GridStreamWriters.NDJSON:
+                mediaType = MediaType.parseMediaType(GridStreamWriters.NDJSON_MEDIA_TYPE);
+                body = out -> gridDispersionEngine.stream(scenario, spec, GridStreamWriters.ndjson(scenario, spec, out));
+                break;
+            case GridStreamWriters.RASTER:
+                mediaType = MediaType.parseMediaType(GridRasterFormat.MEDIA_TYPE);
+                body = out -> gridDispersionEngine.stream(scenario, spec, GridStreamWriters.raster(spec, out));
+                break;
+            default:
+                return ResponseEntity.badRequest().body(Map.of("error", "format must be ndjson or raster"));
+        }
+        return ResponseEntity.ok().contentType(mediaType).body(body);
+    }
+
+    /**
+     * Multi-puff simulation of an event (event_id) or an inline source, advected through the
+     * stored weather for the run window. Without weather, wind_speed/wind_direction/stability_class
+     * from the request are held constant. Returns one summary per time step with a max-pooled
+     * snapshot of that step's field at most snapshot_cells across (0 for none); with store, every
+     * step's full field is also kept as one time slice of a stored raster.
+     */
+    @PostMapping("/model/simulate")
+    public ResponseEntity<Map<String, Object>> runSimulation(@RequestBody Map<String, Object> params) {
+        return runSimulation(params, JobProgress.NONE);
+    }
+
+    private ResponseEntity<Map<String, Object>> runSimulation(Map<String, Object> params, JobProgress progress) {
+        Event event = null;
+        if (params.get("event_id") != null) {
+            Long eventId;
+            try {
+                eventId = parseId(params.get("event_id"), "event_id");
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+            Optional<Event> found = dataService.getEvent(eventId);
+            if (found.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            event = found.get();
+        }
+
+        SimulationSpec spec;
+        try {
+            spec = SimulationSpec.fromParams(params, event);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        WindSeries constantWind = WindSeries.fromParams(params);
+        WindSeries wind = event == null ? constantWind : weatherService
+            .getWindSeries(event.getTime(), event.getTime().plusSeconds((long) Math.ceil(spec.getDuration())))
+            .orElse(constantWind);
+
+        // Latest station winds interpolated around the source, when asked for and available
+        WindField windField = null;
+        if (Boolean.parseBoolean(String.valueOf(params.get("wind_field")))) {
+            try {
+                double sourceLat = event != null ? event.getLat()
+                    : DispersionService.getDoubleParam(params, "source_lat", Double.NaN);
+                double sourceLon = event != null ? event.getLon()
+                    : DispersionService.getDoubleParam(params, "source_lon", Double.NaN);
+                if (Double.isNaN(sourceLat) || Double.isNaN(sourceLon)) {
+                    throw new IllegalArgumentException("wind_field needs event_id or source_lat and source_lon");
+                }
+                windField = windFieldService.field(sourceLat, sourceLon, spec.getExtent(), Math.max(spec.getResolution(),
+                    DispersionService.getDoubleParam(params, "wind_field_resolution", 250.0))).orElse(null);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+        }
+
+        int snapshotCells = (int) DispersionService.getDoubleParam(params, "snapshot_cells", DEFAULT_SNAPSHOT_CELLS);
+        if (snapshotCells < 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "snapshot_cells must not be negative"));
+        }
+        int snapshotStride = snapshotCells == 0 ? 0 : (spec.getN() + snapshotCells - 1) / snapshotCells;
+
+        RasterStore.Writer raster = null;
+        if (Boolean.parseBoolean(String.valueOf(params.get("store")))) {
+            try {
+                raster = rasterStore.create(new GridRasterFormat.Header(spec.getN(), spec.getN(), spec.getSteps(),
+                    spec.coordinate(0), spec.coordinate(0), spec.getResolution(), spec.getResolution(),
+                    new double[]{spec.getReceptorHeight()}));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+        }
+
+        List<Map<String, Object>> steps = new ArrayList<>();
+        boolean includeField = Boolean.parseBoolean(String.valueOf(params.get("include_field")));
+        double[] finalField = includeField ? new double[spec.getN() * spec.getN()] : null;
+        String rasterId = null;
+        progress.start(spec.getSteps());
+        try (RasterStore.Writer writer = raster) {
+            puffSimulationEngine.run(spec, wind, windField, (step, time, puffs, field, maxValue, maxIndex) -> {
+                progress.checkCancelled();
+                Map<String, Object> summary = new HashMap<>();
+                summary.put("step", step);
+                summary.put("t", time);
+                summary.put("puffs", puffs);
+                summary.put("max_concentration", maxValue);
+                if (maxIndex >= 0) {
+                    summary.put("max_x", spec.coordinate(maxIndex % spec.getN()));
+                    summary.put("max_y", spec.coordinate(maxIndex / spec.getN()));
+                }
+                if (snapshotStride > 0) {
+                    summary.put("snapshot", PuffSimulationEngine.downsample(field, spec.getN(), snapshotStride));
+                }
+                steps.add(summary);
+                if (finalField != null && step == spec.getSteps()) {
+                    System.arraycopy(field, 0, finalField, 0, field.length);
+                }
+                if (writer != null) {
+                    writer.writePlane(step - 1, 0, field, 0);
+                }
+                progress.advance(1);
+            });
+            if (writer != null) {
+                rasterId = writer.commit();
+            }
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("type", "simulation");
+        response.put("units", "µg/m³");
+        response.put("n", spec.getN());
+        response.put("origin", spec.coordinate(0));
+        response.put("resolution", spec.getResolution());
+        response.put("weather_records", wind.size());
+        response.put("wind_source", windField != null ? "field" : "series");
+        if (windField != null) {
+            response.put("wind_field_stations", windField.getStations());
+        }
+        if (snapshotStride > 0) {
+            // Snapshot cells are stride x stride field cells, starting at the field's first cell
+            response.put("snapshot_n", (spec.getN() + snapshotStride - 1) / snapshotStride);
+            response.put("snapshot_resolution", spec.getResolution() * snapshotStride);
+        }
+        response.put("steps", steps);
+        if (includeField) {
+            response.put("field", finalField);
+        }
+        if (rasterId != null) {
+            response.put("raster_id", rasterId);
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Total field of several simultaneous releases under one wind. Sources are the events in
+     * event_ids, or every event that started within active_window_s seconds (default one day).
+     * The grid is east/north metres around the sources' centroid, extending extent metres past
+     * the outermost source; each source is skipped where it contributes less than cutoff µg/m³.
+     */
+    @PostMapping("/model/combined")
+    public ResponseEntity<Map<String, Object>> runCombined(@RequestBody Map<String, Object> params) {
+        return runCombined(params, JobProgress.NONE);
+    }
+
+    private ResponseEntity<Map<String, Object>> runCombined(Map<String, Object> params, JobProgress progress) {
+        List<Event> events;
+        if (params.get("event_ids") instanceof List<?> ids) {
+            List<Long> eventIds = new ArrayList<>();
+            try {
+                for (Object id : ids) {
+                    eventIds.add(parseId(id, "event_ids"));
+                }
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+            events = dataService.getEvents(eventIds);
+        } else {
+            LocalDateTime now = LocalDateTime.now();
+            long window = (long) DispersionService.getDoubleParam(params, "active_window_s", 86_400.0);
+            events = dataService.getActiveEvents(now.minusSeconds(window), now);
+        }
+        if (events.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "no active events to combine"));
+        }
+
+        CombinedField field;
+        List<Map<String, Object>> sourceSummaries = new ArrayList<>();
+        try {
+            DispersionScenario weather = DispersionScenario.fromParams(params);
+            double releaseDuration = DispersionService.getDoubleParam(params, "release_duration_s", 3600.0);
+            if (!(releaseDuration > 0)) {
+                throw new IllegalArgumentException("release_duration_s must be positive");
+            }
+            List<MultiSourceEngine.Source> sources = new ArrayList<>();
+            for (Event event : events) {
+                MultiSourceEngine.Source source = MultiSourceEngine.Source.fromEvent(event, releaseDuration,
+                    weather.getReleaseHeight(), weather.getWindSpeed(), weather.getStabilityClass(),
+                    weather.getMolecularWeight());
+                sources.add(source);
+                Map<String, Object> summary = new HashMap<>();
+                summary.put("event_id", event.getId());
+                summary.put("name", event.getName());
+                summary.put("lat", event.getLat());
+                summary.put("lon", event.getLon());
+                summary.put("model_type", source.getScenario().getModelType());
+                summary.put("Q", source.getScenario().getQ());
+                sourceSummaries.add(summary);
+            }
+            field = multiSourceEngine.compute(sources,
+                DispersionService.getDoubleParam(params, "wind_direction", 270.0),
+                DispersionService.getDoubleParam(params, "resolution", 50.0),
+                DispersionService.getDoubleParam(params, "extent", 5000.0),
+                DispersionService.getDoubleParam(params, "z", 1.5),
+                DispersionService.getDoubleParam(params, "cutoff", 1e-3),
+                progress);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("type", "combined");
+        response.put("units", "µg/m³");
+        response.put("sources", sourceSummaries);
+        response.put("origin", Map.of("lat", field.getFrame().getOriginLat(), "lon", field.getFrame().getOriginLon()));
+        response.put("nx", field.getNx());
+        response.put("ny", field.getNy());
+        response.put("x0", field.getX0());
+        response.put("y0", field.getY0());
+        response.put("resolution", field.getResolution());
+        response.put("max_concentration", field.getMaxValue());
+        if (field.getMaxIndex() >= 0) {
+            double east = field.eastOf(field.getMaxIndex());
+            double north = field.northOf(field.getMaxIndex());
+            response.put("max_location", Map.of(
+                "x", east,
+                "y", north,
+                "lat", field.getFrame().lat(north),
+                "lon", field.getFrame().lon(east)
+            ));
+        }
+        response.put("evaluated_fraction", (double) field.getEvaluated() / ((long) field.getNx() * field.getNy() * events.size()));
+        if (Boolean.parseBoolean(String.valueOf(params.get("include_field")))) {
+            response.put("field", field.getValues());
+        }
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Back-estimates a continuous source from the SO2 plume observations between start and end
+     * (ISO date-times, default the last 24 hours). The fit starts at event_id's location or at
+     * source_lat/source_lon and always fits Q; fit_position and fit_height also move the
+     * source within search_radius metres and between 0 and max_height.
+     */
+    @PostMapping("/model/invert")
+    public ResponseEntity<Map<String, Object>> invertSource(@RequestBody Map<String, Object> params) {
+        return invertSource(params, JobProgress.NONE);
+    }
+
+    private ResponseEntity<Map<String, Object>> invertSource(Map<String, Object> params, JobProgress progress) {
+        double sourceLat;
+        double sourceLon;
+        if (params.get("event_id") != null) {
+            Long eventId;
+            try {
+                eventId = parseId(params.get("event_id"), "event_id");
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+            Optional<Event> event = dataService.getEvent(eventId);
+            if (event.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            sourceLat = event.get().getLat();
+            sourceLon = event.get().getLon();
+        } else if (params.get("source_lat") != null && params.get("source_lon") != null) {
+            sourceLat = DispersionService.getDoubleParam(params, "source_lat", Double.NaN);
+            sourceLon = DispersionService.getDoubleParam(params, "source_lon", Double.NaN);
+            if (Double.isNaN(sourceLat) || Double.isNaN(sourceLon)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "source_lat and source_lon must be numbers"));
+            }
+        } else {
+            return ResponseEntity.badRequest().body(Map.of("error", "event_id or source_lat/source_lon is required"));
+        }
+
+        InversionResult result;
+        InversionSpec spec;
+        try {
+            LocalDateTime end = params.get("end") != null ? LocalDateTime.parse(params.get("end").toString()) : LocalDateTime.now();
+            LocalDateTime start = params.get("start") != null ? LocalDateTime.parse(params.get("start").toString()) : end.minusHours(24);
+            double molecularWeight = DispersionService.getDoubleParam(params, "molecular_weight", 64.066);
+            spec = InversionSpec.fromParams(params);
+            InversionObservations observations = InversionObservations.fromPlumes(
+                dataService.getStationPlumes(start, end), new GeoFrame(sourceLat, sourceLon), molecularWeight);
+            result = sourceInversionEngine.invert(observations, spec, progress);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("type", "inversion");
+        response.put("Q", result.getQ());
+        response.put("Q_units", "g/s");
+        response.put("lat", result.getLat());
+        response.put("lon", result.getLon());
+        response.put("release_height", result.getReleaseHeight());
+        response.put("stability_class", spec.getStabilityClass());
+        response.put("rmse_ppb", result.getRmsePpb());
+        response.put("correlation", result.getCorrelation());
+        response.put("observations", result.getObservations());
+        response.put("cost_evaluations", result.getCostEvaluations());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Isopleth rings at the requested concentration levels (e.g. AEGL/ERPG thresholds in µg/m³)
+     * instead of the raw field. Coordinates are metres in the source-aligned grid frame.
+     */
+    @PostMapping("/model/contours")
+    public ResponseEntity<Map<String, Object>> calculateContours(@RequestBody Map<String, Object> params) {
+        return calculateContours(params, JobProgress.NONE);
+    }
+
+    private ResponseEntity<Map<String, Object>> calculateContours(Map<String, Object> params, JobProgress progress) {
+        DispersionScenario scenario;
+        GridSpec spec;
+        double[] levels;
+        int zIndex;
+        try {
+            scenario = DispersionScenario.fromParams(params);
+            spec = GridSpec.fromParams(params);
+            levels = parseLevels(params.get("levels"));
+            zIndex = (int) DispersionService.getDoubleParam(params, "z_index", 0);
+            if (zIndex < 0 || zIndex >= spec.getNz()) {
+                throw new IllegalArgumentException("z_index is outside the z-levels");
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        ConcentrationField field = gridDispersionEngine.compute(scenario, spec, progress);
+        List<List<double[]>> rings = ContourExtractor.rings(field, zIndex, levels);
+
+        List<Map<String, Object>> contours = new ArrayList<>();
+        for (int i = 0; i < levels.length; i++) {
+            List<double[][]> polygons = new ArrayList<>();
+            for (double[] ring : rings.get(i)) {
+                double[][] coordinates = new double[ring.length / 2][];
+                for (int p = 0; p < coordinates.length; p++) {
+                    coordinates[p] = new double[]{ring[2 * p], ring[2 * p + 1]};
+                }
+                polygons.add(coordinates);
+            }
+            Map<String, Object> contour = new HashMap<>();
+            contour.put("level", levels[i]);
+            contour.put("polygons", polygons);
+            contours.add(contour);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("type", scenario.getModelType());
+        response.put("units", "µg/m³");
+        response.put("z", spec.zAt(zIndex));
+        response.put("resolution", spec.getResolution());
+        response.put("max_concentration", field.getMaxValue());
+        response.put("stability_class", scenario.getStabilityClass());
+        response.put("contours", contours);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Monte Carlo ensemble of a grid scenario with the wind speed and direction perturbed by
+     * wind_speed_error_ms / wind_dir_error_deg, taken from a plume record (plume_id) unless given
+     * explicitly. Returns per-cell mean, P95 and probability of reaching threshold (µg/m³),
+     * laid out like the run-grid field.
+     */
+    @PostMapping("/model/ensemble")
+    public ResponseEntity<Map<String, Object>> runEnsemble(@RequestBody Map<String, Object> params) {
+        return runEnsemble(params, JobProgress.NONE);
+    }
+
+    private ResponseEntity<Map<String, Object>> runEnsemble(Map<String, Object> params, JobProgress progress) {
+        Plume plume = null;
+        if (params.get("plume_id") != null) {
+            Long plumeId;
+            try {
+                plumeId = parseId(params.get("plume_id"), "plume_id");
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+            Optional<Plume> found = dataService.getPlume(plumeId);
+            if (found.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            plume = found.get();
+        }
+
+        EnsembleField field;
+        try {
+            DispersionScenario scenario = DispersionScenario.fromParams(params);
+            GridSpec spec = GridSpec.fromParams(params);
+            EnsembleSpec ensemble = EnsembleSpec.fromParams(params, plume);
+            field = ensembleEngine.run(scenario, spec, ensemble, progress);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        GridSpec spec = field.getSpec();
+        EnsembleSpec ensemble = field.getEnsemble();
+        Map<String, Object> response = new HashMap<>();
+        response.put("type", "ensemble");
+        response.put("units", "µg/m³");
+        response.put("members", ensemble.getMembers());
+        response.put("seed", ensemble.getSeed());
+        response.put("wind_speed_error_ms", ensemble.getWindSpeedErrorMs());
+        response.put("wind_dir_error_deg", ensemble.getWindDirErrorDeg());
+        response.put("threshold", ensemble.getThreshold());
+        response.put("nx", spec.getNx());
+        response.put("ny", spec.getNy());
+        response.put("nz", spec.getNz());
+        response.put("x0", spec.xAt(0));
+        response.put("y0", spec.yAt(0));
+        response.put("resolution", spec.getResolution());
+        response.put("z_levels", spec.getZLevels());
+        response.put("max_mean", field.getMaxMean());
+        response.put("max_p95", field.getMaxP95());
+        response.put("mean", field.getMean());
+        response.put("p95", field.getP95());
+        response.put("exceedance_probability", field.getExceedance());
+        return ResponseEntity.ok(response);
+    }
+
+    /** A request id, accepted as a number or a numeric string. */
+    private static Long parseId(Object value, String name) {
+        try {
+            return Long.valueOf(value.toString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be an integer id");
+        }
+    }
+
+    private static double[] parseLevels(Object value) {
+        if (!(value instanceof List<?> list) || list.isEmpty()) {
+            throw new IllegalArgumentException("levels must be a non-empty array of concentrations");
+        }
+        if (list.size() > ContourExtractor.MAX_LEVELS) {
+            throw new IllegalArgumentException("at most " + ContourExtractor.MAX_LEVELS + " contour levels are allowed");
+        }
+        double[] levels = new double[list.size()];
+        for (int i = 0; i < levels.length; i++) {
+            if (!(list.get(i) instanceof Number number) || !(number.doubleValue() > 0)) {
+                throw new IllegalArgumentException("levels must be positive numbers");
+            }
+            levels[i] = number.doubleValue();
+        }
+        return levels;
+    }
+
+    /**
+     * Body of /model/batch: one scenario (same keys as /model/plume etc.) and receptor rows
+     * of [x, y] or [x, y, z] in metres.
+     */
+    public static class BatchRequest {
+        private Map<String, Object> scenario;
+        private double[][] receptors;
+
+        public Map<String, Object> getScenario() {
+            return scenario;
+        }
+
+        public void setScenario(Map<String, Object> scenario) {
+            this.scenario = scenario;
+        }
+
+        public double[][] getReceptors() {
+            return receptors;
+        }
+
+        public void setReceptors(double[][] receptors) {
+            this.receptors = receptors;
+        }
+    }
+
+    // ============ RASTERS ============
+    @GetMapping("/rasters")
+    public ResponseEntity<List<Map<String, Object>>> getRasters() {
+        List<Map<String, Object>> rasters = new ArrayList<>();
+        for (StoredRaster raster : rasterStore.list()) {
+            rasters.add(rasterSummary(raster));
+        }
+        return ResponseEntity.ok(rasters);
+    }
+
+    @GetMapping("/rasters/{id}")
+    public ResponseEntity<Map<String, Object>> getRaster(@PathVariable String id) {
+        return rasterStore.get(id)
+            .map(raster -> ResponseEntity.ok(rasterSummary(raster)))
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Sub-window of one time slice (t) and level (z index) of a stored raster, downsampled by
+     * step with mode sample or max. format=raster returns a CYRS raster, json a row-major array.
+     */
+    @GetMapping("/rasters/{id}/window")
+    public ResponseEntity<?> getRasterWindow(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "0") int t,
+            @RequestParam(defaultValue = "0") int z,
+            @RequestParam(defaultValue = "0") int ix,
+            @RequestParam(defaultValue = "0") int iy,
+            @RequestParam(required = false) Integer width,
+            @RequestParam(required = false) Integer height,
+            @RequestParam(defaultValue = "1") int step,
+            @RequestParam(defaultValue = "sample") String mode,
+            @RequestParam(defaultValue = "json") String format) {
+        Optional<StoredRaster> found = rasterStore.get(id);
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        StoredRaster raster = found.get();
+        RasterWindow window;
+        try {
+            GridRasterFormat.Header header = raster.getHeader();
+            window = raster.window(t, z, ix, iy,
+                width != null ? width : header.nx() - ix,
+                height != null ? height : header.ny() - iy,
+                step, RasterWindow.Mode.parse(mode));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        if (GridStreamWriters.RASTER.equals(format)) {
+            StreamingResponseBody body = out -> window.writeRaster(Channels.newChannel(out));
+            return ResponseEntity.ok().contentType(MediaType.parseMediaType(GridRasterFormat.MEDIA_TYPE)).body(body);
+        }
+        if (!"json".equals(format)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "format must be json or raster"));
+        }
+        if (window.cellCount() > MAX_WINDOW_JSON_CELLS) {
+            return ResponseEntity.badRequest().body(Map.of("error", "window of " + window.cellCount()
+                + " cells is too large for JSON; use format=raster or a larger step"));
+        }
+        float[][] values = new float[window.getNy()][window.getNx()];
+        for (int j = 0; j < values.length; j++) {
+            for (int i = 0; i < values[j].length; i++) {
+                values[j][i] = window.get(i, j);
+            }
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("id", raster.getId());
+        response.put("units", "µg/m³");
+        response.put("nx", window.getNx());
+        response.put("ny", window.getNy());
+        response.put("x0", window.getX0());
+        response.put("y0", window.getY0());
+        response.put("dx", window.getDx());
+        response.put("dy", window.getDy());
+        response.put("values", values);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Difference between a plane of one stored raster and a plane of another (or the same)
+     * raster, e.g. two time slices or two runs over the same grid.
+     */
+    @GetMapping("/rasters/{id}/compare/{otherId}")
+    public ResponseEntity<Map<String, Object>> compareRasters(
+            @PathVariable String id,
+            @PathVariable String otherId,
+            @RequestParam(defaultValue = "0") int t,
+            @RequestParam(defaultValue = "0") int z,
+            @RequestParam(name = "other_t", required = false) Integer otherT,
+            @RequestParam(name = "other_z", required = false) Integer otherZ) {
+        Optional<StoredRaster> raster = rasterStore.get(id);
+        Optional<StoredRaster> other = rasterStore.get(otherId);
+        if (raster.isEmpty() || other.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        StoredRaster.Difference difference;
+        try {
+            difference = raster.get().compare(t, z, other.get(), otherT != null ? otherT : t, otherZ != null ? otherZ : z);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        GridRasterFormat.Header header = raster.get().getHeader();
+        Map<String, Object> response = new HashMap<>();
+        response.put("units", "µg/m³");
+        response.put("max_absolute_difference", difference.maxAbsolute());
+        response.put("rms_difference", difference.rms());
+        response.put("max_concentration", difference.maxA());
+        response.put("other_max_concentration", difference.maxB());
+        if (difference.maxIndex() >= 0) {
+            response.put("max_difference_location", Map.of(
+                "x", header.x0() + (difference.maxIndex() % header.nx()) * header.dx(),
+                "y", header.y0() + (difference.maxIndex() / header.nx()) * header.dy()
+            ));
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    @DeleteMapping("/rasters/{id}")
+    public ResponseEntity<Void> deleteRaster(@PathVariable String id) {
+        return rasterStore.delete(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    private static Map<String, Object> rasterSummary(StoredRaster raster) {
+        GridRasterFormat.Header header = raster.getHeader();
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("id", raster.getId());
+        summary.put("created", raster.getCreated().toString());
+        summary.put("nx", header.nx());
+        summary.put("ny", header.ny());
+        summary.put("nz", header.nz());
+        summary.put("nt", header.nt());
+        summary.put("x0", header.x0());
+        summary.put("y0", header.y0());
+        summary.put("dx", header.dx());
+        summary.put("dy", header.dy());
+        summary.put("z_levels", header.zLevels());
+        summary.put("bytes", header.fileBytes());
+        return summary;
+    }
+
+    // ============ MAP TILES ============
+    /**
+     * Places a scenario at an event (event_id) or source_lat/source_lon for tiling under
+     * wind_direction. Colours run on a log scale from min_concentration to max_concentration
+     * (default: the centreline peak).
+     */
+    @PostMapping("/tiles")
+    public ResponseEntity<Map<String, Object>> createTileRun(@RequestBody Map<String, Object> params) {
+        double sourceLat;
+        double sourceLon;
+        if (params.get("event_id") != null) {
+            Long eventId;
+            try {
+                eventId = parseId(params.get("event_id"), "event_id");
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+            Optional<Event> event = dataService.getEvent(eventId);
+            if (event.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            sourceLat = event.get().getLat();
+            sourceLon = event.get().getLon();
+        } else if (params.get("source_lat") != null && params.get("source_lon") != null) {
+            sourceLat = DispersionService.getDoubleParam(params, "source_lat", Double.NaN);
+            sourceLon = DispersionService.getDoubleParam(params, "source_lon", Double.NaN);
+            if (Double.isNaN(sourceLat) || Double.isNaN(sourceLon)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "source_lat and source_lon must be numbers"));
+            }
+        } else {
+            return ResponseEntity.badRequest().body(Map.of("error", "event_id or source_lat/source_lon is required"));
+        }
+
+        TileRun run;
+        try {
+            run = tileService.register(DispersionScenario.fromParams(params), sourceLat, sourceLon,
+                DispersionService.getDoubleParam(params, "wind_direction", 270.0),
+                DispersionService.getDoubleParam(params, "z", 1.5),
+                DispersionService.getDoubleParam(params, "min_concentration", 1.0),
+                DispersionService.getDoubleParam(params, "max_concentration", Double.NaN));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        return ResponseEntity.ok(tileRunSummary(run));
+    }
+
+    @GetMapping("/tiles/{runId}")
+    public ResponseEntity<Map<String, Object>> getTileRun(@PathVariable String runId) {
+        return tileService.getRun(runId)
+            .map(run -> ResponseEntity.ok(tileRunSummary(run)))
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/tiles/{runId}/{z}/{x}/{y}.png")
+    public ResponseEntity<?> getTile(@PathVariable String runId, @PathVariable int z, @PathVariable int x,
+                                     @PathVariable int y) {
+        Optional<TileRun> run = tileService.getRun(runId);
+        if (run.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        byte[] png;
+        try {
+            png = tileService.tile(run.get(), z, x, y);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        // A run never changes, so browsers can keep its tiles
+        return ResponseEntity.ok()
+            .contentType(MediaType.IMAGE_PNG)
+            .cacheControl(CacheControl.maxAge(Duration.ofHours(1)))
+            .body(png);
+    }
+
+    @GetMapping("/tiles/cache/stats")
+    public ResponseEntity<Map<String, Object>> getTileCacheStats() {
+        return ResponseEntity.ok(tileService.stats());
+    }
+
+    private static Map<String, Object> tileRunSummary(TileRun run) {
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("run_id", run.getId());
+        summary.put("tile_url", "/api/tiles/" + run.getId() + "/{z}/{x}/{y}.png");
+        summary.put("type", run.getScenario().getModelType());
+        summary.put("source", Map.of("lat", run.getFrame().getOriginLat(), "lon", run.getFrame().getOriginLon()));
+        summary.put("wind_direction", run.getWindDirection());
+        summary.put("z", run.getZ());
+        summary.put("units", "µg/m³");
+        summary.put("min_concentration", run.getMinConcentration());
+        summary.put("max_concentration", run.getMaxConcentration());
+        summary.put("reach", run.getReach());
+        summary.put("half_width", run.getHalfWidth());
+        summary.put("created", run.getCreated().toString());
+        return summary;
+    }
+
+    // ============ MODEL JOBS ============
+    /**
+     * Queues a model request (kind is the /model/ endpoint name, e.g. run-grid or simulate)
+     * and returns its job id at once. Answers 429 with Retry-After when the queue is full.
+     */
+    @PostMapping("/jobs/{kind}")
+    public ResponseEntity<Map<String, Object>> submitJob(@PathVariable String kind,
+                                                         @RequestBody Map<String, Object> params) {
+        Function<JobProgress, ResponseEntity<Map<String, Object>>> work;
+        switch (kind) {
+            case "run-grid" -> work = progress -> runModelGrid(params, progress);
+            case "simulate" -> work = progress -> runSimulation(params, progress);
+            case "contours" -> work = progress -> calculateContours(params, progress);
+            case "ensemble" -> work = progress -> runEnsemble(params, progress);
+            case "run-adaptive" -> work = progress -> runAdaptiveGrid(params, progress);
+            case "combined" -> work = progress -> runCombined(params, progress);
+            case "invert" -> work = progress -> invertSource(params, progress);
+            case "threshold-distance" -> work = progress -> solveThresholdDistance(params, progress);
+            default -> {
+                return ResponseEntity.badRequest().body(Map.of("error", "unknown job kind: " + kind));
+            }
+        }
+
+        ModelJob job;
+        try {
+            job = modelJobService.submit(kind, progress -> {
+                ResponseEntity<Map<String, Object>> response = work.apply(progress);
+                if (!response.getStatusCode().is2xxSuccessful()) {
+                    Object error = response.getBody() != null ? response.getBody().get("error") : null;
+                    throw new ModelJobService.JobFailedException(response.getStatusCode().value(),
+                        error != null ? error.toString() : "request failed with status " + response.getStatusCode().value());
+                }
+                return response.getBody();
+            });
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header("Retry-After", "5")
+                .body(Map.of("error", "model job queue is full", "queued", modelJobService.queued()));
+        }
+        return ResponseEntity.accepted().body(jobSummary(job));
+    }
+
+    @GetMapping("/jobs")
+    public ResponseEntity<Map<String, Object>> getJobs() {
+        List<Map<String, Object>> jobs = new ArrayList<>();
+        for (ModelJob job : modelJobService.list()) {
+            jobs.add(jobSummary(job));
+        }
+        return ResponseEntity.ok(Map.of("queued", modelJobService.queued(), "running", modelJobService.running(),
+            "jobs", jobs));
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<Map<String, Object>> getJob(@PathVariable String id) {
+        return modelJobService.get(id)
+            .map(job -> ResponseEntity.ok(jobSummary(job)))
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * The finished job's response body; 202 with the job status while it is still queued or
+     * running, and the original error status if it failed.
+     */
+    @GetMapping("/jobs/{id}/result")
+    public ResponseEntity<Object> getJobResult(@PathVariable String id) {
+        Optional<ModelJob> found = modelJobService.get(id);
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        ModelJob job = found.get();
+        return switch (job.getStatus()) {
+            case SUCCEEDED -> ResponseEntity.ok(job.getResult());
+            case FAILED -> ResponseEntity.status(job.getErrorStatus()).body(Map.of("error", job.getError()));
+            case CANCELLED -> ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "job was cancelled"));
+            default -> ResponseEntity.accepted().body(jobSummary(job));
+        };
+    }
+
+    /**
+     * Server-sent "progress" events on every status change and whole percent, ending with a
+     * "done" event when the job finishes.
+     */
+    @GetMapping(value = "/jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamJobEvents(@PathVariable String id) {
+        Optional<ModelJob> found = modelJobService.get(id);
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        ModelJob job = found.get();
+        SseEmitter emitter = new SseEmitter();
+        Consumer<ModelJob> listener = new Consumer<>() {
+            private boolean closed;
+
+            @Override
+            public synchronized void accept(ModelJob changed) {
+                if (closed) {
+                    return;
+                }
+                boolean finished = changed.getStatus().isFinished();
+                try {
+                    emitter.send(SseEmitter.event().name(finished ? "done" : "progress").data(jobSummary(changed)));
+                    if (finished) {
+                        closed = true;
+                        emitter.complete();
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // Client went away
+                    closed = true;
+                    changed.removeListener(this);
+                }
+            }
+        };
+        emitter.onCompletion(() -> job.removeListener(listener));
+        emitter.onTimeout(() -> job.removeListener(listener));
+        job.addListener(listener);
+        return ResponseEntity.ok(emitter);
+    }
+
+    @DeleteMapping("/jobs/{id}")
+    public ResponseEntity<Map<String, Object>> cancelJob(@PathVariable String id) {
+        Optional<ModelJob> found = modelJobService.get(id);
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        modelJobService.cancel(found.get());
+        return ResponseEntity.accepted().body(jobSummary(found.get()));
+    }
+
+    private static Map<String, Object> jobSummary(ModelJob job) {
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("job_id", job.getId());
+        summary.put("kind", job.getKind());
+        summary.put("status", job.getStatus().name().toLowerCase());
+        summary.put("progress", job.getProgress());
+        summary.put("cancel_requested", job.isCancelled());
+        summary.put("submitted", job.getSubmitted().toString());
+        if (job.getStarted() != null) {
+            summary.put("started", job.getStarted().toString());
+        }
+        if (job.getFinished() != null) {
+            summary.put("finished", job.getFinished().toString());
+        }
+        if (job.getError() != null) {
+            summary.put("error", job.getError());
+        }
+        summary.put("result_url", "/api/jobs/" + job.getId() + "/result");
+        return summary;
+    }
+
     // ============ HEALTH CHECK ============
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> health() {
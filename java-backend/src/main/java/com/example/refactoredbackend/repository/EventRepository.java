@@ -3,5 +3,9 @@ package com.example.refactoredbackend.repository;
 import com.example.refactoredbackend.model.Event;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 public interface EventRepository extends JpaRepository<Event, Long> {
+    List<Event> findByTimeBetween(LocalDateTime start, LocalDateTime end);
 }
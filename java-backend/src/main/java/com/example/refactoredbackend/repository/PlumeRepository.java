@@ -1,7 +1,13 @@
 package com.example.refactoredbackend.repository;
 
 import com.example.refactoredbackend.model.Plume;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 public interface PlumeRepository extends JpaRepository<Plume, Long> {
+    @EntityGraph(attributePaths = "station")
+    List<Plume> findByTimeBetweenAndStationIsNotNull(LocalDateTime start, LocalDateTime end);
 }
@@ -3,5 +3,17 @@ package com.example.refactoredbackend.repository;
 import com.example.refactoredbackend.model.Weather;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
 public interface WeatherRepository extends JpaRepository<Weather, Integer> {
+
+    List<Weather> findByTimeBetweenOrderByTimeAsc(LocalDateTime start, LocalDateTime end);
+
+    Optional<Weather> findFirstByTimeLessThanEqualOrderByTimeDesc(LocalDateTime time);
+
+    Optional<Weather> findFirstByOrderByTimeDesc();
+
+    Optional<Weather> findFirstByStationIdOrderByTimeDesc(Long stationId);
 }
@@ -0,0 +1,60 @@
+package com.example.refactoredbackend.service;
+
+/**
+ * Leaf cells of an adaptive grid as flat [x, y, size, concentration] records, where (x, y) is
+ * the cell centre in the source-aligned frame and concentration (µg/m³) is taken there.
+ */
+public final class AdaptiveGrid {
+
+    private final AdaptiveGridSpec spec;
+    private final double[] cells;
+    private final int cellCount;
+    private final long evaluations;
+    private final double maxValue;
+
+    AdaptiveGrid(AdaptiveGridSpec spec, double[] cells, int cellCount, long evaluations, double maxValue) {
+        this.spec = spec;
+        this.cells = cells;
+        this.cellCount = cellCount;
+        this.evaluations = evaluations;
+        this.maxValue = maxValue;
+    }
+
+    public AdaptiveGridSpec getSpec() {
+        return spec;
+    }
+
+    /** Backing array of cellCount records, returned without copying. */
+    public double[] getCells() {
+        return cells;
+    }
+
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    /** Model evaluations spent, to compare with the dense cell count. */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    public double getMaxValue() {
+        return maxValue;
+    }
+
+    public double xAt(int cell) {
+        return cells[4 * cell];
+    }
+
+    public double yAt(int cell) {
+        return cells[4 * cell + 1];
+    }
+
+    public double sizeAt(int cell) {
+        return cells[4 * cell + 2];
+    }
+
+    public double valueAt(int cell) {
+        return cells[4 * cell + 3];
+    }
+}
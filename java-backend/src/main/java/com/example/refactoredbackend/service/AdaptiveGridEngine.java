@@ -0,0 +1,310 @@
+package com.example.refactoredbackend.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Quadtree refinement of a dispersion scenario in the source-aligned frame.
+ *
+ * Each cell is sampled at its centre and corners. It is split into quadrants when it is too
+ * coarse for the plume width near the axis, when it straddles a level-of-concern boundary, or
+ * when its samples vary by more than the tolerance times the field's centreline peak. Otherwise
+ * it is kept as one leaf. Far-field cells where every sample is below min_concentration are never
+ * split. Quadrants of large cells are forked on the common pool; small subtrees recurse
+ * inline.
+ *
+ * Every sample lies on a column half a finest cell apart, so the downwind terms of the model
+ * (sigma lookups and the vertical term) are computed once per column up front. A point sample
+ * is then a single crosswind exp, and split decisions read the plume width from the same table.
+ */
+@Service
+public class AdaptiveGridEngine {
+
+    /** Upper bound on leaf cells returned by one run. */
+    public static final int MAX_LEAVES = 2_000_000;
+
+    /** Subtrees this many levels above the finest resolution are refined without forking. */
+    private static final int INLINE_DEPTH = 4;
+
+    /** Cells narrower than this many sigma_y resolve the crosswind profile. */
+    private static final double ENVELOPE_SIGMAS = 3.0;
+
+    public AdaptiveGrid compute(DispersionScenario scenario, AdaptiveGridSpec spec) {
+        return compute(scenario, spec, JobProgress.NONE);
+    }
+
+    /**
+     * Refines the grid, reporting one unit of progress per root cell.
+     */
+    public AdaptiveGrid compute(DispersionScenario scenario, AdaptiveGridSpec spec, JobProgress progress) {
+        progress.start((long) spec.getRootsX() * spec.getRootsY());
+        Columns columns = new Columns(scenario, spec);
+
+        // Centreline peak at the finest cell centres sets the absolute scale of the tolerance
+        double peak = 0.0;
+        for (int m = 1; m < columns.factor.length; m += 2) {
+            peak = Math.max(peak, columns.factor[m]);
+        }
+        double maxVariation = spec.getTolerance() * peak;
+
+        // Corner lattice of the root cells
+        int cornersX = spec.getRootsX() + 1;
+        double[] corners = new double[cornersX * (spec.getRootsY() + 1)];
+        for (int j = 0; j <= spec.getRootsY(); j++) {
+            for (int i = 0; i < cornersX; i++) {
+                corners[j * cornersX + i] = columns.value(i * spec.getRootSize(), spec.getY0() + j * spec.getRootSize());
+            }
+        }
+
+        AtomicInteger leaves = new AtomicInteger();
+        List<CellTask> roots = new ArrayList<>();
+        for (int j = 0; j < spec.getRootsY(); j++) {
+            for (int i = 0; i < spec.getRootsX(); i++) {
+                roots.add(new CellTask(columns, spec, maxVariation, leaves, progress, i * spec.getRootSize(),
+                    spec.getY0() + j * spec.getRootSize(), spec.getRootSize(), 0,
+                    corners[j * cornersX + i], corners[j * cornersX + i + 1],
+                    corners[(j + 1) * cornersX + i], corners[(j + 1) * cornersX + i + 1]));
+            }
+        }
+        Leaves result = ForkJoinPool.commonPool().invoke(new RecursiveTask<Leaves>() {
+            @Override
+            protected Leaves compute() {
+                invokeAll(roots);
+                Leaves all = new Leaves();
+                for (CellTask root : roots) {
+                    all.addAll(root.join());
+                }
+                return all;
+            }
+        });
+        long evaluations = result.evaluations + columns.factor.length + corners.length;
+        return new AdaptiveGrid(spec, result.cells, result.count, evaluations, result.maxValue);
+    }
+
+    /**
+     * Model terms {factor, k} at x = m * resolution / 2 for every column m of the domain. One
+     * columnTerms call per column; every later sample and width check is a table read.
+     */
+    private static final class Columns {
+        final double[] factor;
+        final double[] k;
+        final double halfStep;
+
+        Columns(DispersionScenario scenario, AdaptiveGridSpec spec) {
+            halfStep = spec.getResolution() / 2;
+            int count = 2 * spec.getRootsX() * (1 << spec.getMaxDepth()) + 1;
+            factor = new double[count];
+            k = new double[count];
+            double[] terms = new double[2];
+            for (int m = 0; m < count; m++) {
+                scenario.columnTerms(m * halfStep, spec.getZ(), terms);
+                factor[m] = terms[0];
+                k[m] = terms[1];
+            }
+        }
+
+        int index(double x) {
+            return (int) Math.round(x / halfStep);
+        }
+
+        double value(double x, double y) {
+            int m = index(x);
+            return DispersionScenario.concentration(factor[m], k[m], y);
+        }
+    }
+
+    /** Growable [x, y, size, value] buffer owned by one task. */
+    private static final class Leaves {
+        double[] cells = new double[64];
+        int count;
+        long evaluations;
+        double maxValue;
+
+        void add(double x, double y, double size, double value) {
+            if (4 * count + 4 > cells.length) {
+                cells = Arrays.copyOf(cells, cells.length * 2);
+            }
+            cells[4 * count] = x;
+            cells[4 * count + 1] = y;
+            cells[4 * count + 2] = size;
+            cells[4 * count + 3] = value;
+            count++;
+            maxValue = Math.max(maxValue, value);
+        }
+
+        void addAll(Leaves other) {
+            if (4 * (count + other.count) > cells.length) {
+                cells = Arrays.copyOf(cells, Math.max(cells.length * 2, 4 * (count + other.count)));
+            }
+            System.arraycopy(other.cells, 0, cells, 4 * count, 4 * other.count);
+            count += other.count;
+            evaluations += other.evaluations;
+            maxValue = Math.max(maxValue, other.maxValue);
+        }
+    }
+
+    /**
+     * Refines one cell whose corner values (bottom-left, bottom-right, top-left, top-right) are
+     * already known. A split evaluates the four edge midpoints, and the parent's centre becomes
+     * a corner of every quadrant, so each cell costs about two point evaluations on top of the
+     * shared column table.
+     */
+    private static final class CellTask extends RecursiveTask<Leaves> {
+        private final Columns columns;
+        private final AdaptiveGridSpec spec;
+        private final double maxVariation;
+        private final AtomicInteger leafCount;
+        private final JobProgress progress;
+        private final double x0;
+        private final double y0;
+        private final double size;
+        private final int depth;
+        private final double c00;
+        private final double c10;
+        private final double c01;
+        private final double c11;
+
+        CellTask(Columns columns, AdaptiveGridSpec spec, double maxVariation, AtomicInteger leafCount,
+                 JobProgress progress, double x0, double y0, double size, int depth, double c00, double c10, double c01, double c11) {
+            this.columns = columns;
+            this.spec = spec;
+            this.maxVariation = maxVariation;
+            this.leafCount = leafCount;
+            this.progress = progress;
+            this.x0 = x0;
+            this.y0 = y0;
+            this.size = size;
+            this.depth = depth;
+            this.c00 = c00;
+            this.c10 = c10;
+            this.c01 = c01;
+            this.c11 = c11;
+        }
+
+        @Override
+        protected Leaves compute() {
+            progress.checkCancelled();
+            Leaves leaves = refineCell();
+            if (depth == 0) {
+                progress.advance(1);
+            }
+            return leaves;
+        }
+
+        private Leaves refineCell() {
+            Leaves leaves = new Leaves();
+            if (spec.getMaxDepth() - depth <= INLINE_DEPTH) {
+                refine(x0, y0, size, depth, c00, c10, c01, c11, leaves);
+                return leaves;
+            }
+            double h = size / 2;
+            double centre = value(x0 + h, y0 + h);
+            leaves.evaluations++;
+            if (!shouldSplit(x0, y0, size, depth, centre, c00, c10, c01, c11)) {
+                addLeaf(leaves, x0 + h, y0 + h, size, centre);
+                return leaves;
+            }
+            double bottom = value(x0 + h, y0);
+            double top = value(x0 + h, y0 + size);
+            double left = value(x0, y0 + h);
+            double right = value(x0 + size, y0 + h);
+            leaves.evaluations += 4;
+            CellTask[] quadrants = {
+                new CellTask(columns, spec, maxVariation, leafCount, progress, x0, y0, h, depth + 1, c00, bottom, left, centre),
+                new CellTask(columns, spec, maxVariation, leafCount, progress, x0 + h, y0, h, depth + 1, bottom, c10, centre, right),
+                new CellTask(columns, spec, maxVariation, leafCount, progress, x0, y0 + h, h, depth + 1, left, centre, c01, top),
+                new CellTask(columns, spec, maxVariation, leafCount, progress, x0 + h, y0 + h, h, depth + 1, centre, right, top, c11)
+            };
+            invokeAll(quadrants);
+            for (CellTask quadrant : quadrants) {
+                leaves.addAll(quadrant.join());
+            }
+            return leaves;
+        }
+
+        private void refine(double cx0, double cy0, double cellSize, int cellDepth,
+                            double b0, double b1, double t0, double t1, Leaves leaves) {
+            double h = cellSize / 2;
+            double centre = value(cx0 + h, cy0 + h);
+            leaves.evaluations++;
+            if (!shouldSplit(cx0, cy0, cellSize, cellDepth, centre, b0, b1, t0, t1)) {
+                addLeaf(leaves, cx0 + h, cy0 + h, cellSize, centre);
+                return;
+            }
+            double bottom = value(cx0 + h, cy0);
+            double top = value(cx0 + h, cy0 + cellSize);
+            double left = value(cx0, cy0 + h);
+            double right = value(cx0 + cellSize, cy0 + h);
+            leaves.evaluations += 4;
+            refine(cx0, cy0, h, cellDepth + 1, b0, bottom, left, centre, leaves);
+            refine(cx0 + h, cy0, h, cellDepth + 1, bottom, b1, centre, right, leaves);
+            refine(cx0, cy0 + h, h, cellDepth + 1, left, centre, t0, top, leaves);
+            refine(cx0 + h, cy0 + h, h, cellDepth + 1, centre, right, top, t1, leaves);
+        }
+
+        private void addLeaf(Leaves leaves, double x, double y, double cellSize, double value) {
+            if (leafCount.incrementAndGet() > MAX_LEAVES) {
+                throw new IllegalArgumentException("adaptive grid needs more than " + MAX_LEAVES
+                    + " cells; use a coarser resolution or a smaller extent");
+            }
+            leaves.add(x, y, cellSize, value);
+        }
+
+        private boolean shouldSplit(double cx0, double cy0, double cellSize, int cellDepth,
+                                    double centre, double b0, double b1, double t0, double t1) {
+            if (cellDepth >= spec.getMaxDepth()) {
+                return false;
+            }
+            if (unresolvedPlume(cx0, cy0, cellSize)) {
+                return true;
+            }
+            double min = Math.min(Math.min(centre, b0), Math.min(Math.min(b1, t0), t1));
+            double max = Math.max(Math.max(centre, b0), Math.max(Math.max(b1, t0), t1));
+            if (max < spec.getMinConcentration()) {
+                return false;
+            }
+            for (double level : spec.levels()) {
+                if (min < level && level <= max) {
+                    return true;
+                }
+            }
+            return max - min > maxVariation;
+        }
+
+        /**
+         * True when the cell overlaps the plume's crosswind envelope but is wider than sigma_y
+         * there, so its samples could straddle or miss the plume entirely.
+         */
+        private boolean unresolvedPlume(double cx0, double cy0, double cellSize) {
+            double near = Math.max(cx0, spec.getResolution() / 2);
+            double far = cx0 + cellSize;
+            double peak = 0.0;
+            double nearSigma = Double.POSITIVE_INFINITY;
+            double farSigma = 0.0;
+            for (double x : new double[]{near, cx0 + cellSize / 2, far}) {
+                int m = columns.index(x);
+                if (columns.factor[m] > 0) {
+                    double sigma = Math.sqrt(1 / (2 * columns.k[m]));
+                    peak = Math.max(peak, columns.factor[m]);
+                    nearSigma = Math.min(nearSigma, sigma);
+                    farSigma = Math.max(farSigma, sigma);
+                }
+            }
+            if (peak < spec.getMinConcentration() || cellSize <= nearSigma) {
+                return false;
+            }
+            double envelope = ENVELOPE_SIGMAS * farSigma;
+            return cy0 < envelope && cy0 + cellSize > -envelope;
+        }
+
+        private double value(double x, double y) {
+            return columns.value(x, y);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.refactoredbackend.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Domain and refinement rules for an adaptive grid in the source-aligned frame. Root cells are
+ * resolution * 2^maxDepth wide and tile x in (0, extent] and y in [-crosswindExtent,
+ * crosswindExtent], rounded up to whole root cells.
+ */
+public final class AdaptiveGridSpec {
+
+    /** Deepest subdivision allowed below a root cell. */
+    public static final int MAX_DEPTH = 12;
+
+    private final double resolution;
+    private final double extent;
+    private final double crosswindExtent;
+    private final double z;
+    private final int maxDepth;
+    private final double tolerance;
+    private final double minConcentration;
+    private final double[] levels;
+    private final double rootSize;
+    private final int rootsX;
+    private final int rootsY;
+
+    public AdaptiveGridSpec(double resolution, double extent, double crosswindExtent, double z, int maxDepth,
+                            double tolerance, double minConcentration, double[] levels) {
+        if (!(resolution > 0) || !(extent >= resolution) || !(crosswindExtent >= 0)) {
+            throw new IllegalArgumentException("resolution must be positive and no larger than extent");
+        }
+        if (maxDepth < 0 || maxDepth > MAX_DEPTH) {
+            throw new IllegalArgumentException("max_depth must be between 0 and " + MAX_DEPTH);
+        }
+        if (!(tolerance > 0) || !(minConcentration > 0) || !Double.isFinite(z)) {
+            throw new IllegalArgumentException("tolerance and min_concentration must be positive");
+        }
+        for (double level : levels) {
+            if (!(level > 0)) {
+                throw new IllegalArgumentException("levels must be positive numbers");
+            }
+        }
+        this.resolution = resolution;
+        this.extent = extent;
+        this.crosswindExtent = crosswindExtent;
+        this.z = z;
+        this.maxDepth = maxDepth;
+        this.tolerance = tolerance;
+        this.minConcentration = minConcentration;
+        this.levels = levels.clone();
+        this.rootSize = resolution * (1 << maxDepth);
+        this.rootsX = (int) Math.ceil(extent / rootSize);
+        this.rootsY = Math.max(1, (int) Math.ceil(2 * crosswindExtent / rootSize));
+        if (denseCellCount() > GridSpec.MAX_CELLS) {
+            throw new IllegalArgumentException("finest grid of " + denseCellCount() + " cells exceeds the limit of "
+                + GridSpec.MAX_CELLS);
+        }
+    }
+
+    public static AdaptiveGridSpec fromParams(Map<String, Object> params) {
+        return new AdaptiveGridSpec(
+            DispersionService.getDoubleParam(params, "resolution", 25.0),
+            DispersionService.getDoubleParam(params, "extent", 1000.0),
+            DispersionService.getDoubleParam(params, "crosswind_extent", 250.0),
+            DispersionService.getDoubleParam(params, "z", 1.5),
+            (int) DispersionService.getDoubleParam(params, "max_depth", 5),
+            DispersionService.getDoubleParam(params, "tolerance", 0.05),
+            DispersionService.getDoubleParam(params, "min_concentration", 1e-3),
+            parseLevels(params.get("levels")));
+    }
+
+    private static double[] parseLevels(Object value) {
+        if (!(value instanceof List<?> list)) {
+            return new double[0];
+        }
+        double[] levels = new double[list.size()];
+        for (int i = 0; i < levels.length; i++) {
+            if (!(list.get(i) instanceof Number number)) {
+                throw new IllegalArgumentException("levels must be positive numbers");
+            }
+            levels[i] = number.doubleValue();
+        }
+        return levels;
+    }
+
+    /** Cells a dense grid at the finest resolution would need for the same domain. */
+    public long denseCellCount() {
+        return (long) rootsX * rootsY << (2 * maxDepth);
+    }
+
+    public double getResolution() {
+        return resolution;
+    }
+
+    public double getExtent() {
+        return extent;
+    }
+
+    public double getCrosswindExtent() {
+        return crosswindExtent;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /** Variation across a cell, as a fraction of the field's peak, that triggers subdivision. */
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /** Cells whose values all stay below this are never subdivided, in µg/m³. */
+    public double getMinConcentration() {
+        return minConcentration;
+    }
+
+    /** Level-of-concern concentrations whose boundaries are resolved to the finest cells. */
+    public double[] getLevels() {
+        return levels.clone();
+    }
+
+    double[] levels() {
+        return levels;
+    }
+
+    public double getRootSize() {
+        return rootSize;
+    }
+
+    public int getRootsX() {
+        return rootsX;
+    }
+
+    public int getRootsY() {
+        return rootsY;
+    }
+
+    /** Lower y edge of the root tiling, which is centred on the plume axis. */
+    public double getY0() {
+        return -rootsY * rootSize / 2;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.refactoredbackend.service;
+
+/**
+ * Total concentration in µg/m³ from several sources on one east/north grid, laid out as
+ * values[iy * nx + ix] with cell (ix, iy) at (x0 + ix * resolution, y0 + iy * resolution).
+ */
+public final class CombinedField {
+
+    private final GeoFrame frame;
+    private final int nx;
+    private final int ny;
+    private final double x0;
+    private final double y0;
+    private final double resolution;
+    private final double[] values;
+    private final double maxValue;
+    private final int maxIndex;
+    private final long evaluated;
+
+    CombinedField(GeoFrame frame, int nx, int ny, double x0, double y0, double resolution,
+                  double[] values, double maxValue, int maxIndex, long evaluated) {
+        this.frame = frame;
+        this.nx = nx;
+        this.ny = ny;
+        this.x0 = x0;
+        this.y0 = y0;
+        this.resolution = resolution;
+        this.values = values;
+        this.maxValue = maxValue;
+        this.maxIndex = maxIndex;
+        this.evaluated = evaluated;
+    }
+
+    public GeoFrame getFrame() {
+        return frame;
+    }
+
+    public int getNx() {
+        return nx;
+    }
+
+    public int getNy() {
+        return ny;
+    }
+
+    public double getX0() {
+        return x0;
+    }
+
+    public double getY0() {
+        return y0;
+    }
+
+    public double getResolution() {
+        return resolution;
+    }
+
+    /** Backing array, returned without copying. */
+    public double[] getValues() {
+        return values;
+    }
+
+    public double getMaxValue() {
+        return maxValue;
+    }
+
+    /** Flat index of the maximum, or -1 when every cell is zero. */
+    public int getMaxIndex() {
+        return maxIndex;
+    }
+
+    /** Source/cell pairs that were evaluated after the per-source cutoffs. */
+    public long getEvaluated() {
+        return evaluated;
+    }
+
+    public double eastOf(int index) {
+        return x0 + (index % nx) * resolution;
+    }
+
+    public double northOf(int index) {
+        return y0 + (index / nx) * resolution;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.refactoredbackend.service;
+
+/**
+ * Dense concentration field in µg/m³ laid out as values[(iz * ny + iy) * nx + ix].
+ */
+public final class ConcentrationField {
+
+    private final GridSpec spec;
+    private final double[] values;
+    private final double maxValue;
+    private final int maxIndex;
+
+    ConcentrationField(GridSpec spec, double[] values, double maxValue, int maxIndex) {
+        this.spec = spec;
+        this.values = values;
+        this.maxValue = maxValue;
+        this.maxIndex = maxIndex;
+    }
+
+    public GridSpec getSpec() {
+        return spec;
+    }
+
+    /** Backing array, returned without copying. */
+    public double[] getValues() {
+        return values;
+    }
+
+    public double getMaxValue() {
+        return maxValue;
+    }
+
+    /** Flat index of the maximum, or -1 when every cell is zero. */
+    public int getMaxIndex() {
+        return maxIndex;
+    }
+
+    public int index(int ix, int iy, int iz) {
+        return (iz * spec.getNy() + iy) * spec.getNx() + ix;
+    }
+
+    public double valueAt(int ix, int iy, int iz) {
+        return values[index(ix, iy, iz)];
+    }
+
+    public double xOf(int index) {
+        return spec.xAt(index % spec.getNx());
+    }
+
+    public double yOf(int index) {
+        return spec.yAt((index / spec.getNx()) % spec.getNy());
+    }
+
+    public double zOf(int index) {
+        return spec.zAt(index / (spec.getNx() * spec.getNy()));
+    }
+}
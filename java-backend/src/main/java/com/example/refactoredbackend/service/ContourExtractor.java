@@ -0,0 +1,311 @@
+package com.example.refactoredbackend.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Marching-squares isopleths over one z-level of a {@link ConcentrationField}.
+ *
+ * The field is padded with a ring of zero cells so every isopleth of a positive level closes,
+ * and segments are oriented with the region at or above the level on their left. That makes
+ * each edge crossing the start of exactly one segment, so rings are assembled by following a
+ * single successor link per crossing instead of searching for matching endpoints. Crossings are
+ * kept in an open-addressing table keyed by edge id, so memory follows the length of the
+ * isopleths rather than the size of the grid.
+ */
+public final class ContourExtractor {
+
+    // Cell edges, in the padded vertex grid: bottom, right, top, left
+    private static final int BOTTOM = 0;
+    private static final int RIGHT = 1;
+    private static final int TOP = 2;
+    private static final int LEFT = 3;
+
+    /** Most levels contoured in one call. */
+    public static final int MAX_LEVELS = 64;
+
+    private ContourExtractor() {
+    }
+
+    /**
+     * Rings for several levels, one list per level in input order. Levels are contoured in
+     * parallel since each one is an independent scan of the field.
+     */
+    public static List<List<double[]>> rings(ConcentrationField field, int iz, double[] levels) {
+        if (levels.length > MAX_LEVELS) {
+            throw new IllegalArgumentException("at most " + MAX_LEVELS + " contour levels are allowed");
+        }
+        return IntStream.range(0, levels.length)
+            .parallel()
+            .mapToObj(i -> rings(field, iz, levels[i]))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Closed rings for one level, each as [x0, y0, x1, y1, ...] in the grid's metric frame
+     * with the first point repeated at the end.
+     */
+    public static List<double[]> rings(ConcentrationField field, int iz, double level) {
+        if (!(level > 0)) {
+            throw new IllegalArgumentException("contour levels must be positive");
+        }
+        GridSpec spec = field.getSpec();
+        int width = spec.getNx() + 2;
+        int height = spec.getNy() + 2;
+
+        Crossings crossings = new Crossings();
+        int[] segments = new int[4];
+
+        for (int J = 0; J < height - 1; J++) {
+            for (int I = 0; I < width - 1; I++) {
+                double bl = value(field, iz, I, J);
+                double br = value(field, iz, I + 1, J);
+                double tr = value(field, iz, I + 1, J + 1);
+                double tl = value(field, iz, I, J + 1);
+                int index = (bl >= level ? 1 : 0) | (br >= level ? 2 : 0) | (tr >= level ? 4 : 0) | (tl >= level ? 8 : 0);
+                if (index == 0 || index == 15) {
+                    continue;
+                }
+                boolean centreInside = (bl + br + tr + tl) / 4 >= level;
+                int count = segmentsFor(index, centreInside, segments);
+                for (int s = 0; s < count; s += 2) {
+                    addSegment(field, iz, level, width, I, J, segments[s], segments[s + 1], crossings);
+                }
+            }
+        }
+
+        List<double[]> rings = new ArrayList<>();
+        int[] next = crossings.next;
+        for (int start = 0; start < crossings.size; start++) {
+            if (next[start] < 0) {
+                continue;
+            }
+            double[] ring = new double[16];
+            int length = 0;
+            int edge = start;
+            do {
+                if (length + 2 > ring.length) {
+                    ring = Arrays.copyOf(ring, ring.length * 2);
+                }
+                ring[length++] = crossings.px[edge];
+                ring[length++] = crossings.py[edge];
+                int following = next[edge];
+                next[edge] = -1;
+                if (following < 0) {
+                    break;
+                }
+                edge = following;
+            } while (edge != start);
+            if (length + 2 > ring.length) {
+                ring = Arrays.copyOf(ring, length + 2);
+            }
+            ring[length++] = ring[0];
+            ring[length++] = ring[1];
+            rings.add(Arrays.copyOf(ring, length));
+        }
+        return rings;
+    }
+
+    /**
+     * Edge pairs crossed in a cell for the given corner mask (bl=1, br=2, tr=4, tl=8). Saddles
+     * are resolved with the cell-centre average.
+     */
+    private static int segmentsFor(int index, boolean centreInside, int[] out) {
+        switch (index) {
+            case 1: case 14: return pair(out, LEFT, BOTTOM);
+            case 2: case 13: return pair(out, BOTTOM, RIGHT);
+            case 3: case 12: return pair(out, LEFT, RIGHT);
+            case 4: case 11: return pair(out, RIGHT, TOP);
+            case 6: case 9: return pair(out, BOTTOM, TOP);
+            case 7: case 8: return pair(out, TOP, LEFT);
+            case 5:
+                return centreInside
+                    ? pairs(out, BOTTOM, RIGHT, TOP, LEFT)
+                    : pairs(out, LEFT, BOTTOM, RIGHT, TOP);
+            case 10:
+                return centreInside
+                    ? pairs(out, LEFT, BOTTOM, RIGHT, TOP)
+                    : pairs(out, BOTTOM, RIGHT, TOP, LEFT);
+            default:
+                return 0;
+        }
+    }
+
+    private static int pair(int[] out, int a, int b) {
+        out[0] = a;
+        out[1] = b;
+        return 2;
+    }
+
+    private static int pairs(int[] out, int a, int b, int c, int d) {
+        out[0] = a;
+        out[1] = b;
+        out[2] = c;
+        out[3] = d;
+        return 4;
+    }
+
+    private static void addSegment(ConcentrationField field, int iz, double level, int width, int I, int J,
+                                   int edgeA, int edgeB, Crossings crossings) {
+        int idA = crossings.indexOf(edgeId(width, I, J, edgeA));
+        int idB = crossings.indexOf(edgeId(width, I, J, edgeB));
+
+        // Orient so the reference corner's side of the segment ends up on the left when it is
+        // inside. Edge midpoints are used rather than the interpolated crossings so that a
+        // corner lying exactly on the level cannot make the test degenerate.
+        double[] a = midpoint(I, J, edgeA);
+        double[] b = midpoint(I, J, edgeB);
+        int[] corner = referenceCorner(I, J, edgeA, edgeB);
+        double cross = (b[0] - a[0]) * (corner[1] - a[1]) - (b[1] - a[1]) * (corner[0] - a[0]);
+        boolean cornerInside = value(field, iz, corner[0], corner[1]) >= level;
+        if ((cross > 0) == cornerInside) {
+            crossings.next[idA] = idB;
+            crossing(field, iz, level, I, J, edgeA, idA, crossings.px, crossings.py);
+        } else {
+            crossings.next[idB] = idA;
+            crossing(field, iz, level, I, J, edgeB, idB, crossings.px, crossings.py);
+        }
+    }
+
+    private static double[] midpoint(int I, int J, int edge) {
+        switch (edge) {
+            case BOTTOM: return new double[]{I + 0.5, J};
+            case TOP: return new double[]{I + 0.5, J + 1};
+            case LEFT: return new double[]{I, J + 0.5};
+            default: return new double[]{I + 1, J + 0.5};
+        }
+    }
+
+    /**
+     * The corner shared by two adjacent edges, or the bottom-left corner for straight crossings.
+     */
+    private static int[] referenceCorner(int I, int J, int edgeA, int edgeB) {
+        int mask = (1 << edgeA) | (1 << edgeB);
+        if (mask == ((1 << BOTTOM) | (1 << RIGHT))) {
+            return new int[]{I + 1, J};
+        }
+        if (mask == ((1 << RIGHT) | (1 << TOP))) {
+            return new int[]{I + 1, J + 1};
+        }
+        if (mask == ((1 << TOP) | (1 << LEFT))) {
+            return new int[]{I, J + 1};
+        }
+        return new int[]{I, J};
+    }
+
+    private static int edgeId(int width, int I, int J, int edge) {
+        switch (edge) {
+            case BOTTOM: return 2 * (J * width + I);
+            case TOP: return 2 * ((J + 1) * width + I);
+            case LEFT: return 2 * (J * width + I) + 1;
+            default: return 2 * (J * width + I + 1) + 1;
+        }
+    }
+
+    private static void crossing(ConcentrationField field, int iz, double level, int I, int J, int edge,
+                                 int id, double[] px, double[] py) {
+        int i0 = I;
+        int j0 = J;
+        int i1 = I;
+        int j1 = J;
+        switch (edge) {
+            case BOTTOM: i1 = I + 1; break;
+            case TOP: j0 = J + 1; j1 = J + 1; i1 = I + 1; break;
+            case LEFT: j1 = J + 1; break;
+            default: i0 = I + 1; i1 = I + 1; j1 = J + 1;
+        }
+        double v0 = value(field, iz, i0, j0);
+        double v1 = value(field, iz, i1, j1);
+        double t = v1 == v0 ? 0.5 : (level - v0) / (v1 - v0);
+        px[id] = xOf(field, i0) + t * (xOf(field, i1) - xOf(field, i0));
+        py[id] = yOf(field, j0) + t * (yOf(field, j1) - yOf(field, j0));
+    }
+
+    /** Value at padded vertex (I, J); the padding ring is zero. */
+    private static double value(ConcentrationField field, int iz, int I, int J) {
+        GridSpec spec = field.getSpec();
+        if (I < 1 || J < 1 || I > spec.getNx() || J > spec.getNy()) {
+            return 0.0;
+        }
+        return field.valueAt(I - 1, J - 1, iz);
+    }
+
+    private static double xOf(ConcentrationField field, int I) {
+        return field.getSpec().xAt(I - 1);
+    }
+
+    private static double yOf(ConcentrationField field, int J) {
+        return field.getSpec().yAt(J - 1);
+    }
+
+    /**
+     * Crossings of one level, numbered in the order their edges are first met. An open-addressing
+     * table maps edge id to crossing number; next holds each crossing's successor, or -1 for an
+     * edge that starts no segment yet. A crossing's point is stored when its edge starts a
+     * segment, which happens exactly once.
+     */
+    private static final class Crossings {
+        private int[] keys = emptyKeys(64);
+        private int[] slots = new int[64];
+        int size;
+        int[] next = new int[32];
+        double[] px = new double[32];
+        double[] py = new double[32];
+
+        int indexOf(int edge) {
+            int mask = keys.length - 1;
+            int h = mix(edge) & mask;
+            while (keys[h] >= 0) {
+                if (keys[h] == edge) {
+                    return slots[h];
+                }
+                h = (h + 1) & mask;
+            }
+            if (size == next.length) {
+                next = Arrays.copyOf(next, size * 2);
+                px = Arrays.copyOf(px, size * 2);
+                py = Arrays.copyOf(py, size * 2);
+            }
+            int index = size++;
+            next[index] = -1;
+            keys[h] = edge;
+            slots[h] = index;
+            if (2 * size > keys.length) {
+                rehash();
+            }
+            return index;
+        }
+
+        private void rehash() {
+            int[] oldKeys = keys;
+            int[] oldSlots = slots;
+            keys = emptyKeys(oldKeys.length * 2);
+            slots = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] >= 0) {
+                    int h = mix(oldKeys[i]) & mask;
+                    while (keys[h] >= 0) {
+                        h = (h + 1) & mask;
+                    }
+                    keys[h] = oldKeys[i];
+                    slots[h] = oldSlots[i];
+                }
+            }
+        }
+
+        private static int[] emptyKeys(int capacity) {
+            int[] keys = new int[capacity];
+            Arrays.fill(keys, -1);
+            return keys;
+        }
+
+        private static int mix(int edge) {
+            int h = edge * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.example.refactoredbackend.service;
 import com.example.refactoredbackend.model.*;
 import com.example.refactoredbackend.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -26,6 +27,12 @@ public class DataService {
     @Autowired
     private ChemicalRepository chemicalRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private LatestWeatherSnapshot latestWeatherSnapshot;
+
     // Station Operations
     public List<Station> getAllStations() {
         return stationRepository.findAll();
@@ -33,11 +40,15 @@ public class DataService {
 
     public Station createStation(String name, double lat, double lon, String provider) {
         Station station = new Station(name, lat, lon, provider);
-        return stationRepository.save(station);
+        Station saved = stationRepository.save(station);
+        eventPublisher.publishEvent(ModelInputChanged.stations());
+        return saved;
     }
 
     public void deleteStation(Long id) {
         stationRepository.deleteById(id);
+        latestWeatherSnapshot.forget(id);
+        eventPublisher.publishEvent(ModelInputChanged.stations());
     }
 
     // Plume Operations
@@ -56,6 +67,13 @@ public class DataService {
         return plumeRepository.findById(id);
     }
 
+    /**
+     * Plume observations in [start, end] that are tied to a station, with the station loaded.
+     */
+    public List<Plume> getStationPlumes(LocalDateTime start, LocalDateTime end) {
+        return plumeRepository.findByTimeBetweenAndStationIsNotNull(start, end);
+    }
+
     public Plume updatePlume(Plume plume) {
         if (!plumeRepository.existsById(plume.getId())) {
             throw new RuntimeException("Plume not found with id: " + plume.getId());
@@ -81,28 +99,46 @@ public class DataService {
         if (event.getTime() == null) {
             event.setTime(LocalDateTime.now());
         }
-        return eventRepository.save(event);
+        Event saved = eventRepository.save(event);
+        // Saving with an existing id replaces that event
+        eventPublisher.publishEvent(ModelInputChanged.event(saved.getId()));
+        return saved;
     }
 
     public void deleteEvent(Long id) {
         eventRepository.deleteById(id);
+        eventPublisher.publishEvent(ModelInputChanged.event(id));
     }
 
     public Optional<Event> getEvent(Long id) {
         return eventRepository.findById(id);
     }
 
+    public List<Event> getEvents(List<Long> ids) {
+        return eventRepository.findAllById(ids);
+    }
+
+    /**
+     * Events that started at or after since and not later than until.
+     */
+    public List<Event> getActiveEvents(LocalDateTime since, LocalDateTime until) {
+        return eventRepository.findByTimeBetween(since, until);
+    }
+
     // Chemical Operations
     public List<Chemical> getAllChemicals() {
         return chemicalRepository.findAll();
     }
 
     public Chemical createChemical(Chemical chemical) {
-        return chemicalRepository.save(chemical);
+        Chemical saved = chemicalRepository.save(chemical);
+        eventPublisher.publishEvent(ModelInputChanged.chemical(saved.getId()));
+        return saved;
     }
 
     public void deleteChemical(Long id) {
         chemicalRepository.deleteById(id);
+        eventPublisher.publishEvent(ModelInputChanged.chemical(id));
     }
 
     public Optional<Chemical> getChemical(Long id) {
@@ -0,0 +1,224 @@
+package com.example.refactoredbackend.service;
+
+import java.util.Map;
+
+/**
+ * Source and weather inputs for one dispersion run, parsed once from the request
+ * so that many receptors can be evaluated without touching the parameter map again.
+ */
+public final class DispersionScenario {
+
+    public static final String PLUME = "plume";
+    public static final String PUFF = "puff";
+    public static final String INSTANTANEOUS = "instantaneous";
+
+    private static final double TWO_PI = 2 * Math.PI;
+    private static final double TWO_PI_POW_1_5 = Math.pow(2 * Math.PI, 1.5);
+
+    private final String modelType;
+    private final double Q;
+    private final double releaseHeight;
+    private final double windSpeed;
+    private final double u;
+    private final double t;
+    private final String stabilityClass;
+    private final int stabilityIndex;
+    private final double molecularWeight;
+    private final double mwFactor;
+
+    public DispersionScenario(String modelType, double Q, double releaseHeight, double windSpeed,
+                              double t, String stabilityClass, double molecularWeight) {
+        requireFinite("Q", Q);
+        requireFinite("release_height", releaseHeight);
+        requireFinite("wind_speed", windSpeed);
+        requireFinite("t", t);
+        requireFinite("molecular_weight", molecularWeight);
+        if (Q < 0) {
+            throw new IllegalArgumentException("Q must not be negative");
+        }
+        if (molecularWeight <= 0) {
+            throw new IllegalArgumentException("molecular_weight must be positive");
+        }
+        if (stabilityClass == null) {
+            throw new IllegalArgumentException("stability_class is required");
+        }
+        this.modelType = normalizeModelType(modelType);
+        this.Q = Q;
+        this.releaseHeight = releaseHeight;
+        this.windSpeed = windSpeed;
+        this.u = windSpeed * 0.44704; // mph to m/s
+        this.t = t;
+        this.stabilityClass = stabilityClass;
+        this.stabilityIndex = DispersionService.stabilityIndex(stabilityClass);
+        this.molecularWeight = molecularWeight;
+        this.mwFactor = Math.sqrt(28.97 / molecularWeight); // Relative to air
+    }
+
+    /**
+     * Builds a scenario from the same keys and defaults the single-point model endpoints accept.
+     */
+    public static DispersionScenario fromParams(Map<String, Object> params) {
+        String modelType = normalizeModelType(DispersionService.getStringParam(params, "model_type", PLUME));
+        double defaultQ = INSTANTANEOUS.equals(modelType) ? 100.0 : 10.0;
+        return new DispersionScenario(
+            modelType,
+            DispersionService.getDoubleParam(params, "Q", defaultQ),
+            DispersionService.getDoubleParam(params, "release_height", 50.0),
+            DispersionService.getDoubleParam(params, "wind_speed", 5.0),
+            DispersionService.getDoubleParam(params, "t", 60.0),
+            DispersionService.getStringParam(params, "stability_class", "D"),
+            DispersionService.getDoubleParam(params, "molecular_weight", 64.0)
+        );
+    }
+
+    /**
+     * Same scenario with a different wind speed in mph.
+     */
+    public DispersionScenario withWindSpeed(double windSpeed) {
+        return new DispersionScenario(modelType, Q, releaseHeight, windSpeed, t, stabilityClass, molecularWeight);
+    }
+
+    private static void requireFinite(String name, double value) {
+        if (!Double.isFinite(value)) {
+            throw new IllegalArgumentException(name + " must be a finite number");
+        }
+    }
+
+    public static String normalizeModelType(String modelType) {
+        if (PUFF.equals(modelType) || INSTANTANEOUS.equals(modelType)) {
+            return modelType;
+        }
+        return PLUME;
+    }
+
+    /**
+     * Concentration at a single receptor in µg/m³.
+     */
+    public double concentrationAt(double x, double y, double z) {
+        double[] terms = new double[2];
+        columnTerms(x, z, terms);
+        return concentration(terms[0], terms[1], y);
+    }
+
+    /**
+     * Concentrations in µg/m³ for receptors given as [x, y] or [x, y, z] rows.
+     * Rows without a height use defaultZ.
+     */
+    public double[] concentrations(double[][] receptors, double defaultZ) {
+        double[] result = new double[receptors.length];
+        concentrations(receptors, defaultZ, result, 0, receptors.length);
+        return result;
+    }
+
+    void concentrations(double[][] receptors, double defaultZ, double[] out, int from, int to) {
+        double[] terms = new double[2];
+        for (int i = from; i < to; i++) {
+            double[] receptor = receptors[i];
+            if (receptor == null || receptor.length < 2 || receptor.length > 3) {
+                throw new IllegalArgumentException("receptor " + i + " must be [x, y] or [x, y, z]");
+            }
+            double z = receptor.length == 3 ? receptor[2] : defaultZ;
+            columnTerms(receptor[0], z, terms);
+            out[i] = concentration(terms[0], terms[1], receptor[1]);
+        }
+    }
+
+    /**
+     * Every model in this service factors into a term that depends only on the downwind
+     * distance and receptor height, and a crosswind Gaussian exp(-y² * k). This writes
+     * {factor, k} for the given column so grid paths can reuse it across all crosswind cells.
+     */
+    void columnTerms(double x, double z, double[] out) {
+        double H = releaseHeight;
+        double sy;
+        double sz;
+        double factor;
+
+        switch (modelType) {
+            case PUFF: {
+                if (u <= 0 || t <= 0) {
+                    out[0] = 0.0;
+                    out[1] = 0.0;
+                    return;
+                }
+                DispersionService.SIGMA_TABLE.lookup(stabilityIndex, x, out);
+                sy = (out[0] + 0.1 * t) * mwFactor;
+                sz = (out[1] + 0.05 * t) * mwFactor;
+                double dx = x - u * t;
+                factor = Q / (TWO_PI_POW_1_5 * sy * sz) * Math.exp(-(dx * dx) / (2 * sy * sy));
+                break;
+            }
+            case INSTANTANEOUS: {
+                if (u <= 0 || x <= 0) {
+                    out[0] = 0.0;
+                    out[1] = 0.0;
+                    return;
+                }
+                double travelTime = x / u;
+                DispersionService.SIGMA_TABLE.lookup(stabilityIndex, x, out);
+                sy = (out[0] + 0.1 * travelTime) * mwFactor;
+                sz = (out[1] + 0.05 * travelTime) * mwFactor;
+                factor = Q / (TWO_PI_POW_1_5 * sy * sz);
+                break;
+            }
+            default: {
+                if (u <= 0 || x <= 0) {
+                    out[0] = 0.0;
+                    out[1] = 0.0;
+                    return;
+                }
+                DispersionService.SIGMA_TABLE.lookup(stabilityIndex, x, out);
+                sy = out[0] * mwFactor;
+                sz = out[1] * mwFactor;
+                factor = Q / (TWO_PI * u * sy * sz);
+            }
+        }
+
+        double twoSzSq = 2 * sz * sz;
+        double vertical = Math.exp(-((z - H) * (z - H)) / twoSzSq) + Math.exp(-((z + H) * (z + H)) / twoSzSq);
+        out[0] = factor * vertical * 1_000_000; // Convert to µg/m³
+        out[1] = 1.0 / (2 * sy * sy);
+    }
+
+    /**
+     * Downwind distance of the puff centre after t seconds; zero for the other models.
+     */
+    double puffCentre() {
+        return PUFF.equals(modelType) && u > 0 && t > 0 ? u * t : 0.0;
+    }
+
+    static double concentration(double factor, double k, double y) {
+        if (factor <= 0) {
+            return 0.0;
+        }
+        return factor * Math.exp(-(y * y) * k);
+    }
+
+    public String getModelType() {
+        return modelType;
+    }
+
+    public double getQ() {
+        return Q;
+    }
+
+    public double getReleaseHeight() {
+        return releaseHeight;
+    }
+
+    public double getWindSpeed() {
+        return windSpeed;
+    }
+
+    public double getT() {
+        return t;
+    }
+
+    public String getStabilityClass() {
+        return stabilityClass;
+    }
+
+    public double getMolecularWeight() {
+        return molecularWeight;
+    }
+}
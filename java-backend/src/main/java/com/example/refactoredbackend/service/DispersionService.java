@@ -3,10 +3,20 @@ package com.example.refactoredbackend.service;
 import org.springframework.stereotype.Service;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.stream.IntStream;
 
 @Service
 public class DispersionService {
 
+    static final double SIGMA_Y_MIN = 1.0;
+    static final double SIGMA_Z_MIN = 0.5;
+
+    /** Built when the service class loads, i.e. at application startup. */
+    static final SigmaTable SIGMA_TABLE = new SigmaTable(1.0, 100_000.0, 256);
+
+    /** Receptors per parallel chunk in batch evaluation. */
+    private static final int BATCH_CHUNK = 4_096;
+
     /**
      * Gaussian Plume Model for continuous releases with chemical properties
      */
@@ -144,32 +154,84 @@ public class DispersionService {
         return createResponse(concentration, "instantaneous", stabilityClass);
     }
 
-    private double[] getSigmasByStability(String stability, double x) {
+    /**
+     * Batch model for many receptors sharing one scenario. The scenario is parsed and
+     * validated once and results are written to a primitive array in receptor order.
+     */
+    public double[] calculateBatch(Map<String, Object> scenarioParams, double[][] receptors) {
+        DispersionScenario scenario = DispersionScenario.fromParams(scenarioParams);
+        double defaultZ = getDoubleParam(scenarioParams, "z", 1.5);
+        double[] result = new double[receptors.length];
+        if (receptors.length <= BATCH_CHUNK) {
+            scenario.concentrations(receptors, defaultZ, result, 0, receptors.length);
+            return result;
+        }
+        int chunks = (receptors.length + BATCH_CHUNK - 1) / BATCH_CHUNK;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> scenario.concentrations(
+            receptors, defaultZ, result, chunk * BATCH_CHUNK, Math.min(receptors.length, (chunk + 1) * BATCH_CHUNK)));
+        return result;
+    }
+
+    static double[] getSigmasByStability(String stability, double x) {
+        double[] sigmas = new double[2];
+        SIGMA_TABLE.lookup(stabilityIndex(stability), x, sigmas);
+        return sigmas;
+    }
+
+    /**
+     * Maps a Pasquill-Gifford class (A-F or 1-6) to 0-5, or -1 for the generic fallback curve.
+     */
+    static int stabilityIndex(String stability) {
+        switch (stability.toUpperCase()) {
+            case "A", "1": return 0;
+            case "B", "2": return 1;
+            case "C", "3": return 2;
+            case "D", "4": return 3;
+            case "E", "5": return 4;
+            case "F", "6": return 5;
+            default: return -1;
+        }
+    }
+
+    /**
+     * Closed-form {sigma_y, sigma_z} in metres for the given class index, written into out.
+     * Used to build SIGMA_TABLE and outside its range.
+     */
+    static void getSigmas(int stabilityIndex, double x, double[] out) {
+        getUnboundedSigmas(stabilityIndex, x, out);
+        out[0] = Math.max(out[0], SIGMA_Y_MIN);
+        out[1] = Math.max(out[1], SIGMA_Z_MIN);
+    }
+
+    /**
+     * Pasquill-Gifford curves before the minimum-sigma floors are applied.
+     */
+    static void getUnboundedSigmas(int stabilityIndex, double x, double[] out) {
         double xkm = x / 1000.0;
         double sy, sz;
         
-        switch (stability.toUpperCase()) {
-            case "A", "1":
+        switch (stabilityIndex) {
+            case 0:
                 sy = 0.22 * xkm * Math.pow(1 + 0.0001 * xkm, -0.5);
                 sz = 0.20 * xkm;
                 break;
-            case "B", "2":
+            case 1:
                 sy = 0.16 * xkm * Math.pow(1 + 0.0001 * xkm, -0.5);
                 sz = 0.12 * xkm;
                 break;
-            case "C", "3":
+            case 2:
                 sy = 0.11 * xkm * Math.pow(1 + 0.0001 * xkm, -0.5);
                 sz = 0.08 * xkm * Math.pow(1 + 0.0002 * xkm, -0.5);
                 break;
-            case "D", "4":
+            case 3:
                 sy = 0.08 * xkm * Math.pow(1 + 0.0001 * xkm, -0.5);
                 sz = 0.06 * xkm * Math.pow(1 + 0.0015 * xkm, -0.5);
                 break;
-            case "E", "5":
+            case 4:
                 sy = 0.06 * xkm * Math.pow(1 + 0.0001 * xkm, -0.5);
                 sz = 0.03 * xkm * Math.pow(1 + 0.0003 * xkm, -0.5);
                 break;
-            case "F", "6":
+            case 5:
                 sy = 0.03 * xkm * Math.pow(1 + 0.0001 * xkm, -0.5);
                 sz = 0.016 * xkm * Math.pow(1 + 0.0003 * xkm, -0.5);
                 break;
@@ -178,10 +240,11 @@ public class DispersionService {
                 sz = 0.06 * xkm;
         }
         
-        return new double[]{Math.max(sy * 1000, 1.0), Math.max(sz * 1000, 0.5)};
+        out[0] = sy * 1000;
+        out[1] = sz * 1000;
     }
 
-    private double getDoubleParam(Map<String, Object> params, String key, double defaultValue) {
+    public static double getDoubleParam(Map<String, Object> params, String key, double defaultValue) {
         Object value = params.get(key);
         if (value == null) return defaultValue;
         if (value instanceof Number) return ((Number) value).doubleValue();
@@ -192,7 +255,7 @@ public class DispersionService {
         }
     }
 
-    private String getStringParam(Map<String, Object> params, String key, String defaultValue) {
+    public static String getStringParam(Map<String, Object> params, String key, String defaultValue) {
         Object value = params.get(key);
         return value != null ? value.toString() : defaultValue;
     }
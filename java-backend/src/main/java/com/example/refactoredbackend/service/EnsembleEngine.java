@@ -0,0 +1,192 @@
+package com.example.refactoredbackend.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
+/**
+ * Monte Carlo ensembles of a grid scenario under wind speed and direction uncertainty.
+ *
+ * Member perturbations are drawn first, in blocks, each block from its own SplittableRandom
+ * split off a seeded root, so a seed gives the same ensemble on any number of threads. The grid
+ * is then split across the common fork/join pool by cells. Each leaf evaluates every member for
+ * its cells and folds the value straight into a running sum, an exceedance count and a P²
+ * percentile estimate, so realizations are never stored.
+ */
+@Service
+public class EnsembleEngine {
+
+    /** Largest grid accepted for an ensemble; statistics take about 100 bytes per cell. */
+    public static final long MAX_CELLS = 1_000_000;
+
+    /** Members drawn from one random stream. */
+    private static final int MEMBERS_PER_STREAM = 64;
+
+    /** Target number of cells per leaf task; each cell is evaluated once per member. */
+    private static final int CELLS_PER_TASK = 1_024;
+
+    /** Sampled wind speeds are kept at or above 0.1 m/s (in mph). */
+    private static final double MIN_WIND_SPEED = 0.1 / 0.44704;
+
+    public EnsembleField run(DispersionScenario scenario, GridSpec spec, EnsembleSpec ensemble) {
+        return run(scenario, spec, ensemble, JobProgress.NONE);
+    }
+
+    /**
+     * Runs the ensemble, reporting one unit of progress per cell and member.
+     */
+    public EnsembleField run(DispersionScenario scenario, GridSpec spec, EnsembleSpec ensemble, JobProgress progress) {
+        if (spec.cellCount() > MAX_CELLS) {
+            throw new IllegalArgumentException("ensemble grid of " + spec.cellCount() + " cells exceeds the limit of "
+                + MAX_CELLS);
+        }
+        int members = ensemble.getMembers();
+        int cells = (int) spec.cellCount();
+
+        DispersionScenario[] memberScenarios = new DispersionScenario[members];
+        double[] cos = new double[members];
+        double[] sin = new double[members];
+        sampleMembers(scenario, ensemble, memberScenarios, cos, sin);
+
+        double[] sum = new double[cells];
+        int[] exceeded = new int[cells];
+        StreamingQuantiles quantiles = new StreamingQuantiles(cells, 0.95);
+        progress.start((long) cells * members);
+        ForkJoinPool.commonPool().invoke(new CellTask(spec, memberScenarios, cos, sin, ensemble.getThreshold(),
+            sum, exceeded, quantiles, progress, 0, cells));
+
+        double[] mean = new double[cells];
+        double[] p95 = new double[cells];
+        double[] exceedance = new double[cells];
+        for (int i = 0; i < cells; i++) {
+            mean[i] = sum[i] / members;
+            p95[i] = quantiles.quantile(i, members);
+            exceedance[i] = (double) exceeded[i] / members;
+        }
+        return new EnsembleField(spec, ensemble, mean, p95, exceedance);
+    }
+
+    /**
+     * Draws each member's wind speed and direction offset. Speed errors are Gaussian in m/s
+     * around the scenario speed; direction errors are Gaussian in degrees around the grid's
+     * downwind axis.
+     */
+    private static void sampleMembers(DispersionScenario scenario, EnsembleSpec ensemble,
+                                      DispersionScenario[] memberScenarios, double[] cos, double[] sin) {
+        int members = memberScenarios.length;
+        int streams = (members + MEMBERS_PER_STREAM - 1) / MEMBERS_PER_STREAM;
+        SplittableRandom root = new SplittableRandom(ensemble.getSeed());
+        SplittableRandom[] randoms = new SplittableRandom[streams];
+        for (int s = 0; s < streams; s++) {
+            randoms[s] = root.split();
+        }
+
+        double speedError = ensemble.getWindSpeedErrorMs() / 0.44704; // m/s to mph
+        double dirError = Math.toRadians(ensemble.getWindDirErrorDeg());
+        IntStream.range(0, streams).parallel().forEach(s -> {
+            SplittableRandom random = randoms[s];
+            int to = Math.min(members, (s + 1) * MEMBERS_PER_STREAM);
+            for (int m = s * MEMBERS_PER_STREAM; m < to; m++) {
+                double speed = Math.max(MIN_WIND_SPEED, scenario.getWindSpeed() + speedError * gaussian(random));
+                double angle = dirError * gaussian(random);
+                memberScenarios[m] = scenario.withWindSpeed(speed);
+                cos[m] = Math.cos(angle);
+                sin[m] = Math.sin(angle);
+            }
+        });
+    }
+
+    /** Standard normal draw (Marsaglia polar method); SplittableRandom has no nextGaussian on Java 17. */
+    private static double gaussian(SplittableRandom random) {
+        double u;
+        double v;
+        double s;
+        do {
+            u = 2 * random.nextDouble() - 1;
+            v = 2 * random.nextDouble() - 1;
+            s = u * u + v * v;
+        } while (s >= 1 || s == 0);
+        return u * Math.sqrt(-2 * Math.log(s) / s);
+    }
+
+    private static final class CellTask extends RecursiveAction {
+        private final GridSpec spec;
+        private final DispersionScenario[] memberScenarios;
+        private final double[] cos;
+        private final double[] sin;
+        private final double threshold;
+        private final double[] sum;
+        private final int[] exceeded;
+        private final StreamingQuantiles quantiles;
+        private final JobProgress progress;
+        private final int from;
+        private final int to;
+
+        CellTask(GridSpec spec, DispersionScenario[] memberScenarios, double[] cos, double[] sin, double threshold,
+                 double[] sum, int[] exceeded, StreamingQuantiles quantiles, JobProgress progress, int from, int to) {
+            this.spec = spec;
+            this.memberScenarios = memberScenarios;
+            this.cos = cos;
+            this.sin = sin;
+            this.threshold = threshold;
+            this.sum = sum;
+            this.exceeded = exceeded;
+            this.quantiles = quantiles;
+            this.progress = progress;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CELLS_PER_TASK) {
+                computeCells();
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(
+                new CellTask(spec, memberScenarios, cos, sin, threshold, sum, exceeded, quantiles, progress, from, mid),
+                new CellTask(spec, memberScenarios, cos, sin, threshold, sum, exceeded, quantiles, progress, mid, to));
+        }
+
+        private void computeCells() {
+            int nx = spec.getNx();
+            int ny = spec.getNy();
+            int count = to - from;
+            double[] x = new double[count];
+            double[] y = new double[count];
+            double[] z = new double[count];
+            for (int i = from; i < to; i++) {
+                x[i - from] = spec.xAt(i % nx);
+                y[i - from] = spec.yAt((i / nx) % ny);
+                z[i - from] = spec.zAt(i / (nx * ny));
+            }
+
+            // Members in order so that every cell sees observation m as its m-th, as P² requires
+            double[] terms = new double[2];
+            for (int m = 0; m < memberScenarios.length; m++) {
+                progress.checkCancelled();
+                DispersionScenario scenario = memberScenarios[m];
+                double c = cos[m];
+                double s = sin[m];
+                for (int j = 0; j < count; j++) {
+                    // Receptor in the frame of this member's plume axis
+                    double along = x[j] * c + y[j] * s;
+                    double across = y[j] * c - x[j] * s;
+                    scenario.columnTerms(along, z[j], terms);
+                    double value = DispersionScenario.concentration(terms[0], terms[1], across);
+                    int cell = from + j;
+                    sum[cell] += value;
+                    if (value >= threshold) {
+                        exceeded[cell]++;
+                    }
+                    quantiles.add(cell, value, m);
+                }
+                progress.advance(count);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.refactoredbackend.service;
+
+/**
+ * Per-cell ensemble statistics, each laid out like {@link ConcentrationField}:
+ * [(iz * ny + iy) * nx + ix]. Concentrations are in µg/m³.
+ */
+public final class EnsembleField {
+
+    private final GridSpec spec;
+    private final EnsembleSpec ensemble;
+    private final double[] mean;
+    private final double[] p95;
+    private final double[] exceedance;
+
+    EnsembleField(GridSpec spec, EnsembleSpec ensemble, double[] mean, double[] p95, double[] exceedance) {
+        this.spec = spec;
+        this.ensemble = ensemble;
+        this.mean = mean;
+        this.p95 = p95;
+        this.exceedance = exceedance;
+    }
+
+    public GridSpec getSpec() {
+        return spec;
+    }
+
+    public EnsembleSpec getEnsemble() {
+        return ensemble;
+    }
+
+    /** Backing array, returned without copying. */
+    public double[] getMean() {
+        return mean;
+    }
+
+    /** Streaming (P²) estimate of the 95th percentile; backing array, returned without copying. */
+    public double[] getP95() {
+        return p95;
+    }
+
+    /** Fraction of members at or above the threshold; backing array, returned without copying. */
+    public double[] getExceedance() {
+        return exceedance;
+    }
+
+    public double getMaxMean() {
+        return max(mean);
+    }
+
+    public double getMaxP95() {
+        return max(p95);
+    }
+
+    private static double max(double[] values) {
+        double max = 0.0;
+        for (double value : values) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+}
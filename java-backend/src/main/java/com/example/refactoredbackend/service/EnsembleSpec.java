@@ -0,0 +1,79 @@
+package com.example.refactoredbackend.service;
+
+import com.example.refactoredbackend.model.Plume;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Size, wind uncertainty and exceedance threshold for a Monte Carlo ensemble.
+ */
+public final class EnsembleSpec {
+
+    /** Upper bound on ensemble members per run. */
+    public static final int MAX_MEMBERS = 10_000;
+
+    private final int members;
+    private final double windSpeedErrorMs;
+    private final double windDirErrorDeg;
+    private final double threshold;
+    private final long seed;
+
+    public EnsembleSpec(int members, double windSpeedErrorMs, double windDirErrorDeg, double threshold, long seed) {
+        if (members < 1 || members > MAX_MEMBERS) {
+            throw new IllegalArgumentException("members must be between 1 and " + MAX_MEMBERS);
+        }
+        if (!(windSpeedErrorMs >= 0) || !Double.isFinite(windSpeedErrorMs)) {
+            throw new IllegalArgumentException("wind_speed_error_ms must be a non-negative number");
+        }
+        if (!(windDirErrorDeg >= 0) || !Double.isFinite(windDirErrorDeg)) {
+            throw new IllegalArgumentException("wind_dir_error_deg must be a non-negative number");
+        }
+        if (!(threshold > 0) || !Double.isFinite(threshold)) {
+            throw new IllegalArgumentException("threshold must be a positive concentration");
+        }
+        this.members = members;
+        this.windSpeedErrorMs = windSpeedErrorMs;
+        this.windDirErrorDeg = windDirErrorDeg;
+        this.threshold = threshold;
+        this.seed = seed;
+    }
+
+    /**
+     * Reads the ensemble from request parameters. Wind errors default to the plume's recorded
+     * errors when one is given; explicit request values take precedence.
+     */
+    public static EnsembleSpec fromParams(Map<String, Object> params, Plume plume) {
+        double speedError = plume != null ? plume.getWind_speed_error_ms() : 0.0;
+        double dirError = plume != null ? plume.getWind_dir_error_deg() : 0.0;
+        long seed = params.get("seed") instanceof Number n ? n.longValue() : new SplittableRandom().nextLong();
+        return new EnsembleSpec(
+            (int) DispersionService.getDoubleParam(params, "members", 200),
+            DispersionService.getDoubleParam(params, "wind_speed_error_ms", speedError),
+            DispersionService.getDoubleParam(params, "wind_dir_error_deg", dirError),
+            DispersionService.getDoubleParam(params, "threshold", Double.NaN),
+            seed
+        );
+    }
+
+    public int getMembers() {
+        return members;
+    }
+
+    public double getWindSpeedErrorMs() {
+        return windSpeedErrorMs;
+    }
+
+    public double getWindDirErrorDeg() {
+        return windDirErrorDeg;
+    }
+
+    /** Exceedance threshold in µg/m³. */
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+}
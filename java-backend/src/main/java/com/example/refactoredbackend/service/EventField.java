@@ -0,0 +1,38 @@
+package com.example.refactoredbackend.service;
+
+import java.time.Instant;
+
+/**
+ * Cached footprint of one event under its current inputs. version counts how many times the
+ * event's field has been computed since the service started tracking it.
+ */
+public final class EventField {
+
+    private final EventFieldInputs inputs;
+    private final CombinedField field;
+    private final Instant computedAt;
+    private final long version;
+
+    EventField(EventFieldInputs inputs, CombinedField field, Instant computedAt, long version) {
+        this.inputs = inputs;
+        this.field = field;
+        this.computedAt = computedAt;
+        this.version = version;
+    }
+
+    public EventFieldInputs getInputs() {
+        return inputs;
+    }
+
+    public CombinedField getField() {
+        return field;
+    }
+
+    public Instant getComputedAt() {
+        return computedAt;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
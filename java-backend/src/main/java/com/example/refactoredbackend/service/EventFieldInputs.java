@@ -0,0 +1,36 @@
+package com.example.refactoredbackend.service;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Everything an event's footprint was computed from: the event's release, its chemical's
+ * molecular weight, and the weather it was placed in. stationId is the station whose latest
+ * record supplied the weather, or null when the latest record overall was used (weatherId is
+ * also null when there was no weather at all and the defaults applied). dependencies are the
+ * {@link ModelInputChanged} keys whose change can alter these inputs.
+ */
+public record EventFieldInputs(Long eventId, String type, double amount, double lat, double lon,
+                               Long chemicalId, double molecularWeight,
+                               Long stationId, Long weatherId, LocalDateTime weatherTime,
+                               double windSpeed, double windDirection, String stabilityClass,
+                               Set<String> dependencies) {
+
+    /**
+     * True when both would produce the same field. The weather record's id and time are not
+     * compared, so a new reading with the same wind and stability leaves the field alone.
+     */
+    public boolean sameModelInputs(EventFieldInputs other) {
+        return other != null
+            && Objects.equals(eventId, other.eventId)
+            && Objects.equals(type, other.type)
+            && Double.compare(amount, other.amount) == 0
+            && Double.compare(lat, other.lat) == 0
+            && Double.compare(lon, other.lon) == 0
+            && Double.compare(molecularWeight, other.molecularWeight) == 0
+            && Double.compare(windSpeed, other.windSpeed) == 0
+            && Double.compare(windDirection, other.windDirection) == 0
+            && Objects.equals(stabilityClass, other.stabilityClass);
+    }
+}
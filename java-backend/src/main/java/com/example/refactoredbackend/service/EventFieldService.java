@@ -0,0 +1,390 @@
+package com.example.refactoredbackend.service;
+
+import com.example.refactoredbackend.model.Event;
+import com.example.refactoredbackend.model.Station;
+import com.example.refactoredbackend.model.Weather;
+import com.example.refactoredbackend.repository.EventRepository;
+import com.example.refactoredbackend.repository.StationRepository;
+import com.example.refactoredbackend.repository.WeatherRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Keeps each event's footprint up to date as its inputs change, without recomputing the rest.
+ *
+ * A field is computed the first time it is asked for, and its {@link EventFieldInputs} record
+ * which inputs it used and which {@link ModelInputChanged} keys can change them. Those keys are
+ * indexed, so a change only marks the events that depend on it as stale. Stale events are
+ * recomputed on a background thread once their inputs have been quiet for the debounce
+ * delay, and never later than the maximum delay after the first change, so a burst of weather
+ * readings costs one recompute per event. If the re-resolved inputs turn out to give the same
+ * field, the old field is kept. A read of a stale field recomputes it straight away.
+ */
+@Service
+public class EventFieldService {
+
+    private static final Logger log = LoggerFactory.getLogger(EventFieldService.class);
+
+    // Model settings, matching the /model/combined defaults
+    static final double RESOLUTION = 50.0;
+    static final double EXTENT = 5000.0;
+    static final double Z = 1.5;
+    static final double CUTOFF = 1e-3;
+    static final double RELEASE_DURATION = 3600.0;
+    static final double RELEASE_HEIGHT = 50.0;
+    static final double DEFAULT_MOLECULAR_WEIGHT = 64.0;
+
+    // Used when no weather has been stored yet, as in WeatherService's default weather
+    static final double DEFAULT_WIND_SPEED = 6.5;
+    static final double DEFAULT_WIND_DIRECTION = 270.0;
+    static final String DEFAULT_STABILITY = "D";
+
+    /** Refreshes of events that hash to the same stripe run one at a time. */
+    private static final int LOCK_STRIPES = 64;
+
+    private final Function<Long, Optional<EventFieldInputs>> resolver;
+    private final MultiSourceEngine engine;
+    private final long debounceNanos;
+    private final long maxDelayNanos;
+    private final ScheduledExecutorService scheduler;
+
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<Long>> dependents = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Pending> pending = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder recomputes = new LongAdder();
+    private final LongAdder unchanged = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    @Autowired
+    public EventFieldService(EventRepository eventRepository, StationRepository stationRepository,
+                             WeatherRepository weatherRepository, MultiSourceEngine engine,
+                             @Value("${events.field.debounce-ms:2000}") long debounceMs,
+                             @Value("${events.field.max-delay-ms:10000}") long maxDelayMs,
+                             @Value("${events.field.station-radius-km:50}") double stationRadiusKm) {
+        this(new RepositoryInputs(eventRepository, stationRepository, weatherRepository, stationRadiusKm * 1000),
+            engine, debounceMs, maxDelayMs);
+    }
+
+    EventFieldService(Function<Long, Optional<EventFieldInputs>> resolver, MultiSourceEngine engine,
+                      long debounceMs, long maxDelayMs) {
+        if (debounceMs < 0 || maxDelayMs < debounceMs) {
+            throw new IllegalArgumentException("debounce must not be negative or longer than the maximum delay");
+        }
+        this.resolver = resolver;
+        this.engine = engine;
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMs);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "event-field-recompute");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Current footprint of the event, computed now if it is not cached or is stale. Empty when
+     * the event does not exist.
+     *
+     * @throws IllegalArgumentException when the event's inputs cannot be modelled
+     */
+    public Optional<EventField> get(Long eventId) {
+        Entry entry = entries.get(eventId);
+        if (entry != null && !entry.stale) {
+            hits.increment();
+            return Optional.of(entry.field);
+        }
+        return Optional.ofNullable(refresh(eventId));
+    }
+
+    @EventListener
+    public void onInputChanged(ModelInputChanged change) {
+        if (change.isStationWeather()) {
+            // A station's reading is also the newest reading overall
+            invalidate(change.getKey(), ModelInputChanged.ANY_WEATHER);
+        } else {
+            invalidate(change.getKey());
+        }
+    }
+
+    /**
+     * Marks every cached field that depends on any of the keys as stale and schedules its
+     * recompute. Returns the number of events affected.
+     */
+    int invalidate(String... keys) {
+        Set<Long> affected = new HashSet<>();
+        for (String key : keys) {
+            Set<Long> ids = dependents.get(key);
+            if (ids != null) {
+                affected.addAll(ids);
+            }
+        }
+        for (Long eventId : affected) {
+            invalidations.increment();
+            schedule(eventId);
+            // Marked after scheduling; refresh re-checks pending, so a concurrent refresh
+            // cannot leave a stale field marked fresh
+            Entry entry = entries.get(eventId);
+            if (entry != null) {
+                entry.stale = true;
+            }
+        }
+        return affected.size();
+    }
+
+    private void schedule(Long eventId) {
+        long now = System.nanoTime();
+        pending.compute(eventId, (id, previous) -> {
+            long first = now;
+            if (previous != null) {
+                previous.future.cancel(false);
+                first = previous.firstChange;
+                coalesced.increment();
+            }
+            long delay = Math.max(0L, Math.min(debounceNanos, first + maxDelayNanos - now));
+            Pending next = new Pending(first);
+            next.future = scheduler.schedule(() -> recomputeScheduled(id, next), delay, TimeUnit.NANOSECONDS);
+            return next;
+        });
+    }
+
+    private void recomputeScheduled(Long eventId, Pending scheduled) {
+        if (pending.get(eventId) != scheduled) {
+            return;
+        }
+        try {
+            refresh(eventId);
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.warn("Recomputing the field of event {} failed: {}", eventId, e.getMessage());
+        }
+    }
+
+    /**
+     * Re-resolves the event's inputs and recomputes its field if they changed. Serialized on the
+     * event's lock stripe so that a read and the background thread never compute the same event
+     * twice, while events on other stripes still refresh concurrently. The stripes are fixed,
+     * so ids from requests for missing events leave nothing behind.
+     */
+    private EventField refresh(Long eventId) {
+        synchronized (locks[Math.floorMod(eventId.hashCode(), LOCK_STRIPES)]) {
+            return refreshLocked(eventId);
+        }
+    }
+
+    private EventField refreshLocked(Long eventId) {
+        Pending scheduled = pending.remove(eventId);
+        if (scheduled != null) {
+            scheduled.future.cancel(false);
+        }
+        Entry current = entries.get(eventId);
+        Optional<EventFieldInputs> resolved = resolver.apply(eventId);
+        if (resolved.isEmpty()) {
+            if (current != null) {
+                entries.remove(eventId);
+                index(eventId, current.field.getInputs().dependencies(), Set.of());
+            }
+            return null;
+        }
+
+        EventFieldInputs inputs = resolved.get();
+        EventField field;
+        if (current != null && current.field.getInputs().sameModelInputs(inputs)) {
+            unchanged.increment();
+            field = new EventField(inputs, current.field.getField(), current.field.getComputedAt(),
+                current.field.getVersion());
+        } else {
+            CombinedField combined = compute(inputs);
+            recomputes.increment();
+            field = new EventField(inputs, combined, Instant.now(),
+                current == null ? 1 : current.field.getVersion() + 1);
+        }
+        Entry next = new Entry(field);
+        entries.put(eventId, next);
+        index(eventId, current == null ? Set.of() : current.field.getInputs().dependencies(), inputs.dependencies());
+        if (pending.containsKey(eventId)) {
+            // Inputs changed again while this was computing
+            next.stale = true;
+        }
+        return field;
+    }
+
+    private CombinedField compute(EventFieldInputs inputs) {
+        MultiSourceEngine.Source source = MultiSourceEngine.Source.fromRelease(inputs.eventId(), inputs.type(),
+            inputs.amount(), inputs.lat(), inputs.lon(), inputs.molecularWeight(), RELEASE_DURATION,
+            RELEASE_HEIGHT, inputs.windSpeed(), inputs.stabilityClass());
+        return engine.compute(List.of(source), inputs.windDirection(), RESOLUTION, EXTENT, Z, CUTOFF);
+    }
+
+    private void index(Long eventId, Set<String> previous, Set<String> current) {
+        for (String key : previous) {
+            if (!current.contains(key)) {
+                dependents.computeIfPresent(key, (k, ids) -> {
+                    ids.remove(eventId);
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        }
+        for (String key : current) {
+            dependents.compute(key, (k, ids) -> {
+                Set<Long> updated = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+                updated.add(eventId);
+                return updated;
+            });
+        }
+    }
+
+    /** Events whose cached field depends on the key. */
+    Set<Long> dependentsOf(String key) {
+        Set<Long> ids = dependents.get(key);
+        return ids == null ? Set.of() : Set.copyOf(ids);
+    }
+
+    public Map<String, Object> stats() {
+        long stale = entries.values().stream().filter(entry -> entry.stale).count();
+        return Map.of(
+            "entries", entries.size(),
+            "stale", stale,
+            "pending", pending.size(),
+            "hits", hits.sum(),
+            "invalidations", invalidations.sum(),
+            "coalesced", coalesced.sum(),
+            "recomputes", recomputes.sum(),
+            "unchanged", unchanged.sum(),
+            "failures", failures.sum()
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private static final class Entry {
+        final EventField field;
+        volatile boolean stale;
+
+        Entry(EventField field) {
+            this.field = field;
+        }
+    }
+
+    private static final class Pending {
+        final long firstChange;
+        volatile ScheduledFuture<?> future;
+
+        Pending(long firstChange) {
+            this.firstChange = firstChange;
+        }
+    }
+
+    /**
+     * Resolves an event's inputs from the database. The weather is the latest reading of the
+     * nearest station within the radius that has any; the event then also depends on every
+     * nearer station, since a first reading there would take over. Without such a station the
+     * latest reading overall is used.
+     */
+    private static final class RepositoryInputs implements Function<Long, Optional<EventFieldInputs>> {
+        private final EventRepository eventRepository;
+        private final StationRepository stationRepository;
+        private final WeatherRepository weatherRepository;
+        private final double stationRadius;
+
+        RepositoryInputs(EventRepository eventRepository, StationRepository stationRepository,
+                         WeatherRepository weatherRepository, double stationRadius) {
+            this.eventRepository = eventRepository;
+            this.stationRepository = stationRepository;
+            this.weatherRepository = weatherRepository;
+            this.stationRadius = stationRadius;
+        }
+
+        @Override
+        public Optional<EventFieldInputs> apply(Long eventId) {
+            Optional<Event> found = eventRepository.findById(eventId);
+            if (found.isEmpty()) {
+                return Optional.empty();
+            }
+            Event event = found.get();
+            Set<String> dependencies = new HashSet<>();
+            dependencies.add(ModelInputChanged.eventKey(eventId));
+            dependencies.add(ModelInputChanged.STATIONS);
+
+            Long chemicalId = null;
+            double molecularWeight = DEFAULT_MOLECULAR_WEIGHT;
+            if (event.getChemical() != null) {
+                chemicalId = event.getChemical().getId();
+                dependencies.add(ModelInputChanged.chemicalKey(chemicalId));
+                if (event.getChemical().getMolecularWeight() > 0) {
+                    molecularWeight = event.getChemical().getMolecularWeight();
+                }
+            }
+
+            GeoFrame frame = new GeoFrame(event.getLat(), event.getLon());
+            Map<Station, Double> distances = new HashMap<>();
+            List<Station> nearby = new ArrayList<>();
+            for (Station station : stationRepository.findAll()) {
+                double distance = Math.hypot(frame.east(station.getLon()), frame.north(station.getLat()));
+                if (distance <= stationRadius) {
+                    distances.put(station, distance);
+                    nearby.add(station);
+                }
+            }
+            nearby.sort(Comparator.comparingDouble(distances::get));
+
+            Weather weather = null;
+            Long stationId = null;
+            for (Station station : nearby) {
+                dependencies.add(ModelInputChanged.weatherKey(station.getId()));
+                Optional<Weather> latest = weatherRepository.findFirstByStationIdOrderByTimeDesc(station.getId());
+                if (latest.isPresent()) {
+                    weather = latest.get();
+                    stationId = station.getId();
+                    break;
+                }
+            }
+            if (weather == null) {
+                dependencies.add(ModelInputChanged.ANY_WEATHER);
+                weather = weatherRepository.findFirstByOrderByTimeDesc().orElse(null);
+            }
+
+            if (weather == null) {
+                return Optional.of(new EventFieldInputs(eventId, event.getType(), event.getAmount(),
+                    event.getLat(), event.getLon(), chemicalId, molecularWeight, null, null, null,
+                    DEFAULT_WIND_SPEED, DEFAULT_WIND_DIRECTION, DEFAULT_STABILITY, Set.copyOf(dependencies)));
+            }
+            return Optional.of(new EventFieldInputs(eventId, event.getType(), event.getAmount(),
+                event.getLat(), event.getLon(), chemicalId, molecularWeight, stationId, weather.getId(),
+                weather.getTime(), weather.getWind_speed(), weather.getWind_direction(),
+                WeatherService.calculateStabilityClass(weather.getWind_speed(), weather.getTemperature()),
+                Set.copyOf(dependencies)));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.refactoredbackend.service;
+
+/**
+ * Local east/north frame in metres around an origin, using the same equirectangular
+ * approximation as the map view (metres per degree of longitude scaled by cos(latitude)).
+ * Accurate to well under a grid cell over the tens of kilometres a dispersion grid covers.
+ */
+public final class GeoFrame {
+
+    public static final double METERS_PER_DEGREE_LAT = 111_321.5;
+
+    private final double originLat;
+    private final double originLon;
+    private final double metersPerDegreeLon;
+
+    public GeoFrame(double originLat, double originLon) {
+        if (!(originLat >= -90 && originLat <= 90) || !(originLon >= -180 && originLon <= 180)) {
+            throw new IllegalArgumentException("origin must be a valid lat/lon");
+        }
+        this.originLat = originLat;
+        this.originLon = originLon;
+        this.metersPerDegreeLon = METERS_PER_DEGREE_LAT * Math.cos(Math.toRadians(originLat));
+    }
+
+    public double east(double lon) {
+        return (lon - originLon) * metersPerDegreeLon;
+    }
+
+    public double north(double lat) {
+        return (lat - originLat) * METERS_PER_DEGREE_LAT;
+    }
+
+    public double lat(double north) {
+        return originLat + north / METERS_PER_DEGREE_LAT;
+    }
+
+    public double lon(double east) {
+        return originLon + east / metersPerDegreeLon;
+    }
+
+    public double getOriginLat() {
+        return originLat;
+    }
+
+    public double getOriginLon() {
+        return originLon;
+    }
+}
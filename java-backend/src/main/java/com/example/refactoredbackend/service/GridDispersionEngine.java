@@ -0,0 +1,200 @@
+package com.example.refactoredbackend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Evaluates a dispersion scenario over a dense receptor grid.
+ *
+ * The downwind/vertical part of each model is computed once per column, leaving a single
+ * exp() per cell; rows are then split across the common fork/join pool and written straight
+ * into one primitive array. The per-row loop is a {@link RowKernel}, scalar by default or
+ * SIMD on the Vector API (model.kernel).
+ */
+@Service
+public class GridDispersionEngine {
+
+    /** Target number of cells handled by one leaf task. */
+    private static final int CELLS_PER_TASK = 16_384;
+
+    /** Cells computed ahead of the writer in streaming mode, about 2 MB of doubles. */
+    private static final int CELLS_PER_STREAM_BLOCK = 262_144;
+
+    /**
+     * Receives grid rows in order (z-level major, then crosswind row) during streaming.
+     * values[offset .. offset + nx) holds the row; the array is reused after the call returns.
+     */
+    public interface RowSink {
+        void row(int iz, int iy, double[] values, int offset) throws IOException;
+
+        default void finish(double maxValue, int maxIndex) throws IOException {
+        }
+    }
+
+    private RowKernel kernel = ScalarRowKernel.INSTANCE;
+
+    /**
+     * scalar, simd or auto; simd and auto fall back to scalar when the SIMD kernel is unavailable.
+     */
+    @Value("${model.kernel:scalar}")
+    public void setKernel(String mode) {
+        this.kernel = RowKernels.select(mode);
+    }
+
+    /** The kernel actually in use: scalar or simd. */
+    public String getKernelName() {
+        return kernel.name();
+    }
+
+    public ConcentrationField compute(Map<String, Object> params) {
+        return compute(DispersionScenario.fromParams(params), GridSpec.fromParams(params));
+    }
+
+    public ConcentrationField compute(DispersionScenario scenario, GridSpec spec) {
+        return compute(scenario, spec, JobProgress.NONE);
+    }
+
+    /**
+     * Computes the grid, reporting one unit of progress per row.
+     */
+    public ConcentrationField compute(DispersionScenario scenario, GridSpec spec, JobProgress progress) {
+        int nx = spec.getNx();
+        int totalRows = spec.getNy() * spec.getNz();
+        progress.start(totalRows);
+        double[][] columns = columnTerms(scenario, spec);
+        double[] values = new double[(int) spec.cellCount()];
+        int rowsPerTask = Math.max(1, CELLS_PER_TASK / nx);
+        RowTask task = new RowTask(kernel, spec, columns[0], columns[1], values, 0, 0, totalRows, rowsPerTask,
+            progress);
+        ForkJoinPool.commonPool().invoke(task);
+
+        return new ConcentrationField(spec, values, task.maxValue, task.maxIndex);
+    }
+
+    /**
+     * Computes the grid in blocks of rows and hands each row to the sink as soon as its block
+     * is done, so memory use depends on the row length rather than the grid size.
+     */
+    public void stream(DispersionScenario scenario, GridSpec spec, RowSink sink) throws IOException {
+        int nx = spec.getNx();
+        int ny = spec.getNy();
+        int totalRows = ny * spec.getNz();
+        double[][] columns = columnTerms(scenario, spec);
+        int rowsPerBlock = Math.max(1, CELLS_PER_STREAM_BLOCK / nx);
+        int rowsPerTask = Math.max(1, CELLS_PER_TASK / nx);
+        double[] block = new double[Math.min(rowsPerBlock, totalRows) * nx];
+
+        double maxValue = 0.0;
+        int maxIndex = -1;
+        for (int fromRow = 0; fromRow < totalRows; fromRow += rowsPerBlock) {
+            int toRow = Math.min(totalRows, fromRow + rowsPerBlock);
+            RowTask task = new RowTask(kernel, spec, columns[0], columns[1], block, fromRow, fromRow, toRow, rowsPerTask,
+                JobProgress.NONE);
+            ForkJoinPool.commonPool().invoke(task);
+            if (task.maxValue > maxValue) {
+                maxValue = task.maxValue;
+                maxIndex = task.maxIndex;
+            }
+            for (int row = fromRow; row < toRow; row++) {
+                sink.row(row / ny, row % ny, block, (row - fromRow) * nx);
+            }
+        }
+        sink.finish(maxValue, maxIndex);
+    }
+
+    /**
+     * Per-column {factor, k} terms laid out as [iz * nx + ix].
+     */
+    private static double[][] columnTerms(DispersionScenario scenario, GridSpec spec) {
+        int nx = spec.getNx();
+        int nz = spec.getNz();
+        double[] columnFactor = new double[nx * nz];
+        double[] columnK = new double[nx * nz];
+        double[] terms = new double[2];
+        for (int iz = 0; iz < nz; iz++) {
+            double z = spec.zAt(iz);
+            for (int ix = 0; ix < nx; ix++) {
+                scenario.columnTerms(spec.xAt(ix), z, terms);
+                columnFactor[iz * nx + ix] = terms[0];
+                columnK[iz * nx + ix] = terms[1];
+            }
+        }
+        return new double[][]{columnFactor, columnK};
+    }
+
+    private static final class RowTask extends RecursiveAction {
+        private final RowKernel kernel;
+        private final GridSpec spec;
+        private final double[] columnFactor;
+        private final double[] columnK;
+        private final double[] values;
+        private final int firstRow;
+        private final int fromRow;
+        private final int toRow;
+        private final int rowsPerTask;
+        private final JobProgress progress;
+
+        double maxValue = 0.0;
+        int maxIndex = -1;
+
+        /**
+         * values holds rows starting at firstRow; maxIndex is always reported in grid coordinates.
+         */
+        RowTask(RowKernel kernel, GridSpec spec, double[] columnFactor, double[] columnK, double[] values,
+                int firstRow, int fromRow, int toRow, int rowsPerTask, JobProgress progress) {
+            this.kernel = kernel;
+            this.spec = spec;
+            this.columnFactor = columnFactor;
+            this.columnK = columnK;
+            this.values = values;
+            this.firstRow = firstRow;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.rowsPerTask = rowsPerTask;
+            this.progress = progress;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow <= rowsPerTask) {
+                computeRows();
+                return;
+            }
+            int mid = (fromRow + toRow) >>> 1;
+            RowTask left = new RowTask(kernel, spec, columnFactor, columnK, values, firstRow, fromRow, mid, rowsPerTask,
+                progress);
+            RowTask right = new RowTask(kernel, spec, columnFactor, columnK, values, firstRow, mid, toRow, rowsPerTask,
+                progress);
+            invokeAll(left, right);
+            maxValue = left.maxValue;
+            maxIndex = left.maxIndex;
+            if (right.maxValue > maxValue) {
+                maxValue = right.maxValue;
+                maxIndex = right.maxIndex;
+            }
+        }
+
+        private void computeRows() {
+            int nx = spec.getNx();
+            int ny = spec.getNy();
+            progress.checkCancelled();
+            for (int row = fromRow; row < toRow; row++) {
+                int iz = row / ny;
+                double y = spec.yAt(row % ny);
+                int columnBase = iz * nx;
+                int base = (row - firstRow) * nx;
+                int maxAt = kernel.fill(columnFactor, columnK, columnBase, y * y, values, base, nx);
+                if (maxAt >= 0 && values[base + maxAt] > maxValue) {
+                    maxValue = values[base + maxAt];
+                    maxIndex = row * nx + maxAt;
+                }
+            }
+            progress.advance(toRow - fromRow);
+        }
+    }
+}
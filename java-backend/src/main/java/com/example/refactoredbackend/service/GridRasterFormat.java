@@ -0,0 +1,138 @@
+package com.example.refactoredbackend.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Little-endian float32 raster layout shared by streamed and stored concentration fields.
+ *
+ * <pre>
+ *  0  byte[4]  magic "CYRS"
+ *  4  int32    format version (1)
+ *  8  int32    nx
+ * 12  int32    ny
+ * 16  int32    nz
+ * 20  int32    nt, number of time slices
+ * 24  float64  x0, downwind distance of the first column (m)
+ * 32  float64  y0, crosswind offset of the first row (m)
+ * 40  float64  dx (m)
+ * 48  float64  dy (m)
+ * 56  float64  z-levels[nz] (m)
+ * ..  float32  values[it][iz][iy][ix] in µg/m³
+ * </pre>
+ */
+public final class GridRasterFormat {
+
+    public static final byte[] MAGIC = {'C', 'Y', 'R', 'S'};
+    public static final int VERSION = 1;
+    public static final String MEDIA_TYPE = "application/octet-stream";
+
+    private static final int FIXED_HEADER_BYTES = 56;
+
+    private GridRasterFormat() {
+    }
+
+    public static int headerSize(int nz) {
+        return FIXED_HEADER_BYTES + 8 * nz;
+    }
+
+    public static ByteBuffer header(GridSpec spec, int nt) {
+        return header(new Header(spec.getNx(), spec.getNy(), nt, spec.xAt(0), spec.yAt(0),
+            spec.getResolution(), spec.getResolution(), spec.getZLevels()));
+    }
+
+    public static ByteBuffer header(Header layout) {
+        ByteBuffer header = ByteBuffer.allocate(layout.size()).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(layout.nx());
+        header.putInt(layout.ny());
+        header.putInt(layout.nz());
+        header.putInt(layout.nt());
+        header.putDouble(layout.x0());
+        header.putDouble(layout.y0());
+        header.putDouble(layout.dx());
+        header.putDouble(layout.dy());
+        for (double z : layout.zLevels()) {
+            header.putDouble(z);
+        }
+        header.flip();
+        return header;
+    }
+
+    /**
+     * Parses a header starting at the buffer's position.
+     */
+    public static Header read(ByteBuffer buffer) {
+        ByteBuffer in = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (in.remaining() < FIXED_HEADER_BYTES) {
+            throw new IllegalArgumentException("raster is shorter than its header");
+        }
+        byte[] magic = new byte[MAGIC.length];
+        in.get(magic);
+        if (!Arrays.equals(magic, MAGIC) || in.getInt() != VERSION) {
+            throw new IllegalArgumentException("not a version " + VERSION + " CYRS raster");
+        }
+        int nx = in.getInt();
+        int ny = in.getInt();
+        int nz = in.getInt();
+        int nt = in.getInt();
+        double x0 = in.getDouble();
+        double y0 = in.getDouble();
+        double dx = in.getDouble();
+        double dy = in.getDouble();
+        if (nz < 1 || in.remaining() < 8L * nz) {
+            throw new IllegalArgumentException("raster header is truncated");
+        }
+        double[] zLevels = new double[nz];
+        for (int iz = 0; iz < nz; iz++) {
+            zLevels[iz] = in.getDouble();
+        }
+        return new Header(nx, ny, nt, x0, y0, dx, dy, zLevels);
+    }
+
+    /**
+     * Dimensions and georeferencing of a raster. Each (time, level) plane is ny rows of nx
+     * values and must fit in one mapped buffer.
+     */
+    public record Header(int nx, int ny, int nt, double x0, double y0, double dx, double dy, double[] zLevels) {
+
+        public Header {
+            if (nx < 1 || ny < 1 || nt < 1 || zLevels.length < 1) {
+                throw new IllegalArgumentException("raster dimensions must be positive");
+            }
+            if ((long) nx * ny * Float.BYTES > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("raster plane of " + nx + "x" + ny + " cells is too large");
+            }
+            zLevels = zLevels.clone();
+        }
+
+        public int nz() {
+            return zLevels.length;
+        }
+
+        /** Header size in bytes, which is also the offset of the first value. */
+        public int size() {
+            return headerSize(nz());
+        }
+
+        public int planeBytes() {
+            return nx * ny * Float.BYTES;
+        }
+
+        /** Byte offset of the plane for time slice it and level iz. */
+        public long planeOffset(int it, int iz) {
+            return size() + ((long) it * nz() + iz) * planeBytes();
+        }
+
+        public long fileBytes() {
+            return planeOffset(nt, 0);
+        }
+
+        @Override
+        public double[] zLevels() {
+            return zLevels.clone();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.refactoredbackend.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Receptor grid layout in the source-aligned frame: x runs downwind from the source,
+ * y runs crosswind and is centred on the plume axis.
+ */
+public final class GridSpec {
+
+    /** Upper bound on cells across all z-levels, about 200 MB of doubles. */
+    public static final long MAX_CELLS = 25_000_000L;
+
+    private final double resolution;
+    private final double extent;
+    private final double crosswindExtent;
+    private final double[] zLevels;
+    private final int nx;
+    private final int ny;
+
+    public GridSpec(double resolution, double extent, double crosswindExtent, double[] zLevels) {
+        if (!(resolution > 0)) {
+            throw new IllegalArgumentException("resolution must be positive");
+        }
+        if (!(extent >= resolution)) {
+            throw new IllegalArgumentException("extent must be at least one resolution step");
+        }
+        if (!(crosswindExtent >= 0)) {
+            throw new IllegalArgumentException("crosswind_extent must not be negative");
+        }
+        if (zLevels == null || zLevels.length == 0) {
+            throw new IllegalArgumentException("at least one z-level is required");
+        }
+        long columns = (long) Math.floor(extent / resolution);
+        long rows = 2 * (long) Math.floor(crosswindExtent / resolution) + 1;
+        if (columns * rows * zLevels.length > MAX_CELLS) {
+            throw new IllegalArgumentException("grid of " + columns + "x" + rows + "x" + zLevels.length
+                + " cells exceeds the limit of " + MAX_CELLS);
+        }
+        this.resolution = resolution;
+        this.extent = extent;
+        this.crosswindExtent = crosswindExtent;
+        this.zLevels = zLevels.clone();
+        this.nx = (int) columns;
+        this.ny = (int) rows;
+    }
+
+    public static GridSpec fromParams(Map<String, Object> params) {
+        double resolution = DispersionService.getDoubleParam(params, "resolution", 25.0);
+        double extent = DispersionService.getDoubleParam(params, "extent", 1000.0);
+        double crosswindExtent = DispersionService.getDoubleParam(params, "crosswind_extent", 250.0);
+        return new GridSpec(resolution, extent, crosswindExtent, parseZLevels(params));
+    }
+
+    private static double[] parseZLevels(Map<String, Object> params) {
+        Object value = params.get("z_levels");
+        if (value instanceof List<?> list && !list.isEmpty()) {
+            double[] levels = new double[list.size()];
+            for (int i = 0; i < levels.length; i++) {
+                Object level = list.get(i);
+                if (level instanceof Number number) {
+                    levels[i] = number.doubleValue();
+                } else {
+                    try {
+                        levels[i] = Double.parseDouble(String.valueOf(level));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("invalid z-level: " + level);
+                    }
+                }
+            }
+            return levels;
+        }
+        return new double[]{DispersionService.getDoubleParam(params, "z", 1.5)};
+    }
+
+    public double getResolution() {
+        return resolution;
+    }
+
+    public double getExtent() {
+        return extent;
+    }
+
+    public double getCrosswindExtent() {
+        return crosswindExtent;
+    }
+
+    public double[] getZLevels() {
+        return zLevels.clone();
+    }
+
+    public int getNx() {
+        return nx;
+    }
+
+    public int getNy() {
+        return ny;
+    }
+
+    public int getNz() {
+        return zLevels.length;
+    }
+
+    /** Downwind distance of column ix; the first column sits one step from the source. */
+    public double xAt(int ix) {
+        return (ix + 1) * resolution;
+    }
+
+    public double yAt(int iy) {
+        return (iy - (ny - 1) / 2) * resolution;
+    }
+
+    public double zAt(int iz) {
+        return zLevels[iz];
+    }
+
+    public long cellCount() {
+        return (long) nx * ny * zLevels.length;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.refactoredbackend.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Row sinks that serialize a streamed grid directly onto a response stream.
+ */
+public final class GridStreamWriters {
+
+    public static final String NDJSON = "ndjson";
+    public static final String RASTER = "raster";
+    public static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+
+    private GridStreamWriters() {
+    }
+
+    /**
+     * One JSON object per line: a header, one line per grid row, then a summary line.
+     */
+    public static GridDispersionEngine.RowSink ndjson(DispersionScenario scenario, GridSpec spec, OutputStream out)
+            throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write("{\"type\":\"header\",\"model_type\":\"" + scenario.getModelType() + "\""
+            + ",\"nx\":" + spec.getNx() + ",\"ny\":" + spec.getNy() + ",\"nz\":" + spec.getNz()
+            + ",\"x0\":" + spec.xAt(0) + ",\"y0\":" + spec.yAt(0)
+            + ",\"resolution\":" + spec.getResolution() + ",\"units\":\"µg/m³\"}\n");
+
+        return new GridDispersionEngine.RowSink() {
+            @Override
+            public void row(int iz, int iy, double[] values, int offset) throws IOException {
+                writer.write("{\"iz\":");
+                writer.write(Integer.toString(iz));
+                writer.write(",\"iy\":");
+                writer.write(Integer.toString(iy));
+                writer.write(",\"z\":");
+                writer.write(Double.toString(spec.zAt(iz)));
+                writer.write(",\"y\":");
+                writer.write(Double.toString(spec.yAt(iy)));
+                writer.write(",\"values\":[");
+                for (int ix = 0; ix < spec.getNx(); ix++) {
+                    if (ix > 0) {
+                        writer.write(',');
+                    }
+                    writer.write(Float.toString((float) values[offset + ix]));
+                }
+                writer.write("]}\n");
+                if (iy == spec.getNy() - 1) {
+                    writer.flush();
+                }
+            }
+
+            @Override
+            public void finish(double maxValue, int maxIndex) throws IOException {
+                writer.write("{\"type\":\"summary\",\"max_concentration\":" + maxValue
+                    + ",\"max_index\":" + maxIndex + "}\n");
+                writer.flush();
+            }
+        };
+    }
+
+    /**
+     * {@link GridRasterFormat} header followed by float32 rows.
+     */
+    public static GridDispersionEngine.RowSink raster(GridSpec spec, OutputStream out) throws IOException {
+        ByteBuffer header = GridRasterFormat.header(spec, 1);
+        out.write(header.array(), 0, header.limit());
+        ByteBuffer rowBuffer = ByteBuffer.allocate(spec.getNx() * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        return new GridDispersionEngine.RowSink() {
+            @Override
+            public void row(int iz, int iy, double[] values, int offset) throws IOException {
+                rowBuffer.clear();
+                for (int ix = 0; ix < spec.getNx(); ix++) {
+                    rowBuffer.putFloat((float) values[offset + ix]);
+                }
+                out.write(rowBuffer.array(), 0, rowBuffer.position());
+                if (iy == spec.getNy() - 1) {
+                    out.flush();
+                }
+            }
+
+            @Override
+            public void finish(double maxValue, int maxIndex) throws IOException {
+                out.flush();
+            }
+        };
+    }
+}
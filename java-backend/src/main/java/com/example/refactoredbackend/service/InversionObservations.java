@@ -0,0 +1,108 @@
+package com.example.refactoredbackend.service;
+
+import com.example.refactoredbackend.model.Plume;
+import com.example.refactoredbackend.model.Station;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Concentration observations prepared for source inversion as primitive arrays in a local
+ * east/north frame: receptor position, the unit vector the wind blows towards, wind speed,
+ * the observed concentration in µg/m³ and a least-squares weight.
+ */
+public final class InversionObservations {
+
+    /** Molar volume of air in litres at 25 °C and 1 atm, for ppb to µg/m³. */
+    static final double MOLAR_VOLUME = 24.45;
+
+    /** Observation errors are floored at this many ppb when weighting. */
+    private static final double MIN_ERROR_PPB = 1.0;
+
+    private final GeoFrame frame;
+    private final double molecularWeight;
+    final double[] east;
+    final double[] north;
+    final double[] downEast;
+    final double[] downNorth;
+    final double[] speed;
+    final double[] observed;
+    final double[] weight;
+    final int count;
+
+    InversionObservations(GeoFrame frame, double molecularWeight, double[] east, double[] north,
+                          double[] downEast, double[] downNorth, double[] speed, double[] observed,
+                          double[] weight, int count) {
+        this.frame = frame;
+        this.molecularWeight = molecularWeight;
+        this.east = east;
+        this.north = north;
+        this.downEast = downEast;
+        this.downNorth = downNorth;
+        this.speed = speed;
+        this.observed = observed;
+        this.weight = weight;
+        this.count = count;
+    }
+
+    /**
+     * Observations from plume rows with a station, a positive wind speed and a finite SO2
+     * reading. Rows that do not qualify are skipped. Weights are 1 / error², using
+     * so2_error_ppb where it is recorded.
+     */
+    public static InversionObservations fromPlumes(List<Plume> plumes, GeoFrame frame, double molecularWeight) {
+        if (!(molecularWeight > 0)) {
+            throw new IllegalArgumentException("molecular_weight must be positive");
+        }
+        int n = plumes.size();
+        double[] east = new double[n];
+        double[] north = new double[n];
+        double[] downEast = new double[n];
+        double[] downNorth = new double[n];
+        double[] speed = new double[n];
+        double[] observed = new double[n];
+        double[] weight = new double[n];
+        double toMicrograms = molecularWeight / MOLAR_VOLUME;
+        int count = 0;
+        for (Plume plume : plumes) {
+            Station station = plume.getStation();
+            if (station == null || !(plume.getWind_speed_ms() > 0) || !Double.isFinite(plume.getSo2_ppb())
+                || !Double.isFinite(plume.getWind_dir_deg())) {
+                continue;
+            }
+            double theta = Math.toRadians(plume.getWind_dir_deg());
+            double error = Math.max(MIN_ERROR_PPB, plume.getSo2_error_ppb()) * toMicrograms;
+            east[count] = frame.east(station.getLon());
+            north[count] = frame.north(station.getLat());
+            downEast[count] = -Math.sin(theta);
+            downNorth[count] = -Math.cos(theta);
+            speed[count] = plume.getWind_speed_ms();
+            observed[count] = Math.max(0.0, plume.getSo2_ppb()) * toMicrograms;
+            weight[count] = 1.0 / (error * error);
+            count++;
+        }
+        if (count == 0) {
+            throw new IllegalArgumentException("no plume observations with a station and wind in the window");
+        }
+        return new InversionObservations(frame, molecularWeight,
+            Arrays.copyOf(east, count), Arrays.copyOf(north, count), Arrays.copyOf(downEast, count),
+            Arrays.copyOf(downNorth, count), Arrays.copyOf(speed, count), Arrays.copyOf(observed, count),
+            Arrays.copyOf(weight, count), count);
+    }
+
+    public GeoFrame getFrame() {
+        return frame;
+    }
+
+    public double getMolecularWeight() {
+        return molecularWeight;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    double toPpb(double microgramsPerCubicMetre) {
+        return microgramsPerCubicMetre * MOLAR_VOLUME / molecularWeight;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.refactoredbackend.service;
+
+/**
+ * Best-fit source: emission rate in g/s, position, release height and goodness of fit.
+ */
+public final class InversionResult {
+
+    private final double Q;
+    private final double lat;
+    private final double lon;
+    private final double releaseHeight;
+    private final double rmsePpb;
+    private final double correlation;
+    private final int observations;
+    private final long costEvaluations;
+
+    InversionResult(double Q, double lat, double lon, double releaseHeight, double rmsePpb, double correlation,
+                    int observations, long costEvaluations) {
+        this.Q = Q;
+        this.lat = lat;
+        this.lon = lon;
+        this.releaseHeight = releaseHeight;
+        this.rmsePpb = rmsePpb;
+        this.correlation = correlation;
+        this.observations = observations;
+        this.costEvaluations = costEvaluations;
+    }
+
+    public double getQ() {
+        return Q;
+    }
+
+    public double getLat() {
+        return lat;
+    }
+
+    public double getLon() {
+        return lon;
+    }
+
+    public double getReleaseHeight() {
+        return releaseHeight;
+    }
+
+    /** Unweighted root-mean-square residual in ppb. */
+    public double getRmsePpb() {
+        return rmsePpb;
+    }
+
+    /** Pearson correlation between modelled and observed concentrations. */
+    public double getCorrelation() {
+        return correlation;
+    }
+
+    public int getObservations() {
+        return observations;
+    }
+
+    /** Candidate sources whose cost was evaluated during the search. */
+    public long getCostEvaluations() {
+        return costEvaluations;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.refactoredbackend.service;
+
+import java.util.Map;
+
+/**
+ * What a source inversion may adjust and where it searches. Position offsets are metres from
+ * the initial source location.
+ */
+public final class InversionSpec {
+
+    private final double releaseHeight;
+    private final String stabilityClass;
+    private final double receptorHeight;
+    private final boolean fitPosition;
+    private final boolean fitHeight;
+    private final double searchRadius;
+    private final double maxHeight;
+
+    public InversionSpec(double releaseHeight, String stabilityClass, double receptorHeight,
+                         boolean fitPosition, boolean fitHeight, double searchRadius, double maxHeight) {
+        if (!(releaseHeight >= 0) || !(maxHeight >= releaseHeight) || !Double.isFinite(maxHeight)) {
+            throw new IllegalArgumentException("release_height must be between 0 and max_height");
+        }
+        if (fitPosition && !(searchRadius > 0 && Double.isFinite(searchRadius))) {
+            throw new IllegalArgumentException("search_radius must be positive");
+        }
+        if (!Double.isFinite(receptorHeight)) {
+            throw new IllegalArgumentException("z must be a finite number");
+        }
+        if (stabilityClass == null) {
+            throw new IllegalArgumentException("stability_class is required");
+        }
+        this.releaseHeight = releaseHeight;
+        this.stabilityClass = stabilityClass;
+        this.receptorHeight = receptorHeight;
+        this.fitPosition = fitPosition;
+        this.fitHeight = fitHeight;
+        this.searchRadius = searchRadius;
+        this.maxHeight = maxHeight;
+    }
+
+    public static InversionSpec fromParams(Map<String, Object> params) {
+        double releaseHeight = DispersionService.getDoubleParam(params, "release_height", 50.0);
+        return new InversionSpec(
+            releaseHeight,
+            DispersionService.getStringParam(params, "stability_class", "D"),
+            DispersionService.getDoubleParam(params, "z", 1.5),
+            Boolean.parseBoolean(String.valueOf(params.get("fit_position"))),
+            Boolean.parseBoolean(String.valueOf(params.get("fit_height"))),
+            DispersionService.getDoubleParam(params, "search_radius", 2000.0),
+            DispersionService.getDoubleParam(params, "max_height", Math.max(300.0, releaseHeight)));
+    }
+
+    public double getReleaseHeight() {
+        return releaseHeight;
+    }
+
+    public String getStabilityClass() {
+        return stabilityClass;
+    }
+
+    public double getReceptorHeight() {
+        return receptorHeight;
+    }
+
+    public boolean isFitPosition() {
+        return fitPosition;
+    }
+
+    public boolean isFitHeight() {
+        return fitHeight;
+    }
+
+    public double getSearchRadius() {
+        return searchRadius;
+    }
+
+    public double getMaxHeight() {
+        return maxHeight;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.refactoredbackend.service;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Progress reporting and cooperative cancellation for a long model run. Engines declare the
+ * total units of work, report units as they finish them and call checkCancelled between units.
+ * Synchronous requests pass {@link #NONE}.
+ */
+public interface JobProgress {
+
+    JobProgress NONE = new JobProgress() {
+        @Override
+        public void start(long totalUnits) {
+        }
+
+        @Override
+        public void advance(long units) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+
+    void start(long totalUnits);
+
+    void advance(long units);
+
+    boolean isCancelled();
+
+    default void checkCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException("job was cancelled");
+        }
+    }
+}
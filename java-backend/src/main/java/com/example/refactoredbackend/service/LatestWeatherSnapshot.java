@@ -0,0 +1,110 @@
+package com.example.refactoredbackend.service;
+
+import com.example.refactoredbackend.repository.WeatherRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Newest weather reading per station and overall, kept in memory.
+ *
+ * Every write path records its readings here, so lookups are a map read no matter how large
+ * the weather table grows. A station that has not been seen since startup is loaded once with
+ * an indexed "newest row" query (see the weather time indexes), and so is the overall newest
+ * reading. A station with no readings is remembered as empty, which a later write replaces. A
+ * newer reading always wins, so a slow cold-start query cannot overwrite one recorded
+ * meanwhile.
+ */
+@Service
+public class LatestWeatherSnapshot {
+
+    private final Function<Long, Optional<WeatherReading>> stationLoader;
+    private final Supplier<Optional<WeatherReading>> globalLoader;
+
+    private final ConcurrentHashMap<Long, Optional<WeatherReading>> byStation = new ConcurrentHashMap<>();
+    private final AtomicReference<Optional<WeatherReading>> global = new AtomicReference<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder recorded = new LongAdder();
+
+    @Autowired
+    public LatestWeatherSnapshot(WeatherRepository weatherRepository) {
+        this(stationId -> weatherRepository.findFirstByStationIdOrderByTimeDesc(stationId).map(WeatherReading::fromEntity),
+            () -> weatherRepository.findFirstByOrderByTimeDesc().map(WeatherReading::fromEntity));
+    }
+
+    LatestWeatherSnapshot(Function<Long, Optional<WeatherReading>> stationLoader,
+                          Supplier<Optional<WeatherReading>> globalLoader) {
+        this.stationLoader = stationLoader;
+        this.globalLoader = globalLoader;
+    }
+
+    /** Newest reading overall. */
+    public Optional<WeatherReading> latest() {
+        Optional<WeatherReading> current = global.get();
+        if (current != null) {
+            hits.increment();
+            return current;
+        }
+        loads.increment();
+        Optional<WeatherReading> loaded = globalLoader.get();
+        return global.accumulateAndGet(loaded, LatestWeatherSnapshot::newer);
+    }
+
+    /** Newest reading of the station. */
+    public Optional<WeatherReading> latest(Long stationId) {
+        Optional<WeatherReading> current = byStation.get(stationId);
+        if (current != null) {
+            hits.increment();
+            return current;
+        }
+        loads.increment();
+        Optional<WeatherReading> loaded = stationLoader.apply(stationId);
+        return byStation.merge(stationId, loaded, LatestWeatherSnapshot::newer);
+    }
+
+    /**
+     * Called for every reading written to the weather table. Writes are stamped with the
+     * current time, so a recorded reading is at least as new as anything stored for its
+     * station, and a station seen for the first time needs no query.
+     */
+    public void record(WeatherReading reading) {
+        recorded.increment();
+        Optional<WeatherReading> value = Optional.of(reading);
+        if (reading.stationId() != null) {
+            byStation.merge(reading.stationId(), value, LatestWeatherSnapshot::newer);
+        }
+        global.accumulateAndGet(value, LatestWeatherSnapshot::newer);
+    }
+
+    /** Forgets a deleted station. */
+    public void forget(Long stationId) {
+        byStation.remove(stationId);
+    }
+
+    private static Optional<WeatherReading> newer(Optional<WeatherReading> a, Optional<WeatherReading> b) {
+        if (a == null || a.isEmpty()) {
+            return b;
+        }
+        if (b == null || b.isEmpty()) {
+            return a;
+        }
+        return b.get().time().isAfter(a.get().time()) ? b : a;
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+            "stations", byStation.size(),
+            "hits", hits.sum(),
+            "loads", loads.sum(),
+            "recorded", recorded.sum()
+        );
+    }
+}
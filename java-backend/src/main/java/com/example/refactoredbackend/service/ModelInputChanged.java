@@ -0,0 +1,65 @@
+package com.example.refactoredbackend.service;
+
+/**
+ * Application event published when data that model results are derived from changes.
+ *
+ * The key names the input: one event, one chemical, the weather at one station, or the
+ * station list. Cached results record the keys they were computed from, so a listener only
+ * has to look the key up to find what went stale.
+ */
+public final class ModelInputChanged {
+
+    /** Any weather record, including records not tied to a station. */
+    public static final String ANY_WEATHER = "weather:any";
+
+    /** Stations were added or removed, which can change which station an event uses. */
+    public static final String STATIONS = "stations";
+
+    private final String key;
+
+    private ModelInputChanged(String key) {
+        this.key = key;
+    }
+
+    public static ModelInputChanged weather(Long stationId) {
+        return new ModelInputChanged(stationId == null ? ANY_WEATHER : weatherKey(stationId));
+    }
+
+    public static ModelInputChanged event(Long eventId) {
+        return new ModelInputChanged(eventKey(eventId));
+    }
+
+    public static ModelInputChanged chemical(Long chemicalId) {
+        return new ModelInputChanged(chemicalKey(chemicalId));
+    }
+
+    public static ModelInputChanged stations() {
+        return new ModelInputChanged(STATIONS);
+    }
+
+    static String weatherKey(Long stationId) {
+        return "weather:station:" + stationId;
+    }
+
+    static String eventKey(Long eventId) {
+        return "event:" + eventId;
+    }
+
+    static String chemicalKey(Long chemicalId) {
+        return "chemical:" + chemicalId;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /** True for weather at a station, which also changes the latest weather overall. */
+    public boolean isStationWeather() {
+        return key.startsWith("weather:station:");
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+}
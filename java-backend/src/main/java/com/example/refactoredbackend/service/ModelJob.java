@@ -0,0 +1,183 @@
+package com.example.refactoredbackend.service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * State of one queued model run. The worker reports progress through the {@link JobProgress}
+ * side; clients read the status, and listeners hear about status changes and every whole
+ * percent of progress.
+ */
+public final class ModelJob implements JobProgress {
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        public boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private final String id;
+    private final String kind;
+    private final Instant submitted = Instant.now();
+    private final AtomicLong done = new AtomicLong();
+    private final List<Consumer<ModelJob>> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile long total;
+    private volatile boolean cancelRequested;
+    private volatile int reportedPercent;
+    private volatile Instant started;
+    private volatile Instant finished;
+    private volatile Object result;
+    private volatile int errorStatus;
+    private volatile String error;
+    private volatile Future<?> future;
+
+    ModelJob(String id, String kind) {
+        this.id = id;
+        this.kind = kind;
+    }
+
+    @Override
+    public void start(long totalUnits) {
+        total = Math.max(0, totalUnits);
+        done.set(0);
+    }
+
+    @Override
+    public void advance(long units) {
+        long t = total;
+        if (t <= 0) {
+            return;
+        }
+        int percent = (int) Math.min(100, 100 * done.addAndGet(units) / t);
+        if (percent > reportedPercent) {
+            reportedPercent = percent;
+            notifyListeners();
+        }
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelRequested;
+    }
+
+    /** Fraction of the work done, from 0 to 1. */
+    public double getProgress() {
+        if (status == Status.SUCCEEDED) {
+            return 1.0;
+        }
+        long t = total;
+        return t <= 0 ? 0.0 : Math.min(1.0, (double) done.get() / t);
+    }
+
+    void markRunning() {
+        started = Instant.now();
+        status = Status.RUNNING;
+        notifyListeners();
+    }
+
+    void succeed(Object value) {
+        result = value;
+        finish(Status.SUCCEEDED);
+    }
+
+    void fail(int httpStatus, String message) {
+        errorStatus = httpStatus;
+        error = message;
+        finish(Status.FAILED);
+    }
+
+    void finishCancelled() {
+        finish(Status.CANCELLED);
+    }
+
+    private synchronized void finish(Status finalStatus) {
+        if (status.isFinished()) {
+            return;
+        }
+        finished = Instant.now();
+        status = finalStatus;
+        notifyListeners();
+        listeners.clear();
+    }
+
+    void requestCancel() {
+        cancelRequested = true;
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    Future<?> getFuture() {
+        return future;
+    }
+
+    /**
+     * Calls listener on every status change and whole percent of progress until the job
+     * finishes, starting with the current state.
+     */
+    public void addListener(Consumer<ModelJob> listener) {
+        synchronized (this) {
+            if (!status.isFinished()) {
+                listeners.add(listener);
+            }
+        }
+        listener.accept(this);
+    }
+
+    public void removeListener(Consumer<ModelJob> listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyListeners() {
+        for (Consumer<ModelJob> listener : listeners) {
+            listener.accept(this);
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Instant getSubmitted() {
+        return submitted;
+    }
+
+    public Instant getStarted() {
+        return started;
+    }
+
+    public Instant getFinished() {
+        return finished;
+    }
+
+    /** Response body of a successful run; null until then. */
+    public Object getResult() {
+        return result;
+    }
+
+    /** HTTP status the synchronous endpoint would have answered with, for failed jobs. */
+    public int getErrorStatus() {
+        return errorStatus;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
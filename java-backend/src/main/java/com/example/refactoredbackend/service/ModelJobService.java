@@ -0,0 +1,176 @@
+package com.example.refactoredbackend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs model requests off the servlet threads.
+ *
+ * Jobs go into a bounded queue served by a small fixed pool of worker threads, so long runs
+ * never hold a request thread and CRUD traffic keeps its threads. When the queue is full,
+ * submit refuses the job instead of letting the backlog grow; callers turn that into a
+ * retryable response. Cancellation is cooperative: queued jobs are dropped, and running jobs
+ * stop at the engine's next checkCancelled. Finished jobs are kept for the retention period so
+ * that clients can fetch their results.
+ */
+@Service
+public class ModelJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(ModelJobService.class);
+
+    /** Failure raised by a job's work when its request is invalid; carries the HTTP status. */
+    public static class JobFailedException extends RuntimeException {
+        private final int status;
+
+        public JobFailedException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentHashMap<String, ModelJob> jobs = new ConcurrentHashMap<>();
+    private final Duration retention;
+    private final int maxRetained;
+
+    @Autowired
+    public ModelJobService(@Value("${jobs.workers:2}") int workers,
+                           @Value("${jobs.queue-capacity:32}") int queueCapacity,
+                           @Value("${jobs.retention-seconds:3600}") long retentionSeconds,
+                           @Value("${jobs.max-retained:1000}") int maxRetained) {
+        if (workers < 1 || queueCapacity < 1 || retentionSeconds < 1 || maxRetained < 1) {
+            throw new IllegalArgumentException("job workers, queue capacity and retention must be positive");
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "model-job-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+        this.retention = Duration.ofSeconds(retentionSeconds);
+        this.maxRetained = maxRetained;
+    }
+
+    /**
+     * Queues work and returns its job. The work receives the job as its progress sink and
+     * returns the response body.
+     *
+     * @throws RejectedExecutionException when the queue is full
+     */
+    public ModelJob submit(String kind, Function<JobProgress, Object> work) {
+        purgeFinished();
+        ModelJob job = new ModelJob(UUID.randomUUID().toString(), kind);
+        jobs.put(job.getId(), job);
+        try {
+            job.setFuture(executor.submit(() -> execute(job, work)));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        return job;
+    }
+
+    private void execute(ModelJob job, Function<JobProgress, Object> work) {
+        if (job.isCancelled()) {
+            job.finishCancelled();
+            return;
+        }
+        job.markRunning();
+        try {
+            Object result = work.apply(job);
+            if (job.isCancelled()) {
+                job.finishCancelled();
+            } else {
+                job.succeed(result);
+            }
+        } catch (CancellationException e) {
+            job.finishCancelled();
+        } catch (JobFailedException e) {
+            job.fail(e.getStatus(), e.getMessage());
+        } catch (IllegalArgumentException e) {
+            job.fail(400, e.getMessage());
+        } catch (RuntimeException | Error e) {
+            log.error("Model job {} ({}) failed", job.getId(), job.getKind(), e);
+            job.fail(500, e.toString());
+        }
+    }
+
+    public Optional<ModelJob> get(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /** Jobs still retained, newest first. */
+    public List<ModelJob> list() {
+        List<ModelJob> all = new ArrayList<>(jobs.values());
+        all.sort(Comparator.comparing(ModelJob::getSubmitted).reversed());
+        return all;
+    }
+
+    /**
+     * Requests cancellation. A queued job is removed from the queue and finishes at once; a
+     * running job finishes when its engine next checks.
+     */
+    public void cancel(ModelJob job) {
+        job.requestCancel();
+        if (job.getStatus() == ModelJob.Status.QUEUED && job.getFuture() != null && job.getFuture().cancel(false)) {
+            executor.remove((Runnable) job.getFuture());
+            job.finishCancelled();
+        }
+    }
+
+    /** Jobs waiting for a worker. */
+    public int queued() {
+        return executor.getQueue().size();
+    }
+
+    public int running() {
+        return executor.getActiveCount();
+    }
+
+    private void purgeFinished() {
+        Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.getStatus().isFinished() && job.getFinished().isBefore(cutoff));
+        if (jobs.size() >= maxRetained) {
+            jobs.values().stream()
+                .filter(job -> job.getStatus().isFinished())
+                .sorted(Comparator.comparing(ModelJob::getFinished))
+                .limit(jobs.size() - maxRetained + 1L)
+                .map(ModelJob::getId)
+                .toList()
+                .forEach(jobs::remove);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.values().forEach(ModelJob::requestCancel);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.refactoredbackend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded cache of model results keyed on the request parameters.
+ *
+ * Keys are the parameters sorted by name with every number rounded to a fixed number of
+ * significant digits, so requests that differ only by float noise share an entry. Reads are a
+ * plain ConcurrentHashMap lookup plus a timestamp write. Concurrent misses for the same key
+ * share one computation through the entry's future. Entries expire a TTL after their load
+ * completes, so a long load is never restarted while it runs. Once the
+ * entry count or estimated size goes over its limit a single thread evicts the least recently
+ * used entries.
+ */
+@Service
+public class ModelResultCache {
+
+    /** Request keys that only affect how a result is rendered or kept, not the result itself. */
+    private static final Set<String> PRESENTATION_KEYS = Set.of("include_field", "store");
+
+    /** Eviction trims to this fraction of the limits so it does not run on every insert. */
+    private static final double EVICT_TO = 0.9;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final AtomicLong weight = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttlNanos;
+    private final int significantDigits;
+    private final LongSupplier clock;
+
+    @Autowired
+    public ModelResultCache(@Value("${model.cache.max-entries:1024}") int maxEntries,
+                            @Value("${model.cache.max-bytes:134217728}") long maxBytes,
+                            @Value("${model.cache.ttl-seconds:300}") long ttlSeconds,
+                            @Value("${model.cache.significant-digits:6}") int significantDigits) {
+        this(maxEntries, maxBytes, ttlSeconds, significantDigits, System::nanoTime);
+    }
+
+    ModelResultCache(int maxEntries, long maxBytes, long ttlSeconds, int significantDigits, LongSupplier clock) {
+        if (maxEntries < 1 || maxBytes < 1 || ttlSeconds < 1) {
+            throw new IllegalArgumentException("cache limits and TTL must be positive");
+        }
+        if (significantDigits < 1 || significantDigits > 15) {
+            throw new IllegalArgumentException("significant digits must be between 1 and 15");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        this.significantDigits = significantDigits;
+        this.clock = clock;
+    }
+
+    /**
+     * Cached result of loader for this kind of model and parameters. sizeOf estimates the
+     * result's size in bytes. Exceptions from the loader reach every waiting caller and are
+     * not cached, except a {@link CancellationException}: that only concerns the caller whose
+     * load was cancelled, and the callers waiting on it retry the load themselves.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V get(String kind, Map<String, Object> params, ToLongFunction<V> sizeOf, Supplier<V> loader) {
+        String key = key(kind, params);
+        while (true) {
+            long now = clock.getAsLong();
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expired(now, ttlNanos)) {
+                    remove(key, entry);
+                    continue;
+                }
+                entry.lastAccess = now;
+                if (entry.future.isDone()) {
+                    hits.increment();
+                } else {
+                    coalesced.increment();
+                }
+                try {
+                    return (V) join(entry.future);
+                } catch (CancellationException e) {
+                    // The loading caller was cancelled, not this one: load again
+                    continue;
+                }
+            }
+
+            Entry created = new Entry(now);
+            if (entries.putIfAbsent(key, created) != null) {
+                continue;
+            }
+            misses.increment();
+            V value;
+            try {
+                value = loader.get();
+            } catch (RuntimeException | Error e) {
+                entries.remove(key, created);
+                created.future.completeExceptionally(e);
+                throw e;
+            }
+            created.weight = sizeOf.applyAsLong(value) + key.length() * 2L;
+            created.completed = clock.getAsLong();
+            created.future.complete(value);
+            // Only count the weight if the entry was not removed while it was loading
+            synchronized (created) {
+                if (entries.get(key) == created) {
+                    weight.addAndGet(created.weight);
+                    created.counted = true;
+                }
+            }
+            evictIfNeeded();
+            return value;
+        }
+    }
+
+    /**
+     * Canonical key: kind plus parameters sorted by name, with numbers quantized.
+     */
+    String key(String kind, Map<String, Object> params) {
+        StringBuilder key = new StringBuilder(kind);
+        for (Map.Entry<String, Object> param : new TreeMap<>(params).entrySet()) {
+            if (PRESENTATION_KEYS.contains(param.getKey())) {
+                continue;
+            }
+            key.append('|').append(param.getKey()).append('=');
+            appendValue(key, param.getValue());
+        }
+        return key.toString();
+    }
+
+    private void appendValue(StringBuilder key, Object value) {
+        if (value instanceof Number number) {
+            key.append(quantize(number.doubleValue()));
+        } else if (value instanceof List<?> list) {
+            key.append('[');
+            for (Object element : list) {
+                appendValue(key, element);
+                key.append(',');
+            }
+            key.append(']');
+        } else {
+            key.append(value);
+        }
+    }
+
+    /**
+     * Rounds to the configured number of significant digits. Integers and quantized decimals
+     * map to the same value, e.g. 5, 5.0 and 5.0000000001.
+     */
+    double quantize(double value) {
+        if (value == 0 || !Double.isFinite(value)) {
+            return value == 0 ? 0.0 : value;
+        }
+        int exponent = (int) Math.floor(Math.log10(Math.abs(value))) - significantDigits + 1;
+        double scale = Math.pow(10, -exponent);
+        if (!Double.isFinite(scale)) {
+            return value;
+        }
+        return Math.round(value * scale) / scale;
+    }
+
+    private void evictIfNeeded() {
+        if ((entries.size() <= maxEntries && weight.get() <= maxBytes) || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = clock.getAsLong();
+            List<Candidate> candidates = new ArrayList<>();
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                if (entry.expired(now, ttlNanos)) {
+                    if (remove(e.getKey(), entry)) {
+                        evictions.increment();
+                    }
+                } else if (entry.future.isDone()) {
+                    // Snapshot the access time so concurrent reads cannot reorder the sort
+                    candidates.add(new Candidate(e.getKey(), entry, entry.lastAccess));
+                }
+            }
+            candidates.sort(Comparator.comparingLong(Candidate::lastAccess));
+            int targetEntries = (int) (maxEntries * EVICT_TO);
+            long targetBytes = (long) (maxBytes * EVICT_TO);
+            for (Candidate candidate : candidates) {
+                if (entries.size() <= targetEntries && weight.get() <= targetBytes) {
+                    break;
+                }
+                if (remove(candidate.key(), candidate.entry())) {
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private boolean remove(String key, Entry entry) {
+        if (!entries.remove(key, entry)) {
+            return false;
+        }
+        synchronized (entry) {
+            if (entry.counted) {
+                weight.addAndGet(-entry.weight);
+                entry.counted = false;
+            }
+        }
+        return true;
+    }
+
+    private static Object join(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public void clear() {
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            remove(e.getKey(), e.getValue());
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum() + coalesced.sum();
+        long requests = hitCount + misses.sum();
+        return Map.of(
+            "entries", entries.size(),
+            "estimated_bytes", weight.get(),
+            "hits", hits.sum(),
+            "coalesced", coalesced.sum(),
+            "misses", misses.sum(),
+            "evictions", evictions.sum(),
+            "hit_ratio", requests == 0 ? 0.0 : (double) hitCount / requests
+        );
+    }
+
+    private record Candidate(String key, Entry entry, long lastAccess) {
+    }
+
+    private static final class Entry {
+        final CompletableFuture<Object> future = new CompletableFuture<>();
+        volatile long completed;
+        volatile long lastAccess;
+        long weight;
+        boolean counted;
+
+        Entry(long created) {
+            this.lastAccess = created;
+        }
+
+        /** Loads in flight never expire; completed is written before the future completes. */
+        boolean expired(long now, long ttlNanos) {
+            return future.isDone() && now - completed > ttlNanos;
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.example.refactoredbackend.service;
+
+import com.example.refactoredbackend.model.Event;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Superimposes the fields of many point sources on one east/north grid.
+ *
+ * Sources are placed in a local metric frame centred on their centroid and share one wind.
+ * Before the grid is filled, each source's footprint is measured: how far downwind and how
+ * wide its contribution stays above the cutoff concentration. Rows are then split across the
+ * common fork/join pool, and each source only visits the cells inside its own footprint box.
+ */
+@Service
+public class MultiSourceEngine {
+
+    /** Target number of cells handled by one leaf task. */
+    private static final int CELLS_PER_TASK = 16_384;
+
+    /**
+     * A release at a geographic position. The scenario supplies the model, source strength
+     * and weather; its position fields are ignored.
+     */
+    public static final class Source {
+        private final Long id;
+        private final double lat;
+        private final double lon;
+        private final DispersionScenario scenario;
+
+        public Source(Long id, double lat, double lon, DispersionScenario scenario) {
+            this.id = id;
+            this.lat = lat;
+            this.lon = lon;
+            this.scenario = scenario;
+        }
+
+        /**
+         * Source for an event. Continuous releases become a plume emitting amount (g) evenly
+         * over releaseDuration seconds; instantaneous releases use the instantaneous model with
+         * the whole amount. Molecular weight comes from the event's chemical when it has one.
+         */
+        public static Source fromEvent(Event event, double releaseDuration, double releaseHeight,
+                                       double windSpeed, String stabilityClass, double defaultMolecularWeight) {
+            double molecularWeight = event.getChemical() != null && event.getChemical().getMolecularWeight() > 0
+                ? event.getChemical().getMolecularWeight()
+                : defaultMolecularWeight;
+            return fromRelease(event.getId(), event.getType(), event.getAmount(), event.getLat(), event.getLon(),
+                molecularWeight, releaseDuration, releaseHeight, windSpeed, stabilityClass);
+        }
+
+        /**
+         * Source for a release of amount grams of the given event type, as in fromEvent.
+         */
+        public static Source fromRelease(Long id, String type, double amount, double lat, double lon,
+                                         double molecularWeight, double releaseDuration, double releaseHeight,
+                                         double windSpeed, String stabilityClass) {
+            boolean instantaneous = DispersionScenario.INSTANTANEOUS.equalsIgnoreCase(type);
+            DispersionScenario scenario = new DispersionScenario(
+                instantaneous ? DispersionScenario.INSTANTANEOUS : DispersionScenario.PLUME,
+                instantaneous ? amount : amount / releaseDuration,
+                releaseHeight, windSpeed, 60.0, stabilityClass, molecularWeight);
+            return new Source(id, lat, lon, scenario);
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public double getLat() {
+            return lat;
+        }
+
+        public double getLon() {
+            return lon;
+        }
+
+        public DispersionScenario getScenario() {
+            return scenario;
+        }
+    }
+
+    /**
+     * Combined field at height z. windDirection is where the wind blows from, in degrees;
+     * margin is how far the grid extends beyond the outermost sources; contributions below
+     * cutoff (µg/m³) are skipped.
+     */
+    public CombinedField compute(List<Source> sources, double windDirection, double resolution,
+                                 double margin, double z, double cutoff) {
+        return compute(sources, windDirection, resolution, margin, z, cutoff, JobProgress.NONE);
+    }
+
+    /**
+     * As above, reporting one unit of progress per grid row.
+     */
+    public CombinedField compute(List<Source> sources, double windDirection, double resolution,
+                                 double margin, double z, double cutoff, JobProgress progress) {
+        if (sources.isEmpty()) {
+            throw new IllegalArgumentException("at least one source is required");
+        }
+        if (!(resolution > 0) || !(margin >= resolution)) {
+            throw new IllegalArgumentException("resolution must be positive and no larger than extent");
+        }
+        if (!(cutoff > 0)) {
+            throw new IllegalArgumentException("cutoff must be a positive concentration");
+        }
+        if (!Double.isFinite(windDirection)) {
+            throw new IllegalArgumentException("wind_direction must be a finite number");
+        }
+
+        double latSum = 0.0;
+        double lonSum = 0.0;
+        for (Source source : sources) {
+            latSum += source.getLat();
+            lonSum += source.getLon();
+        }
+        GeoFrame frame = new GeoFrame(latSum / sources.size(), lonSum / sources.size());
+
+        int count = sources.size();
+        double[] east = new double[count];
+        double[] north = new double[count];
+        double minEast = Double.POSITIVE_INFINITY;
+        double maxEast = Double.NEGATIVE_INFINITY;
+        double minNorth = Double.POSITIVE_INFINITY;
+        double maxNorth = Double.NEGATIVE_INFINITY;
+        for (int s = 0; s < count; s++) {
+            east[s] = frame.east(sources.get(s).getLon());
+            north[s] = frame.north(sources.get(s).getLat());
+            minEast = Math.min(minEast, east[s]);
+            maxEast = Math.max(maxEast, east[s]);
+            minNorth = Math.min(minNorth, north[s]);
+            maxNorth = Math.max(maxNorth, north[s]);
+        }
+        double x0 = Math.floor((minEast - margin) / resolution) * resolution;
+        double y0 = Math.floor((minNorth - margin) / resolution) * resolution;
+        long columns = (long) Math.ceil((maxEast + margin - x0) / resolution) + 1;
+        long rows = (long) Math.ceil((maxNorth + margin - y0) / resolution) + 1;
+        if (columns * rows > GridSpec.MAX_CELLS) {
+            throw new IllegalArgumentException("grid of " + columns + "x" + rows + " cells exceeds the limit of "
+                + GridSpec.MAX_CELLS);
+        }
+        int nx = (int) columns;
+        int ny = (int) rows;
+        progress.start(ny);
+
+        // Unit vector the wind blows towards
+        double theta = Math.toRadians(windDirection);
+        double downEast = -Math.sin(theta);
+        double downNorth = -Math.cos(theta);
+        double diagonal = Math.hypot(nx * resolution, ny * resolution);
+
+        Footprints footprints = new Footprints(count);
+        for (int s = 0; s < count; s++) {
+            footprints.measure(s, sources.get(s).getScenario(), east[s], north[s], downEast, downNorth,
+                z, cutoff, resolution, diagonal);
+        }
+
+        DispersionScenario[] scenarios = new DispersionScenario[count];
+        for (int s = 0; s < count; s++) {
+            scenarios[s] = sources.get(s).getScenario();
+        }
+        double[] values = new double[nx * ny];
+        RowTask task = new RowTask(new Layout(nx, x0, y0, resolution, z, cutoff, downEast, downNorth),
+            scenarios, east, north, footprints, values, 0, ny, Math.max(1, CELLS_PER_TASK / nx), progress);
+        ForkJoinPool.commonPool().invoke(task);
+        return new CombinedField(frame, nx, ny, x0, y0, resolution, values, task.maxValue, task.maxIndex,
+            task.evaluated);
+    }
+
+    private record Layout(int nx, double x0, double y0, double resolution, double z, double cutoff,
+                          double downEast, double downNorth) {
+    }
+
+    /**
+     * Per-source reach (downwind distance) and bounding box in the grid frame of the region
+     * where the source can exceed the cutoff.
+     */
+    private static final class Footprints {
+        final double[] reach;
+        final double[] minEast;
+        final double[] maxEast;
+        final double[] minNorth;
+        final double[] maxNorth;
+
+        Footprints(int count) {
+            reach = new double[count];
+            minEast = new double[count];
+            maxEast = new double[count];
+            minNorth = new double[count];
+            maxNorth = new double[count];
+        }
+
+        void measure(int s, DispersionScenario scenario, double east, double north, double downEast,
+                     double downNorth, double z, double cutoff, double resolution, double maxDistance) {
+            // Sample the centreline at grid spacing; the half-width at a distance is where
+            // factor * exp(-y² k) falls to the cutoff.
+            double[] terms = new double[2];
+            double lastAbove = 0.0;
+            double halfWidth = 0.0;
+            for (double x = resolution / 2; x <= maxDistance; x += resolution) {
+                scenario.columnTerms(x, z, terms);
+                if (terms[0] > cutoff) {
+                    lastAbove = x;
+                    halfWidth = Math.max(halfWidth, Math.sqrt(Math.log(terms[0] / cutoff) / terms[1]));
+                }
+            }
+            if (lastAbove == 0.0) {
+                reach[s] = 0.0;
+                minEast[s] = maxEast[s] = east;
+                minNorth[s] = maxNorth[s] = north;
+                return;
+            }
+            // One extra cell covers peaks between samples
+            double along = lastAbove + resolution;
+            double across = halfWidth + resolution;
+            reach[s] = along;
+
+            double leftEast = -downNorth;
+            double leftNorth = downEast;
+            minEast[s] = Double.POSITIVE_INFINITY;
+            maxEast[s] = Double.NEGATIVE_INFINITY;
+            minNorth[s] = Double.POSITIVE_INFINITY;
+            maxNorth[s] = Double.NEGATIVE_INFINITY;
+            for (double a : new double[]{0.0, along}) {
+                for (double c : new double[]{-across, across}) {
+                    double e = east + a * downEast + c * leftEast;
+                    double n = north + a * downNorth + c * leftNorth;
+                    minEast[s] = Math.min(minEast[s], e);
+                    maxEast[s] = Math.max(maxEast[s], e);
+                    minNorth[s] = Math.min(minNorth[s], n);
+                    maxNorth[s] = Math.max(maxNorth[s], n);
+                }
+            }
+        }
+    }
+
+    private static final class RowTask extends RecursiveAction {
+        private final Layout layout;
+        private final DispersionScenario[] scenarios;
+        private final double[] east;
+        private final double[] north;
+        private final Footprints footprints;
+        private final double[] values;
+        private final int fromRow;
+        private final int toRow;
+        private final int rowsPerTask;
+        private final JobProgress progress;
+
+        double maxValue = 0.0;
+        int maxIndex = -1;
+        long evaluated = 0;
+
+        RowTask(Layout layout, DispersionScenario[] scenarios, double[] east, double[] north, Footprints footprints,
+                double[] values, int fromRow, int toRow, int rowsPerTask, JobProgress progress) {
+            this.layout = layout;
+            this.scenarios = scenarios;
+            this.east = east;
+            this.north = north;
+            this.footprints = footprints;
+            this.values = values;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.rowsPerTask = rowsPerTask;
+            this.progress = progress;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow <= rowsPerTask) {
+                computeRows();
+                return;
+            }
+            int mid = (fromRow + toRow) >>> 1;
+            RowTask left = new RowTask(layout, scenarios, east, north, footprints, values, fromRow, mid, rowsPerTask,
+                progress);
+            RowTask right = new RowTask(layout, scenarios, east, north, footprints, values, mid, toRow, rowsPerTask,
+                progress);
+            invokeAll(left, right);
+            evaluated = left.evaluated + right.evaluated;
+            maxValue = left.maxValue;
+            maxIndex = left.maxIndex;
+            if (right.maxValue > maxValue) {
+                maxValue = right.maxValue;
+                maxIndex = right.maxIndex;
+            }
+        }
+
+        private void computeRows() {
+            progress.checkCancelled();
+            int nx = layout.nx();
+            double resolution = layout.resolution();
+            double cutoff = layout.cutoff();
+            double downEast = layout.downEast();
+            double downNorth = layout.downNorth();
+            double[] terms = new double[2];
+
+            for (int iy = fromRow; iy < toRow; iy++) {
+                double cellNorth = layout.y0() + iy * resolution;
+                int base = iy * nx;
+                for (int s = 0; s < scenarios.length; s++) {
+                    if (footprints.reach[s] == 0.0
+                        || cellNorth < footprints.minNorth[s] || cellNorth > footprints.maxNorth[s]) {
+                        continue;
+                    }
+                    int ix0 = Math.max(0, (int) Math.ceil((footprints.minEast[s] - layout.x0()) / resolution));
+                    int ix1 = Math.min(nx - 1, (int) Math.floor((footprints.maxEast[s] - layout.x0()) / resolution));
+                    double dNorth = cellNorth - north[s];
+                    double reach = footprints.reach[s];
+                    DispersionScenario scenario = scenarios[s];
+                    for (int ix = ix0; ix <= ix1; ix++) {
+                        double dEast = layout.x0() + ix * resolution - east[s];
+                        double along = dEast * downEast + dNorth * downNorth;
+                        if (along <= 0 || along > reach) {
+                            continue;
+                        }
+                        double across = dNorth * downEast - dEast * downNorth;
+                        scenario.columnTerms(along, layout.z(), terms);
+                        evaluated++;
+                        double c = DispersionScenario.concentration(terms[0], terms[1], across);
+                        if (c >= cutoff) {
+                            values[base + ix] += c;
+                        }
+                    }
+                }
+                for (int i = base; i < base + nx; i++) {
+                    if (values[i] > maxValue) {
+                        maxValue = values[i];
+                        maxIndex = i;
+                    }
+                }
+            }
+            progress.advance(toRow - fromRow);
+        }
+    }
+}
@@ -0,0 +1,449 @@
+package com.example.refactoredbackend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Current conditions from Open-Meteo, cached per grid cell.
+ *
+ * Coordinates are snapped to a cell of the configured size in degrees and the cell centre is
+ * what gets requested, so nearby points share one upstream call and one entry. Open-Meteo
+ * refreshes current conditions on fixed interval boundaries (every 15 minutes), so an entry
+ * expires at the next boundary after it was fetched rather than a fixed time after. Concurrent
+ * misses for a cell wait on the same request. When a refresh fails the previous value is
+ * served, marked stale, and the refresh is retried after a short delay instead of on every
+ * request.
+ *
+ * {@link #currentAll} looks up many points at once. The cells that need fetching are sent as
+ * multi-location requests of up to batch-size coordinates, and the batches run in parallel
+ * on a small pool capped at the configured concurrency. Every request has connect and read
+ * timeouts and is retried with exponential backoff on timeouts, 429 and 5xx responses.
+ */
+@Service
+public class OpenMeteoClient {
+
+    static final String CURRENT_FIELDS =
+        "temperature_2m,relative_humidity_2m,pressure_msl,wind_speed_10m,wind_direction_10m";
+
+    /** Delay before a failed refresh is retried while the stale value is served. */
+    static final long RETRY_AFTER_FAILURE_MILLIS = 60_000;
+
+    /** Eviction trims to this fraction of max entries so it does not run on every insert. */
+    private static final double EVICT_TO = 0.9;
+
+    private final RestTemplate restTemplate;
+    private final String baseUrl;
+    private final double resolution;
+    private final long intervalMillis;
+    private final int maxEntries;
+    private final int batchSize;
+    private final int retries;
+    private final long backoffMillis;
+    private final LongSupplier clock;
+    private final ThreadPoolExecutor fetchers;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder staleServed = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder upstreamRequests = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+
+    @Autowired
+    public OpenMeteoClient(@Value("${weather.open-meteo.url:https://api.open-meteo.com/v1/forecast}") String baseUrl,
+                           @Value("${weather.open-meteo.resolution-deg:0.01}") double resolution,
+                           @Value("${weather.open-meteo.update-interval-seconds:900}") long updateIntervalSeconds,
+                           @Value("${weather.open-meteo.max-entries:4096}") int maxEntries,
+                           @Value("${weather.open-meteo.timeout-ms:5000}") int timeoutMs,
+                           @Value("${weather.open-meteo.batch-size:100}") int batchSize,
+                           @Value("${weather.open-meteo.concurrency:8}") int concurrency,
+                           @Value("${weather.open-meteo.retries:2}") int retries,
+                           @Value("${weather.open-meteo.backoff-ms:250}") long backoffMillis) {
+        this(baseUrl, resolution, updateIntervalSeconds, maxEntries, timeoutMs, batchSize, concurrency, retries,
+            backoffMillis, System::currentTimeMillis);
+    }
+
+    OpenMeteoClient(String baseUrl, double resolution, long updateIntervalSeconds, int maxEntries, int timeoutMs,
+                    int batchSize, int concurrency, int retries, long backoffMillis, LongSupplier clock) {
+        if (!(resolution > 0) || resolution > 1) {
+            throw new IllegalArgumentException("weather cell resolution must be between 0 and 1 degree");
+        }
+        if (updateIntervalSeconds < 1 || maxEntries < 1 || timeoutMs < 1) {
+            throw new IllegalArgumentException("update interval, cache size and timeout must be positive");
+        }
+        if (batchSize < 1 || concurrency < 1 || retries < 0 || backoffMillis < 0) {
+            throw new IllegalArgumentException("batch size and concurrency must be positive and retries not negative");
+        }
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeoutMs);
+        requestFactory.setReadTimeout(timeoutMs);
+        this.restTemplate = new RestTemplate(requestFactory);
+        this.baseUrl = baseUrl;
+        this.resolution = resolution;
+        this.intervalMillis = updateIntervalSeconds * 1000;
+        this.maxEntries = maxEntries;
+        this.batchSize = batchSize;
+        this.retries = retries;
+        this.backoffMillis = backoffMillis;
+        this.clock = clock;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.fetchers = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "open-meteo-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * Current weather at the centre of the cell containing (lat, lon), in the units of
+     * {@link WeatherService#getWeatherFromOpenMeteo}. The map carries "stale": true when it is
+     * an earlier value served because the refresh failed.
+     *
+     * @throws RuntimeException when the request fails and nothing is cached for the cell
+     */
+    public Map<String, Object> current(double lat, double lon) {
+        long now = clock.getAsLong();
+        Lookup lookup = lookup(lat, lon, now);
+        if (lookup.owner()) {
+            try {
+                complete(lookup, withRetries(() -> fetch(List.of(lookup))).get(0), now);
+            } catch (RuntimeException e) {
+                fail(lookup, e, now);
+            }
+            evictIfNeeded(now);
+        }
+        return await(lookup);
+    }
+
+    /**
+     * Current weather for every point, in order. Cells that are cached are answered from the
+     * cache; the rest are fetched in parallel batches. A point whose cell could not be fetched,
+     * and has nothing cached, gets the error's message instead of a value.
+     */
+    public List<PointWeather> currentAll(List<double[]> points) {
+        long now = clock.getAsLong();
+        Map<String, Lookup> byCell = new LinkedHashMap<>();
+        List<Lookup> perPoint = new ArrayList<>(points.size());
+        for (double[] point : points) {
+            String key = key(Math.round(point[0] / resolution), Math.round(point[1] / resolution));
+            Lookup lookup = byCell.get(key);
+            if (lookup == null) {
+                lookup = lookup(point[0], point[1], now);
+                byCell.put(key, lookup);
+            }
+            perPoint.add(lookup);
+        }
+
+        List<Lookup> owned = new ArrayList<>();
+        for (Lookup lookup : byCell.values()) {
+            if (lookup.owner()) {
+                owned.add(lookup);
+            }
+        }
+        List<Future<?>> batches = new ArrayList<>();
+        for (int from = 0; from < owned.size(); from += batchSize) {
+            List<Lookup> batch = owned.subList(from, Math.min(owned.size(), from + batchSize));
+            batches.add(fetchers.submit(() -> {
+                try {
+                    List<Map<String, Object>> fetched = withRetries(() -> fetch(batch));
+                    for (int i = 0; i < batch.size(); i++) {
+                        complete(batch.get(i), fetched.get(i), now);
+                    }
+                } catch (RuntimeException e) {
+                    for (Lookup lookup : batch) {
+                        fail(lookup, e, now);
+                    }
+                }
+            }));
+        }
+        for (Future<?> batch : batches) {
+            try {
+                batch.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while fetching weather", e);
+            } catch (ExecutionException e) {
+                // The task completes its lookups itself, so this is not expected
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        evictIfNeeded(now);
+
+        List<PointWeather> results = new ArrayList<>(perPoint.size());
+        for (Lookup lookup : perPoint) {
+            try {
+                results.add(new PointWeather(await(lookup), null));
+            } catch (RuntimeException e) {
+                results.add(new PointWeather(null, e.getMessage() != null ? e.getMessage() : e.toString()));
+            }
+        }
+        return results;
+    }
+
+    /** Weather for one point of {@link #currentAll}; exactly one of weather and error is set. */
+    public record PointWeather(Map<String, Object> weather, String error) {
+    }
+
+    private static String key(long latIndex, long lonIndex) {
+        return latIndex + ":" + lonIndex;
+    }
+
+    /**
+     * The cached value for the cell if it is fresh; otherwise the cell's pending refresh, which
+     * the caller must fetch and complete when it is the owner.
+     */
+    private Lookup lookup(double lat, double lon, long now) {
+        long latIndex = Math.round(lat / resolution);
+        long lonIndex = Math.round(lon / resolution);
+        String key = key(latIndex, lonIndex);
+        Entry entry = entries.computeIfAbsent(key, k -> new Entry());
+        synchronized (entry) {
+            if (entry.value != null && now < entry.expiresAt) {
+                hits.increment();
+                return new Lookup(key, latIndex * resolution, lonIndex * resolution, entry,
+                    entry.stale ? entry.staleValue : entry.value, null, false);
+            }
+            boolean owner = entry.refresh == null;
+            if (owner) {
+                entry.refresh = new CompletableFuture<>();
+                if (entry.value == null) {
+                    misses.increment();
+                } else {
+                    refreshes.increment();
+                }
+            } else {
+                coalesced.increment();
+            }
+            return new Lookup(key, latIndex * resolution, lonIndex * resolution, entry, null, entry.refresh, owner);
+        }
+    }
+
+    private void complete(Lookup lookup, Map<String, Object> fetched, long now) {
+        Entry entry = lookup.entry();
+        synchronized (entry) {
+            entry.value = fetched;
+            entry.staleValue = null;
+            entry.stale = false;
+            entry.fetchedAt = now;
+            entry.expiresAt = (now / intervalMillis + 1) * intervalMillis;
+            entry.refresh = null;
+        }
+        lookup.refresh().complete(fetched);
+    }
+
+    private void fail(Lookup lookup, RuntimeException e, long now) {
+        failures.increment();
+        Entry entry = lookup.entry();
+        synchronized (entry) {
+            if (entry.value == null) {
+                entries.remove(lookup.key(), entry);
+            } else {
+                entry.stale = true;
+                entry.staleValue = markStale(entry.value);
+                entry.expiresAt = now + Math.min(RETRY_AFTER_FAILURE_MILLIS, intervalMillis);
+            }
+            entry.refresh = null;
+        }
+        lookup.refresh().completeExceptionally(e);
+    }
+
+    private Map<String, Object> await(Lookup lookup) {
+        if (lookup.value() != null) {
+            return lookup.value();
+        }
+        try {
+            return lookup.refresh().join();
+        } catch (CompletionException e) {
+            Entry entry = lookup.entry();
+            synchronized (entry) {
+                if (entry.staleValue != null) {
+                    staleServed.increment();
+                    return entry.staleValue;
+                }
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Runs request, retrying timeouts, connection failures, 429 and 5xx responses after a
+     * backoff that doubles on each attempt.
+     */
+    private <T> T withRetries(Supplier<T> request) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return request.get();
+            } catch (ResourceAccessException | HttpServerErrorException | HttpClientErrorException.TooManyRequests e) {
+                if (attempt >= retries) {
+                    throw e;
+                }
+                retried.increment();
+                try {
+                    Thread.sleep(backoffMillis << attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * One request for the cell centres of the lookups. Open-Meteo answers a single location
+     * with an object and several with an array in request order.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> fetch(List<Lookup> cells) {
+        StringJoiner latitudes = new StringJoiner(",");
+        StringJoiner longitudes = new StringJoiner(",");
+        for (Lookup cell : cells) {
+            latitudes.add(String.format(Locale.ROOT, "%.4f", cell.lat()));
+            longitudes.add(String.format(Locale.ROOT, "%.4f", cell.lon()));
+        }
+        String url = baseUrl + "?latitude=" + latitudes + "&longitude=" + longitudes + "&current=" + CURRENT_FIELDS
+            + "&temperature_unit=fahrenheit&wind_speed_unit=mph&precipitation_unit=inch";
+        upstreamRequests.increment();
+        Object response = restTemplate.getForObject(url, Object.class);
+        List<Object> locations = response instanceof List<?> list ? (List<Object>) list : List.of(response);
+        if (locations.size() != cells.size()) {
+            throw new IllegalStateException("Open-Meteo returned " + locations.size() + " locations for "
+                + cells.size() + " coordinates");
+        }
+        List<Map<String, Object>> parsed = new ArrayList<>(locations.size());
+        for (Object location : locations) {
+            if (!(location instanceof Map<?, ?> map) || !(map.get("current") instanceof Map<?, ?>)) {
+                throw new IllegalStateException("Open-Meteo response has no current conditions");
+            }
+            parsed.add(parseCurrent((Map<String, Object>) map.get("current")));
+        }
+        return parsed;
+    }
+
+    private static Map<String, Object> parseCurrent(Map<String, Object> current) {
+        double windSpeedMph = ((Number) current.get("wind_speed_10m")).doubleValue();
+        double windDirection = ((Number) current.get("wind_direction_10m")).doubleValue();
+        double temperature = ((Number) current.get("temperature_2m")).doubleValue();
+        double humidity = ((Number) current.get("relative_humidity_2m")).doubleValue();
+        double pressure = ((Number) current.get("pressure_msl")).doubleValue() * 0.02953; // Convert hPa to inHg
+
+        Map<String, Object> weatherData = new HashMap<>();
+        weatherData.put("wind_speed", windSpeedMph);
+        weatherData.put("wind_direction", windDirection);
+        weatherData.put("temperature", temperature);
+        weatherData.put("humidity", humidity);
+        weatherData.put("pressure", pressure);
+        weatherData.put("precipitation", 0.0);
+        weatherData.put("stability_class", WeatherService.calculateStabilityClass(windSpeedMph, temperature));
+        return Collections.unmodifiableMap(weatherData);
+    }
+
+    private static Map<String, Object> markStale(Map<String, Object> value) {
+        Map<String, Object> stale = new HashMap<>(value);
+        stale.put("stale", true);
+        return Collections.unmodifiableMap(stale);
+    }
+
+    private void evictIfNeeded(long now) {
+        if (entries.size() <= maxEntries || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            List<Map.Entry<String, Entry>> candidates = new ArrayList<>();
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                if (e.getValue().value != null && e.getValue().refresh == null) {
+                    candidates.add(e);
+                }
+            }
+            // Expired cells first, then the least recently fetched
+            candidates.sort(Comparator.<Map.Entry<String, Entry>>comparingInt(e -> now < e.getValue().expiresAt ? 1 : 0)
+                .thenComparingLong(e -> e.getValue().fetchedAt));
+            int target = (int) (maxEntries * EVICT_TO);
+            for (Map.Entry<String, Entry> candidate : candidates) {
+                if (entries.size() <= target) {
+                    break;
+                }
+                if (entries.remove(candidate.getKey(), candidate.getValue())) {
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum() + coalesced.sum();
+        long requests = hitCount + misses.sum() + refreshes.sum();
+        return Map.ofEntries(
+            Map.entry("entries", entries.size()),
+            Map.entry("hits", hits.sum()),
+            Map.entry("coalesced", coalesced.sum()),
+            Map.entry("misses", misses.sum()),
+            Map.entry("refreshes", refreshes.sum()),
+            Map.entry("failures", failures.sum()),
+            Map.entry("stale_served", staleServed.sum()),
+            Map.entry("evictions", evictions.sum()),
+            Map.entry("upstream_requests", upstreamRequests.sum()),
+            Map.entry("retries", retried.sum()),
+            Map.entry("hit_ratio", requests == 0 ? 0.0 : (double) hitCount / requests)
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fetchers.shutdownNow();
+    }
+
+    private record Lookup(String key, double lat, double lon, Entry entry, Map<String, Object> value,
+                          CompletableFuture<Map<String, Object>> refresh, boolean owner) {
+    }
+
+    private static final class Entry {
+        volatile Map<String, Object> value;
+        volatile Map<String, Object> staleValue;
+        volatile boolean stale;
+        volatile long fetchedAt;
+        volatile long expiresAt;
+        volatile CompletableFuture<Map<String, Object>> refresh;
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.refactoredbackend.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Time-stepped multi-puff (Lagrangian) simulation of a release advected through a wind series.
+ *
+ * Puff state lives in parallel primitive arrays. Each step releases a puff, advects every puff
+ * with the wind at the middle of the step, drops puffs whose peak has fallen below the cull
+ * threshold, and then evaluates the survivors on the receptor grid. Grid rows are split across
+ * the common fork/join pool, and each puff only touches the cells within the radius where it
+ * still exceeds the threshold. With a {@link WindField}, each puff is advected and dispersed
+ * with the wind and stability at its own position instead of the series' uniform wind.
+ */
+@Service
+public class PuffSimulationEngine {
+
+    private static final double TWO_PI_POW_1_5 = Math.pow(2 * Math.PI, 1.5);
+
+    /** Target number of cells handled by one leaf task. */
+    private static final int CELLS_PER_TASK = 16_384;
+
+    /** Puffs are evaluated out to at most this many sigma_y. */
+    private static final double MAX_RADIUS_SIGMAS = 6.0;
+
+    /**
+     * Receives the field after each step. The field array is reused for the next step.
+     */
+    public interface SnapshotSink {
+        void snapshot(int step, double timeSeconds, int activePuffs, double[] field, double maxValue, int maxIndex);
+    }
+
+    public void run(SimulationSpec spec, WindSeries wind, SnapshotSink sink) {
+        run(spec, wind, null, sink);
+    }
+
+    /**
+     * Runs with spatially varying wind when field is not null. The field's origin must be the
+     * source.
+     */
+    public void run(SimulationSpec spec, WindSeries wind, WindField windField, SnapshotSink sink) {
+        int n = spec.getN();
+        double dt = spec.getStep();
+        double mwFactor = Math.sqrt(28.97 / spec.getMolecularWeight());
+        double H = spec.getReleaseHeight();
+        double z = spec.getReceptorHeight();
+        double threshold = spec.getCullThreshold();
+        double domain = spec.coordinate(n - 1) + spec.getResolution() / 2;
+
+        int capacity = spec.maxPuffs();
+        double[] px = new double[capacity];
+        double[] py = new double[capacity];
+        double[] travel = new double[capacity];
+        double[] mass = new double[capacity];
+        double[] amplitude = new double[capacity];
+        double[] k = new double[capacity];
+        double[] radius = new double[capacity];
+        int count = 0;
+
+        double[] field = new double[n * n];
+        double[] velocity = new double[2];
+        double[] sigmas = new double[2];
+        int rowsPerTask = Math.max(1, CELLS_PER_TASK / n);
+        int windIndex = 0;
+
+        for (int step = 0; step < spec.getSteps(); step++) {
+            double t = step * dt;
+            double released = spec.massReleased(t, t + dt);
+            if (released > 0 && count < capacity) {
+                px[count] = 0.0;
+                py[count] = 0.0;
+                travel[count] = 0.0;
+                mass[count] = released;
+                count++;
+            }
+
+            double midpoint = t + dt / 2;
+            windIndex = wind.indexAt(midpoint, windIndex);
+            wind.velocityAt(midpoint, windIndex, velocity);
+            double speed = Math.hypot(velocity[0], velocity[1]);
+            int stabilityIndex = wind.stabilityIndexAt(windIndex);
+
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (windField != null) {
+                    windField.velocityAt(px[i], py[i], velocity);
+                    speed = Math.hypot(velocity[0], velocity[1]);
+                    stabilityIndex = windField.stabilityIndexAt(px[i], py[i]);
+                }
+                double x = px[i] + velocity[0] * dt;
+                double y = py[i] + velocity[1] * dt;
+                double s = travel[i] + speed * dt;
+
+                DispersionService.SIGMA_TABLE.lookup(stabilityIndex, s, sigmas);
+                double sy = sigmas[0] * mwFactor;
+                double sz = sigmas[1] * mwFactor;
+                double twoSzSq = 2 * sz * sz;
+                double vertical = Math.exp(-((z - H) * (z - H)) / twoSzSq) + Math.exp(-((z + H) * (z + H)) / twoSzSq);
+                double peak = mass[i] / (TWO_PI_POW_1_5 * sy * sy * sz) * vertical * 1_000_000; // µg/m³
+                if (!(peak > threshold)) {
+                    continue;
+                }
+                double r = sy * Math.min(MAX_RADIUS_SIGMAS, Math.sqrt(2 * Math.log(peak / threshold)));
+                if (Math.abs(x) - r > domain || Math.abs(y) - r > domain) {
+                    continue;
+                }
+
+                px[kept] = x;
+                py[kept] = y;
+                travel[kept] = s;
+                mass[kept] = mass[i];
+                amplitude[kept] = peak;
+                k[kept] = 1.0 / (2 * sy * sy);
+                radius[kept] = r;
+                kept++;
+            }
+            count = kept;
+
+            BandTask task = new BandTask(spec, field, px, py, amplitude, k, radius, count, 0, n, rowsPerTask);
+            ForkJoinPool.commonPool().invoke(task);
+            sink.snapshot(step + 1, t + dt, count, field, task.maxValue, task.maxIndex);
+        }
+    }
+
+    /**
+     * Max-pools an n x n step field into stride x stride blocks (fewer at the far edges), so a
+     * coarse snapshot still shows the peak that sampling would skip. Row-major like the field.
+     */
+    public static double[] downsample(double[] field, int n, int stride) {
+        if (stride < 1) {
+            throw new IllegalArgumentException("stride must be at least 1");
+        }
+        int m = (n + stride - 1) / stride;
+        double[] out = new double[m * m];
+        for (int row = 0; row < n; row++) {
+            int base = (row / stride) * m;
+            for (int col = 0; col < n; col++) {
+                int cell = base + col / stride;
+                out[cell] = Math.max(out[cell], field[row * n + col]);
+            }
+        }
+        return out;
+    }
+
+    private static final class BandTask extends RecursiveAction {
+        private final SimulationSpec spec;
+        private final double[] field;
+        private final double[] px;
+        private final double[] py;
+        private final double[] amplitude;
+        private final double[] k;
+        private final double[] radius;
+        private final int count;
+        private final int fromRow;
+        private final int toRow;
+        private final int rowsPerTask;
+
+        double maxValue = 0.0;
+        int maxIndex = -1;
+
+        BandTask(SimulationSpec spec, double[] field, double[] px, double[] py, double[] amplitude,
+                 double[] k, double[] radius, int count, int fromRow, int toRow, int rowsPerTask) {
+            this.spec = spec;
+            this.field = field;
+            this.px = px;
+            this.py = py;
+            this.amplitude = amplitude;
+            this.k = k;
+            this.radius = radius;
+            this.count = count;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.rowsPerTask = rowsPerTask;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow <= rowsPerTask) {
+                computeBand();
+                return;
+            }
+            int mid = (fromRow + toRow) >>> 1;
+            BandTask left = new BandTask(spec, field, px, py, amplitude, k, radius, count, fromRow, mid, rowsPerTask);
+            BandTask right = new BandTask(spec, field, px, py, amplitude, k, radius, count, mid, toRow, rowsPerTask);
+            invokeAll(left, right);
+            maxValue = left.maxValue;
+            maxIndex = left.maxIndex;
+            if (right.maxValue > maxValue) {
+                maxValue = right.maxValue;
+                maxIndex = right.maxIndex;
+            }
+        }
+
+        private void computeBand() {
+            int n = spec.getN();
+            double resolution = spec.getResolution();
+            double origin = spec.coordinate(0);
+            Arrays.fill(field, fromRow * n, toRow * n, 0.0);
+
+            // exp(-(dx² + dy²) k) = exp(-dx² k) * exp(-dy² k): one exp per column and row touched
+            double[] columnTerm = new double[n];
+            for (int p = 0; p < count; p++) {
+                double r = radius[p];
+                int c0 = Math.max(0, (int) Math.ceil((px[p] - r - origin) / resolution));
+                int c1 = Math.min(n - 1, (int) Math.floor((px[p] + r - origin) / resolution));
+                int r0 = Math.max(fromRow, (int) Math.ceil((py[p] - r - origin) / resolution));
+                int r1 = Math.min(toRow - 1, (int) Math.floor((py[p] + r - origin) / resolution));
+                if (c0 > c1 || r0 > r1) {
+                    continue;
+                }
+                double kp = k[p];
+                for (int c = c0; c <= c1; c++) {
+                    double dx = origin + c * resolution - px[p];
+                    columnTerm[c] = Math.exp(-(dx * dx) * kp);
+                }
+                for (int row = r0; row <= r1; row++) {
+                    double dy = origin + row * resolution - py[p];
+                    double rowTerm = amplitude[p] * Math.exp(-(dy * dy) * kp);
+                    int base = row * n;
+                    for (int c = c0; c <= c1; c++) {
+                        field[base + c] += rowTerm * columnTerm[c];
+                    }
+                }
+            }
+
+            for (int i = fromRow * n; i < toRow * n; i++) {
+                if (field[i] > maxValue) {
+                    maxValue = field[i];
+                    maxIndex = i;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.refactoredbackend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Directory of computed concentration fields stored as {@link GridRasterFormat} files.
+ *
+ * A raster is written to a temporary file through a read-write mapping, one plane at a time,
+ * and renamed into place when it is complete, so readers never see a partial file. Readers
+ * share one {@link StoredRaster} per file, which maps planes on demand. When the directory grows
+ * past its byte limit the oldest rasters are deleted.
+ */
+@Service
+public class RasterStore {
+
+    private static final Logger log = LoggerFactory.getLogger(RasterStore.class);
+
+    private static final String SUFFIX = ".cyrs";
+    private static final Pattern ID = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+
+    private final Path directory;
+    private final long maxBytes;
+    private final ConcurrentHashMap<String, StoredRaster> open = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RasterStore(@Value("${model.raster.dir:${java.io.tmpdir}/cyyadd-rasters}") String directory,
+                       @Value("${model.raster.max-bytes:4294967296}") long maxBytes) {
+        this(Path.of(directory), maxBytes);
+    }
+
+    RasterStore(Path directory, long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("raster store size limit must be positive");
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Starts a new raster with the given layout. Every plane must be written before commit.
+     */
+    public Writer create(GridRasterFormat.Header header) {
+        if (header.fileBytes() > maxBytes) {
+            throw new IllegalArgumentException("raster of " + header.fileBytes() + " bytes exceeds the store limit of "
+                + maxBytes);
+        }
+        try {
+            return new Writer(UUID.randomUUID().toString(), header);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Stores every level of a grid field as a single time slice and returns its id. */
+    public String save(ConcentrationField field) {
+        GridSpec spec = field.getSpec();
+        try (Writer writer = create(new GridRasterFormat.Header(spec.getNx(), spec.getNy(), 1,
+                spec.xAt(0), spec.yAt(0), spec.getResolution(), spec.getResolution(), spec.getZLevels()))) {
+            int plane = spec.getNx() * spec.getNy();
+            for (int iz = 0; iz < spec.getNz(); iz++) {
+                writer.writePlane(0, iz, field.getValues(), iz * plane);
+            }
+            return writer.commit();
+        }
+    }
+
+    /**
+     * The raster with the given id, or empty when there is none. A file that is not a valid
+     * raster is logged and treated as missing, so one bad file does not break the listing.
+     */
+    public Optional<StoredRaster> get(String id) {
+        if (!ID.matcher(id).matches()) {
+            return Optional.empty();
+        }
+        Path file = fileOf(id);
+        try {
+            return Optional.of(open.computeIfAbsent(id, key -> {
+                try {
+                    return StoredRaster.open(key, file, Files.getLastModifiedTime(file).toInstant());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } catch (UncheckedIOException e) {
+            if (!Files.exists(file)) {
+                return Optional.empty();
+            }
+            throw e;
+        } catch (IllegalArgumentException e) {
+            log.warn("Skipping unreadable raster {}: {}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /** Every stored raster, newest first. */
+    public List<StoredRaster> list() {
+        List<StoredRaster> rasters = new ArrayList<>();
+        for (Path file : files()) {
+            String name = file.getFileName().toString();
+            get(name.substring(0, name.length() - SUFFIX.length())).ifPresent(rasters::add);
+        }
+        rasters.sort(Comparator.comparing(StoredRaster::getCreated).reversed());
+        return rasters;
+    }
+
+    public boolean delete(String id) {
+        if (!ID.matcher(id).matches()) {
+            return false;
+        }
+        StoredRaster raster = open.remove(id);
+        if (raster != null) {
+            raster.close();
+        }
+        try {
+            return Files.deleteIfExists(fileOf(id));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path fileOf(String id) {
+        return directory.resolve(id + SUFFIX);
+    }
+
+    private List<Path> files() {
+        try (Stream<Path> entries = Files.list(directory)) {
+            return entries.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.endsWith(SUFFIX) && ID.matcher(name.substring(0, name.length() - SUFFIX.length())).matches();
+            }).toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Deletes the oldest rasters, other than keep, until the directory fits the byte limit.
+     */
+    private synchronized void prune(String keep) {
+        record Stored(Path file, long size, Instant modified) {
+        }
+        List<Stored> stored = new ArrayList<>();
+        long total = 0;
+        for (Path file : files()) {
+            try {
+                long size = Files.size(file);
+                stored.add(new Stored(file, size, Files.getLastModifiedTime(file).toInstant()));
+                total += size;
+            } catch (IOException e) {
+                // Deleted concurrently
+            }
+        }
+        stored.sort(Comparator.comparing(Stored::modified));
+        for (Stored candidate : stored) {
+            if (total <= maxBytes) {
+                break;
+            }
+            String name = candidate.file().getFileName().toString();
+            String id = name.substring(0, name.length() - SUFFIX.length());
+            if (!id.equals(keep) && delete(id)) {
+                total -= candidate.size();
+            }
+        }
+    }
+
+    /**
+     * Writes the planes of one raster. Closing without commit discards it.
+     */
+    public final class Writer implements AutoCloseable {
+        private final String id;
+        private final GridRasterFormat.Header header;
+        private final Path temporary;
+        private final FileChannel channel;
+        private boolean committed;
+
+        private Writer(String id, GridRasterFormat.Header header) throws IOException {
+            this.id = id;
+            this.header = header;
+            this.temporary = directory.resolve(id + SUFFIX + ".tmp");
+            this.channel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+            try {
+                ByteBuffer bytes = GridRasterFormat.header(header);
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes, bytes.position());
+                }
+                // Sizes the file; planes that are never written read as zero
+                channel.write(ByteBuffer.allocate(1), header.fileBytes() - 1);
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * Writes nx * ny values starting at offset as the plane for time slice it and level iz.
+         */
+        public void writePlane(int it, int iz, double[] values, int offset) {
+            if (it < 0 || it >= header.nt() || iz < 0 || iz >= header.nz()) {
+                throw new IllegalArgumentException("plane (" + it + ", " + iz + ") is outside the raster");
+            }
+            int cells = header.nx() * header.ny();
+            try {
+                MappedByteBuffer plane = channel.map(FileChannel.MapMode.READ_WRITE,
+                    header.planeOffset(it, iz), header.planeBytes());
+                plane.order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0; i < cells; i++) {
+                    plane.putFloat((float) values[offset + i]);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /** Makes the raster visible to readers and returns its id. */
+        public String commit() {
+            try {
+                channel.force(false);
+                channel.close();
+                Files.move(temporary, fileOf(id), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            committed = true;
+            prune(id);
+            return id;
+        }
+
+        @Override
+        public void close() {
+            if (committed) {
+                return;
+            }
+            try {
+                channel.close();
+                Files.deleteIfExists(temporary);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
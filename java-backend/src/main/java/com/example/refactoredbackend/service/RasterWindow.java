@@ -0,0 +1,142 @@
+package com.example.refactoredbackend.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Rectangular, optionally downsampled view of one raster plane. Values are read from the
+ * mapped plane on access; nothing is copied up front.
+ *
+ * A downsampled cell covers step x step source cells (fewer at the window's far edges). SAMPLE
+ * takes the first of them, MAX the largest, which keeps peaks that sampling would skip.
+ */
+public final class RasterWindow {
+
+    public enum Mode {
+        SAMPLE, MAX;
+
+        public static Mode parse(String value) {
+            for (Mode mode : values()) {
+                if (mode.name().equalsIgnoreCase(value)) {
+                    return mode;
+                }
+            }
+            throw new IllegalArgumentException("mode must be sample or max");
+        }
+    }
+
+    private final GridRasterFormat.Header source;
+    private final ByteBuffer bytes;
+    private final FloatBuffer plane;
+    private final double z;
+    private final int ix0;
+    private final int iy0;
+    private final int width;
+    private final int height;
+    private final int step;
+    private final Mode mode;
+
+    RasterWindow(StoredRaster raster, int it, int iz, int ix0, int iy0, int width, int height, int step, Mode mode) {
+        GridRasterFormat.Header header = raster.getHeader();
+        if (step < 1) {
+            throw new IllegalArgumentException("step must be at least 1");
+        }
+        if (ix0 < 0 || iy0 < 0 || width < 1 || height < 1
+            || (long) ix0 + width > header.nx() || (long) iy0 + height > header.ny()) {
+            throw new IllegalArgumentException("window must lie within the " + header.nx() + "x" + header.ny()
+                + " raster");
+        }
+        this.source = header;
+        this.bytes = raster.planeBytes(it, iz);
+        this.plane = bytes.asFloatBuffer();
+        this.z = header.zLevels()[iz];
+        this.ix0 = ix0;
+        this.iy0 = iy0;
+        this.width = width;
+        this.height = height;
+        this.step = step;
+        this.mode = mode;
+    }
+
+    /** Columns after downsampling. */
+    public int getNx() {
+        return (width + step - 1) / step;
+    }
+
+    /** Rows after downsampling. */
+    public int getNy() {
+        return (height + step - 1) / step;
+    }
+
+    public long cellCount() {
+        return (long) getNx() * getNy();
+    }
+
+    public double getX0() {
+        return source.x0() + ix0 * source.dx();
+    }
+
+    public double getY0() {
+        return source.y0() + iy0 * source.dy();
+    }
+
+    public double getDx() {
+        return source.dx() * step;
+    }
+
+    public double getDy() {
+        return source.dy() * step;
+    }
+
+    public float get(int i, int j) {
+        int x = ix0 + i * step;
+        int y = iy0 + j * step;
+        if (step == 1 || mode == Mode.SAMPLE) {
+            return plane.get(y * source.nx() + x);
+        }
+        int xEnd = Math.min(x + step, ix0 + width);
+        int yEnd = Math.min(y + step, iy0 + height);
+        float max = Float.NEGATIVE_INFINITY;
+        for (int row = y; row < yEnd; row++) {
+            int base = row * source.nx();
+            for (int col = x; col < xEnd; col++) {
+                max = Math.max(max, plane.get(base + col));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Writes the window as a single-slice, single-level {@link GridRasterFormat} raster. Rows of
+     * an undownsampled window go straight from the mapping to the channel.
+     */
+    public void writeRaster(WritableByteChannel out) throws IOException {
+        writeFully(out, GridRasterFormat.header(new GridRasterFormat.Header(getNx(), getNy(), 1,
+            getX0(), getY0(), getDx(), getDy(), new double[]{z})));
+        if (step == 1) {
+            for (int j = 0; j < height; j++) {
+                int offset = ((iy0 + j) * source.nx() + ix0) * Float.BYTES;
+                writeFully(out, bytes.slice(offset, width * Float.BYTES));
+            }
+            return;
+        }
+        ByteBuffer row = ByteBuffer.allocate(getNx() * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int j = 0; j < getNy(); j++) {
+            row.clear();
+            for (int i = 0; i < getNx(); i++) {
+                row.putFloat(get(i, j));
+            }
+            row.flip();
+            writeFully(out, row);
+        }
+    }
+
+    private static void writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.refactoredbackend.service;
+
+/**
+ * Inner loop of the grid engine: one crosswind row of out[i] = factor[i] * exp(-y² * k[i]).
+ */
+interface RowKernel {
+
+    /**
+     * Fills out[outOffset .. outOffset + length) from factor/k[offset .. offset + length) and
+     * returns the position within the row of its first maximum, or -1 when the row is all zero.
+     */
+    int fill(double[] factor, double[] k, int offset, double ySquared, double[] out, int outOffset, int length);
+
+    String name();
+}
@@ -0,0 +1,58 @@
+package com.example.refactoredbackend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Chooses the grid row kernel from the model.kernel setting: scalar, simd, or auto (SIMD when
+ * available). The SIMD kernel lives in src/simd/java and is only compiled by the simd Maven
+ * profile, so it is loaded by name; SIMD falls back to scalar when the build did not include it
+ * or the JVM was not started with --add-modules jdk.incubator.vector.
+ */
+final class RowKernels {
+
+    static final String SCALAR = "scalar";
+    static final String SIMD = "simd";
+    static final String AUTO = "auto";
+
+    private static final String VECTOR_KERNEL = "com.example.refactoredbackend.service.VectorRowKernel";
+
+    private static final Logger log = LoggerFactory.getLogger(RowKernels.class);
+
+    private RowKernels() {
+    }
+
+    static RowKernel select(String mode) {
+        if (SCALAR.equalsIgnoreCase(mode)) {
+            return ScalarRowKernel.INSTANCE;
+        }
+        if (!SIMD.equalsIgnoreCase(mode) && !AUTO.equalsIgnoreCase(mode)) {
+            throw new IllegalArgumentException("kernel must be scalar, simd or auto");
+        }
+        RowKernel vector = vectorKernel();
+        if (vector != null) {
+            return vector;
+        }
+        if (SIMD.equalsIgnoreCase(mode)) {
+            log.warn("SIMD kernel requested but it was not built (simd profile) or jdk.incubator.vector is not "
+                + "available; using the scalar kernel");
+        }
+        return ScalarRowKernel.INSTANCE;
+    }
+
+    /** True when the SIMD kernel was built and the Vector API module is present. */
+    static boolean vectorAvailable() {
+        return vectorKernel() != null;
+    }
+
+    private static RowKernel vectorKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (RowKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
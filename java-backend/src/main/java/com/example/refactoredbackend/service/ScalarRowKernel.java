@@ -0,0 +1,33 @@
+package com.example.refactoredbackend.service;
+
+/**
+ * Plain loop over the row, one Math.exp per non-zero cell.
+ */
+final class ScalarRowKernel implements RowKernel {
+
+    static final ScalarRowKernel INSTANCE = new ScalarRowKernel();
+
+    private ScalarRowKernel() {
+    }
+
+    @Override
+    public int fill(double[] factor, double[] k, int offset, double ySquared, double[] out, int outOffset, int length) {
+        double max = 0.0;
+        int maxAt = -1;
+        for (int i = 0; i < length; i++) {
+            double f = factor[offset + i];
+            double c = f > 0 ? f * Math.exp(-ySquared * k[offset + i]) : 0.0;
+            out[outOffset + i] = c;
+            if (c > max) {
+                max = c;
+                maxAt = i;
+            }
+        }
+        return maxAt;
+    }
+
+    @Override
+    public String name() {
+        return RowKernels.SCALAR;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.refactoredbackend.service;
+
+/**
+ * Pasquill-Gifford dispersion coefficients tabulated over log-spaced downwind distances.
+ *
+ * Each node stores sigma/x before the minimum-sigma floors, which varies slowly with distance,
+ * so linear interpolation in log(x) stays within about 1e-5 of the closed-form curves while
+ * replacing two Math.pow calls and a string switch with one Math.log and a few multiplies.
+ */
+final class SigmaTable {
+
+    /** Classes A-F plus the generic fallback curve. */
+    private static final int CLASSES = 7;
+
+    private final double xMin;
+    private final double xMax;
+    private final double lnXMin;
+    private final double invStep;
+    private final int size;
+    private final double[] syRatio;
+    private final double[] szRatio;
+
+    SigmaTable(double xMin, double xMax, int pointsPerDecade) {
+        if (!(xMin > 0) || !(xMax > xMin) || pointsPerDecade < 1) {
+            throw new IllegalArgumentException("invalid sigma table range");
+        }
+        this.xMin = xMin;
+        this.xMax = xMax;
+        this.lnXMin = Math.log(xMin);
+        double step = Math.log(10) / pointsPerDecade;
+        this.invStep = 1.0 / step;
+        this.size = (int) Math.ceil((Math.log(xMax) - lnXMin) * invStep) + 2;
+        this.syRatio = new double[CLASSES * size];
+        this.szRatio = new double[CLASSES * size];
+
+        double[] sigmas = new double[2];
+        for (int cls = 0; cls < CLASSES; cls++) {
+            for (int i = 0; i < size; i++) {
+                double x = Math.exp(lnXMin + i * step);
+                DispersionService.getUnboundedSigmas(stabilityIndexOf(cls), x, sigmas);
+                syRatio[cls * size + i] = sigmas[0] / x;
+                szRatio[cls * size + i] = sigmas[1] / x;
+            }
+        }
+    }
+
+    /**
+     * Writes {sigma_y, sigma_z} in metres into out. Distances outside the table fall back to
+     * the closed-form curves.
+     */
+    void lookup(int stabilityIndex, double x, double[] out) {
+        if (!(x > xMin) || !(x < xMax)) {
+            DispersionService.getSigmas(stabilityIndex, x, out);
+            return;
+        }
+        double position = (Math.log(x) - lnXMin) * invStep;
+        int i = Math.min((int) position, size - 2);
+        double fraction = position - i;
+        int base = slotOf(stabilityIndex) * size + i;
+        double ry = syRatio[base] + fraction * (syRatio[base + 1] - syRatio[base]);
+        double rz = szRatio[base] + fraction * (szRatio[base + 1] - szRatio[base]);
+        out[0] = Math.max(ry * x, DispersionService.SIGMA_Y_MIN);
+        out[1] = Math.max(rz * x, DispersionService.SIGMA_Z_MIN);
+    }
+
+    double getXMin() {
+        return xMin;
+    }
+
+    double getXMax() {
+        return xMax;
+    }
+
+    private static int slotOf(int stabilityIndex) {
+        return stabilityIndex >= 0 && stabilityIndex < CLASSES - 1 ? stabilityIndex : CLASSES - 1;
+    }
+
+    private static int stabilityIndexOf(int slot) {
+        return slot == CLASSES - 1 ? -1 : slot;
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.refactoredbackend.service;
+
+import com.example.refactoredbackend.model.Event;
+
+import java.util.Map;
+
+/**
+ * Time stepping, release and receptor grid for a multi-puff simulation. The grid is square,
+ * centred on the source, with x pointing east and y pointing north.
+ */
+public final class SimulationSpec {
+
+    /** Upper bound on time steps per run. */
+    public static final int MAX_STEPS = 100_000;
+
+    private final double totalMass;
+    private final boolean instantaneous;
+    private final double releaseDuration;
+    private final double duration;
+    private final double step;
+    private final double releaseHeight;
+    private final double receptorHeight;
+    private final double molecularWeight;
+    private final double resolution;
+    private final double extent;
+    private final double cullThreshold;
+    private final int n;
+    private final int steps;
+
+    public SimulationSpec(double totalMass, boolean instantaneous, double releaseDuration, double duration,
+                          double step, double releaseHeight, double receptorHeight, double molecularWeight,
+                          double resolution, double extent, double cullThreshold) {
+        if (!(totalMass >= 0) || !Double.isFinite(totalMass)) {
+            throw new IllegalArgumentException("amount must be a non-negative number");
+        }
+        if (!(step > 0) || !(duration >= step)) {
+            throw new IllegalArgumentException("step_s must be positive and no longer than duration_s");
+        }
+        if (!instantaneous && !(releaseDuration > 0)) {
+            throw new IllegalArgumentException("release_duration_s must be positive for continuous releases");
+        }
+        if (!(molecularWeight > 0)) {
+            throw new IllegalArgumentException("molecular_weight must be positive");
+        }
+        if (!(resolution > 0) || !(extent >= resolution)) {
+            throw new IllegalArgumentException("resolution must be positive and no larger than extent");
+        }
+        if (!(cullThreshold > 0)) {
+            throw new IllegalArgumentException("cull_threshold must be positive");
+        }
+        long side = 2 * (long) Math.floor(extent / resolution) + 1;
+        if (side * side > GridSpec.MAX_CELLS) {
+            throw new IllegalArgumentException("grid of " + side + "x" + side + " cells exceeds the limit of "
+                + GridSpec.MAX_CELLS);
+        }
+        long stepCount = (long) Math.ceil(duration / step - 1e-9);
+        if (stepCount > MAX_STEPS) {
+            throw new IllegalArgumentException("simulation of " + stepCount + " steps exceeds the limit of " + MAX_STEPS);
+        }
+        this.totalMass = totalMass;
+        this.instantaneous = instantaneous;
+        this.releaseDuration = releaseDuration;
+        this.duration = duration;
+        this.step = step;
+        this.releaseHeight = releaseHeight;
+        this.receptorHeight = receptorHeight;
+        this.molecularWeight = molecularWeight;
+        this.resolution = resolution;
+        this.extent = extent;
+        this.cullThreshold = cullThreshold;
+        this.n = (int) side;
+        this.steps = (int) stepCount;
+    }
+
+    /**
+     * Reads the run from request parameters. Source amount (g), release type and molecular
+     * weight come from the event when one is given.
+     */
+    public static SimulationSpec fromParams(Map<String, Object> params, Event event) {
+        double amount = event != null ? event.getAmount() : DispersionService.getDoubleParam(params, "amount", 1000.0);
+        String type = event != null && event.getType() != null
+            ? event.getType()
+            : DispersionService.getStringParam(params, "release_type", "continuous");
+        double molecularWeight = event != null && event.getChemical() != null && event.getChemical().getMolecularWeight() > 0
+            ? event.getChemical().getMolecularWeight()
+            : DispersionService.getDoubleParam(params, "molecular_weight", 64.0);
+        return new SimulationSpec(
+            amount,
+            DispersionScenario.INSTANTANEOUS.equalsIgnoreCase(type),
+            DispersionService.getDoubleParam(params, "release_duration_s", 3600.0),
+            DispersionService.getDoubleParam(params, "duration_s", 6 * 3600.0),
+            DispersionService.getDoubleParam(params, "step_s", 60.0),
+            DispersionService.getDoubleParam(params, "release_height", 50.0),
+            DispersionService.getDoubleParam(params, "z", 1.5),
+            molecularWeight,
+            DispersionService.getDoubleParam(params, "resolution", 20.0),
+            DispersionService.getDoubleParam(params, "extent", 5000.0),
+            DispersionService.getDoubleParam(params, "cull_threshold", 1e-3)
+        );
+    }
+
+    /**
+     * Mass in grams released during [t0, t1).
+     */
+    double massReleased(double t0, double t1) {
+        if (instantaneous) {
+            return t0 <= 0 && t1 > 0 ? totalMass : 0.0;
+        }
+        double overlap = Math.min(t1, releaseDuration) - Math.max(t0, 0.0);
+        return overlap > 0 ? totalMass * overlap / releaseDuration : 0.0;
+    }
+
+    /** Upper bound on puffs alive at once: one per release step. */
+    int maxPuffs() {
+        return instantaneous ? 1 : (int) Math.min(steps, Math.ceil(releaseDuration / step) + 1);
+    }
+
+    public double coordinate(int i) {
+        return (i - (n - 1) / 2) * resolution;
+    }
+
+    public double getTotalMass() {
+        return totalMass;
+    }
+
+    public boolean isInstantaneous() {
+        return instantaneous;
+    }
+
+    public double getDuration() {
+        return duration;
+    }
+
+    public double getStep() {
+        return step;
+    }
+
+    public double getReleaseHeight() {
+        return releaseHeight;
+    }
+
+    public double getReceptorHeight() {
+        return receptorHeight;
+    }
+
+    public double getMolecularWeight() {
+        return molecularWeight;
+    }
+
+    public double getResolution() {
+        return resolution;
+    }
+
+    public double getExtent() {
+        return extent;
+    }
+
+    public double getCullThreshold() {
+        return cullThreshold;
+    }
+
+    /** Cells along each side of the square grid. */
+    public int getN() {
+        return n;
+    }
+
+    public int getSteps() {
+        return steps;
+    }
+}
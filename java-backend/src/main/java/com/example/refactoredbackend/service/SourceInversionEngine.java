@@ -0,0 +1,244 @@
+package com.example.refactoredbackend.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Fits a continuous point source to concentration observations with the Gaussian plume model.
+ *
+ * The modelled concentration is Q times a unit-emission response, so for any candidate position
+ * and height the weighted least-squares Q has a closed form. That makes Q free, and only the
+ * position and height have to be searched. The search evaluates a coarse grid of candidates
+ * and then refines the best one with a pattern search that halves its step whenever no
+ * neighbour improves. Each round of candidates is evaluated as one batch, split into
+ * (candidate, observation chunk) work items on the common fork/join pool.
+ */
+@Service
+public class SourceInversionEngine {
+
+    /** Observations summed by one work item. */
+    private static final int OBSERVATIONS_PER_CHUNK = 2_048;
+
+    /** Grid points per axis in the initial search. */
+    private static final int GRID_POSITIONS = 9;
+    private static final int GRID_HEIGHTS = 5;
+
+    private static final int MAX_ITERATIONS = 200;
+    private static final double MIN_POSITION_STEP = 1.0;
+    private static final double MIN_HEIGHT_STEP = 0.1;
+
+    private static final double TWO_PI = 2 * Math.PI;
+
+    public InversionResult invert(InversionObservations observations, InversionSpec spec) {
+        return invert(observations, spec, JobProgress.NONE);
+    }
+
+    /**
+     * Fits the source, reporting one unit of progress for the initial grid and one per pattern
+     * search iteration. A search that converges early reports the remaining iterations at once.
+     */
+    public InversionResult invert(InversionObservations observations, InversionSpec spec, JobProgress progress) {
+        progress.start(1 + MAX_ITERATIONS);
+        progress.checkCancelled();
+        int stabilityIndex = DispersionService.stabilityIndex(spec.getStabilityClass());
+        double mwFactor = Math.sqrt(28.97 / observations.getMolecularWeight());
+        Kernel kernel = new Kernel(observations, stabilityIndex, mwFactor, spec.getReceptorHeight());
+
+        List<double[]> initial = new ArrayList<>();
+        double radius = spec.getSearchRadius();
+        int positions = spec.isFitPosition() ? GRID_POSITIONS : 1;
+        int heights = spec.isFitHeight() ? GRID_HEIGHTS : 1;
+        for (int i = 0; i < positions; i++) {
+            for (int j = 0; j < positions; j++) {
+                for (int k = 0; k < heights; k++) {
+                    double east = positions == 1 ? 0.0 : -radius + 2 * radius * i / (positions - 1);
+                    double north = positions == 1 ? 0.0 : -radius + 2 * radius * j / (positions - 1);
+                    double height = heights == 1 ? spec.getReleaseHeight() : spec.getMaxHeight() * k / (heights - 1);
+                    initial.add(new double[]{east, north, height});
+                }
+            }
+        }
+
+        double[][] fit = kernel.evaluate(initial);
+        long evaluations = initial.size();
+        progress.advance(1);
+        int bestIndex = 0;
+        for (int c = 1; c < initial.size(); c++) {
+            if (fit[c][0] < fit[bestIndex][0]) {
+                bestIndex = c;
+            }
+        }
+        double[] best = initial.get(bestIndex);
+        double bestCost = fit[bestIndex][0];
+        double bestQ = fit[bestIndex][1];
+
+        double positionStep = spec.isFitPosition() ? radius / (GRID_POSITIONS - 1) : 0.0;
+        double heightStep = spec.isFitHeight() ? spec.getMaxHeight() / (2 * (GRID_HEIGHTS - 1)) : 0.0;
+        int iteration = 0;
+        for (; iteration < MAX_ITERATIONS; iteration++) {
+            progress.checkCancelled();
+            boolean positionDone = !spec.isFitPosition() || positionStep < MIN_POSITION_STEP;
+            boolean heightDone = !spec.isFitHeight() || heightStep < MIN_HEIGHT_STEP;
+            if (positionDone && heightDone) {
+                break;
+            }
+            List<double[]> neighbours = new ArrayList<>();
+            if (!positionDone) {
+                neighbours.add(new double[]{best[0] + positionStep, best[1], best[2]});
+                neighbours.add(new double[]{best[0] - positionStep, best[1], best[2]});
+                neighbours.add(new double[]{best[0], best[1] + positionStep, best[2]});
+                neighbours.add(new double[]{best[0], best[1] - positionStep, best[2]});
+            }
+            if (!heightDone) {
+                neighbours.add(new double[]{best[0], best[1], Math.min(spec.getMaxHeight(), best[2] + heightStep)});
+                neighbours.add(new double[]{best[0], best[1], Math.max(0.0, best[2] - heightStep)});
+            }
+            double[][] neighbourFit = kernel.evaluate(neighbours);
+            evaluations += neighbours.size();
+
+            int improved = -1;
+            for (int c = 0; c < neighbours.size(); c++) {
+                if (neighbourFit[c][0] < bestCost && (improved < 0 || neighbourFit[c][0] < neighbourFit[improved][0])) {
+                    improved = c;
+                }
+            }
+            if (improved >= 0) {
+                best = neighbours.get(improved);
+                bestCost = neighbourFit[improved][0];
+                bestQ = neighbourFit[improved][1];
+            } else {
+                positionStep /= 2;
+                heightStep /= 2;
+            }
+            progress.advance(1);
+        }
+        progress.advance(MAX_ITERATIONS - iteration);
+
+        double[] response = kernel.response(best);
+        double sumModel = 0.0;
+        double sumObserved = 0.0;
+        double sumSquaredResidual = 0.0;
+        int n = observations.size();
+        for (int i = 0; i < n; i++) {
+            double modelled = bestQ * response[i];
+            double residual = observations.toPpb(observations.observed[i] - modelled);
+            sumSquaredResidual += residual * residual;
+            sumModel += modelled;
+            sumObserved += observations.observed[i];
+        }
+        double meanModel = sumModel / n;
+        double meanObserved = sumObserved / n;
+        double covariance = 0.0;
+        double varianceModel = 0.0;
+        double varianceObserved = 0.0;
+        for (int i = 0; i < n; i++) {
+            double dm = bestQ * response[i] - meanModel;
+            double dobs = observations.observed[i] - meanObserved;
+            covariance += dm * dobs;
+            varianceModel += dm * dm;
+            varianceObserved += dobs * dobs;
+        }
+        double correlation = varianceModel > 0 && varianceObserved > 0
+            ? covariance / Math.sqrt(varianceModel * varianceObserved)
+            : 0.0;
+
+        GeoFrame frame = observations.getFrame();
+        return new InversionResult(bestQ, frame.lat(best[1]), frame.lon(best[0]), best[2],
+            Math.sqrt(sumSquaredResidual / n), correlation, n, evaluations);
+    }
+
+    /**
+     * Unit-emission plume response at every observation for a candidate {east, north, height}.
+     */
+    private static final class Kernel {
+        private final InversionObservations obs;
+        private final int stabilityIndex;
+        private final double mwFactor;
+        private final double z;
+        private final int chunks;
+
+        Kernel(InversionObservations obs, int stabilityIndex, double mwFactor, double z) {
+            this.obs = obs;
+            this.stabilityIndex = stabilityIndex;
+            this.mwFactor = mwFactor;
+            this.z = z;
+            this.chunks = (obs.size() + OBSERVATIONS_PER_CHUNK - 1) / OBSERVATIONS_PER_CHUNK;
+        }
+
+        /**
+         * {weighted cost, best Q} per candidate.
+         */
+        double[][] evaluate(List<double[]> candidates) {
+            int m = candidates.size();
+            // Per work item: sum w*g*o, sum w*g², sum w*o²
+            double[] partial = new double[m * chunks * 3];
+            IntStream.range(0, m * chunks).parallel().forEach(item -> {
+                double[] candidate = candidates.get(item / chunks);
+                int from = (item % chunks) * OBSERVATIONS_PER_CHUNK;
+                int to = Math.min(obs.size(), from + OBSERVATIONS_PER_CHUNK);
+                double[] sigmas = new double[2];
+                double sgo = 0.0;
+                double sgg = 0.0;
+                double soo = 0.0;
+                for (int i = from; i < to; i++) {
+                    double g = unitConcentration(i, candidate, sigmas);
+                    double w = obs.weight[i];
+                    double o = obs.observed[i];
+                    sgo += w * g * o;
+                    sgg += w * g * g;
+                    soo += w * o * o;
+                }
+                partial[3 * item] = sgo;
+                partial[3 * item + 1] = sgg;
+                partial[3 * item + 2] = soo;
+            });
+
+            double[][] result = new double[m][2];
+            for (int c = 0; c < m; c++) {
+                double sgo = 0.0;
+                double sgg = 0.0;
+                double soo = 0.0;
+                for (int k = 0; k < chunks; k++) {
+                    int base = 3 * (c * chunks + k);
+                    sgo += partial[base];
+                    sgg += partial[base + 1];
+                    soo += partial[base + 2];
+                }
+                double Q = sgg > 0 ? Math.max(0.0, sgo / sgg) : 0.0;
+                result[c][0] = soo - 2 * Q * sgo + Q * Q * sgg;
+                result[c][1] = Q;
+            }
+            return result;
+        }
+
+        double[] response(double[] candidate) {
+            double[] sigmas = new double[2];
+            double[] out = new double[obs.size()];
+            for (int i = 0; i < out.length; i++) {
+                out[i] = unitConcentration(i, candidate, sigmas);
+            }
+            return out;
+        }
+
+        /** µg/m³ at observation i for a 1 g/s source. */
+        private double unitConcentration(int i, double[] candidate, double[] sigmas) {
+            double dEast = obs.east[i] - candidate[0];
+            double dNorth = obs.north[i] - candidate[1];
+            double along = dEast * obs.downEast[i] + dNorth * obs.downNorth[i];
+            if (along <= 0) {
+                return 0.0;
+            }
+            double across = dNorth * obs.downEast[i] - dEast * obs.downNorth[i];
+            DispersionService.SIGMA_TABLE.lookup(stabilityIndex, along, sigmas);
+            double sy = sigmas[0] * mwFactor;
+            double sz = sigmas[1] * mwFactor;
+            double H = candidate[2];
+            double twoSzSq = 2 * sz * sz;
+            double vertical = Math.exp(-((z - H) * (z - H)) / twoSzSq) + Math.exp(-((z + H) * (z + H)) / twoSzSq);
+            return 1_000_000 / (TWO_PI * obs.speed[i] * sy * sz) * Math.exp(-(across * across) / (2 * sy * sy)) * vertical;
+        }
+    }
+}
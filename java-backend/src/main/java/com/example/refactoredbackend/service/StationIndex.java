@@ -0,0 +1,113 @@
+package com.example.refactoredbackend.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform-grid spatial index over station positions in a local metric frame.
+ *
+ * Stations are hashed into square cells. A nearest-neighbour query visits rings of cells around
+ * the query point and stops as soon as the k-th nearest station found is closer than anything
+ * the next ring could hold, so a lookup only touches the stations near the point.
+ */
+final class StationIndex {
+
+    private final double[] east;
+    private final double[] north;
+    private final double cellSize;
+    private final Map<Long, int[]> cells = new HashMap<>();
+    private final int minCellX;
+    private final int maxCellX;
+    private final int minCellY;
+    private final int maxCellY;
+
+    StationIndex(double[] east, double[] north, double cellSize) {
+        if (east.length == 0 || east.length != north.length || !(cellSize > 0)) {
+            throw new IllegalArgumentException("station index needs positions and a positive cell size");
+        }
+        this.east = east;
+        this.north = north;
+        this.cellSize = cellSize;
+        Map<Long, List<Integer>> members = new HashMap<>();
+        int x0 = Integer.MAX_VALUE;
+        int x1 = Integer.MIN_VALUE;
+        int y0 = Integer.MAX_VALUE;
+        int y1 = Integer.MIN_VALUE;
+        for (int i = 0; i < east.length; i++) {
+            int cx = cell(east[i]);
+            int cy = cell(north[i]);
+            members.computeIfAbsent(key(cx, cy), k -> new ArrayList<>()).add(i);
+            x0 = Math.min(x0, cx);
+            x1 = Math.max(x1, cx);
+            y0 = Math.min(y0, cy);
+            y1 = Math.max(y1, cy);
+        }
+        members.forEach((key, list) -> cells.put(key, list.stream().mapToInt(Integer::intValue).toArray()));
+        this.minCellX = x0;
+        this.maxCellX = x1;
+        this.minCellY = y0;
+        this.maxCellY = y1;
+    }
+
+    private int cell(double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+
+    int size() {
+        return east.length;
+    }
+
+    /**
+     * Writes the indices and squared distances of up to k stations within maxDistance of
+     * (x, y), nearest first, into indices and distancesSq. Returns how many were found.
+     */
+    int nearest(double x, double y, int k, double maxDistance, int[] indices, double[] distancesSq) {
+        int cx = cell(x);
+        int cy = cell(y);
+        double maxDistanceSq = maxDistance * maxDistance;
+        // Beyond this ring there are no stations
+        int lastRing = Math.max(Math.max(Math.abs(cx - minCellX), Math.abs(cx - maxCellX)),
+            Math.max(Math.abs(cy - minCellY), Math.abs(cy - maxCellY)));
+        int found = 0;
+        for (int ring = 0; ring <= lastRing; ring++) {
+            // Stations in this ring or beyond are at least this far away
+            double ringDistance = (ring - 1) * cellSize;
+            if (ring > 0 && (ringDistance > maxDistance || (found == k && ringDistance * ringDistance >= distancesSq[k - 1]))) {
+                break;
+            }
+            for (int gy = cy - ring; gy <= cy + ring; gy++) {
+                boolean edgeRow = gy == cy - ring || gy == cy + ring;
+                for (int gx = cx - ring; gx <= cx + ring; gx += edgeRow || ring == 0 ? 1 : 2 * ring) {
+                    int[] members = cells.get(key(gx, gy));
+                    if (members == null) {
+                        continue;
+                    }
+                    for (int i : members) {
+                        double dx = east[i] - x;
+                        double dy = north[i] - y;
+                        double d2 = dx * dx + dy * dy;
+                        if (d2 > maxDistanceSq || (found == k && d2 >= distancesSq[k - 1])) {
+                            continue;
+                        }
+                        // Insertion into the sorted top k
+                        int j = found < k ? found++ : k - 1;
+                        while (j > 0 && distancesSq[j - 1] > d2) {
+                            distancesSq[j] = distancesSq[j - 1];
+                            indices[j] = indices[j - 1];
+                            j--;
+                        }
+                        distancesSq[j] = d2;
+                        indices[j] = i;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.refactoredbackend.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Read-only view of a raster file. Each (time, level) plane is memory-mapped the first time it is
+ * read, and every accessor returns a view of the mapping rather than a copy, so a plane is only
+ * paged in as far as it is actually read.
+ */
+public final class StoredRaster {
+
+    private final String id;
+    private final GridRasterFormat.Header header;
+    private final Instant created;
+    private final FileChannel channel;
+    private final AtomicReferenceArray<ByteBuffer> planes;
+
+    private StoredRaster(String id, GridRasterFormat.Header header, Instant created, FileChannel channel) {
+        this.id = id;
+        this.header = header;
+        this.created = created;
+        this.channel = channel;
+        this.planes = new AtomicReferenceArray<>(header.nt() * header.nz());
+    }
+
+    static StoredRaster open(String id, Path file, Instant created) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer prefix = readAt(channel, 0, GridRasterFormat.headerSize(0));
+            int nz = prefix.order(ByteOrder.LITTLE_ENDIAN).getInt(16);
+            if (nz < 1 || channel.size() < GridRasterFormat.headerSize(nz)) {
+                throw new IllegalArgumentException("raster " + id + " has a truncated header");
+            }
+            GridRasterFormat.Header header = GridRasterFormat.read(readAt(channel, 0, GridRasterFormat.headerSize(nz)));
+            if (channel.size() != header.fileBytes()) {
+                throw new IllegalArgumentException("raster " + id + " is " + channel.size()
+                    + " bytes but its header describes " + header.fileBytes());
+            }
+            return new StoredRaster(id, header, created, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static ByteBuffer readAt(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IllegalArgumentException("raster is shorter than its header");
+            }
+        }
+        return buffer.flip();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public GridRasterFormat.Header getHeader() {
+        return header;
+    }
+
+    public Instant getCreated() {
+        return created;
+    }
+
+    /**
+     * Little-endian bytes of one plane, rows of nx float32 values. The buffer is a fresh
+     * read-only view of the shared mapping.
+     */
+    public ByteBuffer planeBytes(int it, int iz) {
+        if (it < 0 || it >= header.nt() || iz < 0 || iz >= header.nz()) {
+            throw new IllegalArgumentException("time slice " + it + " and level " + iz + " must be within "
+                + header.nt() + " slices and " + header.nz() + " levels");
+        }
+        int index = it * header.nz() + iz;
+        ByteBuffer plane = planes.get(index);
+        if (plane == null) {
+            try {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY,
+                    header.planeOffset(it, iz), header.planeBytes());
+                plane = mapped.asReadOnlyBuffer();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (!planes.compareAndSet(index, null, plane)) {
+                plane = planes.get(index);
+            }
+        }
+        return plane.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /** One plane as float values, indexed iy * nx + ix. */
+    public FloatBuffer plane(int it, int iz) {
+        return planeBytes(it, iz).asFloatBuffer();
+    }
+
+    public float valueAt(int it, int iz, int ix, int iy) {
+        return plane(it, iz).get(iy * header.nx() + ix);
+    }
+
+    /**
+     * Sub-window of one plane, starting at cell (ix0, iy0) and covering width x height cells,
+     * downsampled by step.
+     */
+    public RasterWindow window(int it, int iz, int ix0, int iy0, int width, int height, int step,
+                               RasterWindow.Mode mode) {
+        return new RasterWindow(this, it, iz, ix0, iy0, width, height, step, mode);
+    }
+
+    /**
+     * Cell-by-cell difference (this minus other) between a plane of this raster and a plane of
+     * another raster with the same nx and ny.
+     */
+    public Difference compare(int it, int iz, StoredRaster other, int otherIt, int otherIz) {
+        if (other.header.nx() != header.nx() || other.header.ny() != header.ny()) {
+            throw new IllegalArgumentException("rasters must have the same dimensions to be compared");
+        }
+        FloatBuffer a = plane(it, iz);
+        FloatBuffer b = other.plane(otherIt, otherIz);
+        int cells = header.nx() * header.ny();
+        double maxAbsolute = 0.0;
+        int maxIndex = -1;
+        double sumSquares = 0.0;
+        double maxA = 0.0;
+        double maxB = 0.0;
+        for (int i = 0; i < cells; i++) {
+            float va = a.get(i);
+            float vb = b.get(i);
+            double d = (double) va - vb;
+            sumSquares += d * d;
+            if (Math.abs(d) > maxAbsolute) {
+                maxAbsolute = Math.abs(d);
+                maxIndex = i;
+            }
+            maxA = Math.max(maxA, va);
+            maxB = Math.max(maxB, vb);
+        }
+        return new Difference(maxAbsolute, maxIndex, Math.sqrt(sumSquares / cells), maxA, maxB);
+    }
+
+    /**
+     * Largest absolute difference and its flat index (iy * nx + ix, -1 when the planes are
+     * equal), root-mean-square difference, and each plane's maximum.
+     */
+    public record Difference(double maxAbsolute, int maxIndex, double rms, double maxA, double maxB) {
+    }
+
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.refactoredbackend.service;
+
+import java.util.Arrays;
+
+/**
+ * P² (Jain & Chlamtac) streaming quantile estimates for many cells at once.
+ *
+ * Each cell keeps five marker heights and positions in flat primitive arrays, about 60 bytes
+ * per cell regardless of how many observations it sees. Every cell must receive the same
+ * number of observations in lockstep, which lets the desired marker positions be derived from
+ * the shared observation count instead of being stored per cell. Cells are independent, so
+ * disjoint cell ranges can be updated from different threads.
+ */
+final class StreamingQuantiles {
+
+    private static final int MARKERS = 5;
+
+    private final double p;
+    private final double[] heights;
+    private final int[] positions;
+    private final double[] increments;
+    private final double[] initialDesired;
+
+    StreamingQuantiles(int cells, double p) {
+        if (!(p > 0 && p < 1)) {
+            throw new IllegalArgumentException("quantile must be between 0 and 1");
+        }
+        this.p = p;
+        this.heights = new double[cells * MARKERS];
+        this.positions = new int[cells * MARKERS];
+        this.increments = new double[]{0, p / 2, p, (1 + p) / 2, 1};
+        this.initialDesired = new double[]{1, 1 + 2 * p, 1 + 4 * p, 3 + 2 * p, 5};
+    }
+
+    /**
+     * Adds the observation number count (0-based) for a cell.
+     */
+    void add(int cell, double x, int count) {
+        int b = cell * MARKERS;
+        if (count < MARKERS) {
+            heights[b + count] = x;
+            if (count == MARKERS - 1) {
+                Arrays.sort(heights, b, b + MARKERS);
+                for (int i = 0; i < MARKERS; i++) {
+                    positions[b + i] = i + 1;
+                }
+            }
+            return;
+        }
+
+        int k;
+        if (x < heights[b]) {
+            heights[b] = x;
+            k = 0;
+        } else if (x >= heights[b + 4]) {
+            heights[b + 4] = x;
+            k = 3;
+        } else {
+            k = 0;
+            while (k < 3 && x >= heights[b + k + 1]) {
+                k++;
+            }
+        }
+        for (int i = k + 1; i < MARKERS; i++) {
+            positions[b + i]++;
+        }
+
+        // After count + 1 observations
+        int observed = count + 1;
+        for (int i = 1; i <= 3; i++) {
+            double desired = initialDesired[i] + (observed - MARKERS) * increments[i];
+            double d = desired - positions[b + i];
+            int ni = positions[b + i];
+            int prev = positions[b + i - 1];
+            int next = positions[b + i + 1];
+            if ((d >= 1 && next - ni > 1) || (d <= -1 && prev - ni < -1)) {
+                int s = d > 0 ? 1 : -1;
+                double qi = heights[b + i];
+                double qPrev = heights[b + i - 1];
+                double qNext = heights[b + i + 1];
+                double parabolic = qi + (double) s / (next - prev)
+                    * ((ni - prev + s) * (qNext - qi) / (next - ni) + (next - ni - s) * (qi - qPrev) / (ni - prev));
+                if (qPrev < parabolic && parabolic < qNext) {
+                    heights[b + i] = parabolic;
+                } else {
+                    heights[b + i] = qi + s * (heights[b + i + s] - qi) / (positions[b + i + s] - ni);
+                }
+                positions[b + i] = ni + s;
+            }
+        }
+    }
+
+    /**
+     * Current estimate for a cell that has seen count observations.
+     */
+    double quantile(int cell, int count) {
+        int b = cell * MARKERS;
+        if (count == 0) {
+            return 0.0;
+        }
+        if (count < MARKERS) {
+            double[] seen = Arrays.copyOfRange(heights, b, b + count);
+            Arrays.sort(seen);
+            int rank = (int) Math.ceil(p * count) - 1;
+            return seen[Math.max(0, Math.min(count - 1, rank))];
+        }
+        return heights[b + 2];
+    }
+}
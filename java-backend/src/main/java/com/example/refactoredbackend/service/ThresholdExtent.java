@@ -0,0 +1,82 @@
+package com.example.refactoredbackend.service;
+
+/**
+ * Where a scenario exceeds a level of concern: the downwind span of the centreline above the
+ * threshold, the widest crosswind half-width of that region and the centreline peak. All
+ * distances are metres from the source.
+ */
+public final class ThresholdExtent {
+
+    private final double threshold;
+    private final boolean exceeded;
+    private final double nearestDistance;
+    private final double downwindDistance;
+    private final boolean beyondMaxDistance;
+    private final double maxHalfWidth;
+    private final double halfWidthDistance;
+    private final double peakConcentration;
+    private final double peakDistance;
+    private final int evaluations;
+
+    ThresholdExtent(double threshold, boolean exceeded, double nearestDistance, double downwindDistance,
+                    boolean beyondMaxDistance, double maxHalfWidth, double halfWidthDistance,
+                    double peakConcentration, double peakDistance, int evaluations) {
+        this.threshold = threshold;
+        this.exceeded = exceeded;
+        this.nearestDistance = nearestDistance;
+        this.downwindDistance = downwindDistance;
+        this.beyondMaxDistance = beyondMaxDistance;
+        this.maxHalfWidth = maxHalfWidth;
+        this.halfWidthDistance = halfWidthDistance;
+        this.peakConcentration = peakConcentration;
+        this.peakDistance = peakDistance;
+        this.evaluations = evaluations;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    /** False when the centreline never reaches the threshold; the distances are then zero. */
+    public boolean isExceeded() {
+        return exceeded;
+    }
+
+    /** Closest distance above the threshold, e.g. where an elevated plume reaches the ground. */
+    public double getNearestDistance() {
+        return nearestDistance;
+    }
+
+    /** Farthest downwind distance where the centreline equals the threshold. */
+    public double getDownwindDistance() {
+        return downwindDistance;
+    }
+
+    /** True when the threshold is still exceeded at the search limit. */
+    public boolean isBeyondMaxDistance() {
+        return beyondMaxDistance;
+    }
+
+    /** Widest crosswind distance from the centreline where the threshold is exceeded. */
+    public double getMaxHalfWidth() {
+        return maxHalfWidth;
+    }
+
+    /** Downwind distance at which the half-width is widest. */
+    public double getHalfWidthDistance() {
+        return halfWidthDistance;
+    }
+
+    public double getPeakConcentration() {
+        return peakConcentration;
+    }
+
+    public double getPeakDistance() {
+        return peakDistance;
+    }
+
+    /** Model evaluations used by the solve. */
+    public int getEvaluations() {
+        return evaluations;
+    }
+}
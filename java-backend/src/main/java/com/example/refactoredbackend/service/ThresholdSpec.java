@@ -0,0 +1,67 @@
+package com.example.refactoredbackend.service;
+
+import java.util.Map;
+
+/**
+ * Level of concern to solve for: the threshold concentration in µg/m³, the receptor height,
+ * how far downwind to search and the relative tolerance on the solved distances.
+ */
+public final class ThresholdSpec {
+
+    /** Farthest downwind distance that can be searched, in metres. */
+    public static final double MAX_DISTANCE = 1_000_000.0;
+
+    private final double threshold;
+    private final double z;
+    private final double maxDistance;
+    private final double tolerance;
+
+    public ThresholdSpec(double threshold, double z, double maxDistance, double tolerance) {
+        if (!(threshold > 0) || !Double.isFinite(threshold)) {
+            throw new IllegalArgumentException("threshold must be a positive concentration");
+        }
+        if (!Double.isFinite(z)) {
+            throw new IllegalArgumentException("z must be a finite number");
+        }
+        if (!(maxDistance > ThresholdExtentSolver.MIN_DISTANCE) || maxDistance > MAX_DISTANCE) {
+            throw new IllegalArgumentException("max_distance must be between "
+                + ThresholdExtentSolver.MIN_DISTANCE + " and " + MAX_DISTANCE + " m");
+        }
+        if (!(tolerance >= 1e-9) || !(tolerance <= 0.1)) {
+            throw new IllegalArgumentException("tolerance must be between 1e-9 and 0.1");
+        }
+        this.threshold = threshold;
+        this.z = z;
+        this.maxDistance = maxDistance;
+        this.tolerance = tolerance;
+    }
+
+    public static ThresholdSpec fromParams(Map<String, Object> params) {
+        if (!params.containsKey("threshold")) {
+            throw new IllegalArgumentException("threshold is required");
+        }
+        return new ThresholdSpec(
+            DispersionService.getDoubleParam(params, "threshold", 0.0),
+            DispersionService.getDoubleParam(params, "z", 1.5),
+            DispersionService.getDoubleParam(params, "max_distance", 100_000.0),
+            DispersionService.getDoubleParam(params, "tolerance", 1e-3));
+    }
+
+    /** Level of concern in µg/m³. */
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    public double getMaxDistance() {
+        return maxDistance;
+    }
+
+    /** Relative tolerance on the solved distances and half-width. */
+    public double getTolerance() {
+        return tolerance;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.refactoredbackend.service;
+
+import java.time.Instant;
+
+/**
+ * A scenario placed on the map for tiling: source position, wind direction, receptor height and
+ * the concentration range of the colour scale. The footprint (reach and half-width above the
+ * lower end of the scale) is solved once at registration, so tiles outside it are skipped.
+ */
+public final class TileRun {
+
+    private final String id;
+    private final DispersionScenario scenario;
+    private final GeoFrame frame;
+    private final double windDirection;
+    private final double z;
+    private final double minConcentration;
+    private final double maxConcentration;
+    private final double reach;
+    private final double halfWidth;
+    private final double downEast;
+    private final double downNorth;
+    private final Instant created;
+
+    TileRun(String id, DispersionScenario scenario, GeoFrame frame, double windDirection, double z,
+            double minConcentration, double maxConcentration, double reach, double halfWidth) {
+        this.id = id;
+        this.scenario = scenario;
+        this.frame = frame;
+        this.windDirection = windDirection;
+        this.z = z;
+        this.minConcentration = minConcentration;
+        this.maxConcentration = maxConcentration;
+        this.reach = reach;
+        this.halfWidth = halfWidth;
+        // Unit vector the wind blows towards
+        double theta = Math.toRadians(windDirection);
+        this.downEast = -Math.sin(theta);
+        this.downNorth = -Math.cos(theta);
+        this.created = Instant.now();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public DispersionScenario getScenario() {
+        return scenario;
+    }
+
+    public GeoFrame getFrame() {
+        return frame;
+    }
+
+    public double getWindDirection() {
+        return windDirection;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    /** Lowest concentration drawn; anything below is transparent. */
+    public double getMinConcentration() {
+        return minConcentration;
+    }
+
+    /** Concentration drawn in the strongest colour. */
+    public double getMaxConcentration() {
+        return maxConcentration;
+    }
+
+    /** Downwind distance beyond which the run stays below the minimum concentration; 0 if nowhere above. */
+    public double getReach() {
+        return reach;
+    }
+
+    public double getHalfWidth() {
+        return halfWidth;
+    }
+
+    public Instant getCreated() {
+        return created;
+    }
+
+    double getDownEast() {
+        return downEast;
+    }
+
+    double getDownNorth() {
+        return downNorth;
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.refactoredbackend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Renders concentration tiles of registered runs in the Web Mercator (slippy map) scheme.
+ *
+ * A tile evaluates the scenario only at its own 256 x 256 pixel centres, converted to the run's
+ * east/north frame and rotated into the wind. Tiles whose bounds miss the run's footprint are
+ * answered with a shared transparent image without evaluating anything. Rendered PNGs go through
+ * a {@link ModelResultCache} of their own, so concurrent requests for one tile render it once
+ * and the least recently viewed tiles are evicted when the cache is full.
+ */
+@Service
+public class TileService {
+
+    public static final int TILE_SIZE = 256;
+    public static final int MAX_ZOOM = 22;
+
+    /** YlOrRd colour ramp from the lower to the upper end of the scale. */
+    private static final int[][] RAMP = {
+        {255, 255, 178}, {254, 204, 92}, {253, 141, 60}, {240, 59, 32}, {189, 0, 38}
+    };
+    private static final int ALPHA = 180;
+
+    private final ThresholdExtentSolver solver;
+    private final ModelResultCache tileCache;
+    private final int maxRuns;
+    private final ConcurrentHashMap<String, TileRun> runs = new ConcurrentHashMap<>();
+    private final ArrayDeque<String> registrationOrder = new ArrayDeque<>();
+    private final byte[] emptyTile;
+    private final LongAdder rendered = new LongAdder();
+    private final LongAdder empty = new LongAdder();
+    private final LongAdder evaluations = new LongAdder();
+
+    @Autowired
+    public TileService(ThresholdExtentSolver solver,
+                       @Value("${tiles.max-runs:256}") int maxRuns,
+                       @Value("${tiles.cache.max-entries:4096}") int maxTiles,
+                       @Value("${tiles.cache.max-bytes:67108864}") long maxBytes,
+                       @Value("${tiles.cache.ttl-seconds:3600}") long ttlSeconds) {
+        if (maxRuns < 1) {
+            throw new IllegalArgumentException("tiles.max-runs must be positive");
+        }
+        this.solver = solver;
+        this.maxRuns = maxRuns;
+        this.tileCache = new ModelResultCache(maxTiles, maxBytes, ttlSeconds, 15);
+        this.emptyTile = encode(new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB));
+    }
+
+    /**
+     * Places a scenario at a source position. A NaN maxConcentration scales the colours to the
+     * scenario's centreline peak.
+     */
+    public TileRun register(DispersionScenario scenario, double sourceLat, double sourceLon, double windDirection,
+                            double z, double minConcentration, double maxConcentration) {
+        if (!Double.isFinite(windDirection)) {
+            throw new IllegalArgumentException("wind_direction must be a finite number");
+        }
+        if (!(minConcentration > 0)) {
+            throw new IllegalArgumentException("min_concentration must be positive");
+        }
+        GeoFrame frame = new GeoFrame(sourceLat, sourceLon);
+        ThresholdExtent extent = solver.solve(scenario,
+            new ThresholdSpec(minConcentration, z, ThresholdSpec.MAX_DISTANCE, 1e-3));
+        double max = Double.isNaN(maxConcentration) ? extent.getPeakConcentration() : maxConcentration;
+        if (!(max > minConcentration)) {
+            max = minConcentration * 10;
+        }
+        TileRun run = new TileRun(UUID.randomUUID().toString(), scenario, frame, windDirection, z,
+            minConcentration, max, extent.getDownwindDistance(), extent.getMaxHalfWidth());
+
+        synchronized (registrationOrder) {
+            while (registrationOrder.size() >= maxRuns) {
+                runs.remove(registrationOrder.removeFirst());
+            }
+            registrationOrder.addLast(run.getId());
+            runs.put(run.getId(), run);
+        }
+        return run;
+    }
+
+    public Optional<TileRun> getRun(String id) {
+        return Optional.ofNullable(runs.get(id));
+    }
+
+    /**
+     * PNG for tile (zoom, x, y) of a run, from the cache when it has been rendered before.
+     */
+    public byte[] tile(TileRun run, int zoom, int x, int y) {
+        if (zoom < 0 || zoom > MAX_ZOOM) {
+            throw new IllegalArgumentException("zoom must be between 0 and " + MAX_ZOOM);
+        }
+        int tiles = 1 << zoom;
+        if (x < 0 || x >= tiles || y < 0 || y >= tiles) {
+            throw new IllegalArgumentException("tile " + x + "/" + y + " is outside zoom level " + zoom);
+        }
+        Map<String, Object> key = Map.of("run", run.getId(), "z", zoom, "x", x, "y", y);
+        return tileCache.get("tile", key, png -> png.length + 64L, () -> render(run, zoom, x, y));
+    }
+
+    byte[] render(TileRun run, int zoom, int x, int y) {
+        GeoFrame frame = run.getFrame();
+        double tiles = 1 << zoom;
+        double west = frame.east(tileLon(x, tiles));
+        double east = frame.east(tileLon(x + 1, tiles));
+        double north = frame.north(tileLat(y, tiles));
+        double south = frame.north(tileLat(y + 1, tiles));
+        if (!overlapsFootprint(run, west, east, south, north)) {
+            empty.increment();
+            return emptyTile;
+        }
+
+        double[] pixelEast = new double[TILE_SIZE];
+        double[] pixelNorth = new double[TILE_SIZE];
+        for (int p = 0; p < TILE_SIZE; p++) {
+            pixelEast[p] = frame.east(tileLon(x + (p + 0.5) / TILE_SIZE, tiles));
+            pixelNorth[p] = frame.north(tileLat(y + (p + 0.5) / TILE_SIZE, tiles));
+        }
+
+        DispersionScenario scenario = run.getScenario();
+        double downEast = run.getDownEast();
+        double downNorth = run.getDownNorth();
+        double lnMin = Math.log(run.getMinConcentration());
+        double lnRange = Math.log(run.getMaxConcentration()) - lnMin;
+        double[] terms = new double[2];
+        int[] argb = new int[TILE_SIZE * TILE_SIZE];
+        long evaluated = 0;
+        for (int py = 0; py < TILE_SIZE; py++) {
+            double dNorth = pixelNorth[py];
+            for (int px = 0; px < TILE_SIZE; px++) {
+                double dEast = pixelEast[px];
+                double along = dEast * downEast + dNorth * downNorth;
+                double across = dNorth * downEast - dEast * downNorth;
+                if (along <= 0 || along > run.getReach() || Math.abs(across) > run.getHalfWidth()) {
+                    continue;
+                }
+                scenario.columnTerms(along, run.getZ(), terms);
+                evaluated++;
+                double c = DispersionScenario.concentration(terms[0], terms[1], across);
+                if (c >= run.getMinConcentration()) {
+                    argb[py * TILE_SIZE + px] = colour((Math.log(c) - lnMin) / lnRange);
+                }
+            }
+        }
+        rendered.increment();
+        evaluations.add(evaluated);
+
+        BufferedImage image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, TILE_SIZE, TILE_SIZE, argb, 0, TILE_SIZE);
+        return encode(image);
+    }
+
+    /**
+     * True when the tile's east/north bounds intersect the bounding box of the run's footprint.
+     */
+    private static boolean overlapsFootprint(TileRun run, double west, double east, double south, double north) {
+        if (run.getReach() <= 0) {
+            return false;
+        }
+        double leftEast = -run.getDownNorth();
+        double leftNorth = run.getDownEast();
+        double minEast = Double.POSITIVE_INFINITY;
+        double maxEast = Double.NEGATIVE_INFINITY;
+        double minNorth = Double.POSITIVE_INFINITY;
+        double maxNorth = Double.NEGATIVE_INFINITY;
+        for (double a : new double[]{0.0, run.getReach()}) {
+            for (double c : new double[]{-run.getHalfWidth(), run.getHalfWidth()}) {
+                double e = a * run.getDownEast() + c * leftEast;
+                double n = a * run.getDownNorth() + c * leftNorth;
+                minEast = Math.min(minEast, e);
+                maxEast = Math.max(maxEast, e);
+                minNorth = Math.min(minNorth, n);
+                maxNorth = Math.max(maxNorth, n);
+            }
+        }
+        return west <= maxEast && east >= minEast && south <= maxNorth && north >= minNorth;
+    }
+
+    /** Longitude of the western edge of tile column x (fractional x gives points inside). */
+    static double tileLon(double x, double tiles) {
+        return x / tiles * 360.0 - 180.0;
+    }
+
+    /** Latitude of the northern edge of tile row y (fractional y gives points inside). */
+    static double tileLat(double y, double tiles) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y / tiles))));
+    }
+
+    private static int colour(double t) {
+        double position = Math.max(0.0, Math.min(1.0, t)) * (RAMP.length - 1);
+        int i = Math.min((int) position, RAMP.length - 2);
+        double f = position - i;
+        int r = (int) Math.round(RAMP[i][0] + f * (RAMP[i + 1][0] - RAMP[i][0]));
+        int g = (int) Math.round(RAMP[i][1] + f * (RAMP[i + 1][1] - RAMP[i][1]));
+        int b = (int) Math.round(RAMP[i][2] + f * (RAMP[i + 1][2] - RAMP[i][2]));
+        return ALPHA << 24 | r << 16 | g << 8 | b;
+    }
+
+    private static byte[] encode(BufferedImage image) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 * 1024);
+        try {
+            ImageIO.write(image, "png", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>(tileCache.stats());
+        stats.put("runs", runs.size());
+        stats.put("rendered", rendered.sum());
+        stats.put("empty", empty.sum());
+        stats.put("evaluations", evaluations.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,344 @@
+package com.example.refactoredbackend.service;
+
+import com.example.refactoredbackend.model.Station;
+import com.example.refactoredbackend.repository.StationRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Polls current weather for every station on a schedule and writes it to the weather table.
+ *
+ * The pipeline has two stages joined by a bounded buffer. The poll stage fetches all stations
+ * through {@link OpenMeteoClient#currentAll} and queues one reading per station. The write
+ * stage is a single thread that drains the buffer into batches of up to batch-size rows, or
+ * whatever arrived within the flush interval, and inserts each batch with one JDBC batch
+ * statement. A slow provider only delays the poll, and a slow database is absorbed by the
+ * buffer. When the buffer is full the poll waits for room instead of dropping readings, and
+ * a batch that fails to insert is kept and retried. Each batch also updates the hourly and
+ * daily rollups and wind-rose histograms ({@link WeatherRollupService}, {@link WindRoseService}). After each batch, a
+ * {@link ModelInputChanged} event is published for every station in it.
+ */
+@Service
+public class WeatherIngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(WeatherIngestionService.class);
+
+    static final String INSERT_SQL = "INSERT INTO weather (time, wind_speed, wind_direction, temperature, humidity, "
+        + "pressure, precipitation, station_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /** Attempts at inserting one batch before its rows are given up. */
+    static final int MAX_WRITE_ATTEMPTS = 5;
+
+    private final Supplier<List<Station>> stations;
+    private final Function<List<Station>, List<OpenMeteoClient.PointWeather>> provider;
+    private final Consumer<List<WeatherReading>> writer;
+    private final Consumer<Long> onStationWritten;
+    private final boolean enabled;
+    private final ArrayBlockingQueue<WeatherReading> buffer;
+    private final int batchSize;
+    private final long flushNanos;
+    private final long offerTimeoutMillis;
+    private final long retryMillis;
+    private final ReentrantLock pollLock = new ReentrantLock();
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    // Poll stage
+    private final LongAdder polls = new LongAdder();
+    private final LongAdder pollFailures = new LongAdder();
+    private final LongAdder pollNanos = new LongAdder();
+    private final LongAdder stationsPolled = new LongAdder();
+    private final LongAdder fetchFailures = new LongAdder();
+    private final LongAdder staleSkipped = new LongAdder();
+    // Buffer
+    private final LongAdder buffered = new LongAdder();
+    private final LongAdder bufferWaits = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicInteger highWater = new AtomicInteger();
+    // Write stage
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+    private final LongAdder rowsAbandoned = new LongAdder();
+
+    @Autowired
+    public WeatherIngestionService(StationRepository stationRepository, OpenMeteoClient openMeteoClient,
+                                   JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                   WeatherRollupService weatherRollupService, WindRoseService windRoseService,
+                                   LatestWeatherSnapshot latestWeatherSnapshot,
+                                   ApplicationEventPublisher eventPublisher,
+                                   @Value("${weather.ingest.enabled:true}") boolean enabled,
+                                   @Value("${weather.ingest.buffer-capacity:10000}") int bufferCapacity,
+                                   @Value("${weather.ingest.batch-size:500}") int batchSize,
+                                   @Value("${weather.ingest.flush-ms:1000}") long flushMillis,
+                                   @Value("${weather.ingest.offer-timeout-ms:60000}") long offerTimeoutMillis,
+                                   @Value("${weather.ingest.retry-ms:5000}") long retryMillis) {
+        this(stationRepository::findAll, all -> openMeteoClient.currentAll(points(all)),
+            readings -> {
+                // Rows and rollups commit together, so a retried batch is not counted twice
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    insert(jdbcTemplate, readings);
+                    weatherRollupService.record(readings);
+                    windRoseService.record(readings);
+                });
+                readings.forEach(latestWeatherSnapshot::record);
+            },
+            stationId -> eventPublisher.publishEvent(ModelInputChanged.weather(stationId)),
+            enabled, bufferCapacity, batchSize, flushMillis, offerTimeoutMillis, retryMillis);
+    }
+
+    WeatherIngestionService(Supplier<List<Station>> stations,
+                            Function<List<Station>, List<OpenMeteoClient.PointWeather>> provider,
+                            Consumer<List<WeatherReading>> writer, Consumer<Long> onStationWritten,
+                            boolean enabled, int bufferCapacity, int batchSize, long flushMillis,
+                            long offerTimeoutMillis, long retryMillis) {
+        if (bufferCapacity < 1 || batchSize < 1 || flushMillis < 1 || offerTimeoutMillis < 0 || retryMillis < 0) {
+            throw new IllegalArgumentException("ingestion buffer, batch size and flush interval must be positive");
+        }
+        this.stations = stations;
+        this.provider = provider;
+        this.writer = writer;
+        this.onStationWritten = onStationWritten;
+        this.enabled = enabled;
+        this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        this.batchSize = batchSize;
+        this.flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMillis);
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.retryMillis = retryMillis;
+        this.writerThread = new Thread(this::writeLoop, "weather-ingest-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    private static List<double[]> points(List<Station> stations) {
+        List<double[]> points = new ArrayList<>(stations.size());
+        for (Station station : stations) {
+            points.add(new double[]{station.getLat(), station.getLon()});
+        }
+        return points;
+    }
+
+    static void insert(JdbcTemplate jdbcTemplate, List<WeatherReading> readings) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, readings, readings.size(), (statement, reading) -> {
+            statement.setTimestamp(1, Timestamp.valueOf(reading.time()));
+            statement.setDouble(2, reading.windSpeed());
+            statement.setDouble(3, reading.windDirection());
+            statement.setDouble(4, reading.temperature());
+            statement.setDouble(5, reading.humidity());
+            statement.setDouble(6, reading.pressure());
+            statement.setDouble(7, reading.precipitation());
+            if (reading.stationId() == null) {
+                statement.setNull(8, Types.BIGINT);
+            } else {
+                statement.setLong(8, reading.stationId());
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${weather.ingest.interval-ms:900000}",
+               initialDelayString = "${weather.ingest.initial-delay-ms:60000}")
+    public void scheduledPoll() {
+        if (enabled) {
+            poll();
+        }
+    }
+
+    /**
+     * Fetches every station once and queues the readings. Returns the number queued, or -1
+     * when another poll is already running. Stations whose fetch failed, or that only have a
+     * stale cached value, are skipped until the next poll.
+     */
+    public int poll() {
+        if (!pollLock.tryLock()) {
+            return -1;
+        }
+        try {
+            long started = System.nanoTime();
+            List<Station> all = stations.get();
+            LocalDateTime now = LocalDateTime.now();
+            List<OpenMeteoClient.PointWeather> weather = all.isEmpty() ? List.of() : provider.apply(all);
+            int queued = 0;
+            for (int i = 0; i < all.size(); i++) {
+                Map<String, Object> values = weather.get(i).weather();
+                if (values == null) {
+                    fetchFailures.increment();
+                } else if (Boolean.TRUE.equals(values.get("stale"))) {
+                    staleSkipped.increment();
+                } else if (offer(WeatherReading.fromWeather(all.get(i).getId(), now, values))) {
+                    queued++;
+                }
+            }
+            polls.increment();
+            stationsPolled.add(all.size());
+            pollNanos.add(System.nanoTime() - started);
+            return queued;
+        } catch (RuntimeException e) {
+            pollFailures.increment();
+            log.warn("Weather ingestion poll failed: {}", e.getMessage());
+            return 0;
+        } finally {
+            pollLock.unlock();
+        }
+    }
+
+    private boolean offer(WeatherReading reading) {
+        boolean accepted = buffer.offer(reading);
+        if (!accepted) {
+            bufferWaits.increment();
+            try {
+                accepted = buffer.offer(reading, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!accepted) {
+            dropped.increment();
+            return false;
+        }
+        buffered.increment();
+        highWater.accumulateAndGet(buffer.size(), Math::max);
+        return true;
+    }
+
+    private void writeLoop() {
+        List<WeatherReading> batch = new ArrayList<>(batchSize);
+        int attempts = 0;
+        while (running || !buffer.isEmpty() || !batch.isEmpty()) {
+            try {
+                if (batch.isEmpty() && !fill(batch)) {
+                    continue;
+                }
+                long started = System.nanoTime();
+                try {
+                    writer.accept(batch);
+                } catch (RuntimeException e) {
+                    writeFailures.increment();
+                    if (++attempts >= MAX_WRITE_ATTEMPTS) {
+                        log.error("Giving up on {} weather readings after {} failed inserts: {}",
+                            batch.size(), attempts, e.getMessage());
+                        rowsAbandoned.add(batch.size());
+                        batch.clear();
+                        attempts = 0;
+                    } else {
+                        log.warn("Inserting {} weather readings failed, retrying: {}", batch.size(), e.getMessage());
+                        Thread.sleep(retryMillis);
+                    }
+                    continue;
+                }
+                writeNanos.add(System.nanoTime() - started);
+                batches.increment();
+                rowsWritten.add(batch.size());
+                attempts = 0;
+                Set<Long> stationIds = new LinkedHashSet<>();
+                for (WeatherReading reading : batch) {
+                    stationIds.add(reading.stationId());
+                }
+                batch.clear();
+                for (Long stationId : stationIds) {
+                    onStationWritten.accept(stationId);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Weather ingestion listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Collects up to batchSize readings, waiting at most the flush interval after the first.
+     * False when nothing arrived.
+     */
+    private boolean fill(List<WeatherReading> batch) throws InterruptedException {
+        WeatherReading first = buffer.poll(flushNanos, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return false;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + flushNanos;
+        while (batch.size() < batchSize) {
+            buffer.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                break;
+            }
+            WeatherReading next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return true;
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+            "poll", Map.of(
+                "runs", polls.sum(),
+                "failures", pollFailures.sum(),
+                "stations", stationsPolled.sum(),
+                "fetch_failures", fetchFailures.sum(),
+                "stale_skipped", staleSkipped.sum(),
+                "stations_per_second", perSecond(stationsPolled.sum(), pollNanos.sum())
+            ),
+            "buffer", Map.of(
+                "size", buffer.size(),
+                "capacity", buffer.size() + buffer.remainingCapacity(),
+                "high_water", highWater.get(),
+                "queued", buffered.sum(),
+                "waits", bufferWaits.sum(),
+                "dropped", dropped.sum()
+            ),
+            "write", Map.of(
+                "batches", batches.sum(),
+                "rows", rowsWritten.sum(),
+                "failures", writeFailures.sum(),
+                "abandoned", rowsAbandoned.sum(),
+                "rows_per_second", perSecond(rowsWritten.sum(), writeNanos.sum())
+            )
+        );
+    }
+
+    private static double perSecond(long count, long nanos) {
+        return nanos == 0 ? 0.0 : count * 1e9 / nanos;
+    }
+
+    /** Stops polling and lets the writer flush what is buffered, waiting up to timeoutMillis. */
+    void close(long timeoutMillis) throws InterruptedException {
+        running = false;
+        writerThread.join(timeoutMillis);
+        writerThread.interrupt();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        close(10_000);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.refactoredbackend.service;
+
+import com.example.refactoredbackend.model.Weather;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * One station's weather at one time, on its way into the weather table. Units are those of
+ * the weather table: mph, degrees, °F, %, inHg and inches.
+ */
+public record WeatherReading(Long stationId, LocalDateTime time, double windSpeed, double windDirection,
+                             double temperature, double humidity, double pressure, double precipitation) {
+
+    /**
+     * Reading of a stored weather row. The station proxy is only asked for its id, so a lazy
+     * station is not loaded.
+     */
+    static WeatherReading fromEntity(Weather weather) {
+        return new WeatherReading(weather.getStation() != null ? weather.getStation().getId() : null,
+            weather.getTime(), weather.getWind_speed(), weather.getWind_direction(), weather.getTemperature(),
+            weather.getHumidity(), weather.getPressure(), weather.getPrecipitation());
+    }
+
+    /**
+     * Reading from a weather map as returned by {@link OpenMeteoClient}.
+     */
+    static WeatherReading fromWeather(Long stationId, LocalDateTime time, Map<String, Object> weather) {
+        return new WeatherReading(stationId, time,
+            DispersionService.getDoubleParam(weather, "wind_speed", 0.0),
+            DispersionService.getDoubleParam(weather, "wind_direction", 0.0),
+            DispersionService.getDoubleParam(weather, "temperature", 0.0),
+            DispersionService.getDoubleParam(weather, "humidity", 0.0),
+            DispersionService.getDoubleParam(weather, "pressure", 0.0),
+            DispersionService.getDoubleParam(weather, "precipitation", 0.0));
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.refactoredbackend.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Aggregate of the weather readings of one station in one time bucket.
+ *
+ * Only counts, sums, minima and maxima are kept, so two rollups of the same bucket merge by
+ * adding them up, which is how the rollup tables are updated in place. Wind direction is
+ * averaged as a vector: the sums of the unit vectors' east and north components give the
+ * mean direction, and their resultant length over the sample count how steady it was.
+ */
+public final class WeatherRollup {
+
+    private final long stationId;
+    private final LocalDateTime bucket;
+    private long samples;
+    private double windSpeedMin = Double.POSITIVE_INFINITY;
+    private double windSpeedMax = Double.NEGATIVE_INFINITY;
+    private double windSpeedSum;
+    private double windDirectionX;
+    private double windDirectionY;
+    private double temperatureMin = Double.POSITIVE_INFINITY;
+    private double temperatureMax = Double.NEGATIVE_INFINITY;
+    private double temperatureSum;
+    private double humiditySum;
+    private double pressureSum;
+    private double precipitationSum;
+
+    WeatherRollup(long stationId, LocalDateTime bucket) {
+        this.stationId = stationId;
+        this.bucket = bucket;
+    }
+
+    WeatherRollup(long stationId, LocalDateTime bucket, long samples,
+                  double windSpeedMin, double windSpeedMax, double windSpeedSum,
+                  double windDirectionX, double windDirectionY,
+                  double temperatureMin, double temperatureMax, double temperatureSum,
+                  double humiditySum, double pressureSum, double precipitationSum) {
+        this.stationId = stationId;
+        this.bucket = bucket;
+        this.samples = samples;
+        this.windSpeedMin = windSpeedMin;
+        this.windSpeedMax = windSpeedMax;
+        this.windSpeedSum = windSpeedSum;
+        this.windDirectionX = windDirectionX;
+        this.windDirectionY = windDirectionY;
+        this.temperatureMin = temperatureMin;
+        this.temperatureMax = temperatureMax;
+        this.temperatureSum = temperatureSum;
+        this.humiditySum = humiditySum;
+        this.pressureSum = pressureSum;
+        this.precipitationSum = precipitationSum;
+    }
+
+    void add(WeatherReading reading) {
+        samples++;
+        windSpeedMin = Math.min(windSpeedMin, reading.windSpeed());
+        windSpeedMax = Math.max(windSpeedMax, reading.windSpeed());
+        windSpeedSum += reading.windSpeed();
+        double theta = Math.toRadians(reading.windDirection());
+        windDirectionX += Math.sin(theta);
+        windDirectionY += Math.cos(theta);
+        temperatureMin = Math.min(temperatureMin, reading.temperature());
+        temperatureMax = Math.max(temperatureMax, reading.temperature());
+        temperatureSum += reading.temperature();
+        humiditySum += reading.humidity();
+        pressureSum += reading.pressure();
+        precipitationSum += reading.precipitation();
+    }
+
+    void merge(WeatherRollup other) {
+        samples += other.samples;
+        windSpeedMin = Math.min(windSpeedMin, other.windSpeedMin);
+        windSpeedMax = Math.max(windSpeedMax, other.windSpeedMax);
+        windSpeedSum += other.windSpeedSum;
+        windDirectionX += other.windDirectionX;
+        windDirectionY += other.windDirectionY;
+        temperatureMin = Math.min(temperatureMin, other.temperatureMin);
+        temperatureMax = Math.max(temperatureMax, other.temperatureMax);
+        temperatureSum += other.temperatureSum;
+        humiditySum += other.humiditySum;
+        pressureSum += other.pressureSum;
+        precipitationSum += other.precipitationSum;
+    }
+
+    /** Station id, or 0 for readings not tied to a station. */
+    public long getStationId() {
+        return stationId;
+    }
+
+    /** Start of the bucket. */
+    public LocalDateTime getBucket() {
+        return bucket;
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    public double getWindSpeedMin() {
+        return windSpeedMin;
+    }
+
+    public double getWindSpeedMax() {
+        return windSpeedMax;
+    }
+
+    public double getWindSpeedSum() {
+        return windSpeedSum;
+    }
+
+    public double getWindSpeedMean() {
+        return windSpeedSum / samples;
+    }
+
+    public double getWindDirectionX() {
+        return windDirectionX;
+    }
+
+    public double getWindDirectionY() {
+        return windDirectionY;
+    }
+
+    /** Vector-mean direction the wind blows from, in degrees [0, 360). */
+    public double getWindDirectionMean() {
+        double degrees = Math.toDegrees(Math.atan2(windDirectionX, windDirectionY));
+        return degrees < 0 ? degrees + 360 : degrees;
+    }
+
+    /** Length of the mean unit vector: 1 when the direction never changed, near 0 when it was variable. */
+    public double getWindDirectionSteadiness() {
+        return Math.hypot(windDirectionX, windDirectionY) / samples;
+    }
+
+    public double getTemperatureMin() {
+        return temperatureMin;
+    }
+
+    public double getTemperatureMax() {
+        return temperatureMax;
+    }
+
+    public double getTemperatureSum() {
+        return temperatureSum;
+    }
+
+    public double getTemperatureMean() {
+        return temperatureSum / samples;
+    }
+
+    public double getHumiditySum() {
+        return humiditySum;
+    }
+
+    public double getHumidityMean() {
+        return humiditySum / samples;
+    }
+
+    public double getPressureSum() {
+        return pressureSum;
+    }
+
+    public double getPressureMean() {
+        return pressureSum / samples;
+    }
+
+    public double getPrecipitationSum() {
+        return precipitationSum;
+    }
+}
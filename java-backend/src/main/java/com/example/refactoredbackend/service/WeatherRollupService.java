@@ -0,0 +1,178 @@
+package com.example.refactoredbackend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Hourly and daily weather rollups per station (tables weather_hourly and weather_daily).
+ *
+ * Each batch of new readings is first aggregated in memory per station and bucket, then
+ * added to the stored rows with one upsert per bucket, so the rollups stay current without
+ * rescanning the weather table. Call {@link #record} in the same transaction as the insert of
+ * the readings so that a retried batch is not counted twice. History queries read whichever of
+ * the raw table and the two rollups fits the requested number of points.
+ */
+@Service
+public class WeatherRollupService {
+
+    /** Upper bound on raw rows returned by one query. */
+    public static final int MAX_RAW_ROWS = 100_000;
+
+    public enum Resolution {
+        DAY("weather_daily", ChronoUnit.DAYS),
+        HOUR("weather_hourly", ChronoUnit.HOURS),
+        RAW(null, null);
+
+        private final String table;
+        private final ChronoUnit unit;
+
+        Resolution(String table, ChronoUnit unit) {
+            this.table = table;
+            this.unit = unit;
+        }
+
+        /** Start of the bucket containing time; time itself for raw readings. */
+        LocalDateTime bucket(LocalDateTime time) {
+            return unit == null ? time : time.truncatedTo(unit);
+        }
+
+        public static Resolution fromName(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("resolution must be raw, hour or day");
+            }
+        }
+    }
+
+    private static final String COLUMNS = "station_id, bucket, samples, wind_speed_min, wind_speed_max, "
+        + "wind_speed_sum, wind_dir_x_sum, wind_dir_y_sum, temperature_min, temperature_max, temperature_sum, "
+        + "humidity_sum, pressure_sum, precipitation_sum";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public WeatherRollupService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Adds the readings to the hourly and daily rollups. */
+    public void record(List<WeatherReading> readings) {
+        if (readings.isEmpty()) {
+            return;
+        }
+        for (Resolution resolution : new Resolution[]{Resolution.HOUR, Resolution.DAY}) {
+            List<WeatherRollup> rollups = new ArrayList<>(aggregate(readings, resolution));
+            jdbcTemplate.batchUpdate(upsertSql(resolution.table), rollups, rollups.size(), (statement, rollup) -> {
+                statement.setLong(1, rollup.getStationId());
+                statement.setTimestamp(2, Timestamp.valueOf(rollup.getBucket()));
+                statement.setLong(3, rollup.getSamples());
+                statement.setDouble(4, rollup.getWindSpeedMin());
+                statement.setDouble(5, rollup.getWindSpeedMax());
+                statement.setDouble(6, rollup.getWindSpeedSum());
+                statement.setDouble(7, rollup.getWindDirectionX());
+                statement.setDouble(8, rollup.getWindDirectionY());
+                statement.setDouble(9, rollup.getTemperatureMin());
+                statement.setDouble(10, rollup.getTemperatureMax());
+                statement.setDouble(11, rollup.getTemperatureSum());
+                statement.setDouble(12, rollup.getHumiditySum());
+                statement.setDouble(13, rollup.getPressureSum());
+                statement.setDouble(14, rollup.getPrecipitationSum());
+            });
+        }
+    }
+
+    /** One rollup per station and bucket; readings without a station go to station 0. */
+    static Collection<WeatherRollup> aggregate(List<WeatherReading> readings, Resolution resolution) {
+        Map<String, WeatherRollup> rollups = new LinkedHashMap<>();
+        for (WeatherReading reading : readings) {
+            long stationId = reading.stationId() != null ? reading.stationId() : 0L;
+            LocalDateTime bucket = resolution.bucket(reading.time());
+            rollups.computeIfAbsent(stationId + "|" + bucket, k -> new WeatherRollup(stationId, bucket)).add(reading);
+        }
+        return rollups.values();
+    }
+
+    private static String upsertSql(String table) {
+        return "INSERT INTO " + table + " (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (station_id, bucket) DO UPDATE SET "
+            + "samples = " + table + ".samples + EXCLUDED.samples, "
+            + "wind_speed_min = LEAST(" + table + ".wind_speed_min, EXCLUDED.wind_speed_min), "
+            + "wind_speed_max = GREATEST(" + table + ".wind_speed_max, EXCLUDED.wind_speed_max), "
+            + "wind_speed_sum = " + table + ".wind_speed_sum + EXCLUDED.wind_speed_sum, "
+            + "wind_dir_x_sum = " + table + ".wind_dir_x_sum + EXCLUDED.wind_dir_x_sum, "
+            + "wind_dir_y_sum = " + table + ".wind_dir_y_sum + EXCLUDED.wind_dir_y_sum, "
+            + "temperature_min = LEAST(" + table + ".temperature_min, EXCLUDED.temperature_min), "
+            + "temperature_max = GREATEST(" + table + ".temperature_max, EXCLUDED.temperature_max), "
+            + "temperature_sum = " + table + ".temperature_sum + EXCLUDED.temperature_sum, "
+            + "humidity_sum = " + table + ".humidity_sum + EXCLUDED.humidity_sum, "
+            + "pressure_sum = " + table + ".pressure_sum + EXCLUDED.pressure_sum, "
+            + "precipitation_sum = " + table + ".precipitation_sum + EXCLUDED.precipitation_sum";
+    }
+
+    /**
+     * The coarsest resolution that still gives at least points buckets over [start, end), or
+     * raw readings when even hourly buckets are too few.
+     */
+    public static Resolution choose(LocalDateTime start, LocalDateTime end, int points) {
+        Duration range = Duration.between(start, end);
+        if (range.toDays() >= points) {
+            return Resolution.DAY;
+        }
+        if (range.toHours() >= points) {
+            return Resolution.HOUR;
+        }
+        return Resolution.RAW;
+    }
+
+    /**
+     * Weather between start and end, one rollup per bucket (or per reading for raw). Without a
+     * station id the buckets of all stations are combined.
+     */
+    public List<WeatherRollup> query(Long stationId, LocalDateTime start, LocalDateTime end, Resolution resolution) {
+        List<Object> args = new ArrayList<>();
+        args.add(Timestamp.valueOf(resolution.bucket(start)));
+        args.add(Timestamp.valueOf(end));
+        if (stationId != null) {
+            args.add(stationId);
+        }
+        String stationFilter = stationId != null ? " AND station_id = ?" : "";
+
+        if (resolution == Resolution.RAW) {
+            args.add(MAX_RAW_ROWS);
+            return jdbcTemplate.query("SELECT time, wind_speed, wind_direction, temperature, humidity, pressure, "
+                + "precipitation FROM weather WHERE time >= ? AND time < ?" + stationFilter
+                + " ORDER BY time LIMIT ?", (rs, row) -> {
+                    WeatherReading reading = new WeatherReading(stationId, rs.getTimestamp(1).toLocalDateTime(),
+                        rs.getDouble(2), rs.getDouble(3), rs.getDouble(4), rs.getDouble(5), rs.getDouble(6),
+                        rs.getDouble(7));
+                    WeatherRollup rollup = new WeatherRollup(stationId != null ? stationId : 0L, reading.time());
+                    rollup.add(reading);
+                    return rollup;
+                }, args.toArray());
+        }
+
+        RowMapper<WeatherRollup> mapper = (rs, row) -> new WeatherRollup(stationId != null ? stationId : 0L,
+            rs.getTimestamp(1).toLocalDateTime(), rs.getLong(2), rs.getDouble(3), rs.getDouble(4), rs.getDouble(5),
+            rs.getDouble(6), rs.getDouble(7), rs.getDouble(8), rs.getDouble(9), rs.getDouble(10), rs.getDouble(11),
+            rs.getDouble(12), rs.getDouble(13));
+        return jdbcTemplate.query("SELECT bucket, SUM(samples), MIN(wind_speed_min), MAX(wind_speed_max), "
+            + "SUM(wind_speed_sum), SUM(wind_dir_x_sum), SUM(wind_dir_y_sum), MIN(temperature_min), "
+            + "MAX(temperature_max), SUM(temperature_sum), SUM(humidity_sum), SUM(pressure_sum), "
+            + "SUM(precipitation_sum) FROM " + resolution.table + " WHERE bucket >= ? AND bucket < ?" + stationFilter
+            + " GROUP BY bucket ORDER BY bucket", mapper, args.toArray());
+    }
+}
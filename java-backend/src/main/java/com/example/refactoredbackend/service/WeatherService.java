@@ -1,26 +1,64 @@
 package com.example.refactoredbackend.service;
 
+import com.example.refactoredbackend.model.Station;
 import com.example.refactoredbackend.model.Weather;
+import com.example.refactoredbackend.repository.StationRepository;
 import com.example.refactoredbackend.repository.WeatherRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import java.time.LocalDateTime;
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @Service
 public class WeatherService {
 
+    private static final Logger log = LoggerFactory.getLogger(WeatherService.class);
+
     @Autowired
     private WeatherRepository weatherRepository;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private StationRepository stationRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private LatestWeatherSnapshot latestWeatherSnapshot;
+
+    @Autowired
+    private OpenMeteoClient openMeteoClient;
+
+    @Autowired
+    private WeatherRollupService weatherRollupService;
+
+    @Autowired
+    private WindRoseService windRoseService;
 
+    /**
+     * Stores one reading, tied to the station given as station_id when there is one.
+     *
+     * @throws IllegalArgumentException when station_id names no station
+     */
+    @Transactional
     public Weather storeWeatherData(Map<String, Object> data) {
         Weather weather = new Weather();
         weather.setTime(LocalDateTime.now());
+        if (data.get("station_id") != null) {
+            Long stationId = Long.valueOf(data.get("station_id").toString());
+            weather.setStation(stationRepository.findById(stationId)
+                .orElseThrow(() -> new IllegalArgumentException("station " + stationId + " not found")));
+        }
         
         if (data.containsKey("wind_speed")) {
             weather.setWind_speed(((Number) data.get("wind_speed")).doubleValue());
@@ -40,71 +78,131 @@ public class WeatherService {
         if (data.containsKey("precipitation")) {
             weather.setPrecipitation(((Number) data.get("precipitation")).doubleValue());
         }
-        
-        return weatherRepository.save(weather);
+
+        Weather saved = weatherRepository.save(weather);
+        WeatherReading reading = WeatherReading.fromEntity(saved);
+        weatherRollupService.record(List.of(reading));
+        windRoseService.record(List.of(reading));
+        afterCommit(() -> {
+            latestWeatherSnapshot.record(reading);
+            eventPublisher.publishEvent(ModelInputChanged.weather(reading.stationId()));
+        });
+        return saved;
+    }
+
+    /**
+     * Runs action once the current transaction commits, so caches and listeners never see a
+     * reading that was rolled back. Runs it now outside a transaction.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
     public Map<String, Object> getLatestWeather() {
-        Weather weather = weatherRepository.findAll().stream()
-            .max(Comparator.comparing(Weather::getTime))
-            .orElse(null);
+        return latestWeatherResponse(latestWeatherSnapshot.latest(), null);
+    }
+
+    /**
+     * Newest reading of one station, in the same shape as getLatestWeather plus station_id.
+     */
+    public Map<String, Object> getLatestWeather(Long stationId) {
+        return latestWeatherResponse(latestWeatherSnapshot.latest(stationId), stationId);
+    }
 
-        if (weather == null) {
-            return Map.of(
-                "timestamp", LocalDateTime.now().toString(),
-                "data", new HashMap<>()
-            );
+    private static Map<String, Object> latestWeatherResponse(Optional<WeatherReading> latest, Long stationId) {
+        Map<String, Object> response = new HashMap<>();
+        if (stationId != null) {
+            response.put("station_id", stationId);
+        }
+        if (latest.isEmpty()) {
+            response.put("timestamp", LocalDateTime.now().toString());
+            response.put("data", new HashMap<>());
+            return response;
         }
 
+        WeatherReading weather = latest.get();
         Map<String, Object> data = new HashMap<>();
-        data.put("wind_speed", weather.getWind_speed());
-        data.put("wind_direction", weather.getWind_direction());
-        data.put("temperature", weather.getTemperature());
-        data.put("humidity", weather.getHumidity());
-        data.put("pressure", weather.getPressure());
-        data.put("precipitation", weather.getPrecipitation());
-        data.put("stability_class", calculateStabilityClass(weather.getWind_speed(), weather.getTemperature()));
-
-        return Map.of(
-            "timestamp", weather.getTime().toString(),
-            "data", data
-        );
+        data.put("wind_speed", weather.windSpeed());
+        data.put("wind_direction", weather.windDirection());
+        data.put("temperature", weather.temperature());
+        data.put("humidity", weather.humidity());
+        data.put("pressure", weather.pressure());
+        data.put("precipitation", weather.precipitation());
+        data.put("stability_class", calculateStabilityClass(weather.windSpeed(), weather.temperature()));
+
+        response.put("timestamp", weather.time().toString());
+        response.put("data", data);
+        return response;
     }
 
+    /**
+     * Wind history covering [start, end]: the last record at or before start followed by
+     * every record inside the window. Empty when no weather has been stored for the period.
+     */
+    public Optional<WindSeries> getWindSeries(LocalDateTime start, LocalDateTime end) {
+        List<Weather> records = new ArrayList<>();
+        weatherRepository.findFirstByTimeLessThanEqualOrderByTimeDesc(start).ifPresent(records::add);
+        for (Weather weather : weatherRepository.findByTimeBetweenOrderByTimeAsc(start, end)) {
+            if (weather.getTime().isAfter(start)) {
+                records.add(weather);
+            }
+        }
+        if (records.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(WindSeries.fromWeather(records, start));
+    }
+
+    /**
+     * Current Open-Meteo weather near (lat, lon), served from OpenMeteoClient's per-cell cache;
+     * the defaults when Open-Meteo cannot be reached and nothing is cached.
+     */
     public Map<String, Object> getWeatherFromOpenMeteo(double lat, double lon) {
         try {
-            String url = String.format(
-                "https://api.open-meteo.com/v1/forecast?latitude=%.4f&longitude=%.4f&current=temperature_2m,relative_humidity_2m,pressure_msl,wind_speed_10m,wind_direction_10m&temperature_unit=fahrenheit&wind_speed_unit=mph&precipitation_unit=inch",
-                lat, lon
-            );
-            
-            Map<String, Object> response = restTemplate.getForObject(url, Map.class);
-            Map<String, Object> current = (Map<String, Object>) response.get("current");
-            
-            double windSpeedMph = ((Number) current.get("wind_speed_10m")).doubleValue();
-            double windDirection = ((Number) current.get("wind_direction_10m")).doubleValue();
-            double temperature = ((Number) current.get("temperature_2m")).doubleValue();
-            double humidity = ((Number) current.get("relative_humidity_2m")).doubleValue();
-            double pressure = ((Number) current.get("pressure_msl")).doubleValue() * 0.02953; // Convert hPa to inHg
-            
-            String stabilityClass = calculateStabilityClass(windSpeedMph, temperature);
-            
-            Map<String, Object> weatherData = new HashMap<>();
-            weatherData.put("wind_speed", windSpeedMph);
-            weatherData.put("wind_direction", windDirection);
-            weatherData.put("temperature", temperature);
-            weatherData.put("humidity", humidity);
-            weatherData.put("pressure", pressure);
-            weatherData.put("precipitation", 0.0);
-            weatherData.put("stability_class", stabilityClass);
-            
-            return weatherData;
+            return openMeteoClient.current(lat, lon);
         } catch (Exception e) {
-            System.err.println("Error fetching Open-Meteo data: " + e.getMessage());
+            log.warn("Error fetching Open-Meteo data for ({}, {}): {}", lat, lon, e.getMessage());
             return getDefaultWeather();
         }
     }
 
+    /**
+     * Current Open-Meteo weather for every station, fetched in parallel multi-location batches.
+     * Each item has the station's id, name and position plus either weather or error.
+     */
+    public List<Map<String, Object>> getCurrentWeatherForStations(List<Station> stations) {
+        List<double[]> points = new ArrayList<>(stations.size());
+        for (Station station : stations) {
+            points.add(new double[]{station.getLat(), station.getLon()});
+        }
+        List<OpenMeteoClient.PointWeather> weather = openMeteoClient.currentAll(points);
+        List<Map<String, Object>> results = new ArrayList<>(stations.size());
+        for (int i = 0; i < stations.size(); i++) {
+            Station station = stations.get(i);
+            Map<String, Object> item = new HashMap<>();
+            item.put("station_id", station.getId());
+            item.put("name", station.getName());
+            item.put("lat", station.getLat());
+            item.put("lon", station.getLon());
+            if (weather.get(i).weather() != null) {
+                item.put("weather", weather.get(i).weather());
+            } else {
+                item.put("error", weather.get(i).error());
+            }
+            results.add(item);
+        }
+        return results;
+    }
+
     public Map<String, Object> getWeatherFromNOAA(double lat, double lon) {
         // Fallback to default if NOAA API fails
         return getDefaultWeather();
@@ -122,7 +220,7 @@ public class WeatherService {
         return weather;
     }
 
-    private String calculateStabilityClass(double windSpeedMph, double temperature) {
+    static String calculateStabilityClass(double windSpeedMph, double temperature) {
         // Simplified Pasquill-Gifford stability classification
         // Based on wind speed and assuming daytime conditions
         
@@ -0,0 +1,106 @@
+package com.example.refactoredbackend.service;
+
+/**
+ * Spatially varying wind on a regular east/north lattice around a geographic origin.
+ *
+ * Each node holds the velocity the air moves with (east and north components in m/s, as in
+ * {@link WindSeries}) and a stability class index. Velocities between nodes are interpolated
+ * bilinearly, and points outside the lattice take the value at the nearest edge, so engines can
+ * look up the wind anywhere without further database access.
+ */
+public final class WindField {
+
+    private static final double MS_TO_MPH = 1 / 0.44704;
+
+    private final GeoFrame frame;
+    private final int nx;
+    private final int ny;
+    private final double x0;
+    private final double y0;
+    private final double resolution;
+    private final double[] east;
+    private final double[] north;
+    private final int[] stabilityIndex;
+    private final int stations;
+
+    WindField(GeoFrame frame, int nx, int ny, double x0, double y0, double resolution,
+              double[] east, double[] north, int[] stabilityIndex, int stations) {
+        this.frame = frame;
+        this.nx = nx;
+        this.ny = ny;
+        this.x0 = x0;
+        this.y0 = y0;
+        this.resolution = resolution;
+        this.east = east;
+        this.north = north;
+        this.stabilityIndex = stabilityIndex;
+        this.stations = stations;
+    }
+
+    /**
+     * Writes {east, north} in m/s at (x, y) metres from the origin into out.
+     */
+    public void velocityAt(double x, double y, double[] out) {
+        double fx = Math.max(0.0, Math.min(nx - 1, (x - x0) / resolution));
+        double fy = Math.max(0.0, Math.min(ny - 1, (y - y0) / resolution));
+        int i = Math.min((int) fx, Math.max(0, nx - 2));
+        int j = Math.min((int) fy, Math.max(0, ny - 2));
+        double tx = nx > 1 ? fx - i : 0.0;
+        double ty = ny > 1 ? fy - j : 0.0;
+        int i1 = Math.min(i + 1, nx - 1);
+        int j1 = Math.min(j + 1, ny - 1);
+        int a = j * nx + i;
+        int b = j * nx + i1;
+        int c = j1 * nx + i;
+        int d = j1 * nx + i1;
+        out[0] = (1 - ty) * ((1 - tx) * east[a] + tx * east[b]) + ty * ((1 - tx) * east[c] + tx * east[d]);
+        out[1] = (1 - ty) * ((1 - tx) * north[a] + tx * north[b]) + ty * ((1 - tx) * north[c] + tx * north[d]);
+    }
+
+    /** Stability index of the node nearest (x, y). */
+    public int stabilityIndexAt(double x, double y) {
+        int i = (int) Math.round(Math.max(0.0, Math.min(nx - 1, (x - x0) / resolution)));
+        int j = (int) Math.round(Math.max(0.0, Math.min(ny - 1, (y - y0) / resolution)));
+        return stabilityIndex[j * nx + i];
+    }
+
+    /** Wind speed in mph at node (i, j). */
+    public double speedAt(int i, int j) {
+        return Math.hypot(east[j * nx + i], north[j * nx + i]) * MS_TO_MPH;
+    }
+
+    /** Direction the wind blows from at node (i, j), in degrees [0, 360). */
+    public double directionAt(int i, int j) {
+        double degrees = Math.toDegrees(Math.atan2(-east[j * nx + i], -north[j * nx + i]));
+        return degrees < 0 ? degrees + 360 : degrees;
+    }
+
+    public GeoFrame getFrame() {
+        return frame;
+    }
+
+    public int getNx() {
+        return nx;
+    }
+
+    public int getNy() {
+        return ny;
+    }
+
+    public double getX0() {
+        return x0;
+    }
+
+    public double getY0() {
+        return y0;
+    }
+
+    public double getResolution() {
+        return resolution;
+    }
+
+    /** Number of stations the field was interpolated from. */
+    public int getStations() {
+        return stations;
+    }
+}
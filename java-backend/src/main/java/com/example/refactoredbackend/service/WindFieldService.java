@@ -0,0 +1,270 @@
+package com.example.refactoredbackend.service;
+
+import com.example.refactoredbackend.model.Station;
+import com.example.refactoredbackend.repository.StationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Wind fields interpolated from the latest reading of every station.
+ *
+ * Each lattice node takes the inverse-distance weighted mean of the wind vectors of its nearest
+ * stations within max-distance-km (the nearest stations at any distance when none is that
+ * close), and the stability class of the nearest one. Neighbours come from a
+ * {@link StationIndex} built once per set of readings. Stations and readings come from
+ * {@link LatestWeatherSnapshot}, and built fields are cached until a new reading or a station
+ * change arrives as a {@link ModelInputChanged} event. A full cache drops its least recently
+ * used field.
+ */
+@Service
+public class WindFieldService {
+
+    /** Upper bound on lattice nodes per field. */
+    public static final int MAX_NODES = 1_000_000;
+
+    /** Cell size of the station index. */
+    private static final double INDEX_CELL_METERS = 10_000.0;
+
+    /** Stations closer than this to a node give the node their own wind. */
+    private static final double COINCIDENT_METERS = 1.0;
+
+    private static final double MPH_TO_MS = 0.44704;
+
+    /** Latest reading of a station at a position; speed in mph, direction in degrees. */
+    record StationWind(double lat, double lon, double windSpeed, double windDirection, double temperature) {
+    }
+
+    private record Stations(GeoFrame frame, StationIndex index, double[] east, double[] north, int[] stability) {
+    }
+
+    private static final class Cached {
+        final WindField field;
+        volatile long lastAccess;
+
+        Cached(WindField field, long lastAccess) {
+            this.field = field;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private final Supplier<List<StationWind>> loader;
+    private final int neighbours;
+    private final double power;
+    private final double maxDistance;
+    private final int maxEntries;
+
+    private volatile Stations stations;
+    private final ConcurrentHashMap<String, Cached> fields = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong accesses = new AtomicLong();
+    private final LongAdder builds = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    @Autowired
+    public WindFieldService(StationRepository stationRepository, LatestWeatherSnapshot latestWeatherSnapshot,
+                            @Value("${weather.wind-field.neighbours:8}") int neighbours,
+                            @Value("${weather.wind-field.power:2.0}") double power,
+                            @Value("${weather.wind-field.max-distance-km:100}") double maxDistanceKm,
+                            @Value("${weather.wind-field.max-entries:16}") int maxEntries) {
+        this(() -> {
+            List<StationWind> winds = new ArrayList<>();
+            for (Station station : stationRepository.findAll()) {
+                latestWeatherSnapshot.latest(station.getId()).ifPresent(reading -> winds.add(new StationWind(
+                    station.getLat(), station.getLon(), reading.windSpeed(), reading.windDirection(),
+                    reading.temperature())));
+            }
+            return winds;
+        }, neighbours, power, maxDistanceKm, maxEntries);
+    }
+
+    WindFieldService(Supplier<List<StationWind>> loader, int neighbours, double power, double maxDistanceKm,
+                     int maxEntries) {
+        if (neighbours < 1 || !(power > 0) || !(maxDistanceKm > 0) || maxEntries < 1) {
+            throw new IllegalArgumentException("wind field neighbours, power, distance and cache size must be positive");
+        }
+        this.loader = loader;
+        this.neighbours = neighbours;
+        this.power = power;
+        this.maxDistance = maxDistanceKm * 1000;
+        this.maxEntries = maxEntries;
+    }
+
+    @EventListener
+    public void onInputChanged(ModelInputChanged change) {
+        if (change.isStationWeather() || ModelInputChanged.STATIONS.equals(change.getKey())
+            || ModelInputChanged.ANY_WEATHER.equals(change.getKey())) {
+            invalidate();
+        }
+    }
+
+    /** Drops the station index and every cached field. */
+    void invalidate() {
+        generation.incrementAndGet();
+        stations = null;
+        fields.clear();
+        invalidations.increment();
+    }
+
+    /**
+     * Field on a square lattice of nodes spaced resolution metres apart, extending extent
+     * metres from (lat, lon) in every direction. Empty when no station has a reading.
+     */
+    public Optional<WindField> field(double lat, double lon, double extent, double resolution) {
+        if (!(resolution > 0) || !(extent >= 0)) {
+            throw new IllegalArgumentException("resolution must be positive and extent non-negative");
+        }
+        long side = 2 * (long) Math.floor(extent / resolution) + 1;
+        if (side * side > MAX_NODES) {
+            throw new IllegalArgumentException("wind field of " + side + "x" + side + " nodes exceeds the limit of "
+                + MAX_NODES);
+        }
+        GeoFrame frame = new GeoFrame(lat, lon);
+        String key = String.format(Locale.ROOT, "%.5f|%.5f|%s|%s", lat, lon, extent, resolution);
+        Cached cached = fields.get(key);
+        if (cached != null) {
+            cached.lastAccess = accesses.incrementAndGet();
+            hits.increment();
+            return Optional.of(cached.field);
+        }
+
+        long built = generation.get();
+        Stations current = stations();
+        if (current == null) {
+            return Optional.empty();
+        }
+        WindField field = interpolate(current, frame, (int) side, resolution);
+        builds.increment();
+        // A field built from readings that changed meanwhile is returned but not kept
+        if (generation.get() == built) {
+            if (fields.size() >= maxEntries) {
+                evictLeastRecentlyUsed();
+            }
+            Cached entry = new Cached(field, accesses.incrementAndGet());
+            fields.put(key, entry);
+            if (generation.get() != built) {
+                fields.remove(key, entry);
+            }
+        }
+        return Optional.of(field);
+    }
+
+    /** The cache holds a handful of fields, so a scan per eviction is cheap. */
+    private void evictLeastRecentlyUsed() {
+        Map.Entry<String, Cached> oldest = null;
+        for (Map.Entry<String, Cached> entry : fields.entrySet()) {
+            if (oldest == null || entry.getValue().lastAccess < oldest.getValue().lastAccess) {
+                oldest = entry;
+            }
+        }
+        if (oldest != null) {
+            fields.remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+
+    private Stations stations() {
+        Stations current = stations;
+        if (current != null) {
+            return current;
+        }
+        long built = generation.get();
+        List<StationWind> winds = loader.get();
+        if (winds.isEmpty()) {
+            return null;
+        }
+        double latSum = 0.0;
+        double lonSum = 0.0;
+        for (StationWind wind : winds) {
+            latSum += wind.lat();
+            lonSum += wind.lon();
+        }
+        GeoFrame frame = new GeoFrame(latSum / winds.size(), lonSum / winds.size());
+        int n = winds.size();
+        double[] x = new double[n];
+        double[] y = new double[n];
+        double[] east = new double[n];
+        double[] north = new double[n];
+        int[] stability = new int[n];
+        for (int i = 0; i < n; i++) {
+            StationWind wind = winds.get(i);
+            x[i] = frame.east(wind.lon());
+            y[i] = frame.north(wind.lat());
+            double speed = wind.windSpeed() * MPH_TO_MS;
+            double toward = Math.toRadians(wind.windDirection() + 180.0);
+            east[i] = speed * Math.sin(toward);
+            north[i] = speed * Math.cos(toward);
+            stability[i] = DispersionService.stabilityIndex(
+                WeatherService.calculateStabilityClass(wind.windSpeed(), wind.temperature()));
+        }
+        current = new Stations(frame, new StationIndex(x, y, INDEX_CELL_METERS), east, north, stability);
+        if (generation.get() == built) {
+            stations = current;
+        }
+        return current;
+    }
+
+    private WindField interpolate(Stations source, GeoFrame frame, int side, double resolution) {
+        double origin = -(side - 1) / 2 * resolution;
+        double[] east = new double[side * side];
+        double[] north = new double[side * side];
+        int[] stability = new int[side * side];
+        int k = Math.min(neighbours, source.index().size());
+        IntStream.range(0, side).parallel().forEach(j -> {
+            int[] nearest = new int[k];
+            double[] distancesSq = new double[k];
+            for (int i = 0; i < side; i++) {
+                // Node position in the station frame
+                double x = source.frame().east(frame.lon(origin + i * resolution));
+                double y = source.frame().north(frame.lat(origin + j * resolution));
+                int found = source.index().nearest(x, y, k, maxDistance, nearest, distancesSq);
+                if (found == 0) {
+                    found = source.index().nearest(x, y, k, Double.POSITIVE_INFINITY, nearest, distancesSq);
+                }
+                int node = j * side + i;
+                stability[node] = source.stability()[nearest[0]];
+                if (distancesSq[0] < COINCIDENT_METERS * COINCIDENT_METERS) {
+                    east[node] = source.east()[nearest[0]];
+                    north[node] = source.north()[nearest[0]];
+                    continue;
+                }
+                double weightSum = 0.0;
+                double e = 0.0;
+                double n = 0.0;
+                for (int s = 0; s < found; s++) {
+                    double weight = Math.pow(distancesSq[s], -power / 2);
+                    weightSum += weight;
+                    e += weight * source.east()[nearest[s]];
+                    n += weight * source.north()[nearest[s]];
+                }
+                east[node] = e / weightSum;
+                north[node] = n / weightSum;
+            }
+        });
+        return new WindField(frame, side, side, origin, origin, resolution, east, north, stability,
+            source.index().size());
+    }
+
+    public Map<String, Object> stats() {
+        Stations current = stations;
+        return Map.of(
+            "stations", current != null ? current.index().size() : 0,
+            "cached_fields", fields.size(),
+            "builds", builds.sum(),
+            "hits", hits.sum(),
+            "invalidations", invalidations.sum()
+        );
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.refactoredbackend.service;
+
+/**
+ * Wind-rose histogram: reading counts per direction sector and speed bin.
+ *
+ * Sixteen 22.5° sectors are centred on north, east, south and west. Speed bins are bounded by
+ * {@link #SPEED_BIN_EDGES} in mph, and the first bin counts calm readings. Histograms of
+ * different stations or time buckets merge by adding their counts, so a rose over any window
+ * is the sum of the stored hourly and daily histogram cells that cover it.
+ */
+public final class WindRose {
+
+    public static final int SECTORS = 16;
+
+    /** Lower edges (mph) of every speed bin after the calm bin. */
+    static final double[] SPEED_BIN_EDGES = {1, 4, 8, 13, 19, 25};
+
+    public static final int SPEED_BINS = SPEED_BIN_EDGES.length + 1;
+
+    private static final double SECTOR_WIDTH = 360.0 / SECTORS;
+
+    private final long[] counts = new long[SECTORS * SPEED_BINS];
+
+    /** Sector of a direction in degrees; sector 0 is centred on north. */
+    static int sector(double windDirection) {
+        double degrees = ((windDirection % 360) + 360) % 360;
+        return (int) Math.floor((degrees + SECTOR_WIDTH / 2) / SECTOR_WIDTH) % SECTORS;
+    }
+
+    static int speedBin(double windSpeed) {
+        int bin = 0;
+        while (bin < SPEED_BIN_EDGES.length && windSpeed >= SPEED_BIN_EDGES[bin]) {
+            bin++;
+        }
+        return bin;
+    }
+
+    void add(int sector, int speedBin, long samples) {
+        counts[sector * SPEED_BINS + speedBin] += samples;
+    }
+
+    public long count(int sector, int speedBin) {
+        return counts[sector * SPEED_BINS + speedBin];
+    }
+
+    /** Counts of one sector, by speed bin. */
+    public long[] sector(int sector) {
+        long[] row = new long[SPEED_BINS];
+        System.arraycopy(counts, sector * SPEED_BINS, row, 0, SPEED_BINS);
+        return row;
+    }
+
+    public long calm() {
+        long calm = 0;
+        for (int s = 0; s < SECTORS; s++) {
+            calm += count(s, 0);
+        }
+        return calm;
+    }
+
+    public long total() {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /** Centre of a sector in degrees. */
+    public static double sectorDirection(int sector) {
+        return sector * SECTOR_WIDTH;
+    }
+
+    /** Lower and upper edge (mph) of a speed bin; the last bin's upper edge is infinite. */
+    public static double[] speedBinRange(int speedBin) {
+        double lower = speedBin == 0 ? 0.0 : SPEED_BIN_EDGES[speedBin - 1];
+        double upper = speedBin < SPEED_BIN_EDGES.length ? SPEED_BIN_EDGES[speedBin] : Double.POSITIVE_INFINITY;
+        return new double[]{lower, upper};
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.refactoredbackend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wind-rose histograms per station, kept hourly and daily (tables weather_wind_rose_hourly and
+ * weather_wind_rose_daily, one row per non-empty sector and speed bin).
+ *
+ * New readings are binned in memory and added to the stored counts with upserts, in the same
+ * transaction as the readings themselves. A rose over a window reads the daily histograms for
+ * the whole days in it and the hourly ones for the partial days at either end, so a one-year
+ * rose sums a few hundred rows per sector instead of scanning every reading.
+ */
+@Service
+public class WindRoseService {
+
+    static final String HOURLY_TABLE = "weather_wind_rose_hourly";
+    static final String DAILY_TABLE = "weather_wind_rose_daily";
+
+    /** Part of a query window served from one histogram table, as [from, to) bucket starts. */
+    record Span(String table, LocalDateTime from, LocalDateTime to) {
+    }
+
+    record Cell(long stationId, LocalDateTime bucket, int sector, int speedBin) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public WindRoseService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Adds the readings to the hourly and daily histograms. */
+    public void record(List<WeatherReading> readings) {
+        if (readings.isEmpty()) {
+            return;
+        }
+        upsert(HOURLY_TABLE, count(readings, ChronoUnit.HOURS));
+        upsert(DAILY_TABLE, count(readings, ChronoUnit.DAYS));
+    }
+
+    private void upsert(String table, Map<Cell, Long> cells) {
+        List<Map.Entry<Cell, Long>> rows = new ArrayList<>(cells.entrySet());
+        jdbcTemplate.batchUpdate("INSERT INTO " + table + " (station_id, bucket, sector, speed_bin, samples) "
+            + "VALUES (?, ?, ?, ?, ?) ON CONFLICT (station_id, bucket, sector, speed_bin) "
+            + "DO UPDATE SET samples = " + table + ".samples + EXCLUDED.samples",
+            rows, rows.size(), (statement, row) -> {
+                statement.setLong(1, row.getKey().stationId());
+                statement.setTimestamp(2, Timestamp.valueOf(row.getKey().bucket()));
+                statement.setInt(3, row.getKey().sector());
+                statement.setInt(4, row.getKey().speedBin());
+                statement.setLong(5, row.getValue());
+            });
+    }
+
+    /** Readings per station, bucket, sector and speed bin; station 0 for readings without a station. */
+    static Map<Cell, Long> count(List<WeatherReading> readings, ChronoUnit unit) {
+        Map<Cell, Long> cells = new LinkedHashMap<>();
+        for (WeatherReading reading : readings) {
+            if (!Double.isFinite(reading.windSpeed()) || !Double.isFinite(reading.windDirection())) {
+                continue;
+            }
+            Cell cell = new Cell(reading.stationId() != null ? reading.stationId() : 0L,
+                reading.time().truncatedTo(unit), WindRose.sector(reading.windDirection()),
+                WindRose.speedBin(reading.windSpeed()));
+            cells.merge(cell, 1L, Long::sum);
+        }
+        return cells;
+    }
+
+    /**
+     * Splits [start, end) at hour resolution into daily buckets for the whole days and hourly
+     * buckets for the rest.
+     */
+    static List<Span> spans(LocalDateTime start, LocalDateTime end) {
+        LocalDateTime from = start.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime firstDay = from.truncatedTo(ChronoUnit.DAYS).equals(from)
+            ? from
+            : from.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+        LocalDateTime lastDay = end.truncatedTo(ChronoUnit.DAYS);
+        List<Span> spans = new ArrayList<>();
+        if (!firstDay.isBefore(lastDay)) {
+            spans.add(new Span(HOURLY_TABLE, from, end));
+            return spans;
+        }
+        if (from.isBefore(firstDay)) {
+            spans.add(new Span(HOURLY_TABLE, from, firstDay));
+        }
+        spans.add(new Span(DAILY_TABLE, firstDay, lastDay));
+        if (lastDay.isBefore(end)) {
+            spans.add(new Span(HOURLY_TABLE, lastDay, end));
+        }
+        return spans;
+    }
+
+    /** Wind rose between start and end, for one station or, without a station id, all of them. */
+    public WindRose query(Long stationId, LocalDateTime start, LocalDateTime end) {
+        List<String> parts = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        for (Span span : spans(start, end)) {
+            parts.add("SELECT sector, speed_bin, samples FROM " + span.table() + " WHERE bucket >= ? AND bucket < ?"
+                + (stationId != null ? " AND station_id = ?" : ""));
+            args.add(Timestamp.valueOf(span.from()));
+            args.add(Timestamp.valueOf(span.to()));
+            if (stationId != null) {
+                args.add(stationId);
+            }
+        }
+        WindRose rose = new WindRose();
+        jdbcTemplate.query("SELECT sector, speed_bin, SUM(samples) FROM (" + String.join(" UNION ALL ", parts)
+            + ") cells GROUP BY sector, speed_bin",
+            (RowCallbackHandler) rs -> rose.add(rs.getInt(1), rs.getInt(2), rs.getLong(3)), args.toArray());
+        return rose;
+    }
+}
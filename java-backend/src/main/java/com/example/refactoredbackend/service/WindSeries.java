@@ -0,0 +1,121 @@
+package com.example.refactoredbackend.service;
+
+import com.example.refactoredbackend.model.Weather;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wind history for a simulation as primitive arrays, indexed by seconds from the start.
+ *
+ * Speed and direction are converted to east/north components so that interpolating between
+ * records turns the wind smoothly instead of averaging angles. Stability holds from one
+ * record to the next.
+ */
+public final class WindSeries {
+
+    private static final double MPH_TO_MS = 0.44704;
+
+    private final double[] times;
+    private final double[] east;
+    private final double[] north;
+    private final int[] stabilityIndex;
+
+    private WindSeries(double[] times, double[] east, double[] north, int[] stabilityIndex) {
+        this.times = times;
+        this.east = east;
+        this.north = north;
+        this.stabilityIndex = stabilityIndex;
+    }
+
+    /**
+     * Constant wind. Speed is in mph and direction is where the wind blows from, in degrees,
+     * as in the rest of the API.
+     */
+    public static WindSeries constant(double windSpeedMph, double windDirection, String stabilityClass) {
+        double[] components = components(windSpeedMph, windDirection);
+        return new WindSeries(new double[]{0.0}, new double[]{components[0]}, new double[]{components[1]},
+            new int[]{DispersionService.stabilityIndex(stabilityClass)});
+    }
+
+    /**
+     * Constant wind from the wind_speed, wind_direction and stability_class request keys.
+     */
+    public static WindSeries fromParams(Map<String, Object> params) {
+        return constant(
+            DispersionService.getDoubleParam(params, "wind_speed", 5.0),
+            DispersionService.getDoubleParam(params, "wind_direction", 270.0),
+            DispersionService.getStringParam(params, "stability_class", "D"));
+    }
+
+    /**
+     * Series from weather records in time order. Records before start are clamped to t = 0.
+     */
+    public static WindSeries fromWeather(List<Weather> records, LocalDateTime start) {
+        if (records.isEmpty()) {
+            throw new IllegalArgumentException("at least one weather record is required");
+        }
+        int n = records.size();
+        double[] times = new double[n];
+        double[] east = new double[n];
+        double[] north = new double[n];
+        int[] stability = new int[n];
+        for (int i = 0; i < n; i++) {
+            Weather weather = records.get(i);
+            times[i] = Math.max(0.0, Duration.between(start, weather.getTime()).toMillis() / 1000.0);
+            double[] components = components(weather.getWind_speed(), weather.getWind_direction());
+            east[i] = components[0];
+            north[i] = components[1];
+            stability[i] = DispersionService.stabilityIndex(
+                WeatherService.calculateStabilityClass(weather.getWind_speed(), weather.getTemperature()));
+        }
+        return new WindSeries(times, east, north, stability);
+    }
+
+    /**
+     * Velocity the air moves with, in m/s: a wind from 270° carries puffs towards +east.
+     */
+    private static double[] components(double windSpeedMph, double windDirection) {
+        double speed = windSpeedMph * MPH_TO_MS;
+        double toward = Math.toRadians(windDirection + 180.0);
+        return new double[]{speed * Math.sin(toward), speed * Math.cos(toward)};
+    }
+
+    /**
+     * Index of the last record at or before t, or 0 when t precedes the series.
+     */
+    int indexAt(double t, int hint) {
+        int i = Math.max(0, Math.min(hint, times.length - 1));
+        while (i > 0 && times[i] > t) {
+            i--;
+        }
+        while (i + 1 < times.length && times[i + 1] <= t) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Writes {east, north} in m/s at time t into out, interpolating after record i.
+     */
+    void velocityAt(double t, int i, double[] out) {
+        if (i + 1 >= times.length || t <= times[i]) {
+            out[0] = east[i];
+            out[1] = north[i];
+            return;
+        }
+        double fraction = (t - times[i]) / (times[i + 1] - times[i]);
+        out[0] = east[i] + fraction * (east[i + 1] - east[i]);
+        out[1] = north[i] + fraction * (north[i + 1] - north[i]);
+    }
+
+    int stabilityIndexAt(int i) {
+        return stabilityIndex[i];
+    }
+
+    public int size() {
+        return times.length;
+    }
+}
@@ -0,0 +1,3 @@
+-- Newest-reading lookups (ORDER BY time DESC LIMIT 1), overall and per station
+CREATE INDEX IF NOT EXISTS idx_weather_time ON weather (time DESC);
+CREATE INDEX IF NOT EXISTS idx_weather_station_time ON weather (station_id, time DESC);
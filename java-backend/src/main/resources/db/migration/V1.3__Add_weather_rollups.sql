@@ -0,0 +1,46 @@
+-- Hourly and daily weather aggregates per station, kept up to date as readings are written.
+-- station_id 0 holds readings that are not tied to a station. Means are sums over samples;
+-- wind direction is averaged from the sums of its unit vector components.
+CREATE TABLE IF NOT EXISTS weather_hourly (
+    station_id BIGINT NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    samples BIGINT NOT NULL,
+    wind_speed_min DOUBLE PRECISION,
+    wind_speed_max DOUBLE PRECISION,
+    wind_speed_sum DOUBLE PRECISION,
+    wind_dir_x_sum DOUBLE PRECISION,
+    wind_dir_y_sum DOUBLE PRECISION,
+    temperature_min DOUBLE PRECISION,
+    temperature_max DOUBLE PRECISION,
+    temperature_sum DOUBLE PRECISION,
+    humidity_sum DOUBLE PRECISION,
+    pressure_sum DOUBLE PRECISION,
+    precipitation_sum DOUBLE PRECISION,
+    PRIMARY KEY (station_id, bucket)
+);
+
+CREATE TABLE IF NOT EXISTS weather_daily (LIKE weather_hourly INCLUDING ALL);
+
+CREATE INDEX IF NOT EXISTS idx_weather_hourly_bucket ON weather_hourly (bucket);
+CREATE INDEX IF NOT EXISTS idx_weather_daily_bucket ON weather_daily (bucket);
+
+-- Roll up the readings stored so far
+INSERT INTO weather_hourly
+SELECT COALESCE(station_id, 0), date_trunc('hour', time), COUNT(*),
+       MIN(wind_speed), MAX(wind_speed), SUM(wind_speed),
+       SUM(SIN(RADIANS(wind_direction))), SUM(COS(RADIANS(wind_direction))),
+       MIN(temperature), MAX(temperature), SUM(temperature),
+       SUM(humidity), SUM(pressure), SUM(precipitation)
+FROM weather
+GROUP BY 1, 2
+ON CONFLICT DO NOTHING;
+
+INSERT INTO weather_daily
+SELECT COALESCE(station_id, 0), date_trunc('day', time), COUNT(*),
+       MIN(wind_speed), MAX(wind_speed), SUM(wind_speed),
+       SUM(SIN(RADIANS(wind_direction))), SUM(COS(RADIANS(wind_direction))),
+       MIN(temperature), MAX(temperature), SUM(temperature),
+       SUM(humidity), SUM(pressure), SUM(precipitation)
+FROM weather
+GROUP BY 1, 2
+ON CONFLICT DO NOTHING;
@@ -0,0 +1,46 @@
+-- Wind-rose counts per station, time bucket, direction sector and speed bin (see WindRose).
+-- Sector 0 is centred on north and sectors are 22.5 degrees wide; speed bins start at
+-- 0 (calm), 1, 4, 8, 13, 19 and 25 mph. station_id 0 holds readings without a station.
+CREATE TABLE IF NOT EXISTS weather_wind_rose_hourly (
+    station_id BIGINT NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    sector SMALLINT NOT NULL,
+    speed_bin SMALLINT NOT NULL,
+    samples BIGINT NOT NULL,
+    PRIMARY KEY (station_id, bucket, sector, speed_bin)
+);
+
+CREATE TABLE IF NOT EXISTS weather_wind_rose_daily (LIKE weather_wind_rose_hourly INCLUDING ALL);
+
+CREATE INDEX IF NOT EXISTS idx_weather_wind_rose_hourly_bucket ON weather_wind_rose_hourly (bucket);
+CREATE INDEX IF NOT EXISTS idx_weather_wind_rose_daily_bucket ON weather_wind_rose_daily (bucket);
+
+-- Count the readings stored so far
+CREATE TEMPORARY TABLE wind_rose_backfill AS
+SELECT COALESCE(station_id, 0) AS station_id, time,
+       (FLOOR((((wind_direction::numeric % 360) + 360) % 360 + 11.25) / 22.5)::int % 16) AS sector,
+       CASE
+           WHEN wind_speed < 1 THEN 0
+           WHEN wind_speed < 4 THEN 1
+           WHEN wind_speed < 8 THEN 2
+           WHEN wind_speed < 13 THEN 3
+           WHEN wind_speed < 19 THEN 4
+           WHEN wind_speed < 25 THEN 5
+           ELSE 6
+       END AS speed_bin
+FROM weather
+WHERE wind_speed IS NOT NULL AND wind_direction IS NOT NULL;
+
+INSERT INTO weather_wind_rose_hourly
+SELECT station_id, date_trunc('hour', time), sector, speed_bin, COUNT(*)
+FROM wind_rose_backfill
+GROUP BY 1, 2, 3, 4
+ON CONFLICT DO NOTHING;
+
+INSERT INTO weather_wind_rose_daily
+SELECT station_id, date_trunc('day', time), sector, speed_bin, COUNT(*)
+FROM wind_rose_backfill
+GROUP BY 1, 2, 3, 4
+ON CONFLICT DO NOTHING;
+
+DROP TABLE wind_rose_backfill;
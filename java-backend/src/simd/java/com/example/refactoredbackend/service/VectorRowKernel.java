@@ -0,0 +1,53 @@
+package com.example.refactoredbackend.service;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Row loop on the incubating Vector API: the exp and multiply run a full SIMD register of
+ * cells at a time, and the row maximum is a lane-wise max reduced once per row. Only compiled
+ * with the simd profile, and only loaded (by {@link RowKernels}) when the JVM was started with
+ * --add-modules jdk.incubator.vector.
+ */
+final class VectorRowKernel implements RowKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public int fill(double[] factor, double[] k, int offset, double ySquared, double[] out, int outOffset, int length) {
+        int upper = SPECIES.loopBound(length);
+        DoubleVector lanesMax = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (; i < upper; i += SPECIES.length()) {
+            DoubleVector f = DoubleVector.fromArray(SPECIES, factor, offset + i);
+            DoubleVector c = DoubleVector.fromArray(SPECIES, k, offset + i)
+                .mul(-ySquared)
+                .lanewise(VectorOperators.EXP)
+                .mul(f);
+            c.intoArray(out, outOffset + i);
+            lanesMax = lanesMax.max(c);
+        }
+        double max = lanesMax.reduceLanes(VectorOperators.MAX);
+        for (; i < length; i++) {
+            double f = factor[offset + i];
+            double c = f > 0 ? f * Math.exp(-ySquared * k[offset + i]) : 0.0;
+            out[outOffset + i] = c;
+            max = Math.max(max, c);
+        }
+        if (!(max > 0)) {
+            return -1;
+        }
+        for (int j = 0; j < length; j++) {
+            if (out[outOffset + j] == max) {
+                return j;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String name() {
+        return RowKernels.SIMD;
+    }
+}
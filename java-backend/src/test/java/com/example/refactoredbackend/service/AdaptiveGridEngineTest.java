@@ -0,0 +1,106 @@
+package com.example.refactoredbackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveGridEngineTest {
+
+    private final AdaptiveGridEngine engine = new AdaptiveGridEngine();
+
+    @Test
+    public void testMatchesDenseGridWithFewerEvaluations() {
+        DispersionScenario scenario = new DispersionScenario(DispersionScenario.PLUME, 10.0, 20.0, 5.0, 60.0, "D", 64.0);
+        double[] levels = {50.0, 500.0};
+        AdaptiveGridSpec spec = new AdaptiveGridSpec(10.0, 5000.0, 1000.0, 1.5, 6, 0.05, 1e-3, levels);
+        AdaptiveGrid grid = engine.compute(scenario, spec);
+
+        // Leaves tile the root cells exactly
+        double area = 0.0;
+        for (int c = 0; c < grid.getCellCount(); c++) {
+            area += grid.sizeAt(c) * grid.sizeAt(c);
+        }
+        double rootArea = spec.getRootsX() * spec.getRootsY() * spec.getRootSize() * spec.getRootSize();
+        assertEquals(rootArea, area, 1e-6 * rootArea);
+
+        // Every fine cell inside a leaf is close to the leaf's value
+        double peak = 0.0;
+        double worst = 0.0;
+        double res = spec.getResolution();
+        for (int c = 0; c < grid.getCellCount(); c++) {
+            double size = grid.sizeAt(c);
+            double left = grid.xAt(c) - size / 2;
+            double bottom = grid.yAt(c) - size / 2;
+            int n = (int) Math.round(size / res);
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    double fine = scenario.concentrationAt(left + (i + 0.5) * res, bottom + (j + 0.5) * res, 1.5);
+                    peak = Math.max(peak, fine);
+                    if (n > 1) {
+                        worst = Math.max(worst, Math.abs(fine - grid.valueAt(c)));
+                    }
+                }
+            }
+        }
+        assertEquals(peak, grid.getMaxValue(), 1e-9 * peak);
+        assertTrue(worst <= 0.05 * peak, "coarse leaves deviate by " + worst + " of peak " + peak);
+
+        // Every model call is counted: one per column of the shared table, one per root corner,
+        // one per cell centre and four edge midpoints per split (each split adds three leaves)
+        long roots = (long) spec.getRootsX() * spec.getRootsY();
+        long columns = 2L * spec.getRootsX() * (1 << spec.getMaxDepth()) + 1;
+        long corners = (long) (spec.getRootsX() + 1) * (spec.getRootsY() + 1);
+        long splits = (grid.getCellCount() - roots) / 3;
+        assertEquals(columns + corners + grid.getCellCount() + 5 * splits, grid.getEvaluations());
+        assertTrue(grid.getEvaluations() < spec.denseCellCount() / 10,
+            grid.getEvaluations() + " evaluations for " + spec.denseCellCount() + " dense cells");
+    }
+
+    @Test
+    public void testLevelBoundariesAreResolvedToFinestCells() {
+        DispersionScenario scenario = new DispersionScenario(DispersionScenario.PLUME, 10.0, 0.0, 5.0, 60.0, "D", 64.0);
+        double level = 100.0;
+        AdaptiveGridSpec spec = new AdaptiveGridSpec(5.0, 2000.0, 400.0, 1.5, 5, 0.5, 1e-3, new double[]{level});
+        AdaptiveGrid grid = engine.compute(scenario, spec);
+
+        for (int c = 0; c < grid.getCellCount(); c++) {
+            double size = grid.sizeAt(c);
+            if (size == spec.getResolution()) {
+                continue;
+            }
+            double half = size / 2;
+            double[] corners = {
+                scenario.concentrationAt(grid.xAt(c) - half, grid.yAt(c) - half, 1.5),
+                scenario.concentrationAt(grid.xAt(c) + half, grid.yAt(c) - half, 1.5),
+                scenario.concentrationAt(grid.xAt(c) - half, grid.yAt(c) + half, 1.5),
+                scenario.concentrationAt(grid.xAt(c) + half, grid.yAt(c) + half, 1.5),
+                grid.valueAt(c)
+            };
+            boolean above = corners[0] >= level;
+            for (double value : corners) {
+                assertEquals(above, value >= level, "coarse cell straddles the level at " + grid.xAt(c) + ", " + grid.yAt(c));
+            }
+        }
+    }
+
+    @Test
+    public void testRejectsOversizedGrids() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new AdaptiveGridSpec(1.0, 100_000.0, 50_000.0, 1.5, 5, 0.05, 1e-3, new double[0]));
+    }
+
+    @Test
+    public void testReportsRootCellsAndStopsWhenCancelled() {
+        DispersionScenario scenario = new DispersionScenario(DispersionScenario.PLUME, 10.0, 20.0, 5.0, 60.0, "D", 64.0);
+        AdaptiveGridSpec spec = new AdaptiveGridSpec(10.0, 5000.0, 1000.0, 1.5, 6, 0.05, 1e-3, new double[0]);
+        ModelJob job = new ModelJob("adaptive", "run-adaptive");
+        engine.compute(scenario, spec, job);
+        assertEquals(1.0, job.getProgress(), 1e-12);
+
+        ModelJob cancelled = new ModelJob("cancelled", "run-adaptive");
+        cancelled.requestCancel();
+        assertThrows(CancellationException.class, () -> engine.compute(scenario, spec, cancelled));
+    }
+}
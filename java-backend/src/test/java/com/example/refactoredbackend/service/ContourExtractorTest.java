@@ -0,0 +1,85 @@
+package com.example.refactoredbackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContourExtractorTest {
+
+    @Test
+    public void testCircularFieldGivesOneCounterClockwiseRing() {
+        GridSpec spec = new GridSpec(1.0, 200.0, 100.0, new double[]{1.5});
+        ConcentrationField field = radialField(spec, 100.0, 0.0);
+
+        // value = 1000 / (1 + r²/400) crosses 500 at r = 20
+        List<double[]> rings = ContourExtractor.rings(field, 0, 500.0);
+
+        assertEquals(1, rings.size());
+        double[] ring = rings.get(0);
+        assertEquals(ring[0], ring[ring.length - 2]);
+        assertEquals(ring[1], ring[ring.length - 1]);
+        for (int p = 0; p < ring.length; p += 2) {
+            double r = Math.hypot(ring[p] - 100.0, ring[p + 1]);
+            assertEquals(20.0, r, 0.1);
+        }
+        assertEquals(Math.PI * 400.0, signedArea(ring), Math.PI * 400.0 * 0.01);
+    }
+
+    @Test
+    public void testLevelsAreContouredIndependentlyAndRingsCloseAtGridEdge() {
+        GridSpec spec = new GridSpec(2.0, 200.0, 50.0, new double[]{1.5});
+        double[] values = new double[(int) spec.cellCount()];
+        for (int iy = 0; iy < spec.getNy(); iy++) {
+            for (int ix = 0; ix < spec.getNx(); ix++) {
+                double x = spec.xAt(ix);
+                double y = spec.yAt(iy);
+                // Two separate blobs, the second one cut by the downwind edge of the grid
+                values[iy * spec.getNx() + ix] = 100.0 * Math.exp(-((x - 50) * (x - 50) + y * y) / 200.0)
+                    + 100.0 * Math.exp(-((x - 200) * (x - 200) + y * y) / 200.0);
+            }
+        }
+        ConcentrationField field = new ConcentrationField(spec, values, 100.0, 0);
+
+        List<List<double[]>> contours = ContourExtractor.rings(field, 0, new double[]{10.0, 1000.0});
+
+        assertEquals(2, contours.size());
+        assertEquals(2, contours.get(0).size());
+        assertTrue(contours.get(1).isEmpty());
+        for (double[] ring : contours.get(0)) {
+            assertTrue(signedArea(ring) > 0);
+        }
+    }
+
+    @Test
+    public void testRejectsNonPositiveLevel() {
+        GridSpec spec = new GridSpec(1.0, 10.0, 5.0, new double[]{1.5});
+        ConcentrationField field = radialField(spec, 5.0, 0.0);
+        assertThrows(IllegalArgumentException.class, () -> ContourExtractor.rings(field, 0, 0.0));
+        double[] tooMany = new double[ContourExtractor.MAX_LEVELS + 1];
+        Arrays.fill(tooMany, 1.0);
+        assertThrows(IllegalArgumentException.class, () -> ContourExtractor.rings(field, 0, tooMany));
+    }
+
+    private static ConcentrationField radialField(GridSpec spec, double cx, double cy) {
+        double[] values = new double[(int) spec.cellCount()];
+        for (int iy = 0; iy < spec.getNy(); iy++) {
+            for (int ix = 0; ix < spec.getNx(); ix++) {
+                double dx = spec.xAt(ix) - cx;
+                double dy = spec.yAt(iy) - cy;
+                values[iy * spec.getNx() + ix] = 1000.0 / (1 + (dx * dx + dy * dy) / 400.0);
+            }
+        }
+        return new ConcentrationField(spec, values, 1000.0, 0);
+    }
+
+    private static double signedArea(double[] ring) {
+        double area = 0.0;
+        for (int p = 0; p + 3 < ring.length; p += 2) {
+            area += ring[p] * ring[p + 3] - ring[p + 2] * ring[p + 1];
+        }
+        return area / 2;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.refactoredbackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DispersionServiceTest {
+
+    private final DispersionService dispersionService = new DispersionService();
+
+    @Test
+    public void testBatchMatchesSinglePointModels() {
+        double[][] receptors = new double[10_000][];
+        for (int i = 0; i < receptors.length; i++) {
+            receptors[i] = i % 2 == 0
+                ? new double[]{10 + i * 0.5, (i % 41) - 20.0}
+                : new double[]{10 + i * 0.5, (i % 41) - 20.0, 5.0};
+        }
+
+        for (String modelType : List.of("plume", "puff", "instantaneous")) {
+            Map<String, Object> scenario = new HashMap<>();
+            scenario.put("model_type", modelType);
+            scenario.put("stability_class", "c");
+            scenario.put("release_height", 15.0);
+
+            double[] batch = dispersionService.calculateBatch(scenario, receptors);
+
+            for (int i = 0; i < receptors.length; i += 97) {
+                Map<String, Object> pointParams = new HashMap<>(scenario);
+                pointParams.put("x", receptors[i][0]);
+                pointParams.put("y", receptors[i][1]);
+                pointParams.put("z", receptors[i].length == 3 ? receptors[i][2] : 1.5);
+                Map<String, Object> single = switch (modelType) {
+                    case "puff" -> dispersionService.calculatePuff(pointParams);
+                    case "instantaneous" -> dispersionService.calculateInstantaneous(pointParams);
+                    default -> dispersionService.calculatePlume(pointParams);
+                };
+                double expected = ((Number) single.get("concentration")).doubleValue();
+                assertEquals(expected, batch[i], Math.abs(expected) * 1e-9 + 1e-12, modelType + " receptor " + i);
+            }
+        }
+    }
+
+    @Test
+    public void testBatchRejectsInvalidInput() {
+        assertThrows(IllegalArgumentException.class,
+            () -> dispersionService.calculateBatch(Map.of("molecular_weight", 0), new double[][]{{100, 0}}));
+        assertThrows(IllegalArgumentException.class,
+            () -> dispersionService.calculateBatch(Map.of(), new double[][]{{100}}));
+    }
+}
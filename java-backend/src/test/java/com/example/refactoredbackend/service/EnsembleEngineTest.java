@@ -0,0 +1,80 @@
+package com.example.refactoredbackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EnsembleEngineTest {
+
+    private final EnsembleEngine engine = new EnsembleEngine();
+    private final DispersionScenario scenario =
+        new DispersionScenario(DispersionScenario.PLUME, 10.0, 10.0, 5.0, 60.0, "D", 64.0);
+    private final GridSpec spec = new GridSpec(25.0, 1000.0, 250.0, new double[]{1.5});
+
+    @Test
+    public void testZeroErrorEnsembleMatchesDeterministicGrid() {
+        ConcentrationField field = new GridDispersionEngine().compute(scenario, spec);
+        double threshold = field.getMaxValue() / 2;
+        EnsembleField ensemble = engine.run(scenario, spec, new EnsembleSpec(20, 0.0, 0.0, threshold, 1L));
+
+        double[] values = field.getValues();
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i], ensemble.getMean()[i], 1e-9 * field.getMaxValue());
+            assertEquals(values[i], ensemble.getP95()[i], 1e-9 * field.getMaxValue());
+            assertEquals(values[i] >= threshold ? 1.0 : 0.0, ensemble.getExceedance()[i]);
+        }
+    }
+
+    @Test
+    public void testDirectionErrorSpreadsThePlume() {
+        EnsembleField ensemble = engine.run(scenario, spec, new EnsembleSpec(300, 0.5, 15.0, 1.0, 42L));
+        ConcentrationField field = new GridDispersionEngine().compute(scenario, spec);
+
+        // Off-axis cells see the plume in some members only
+        int offAxis = field.index(20, spec.getNy() - 1, 0);
+        assertTrue(field.getValues()[offAxis] < 1e-3);
+        assertTrue(ensemble.getMean()[offAxis] > field.getValues()[offAxis]);
+        assertTrue(ensemble.getMaxMean() < field.getMaxValue());
+        assertTrue(ensemble.getMaxP95() >= ensemble.getMaxMean());
+        for (double p : ensemble.getExceedance()) {
+            assertTrue(p >= 0 && p <= 1);
+        }
+    }
+
+    @Test
+    public void testSameSeedGivesSameEnsemble() {
+        EnsembleField a = engine.run(scenario, spec, new EnsembleSpec(100, 1.0, 10.0, 5.0, 7L));
+        EnsembleField b = engine.run(scenario, spec, new EnsembleSpec(100, 1.0, 10.0, 5.0, 7L));
+        assertArrayEquals(a.getMean(), b.getMean());
+        assertArrayEquals(a.getP95(), b.getP95());
+    }
+
+    @Test
+    public void testStreamingQuantileTracksExactPercentile() {
+        int n = 5000;
+        StreamingQuantiles quantiles = new StreamingQuantiles(2, 0.95);
+        double[] uniform = new double[n];
+        double[] lognormal = new double[n];
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < n; i++) {
+            uniform[i] = random.nextDouble();
+            lognormal[i] = Math.exp(random.nextDouble() * 4 - 2);
+            quantiles.add(0, uniform[i], i);
+            quantiles.add(1, lognormal[i], i);
+        }
+        Arrays.sort(uniform);
+        Arrays.sort(lognormal);
+        assertEquals(uniform[(int) (0.95 * n)], quantiles.quantile(0, n), 0.01);
+        assertEquals(lognormal[(int) (0.95 * n)], quantiles.quantile(1, n), 0.02 * lognormal[(int) (0.95 * n)]);
+    }
+
+    @Test
+    public void testRejectsInvalidEnsembles() {
+        assertThrows(IllegalArgumentException.class, () -> new EnsembleSpec(0, 0.5, 5.0, 1.0, 1L));
+        assertThrows(IllegalArgumentException.class, () -> new EnsembleSpec(10, -1.0, 5.0, 1.0, 1L));
+        assertThrows(IllegalArgumentException.class, () -> new EnsembleSpec(10, 0.5, 5.0, Double.NaN, 1L));
+    }
+}
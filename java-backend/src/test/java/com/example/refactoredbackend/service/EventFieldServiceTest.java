@@ -0,0 +1,173 @@
+package com.example.refactoredbackend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventFieldServiceTest {
+
+    /** Inputs by event id, standing in for the database. */
+    private final Map<Long, EventFieldInputs> inputs = new ConcurrentHashMap<>();
+    private final AtomicInteger resolutions = new AtomicInteger();
+    private final EventFieldService service = new EventFieldService(id -> {
+        resolutions.incrementAndGet();
+        return Optional.ofNullable(inputs.get(id));
+    }, new MultiSourceEngine(), 100, 2_000);
+
+    @AfterEach
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    private static EventFieldInputs release(long eventId, long stationId, double windSpeed, double windDirection) {
+        return new EventFieldInputs(eventId, "continuous", 36_000.0, 29.7 + eventId * 0.1, -95.3, 1L, 17.0,
+            stationId, eventId * 100, null, windSpeed, windDirection, "D",
+            Set.of(ModelInputChanged.eventKey(eventId), ModelInputChanged.chemicalKey(1L),
+                ModelInputChanged.weatherKey(stationId), ModelInputChanged.STATIONS));
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (((Number) service.stats().get("pending")).intValue() > 0) {
+            assertTrue(System.nanoTime() < deadline, "recompute did not run");
+            Thread.sleep(5);
+        }
+        // The recompute may still be running after leaving the pending map
+        Thread.sleep(50);
+    }
+
+    private long stat(String name) {
+        return ((Number) service.stats().get(name)).longValue();
+    }
+
+    @Test
+    public void testFieldIsCachedUntilAnInputChanges() {
+        inputs.put(1L, release(1L, 10L, 5.0, 270.0));
+        EventField first = service.get(1L).orElseThrow();
+        assertEquals(1, first.getVersion());
+        assertTrue(first.getField().getMaxValue() > 0);
+        assertSame(first, service.get(1L).orElseThrow());
+        assertEquals(1, resolutions.get());
+        assertEquals(1, stat("recomputes"));
+        assertEquals(Set.of(1L), service.dependentsOf(ModelInputChanged.weatherKey(10L)));
+        assertTrue(service.get(2L).isEmpty());
+    }
+
+    @Test
+    public void testBurstOfWeatherRecomputesOnlyAffectedEventsOnce() throws Exception {
+        inputs.put(1L, release(1L, 10L, 5.0, 270.0));
+        inputs.put(2L, release(2L, 20L, 5.0, 270.0));
+        service.get(1L);
+        EventField other = service.get(2L).orElseThrow();
+
+        inputs.put(1L, release(1L, 10L, 12.0, 250.0));
+        for (int i = 0; i < 20; i++) {
+            service.onInputChanged(ModelInputChanged.weather(10L));
+        }
+        assertEquals(1, stat("pending"));
+        awaitIdle();
+
+        assertEquals(3, stat("recomputes"));
+        assertEquals(20, stat("invalidations"));
+        assertEquals(19, stat("coalesced"));
+        EventField updated = service.get(1L).orElseThrow();
+        assertEquals(2, updated.getVersion());
+        assertEquals(12.0, updated.getInputs().windSpeed());
+        assertSame(other, service.get(2L).orElseThrow());
+    }
+
+    @Test
+    public void testSameModelInputsKeepTheField() throws Exception {
+        inputs.put(1L, release(1L, 10L, 5.0, 270.0));
+        EventField first = service.get(1L).orElseThrow();
+
+        // A new reading with the same wind and stability
+        EventFieldInputs reading = release(1L, 10L, 5.0, 270.0);
+        inputs.put(1L, new EventFieldInputs(1L, reading.type(), reading.amount(), reading.lat(), reading.lon(),
+            reading.chemicalId(), reading.molecularWeight(), 10L, 999L, null, 5.0, 270.0, "D",
+            reading.dependencies()));
+        assertEquals(1, service.invalidate(ModelInputChanged.weatherKey(10L)));
+        awaitIdle();
+
+        EventField kept = service.get(1L).orElseThrow();
+        assertEquals(1, stat("recomputes"));
+        assertEquals(1, stat("unchanged"));
+        assertSame(first.getField(), kept.getField());
+        assertEquals(999L, kept.getInputs().weatherId());
+    }
+
+    @Test
+    public void testReadOfStaleFieldRecomputesImmediately() {
+        inputs.put(1L, release(1L, 10L, 5.0, 270.0));
+        service.get(1L);
+        inputs.put(1L, release(1L, 10L, 5.0, 90.0));
+        service.onInputChanged(ModelInputChanged.chemical(1L));
+        assertEquals(1, stat("stale"));
+
+        EventField fresh = service.get(1L).orElseThrow();
+        assertEquals(90.0, fresh.getInputs().windDirection());
+        assertEquals(0, stat("pending"));
+        assertEquals(0, stat("stale"));
+        assertEquals(2, stat("recomputes"));
+    }
+
+    @Test
+    public void testDeletedEventIsDropped() throws Exception {
+        inputs.put(1L, release(1L, 10L, 5.0, 270.0));
+        service.get(1L);
+        inputs.remove(1L);
+        service.onInputChanged(ModelInputChanged.event(1L));
+        awaitIdle();
+
+        assertEquals(0, stat("entries"));
+        assertTrue(service.dependentsOf(ModelInputChanged.weatherKey(10L)).isEmpty());
+        assertEquals(0, service.invalidate(ModelInputChanged.STATIONS));
+    }
+
+    @Test
+    public void testSlowRefreshDoesNotBlockOtherEvents() throws Exception {
+        CountDownLatch resolving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        EventFieldService blocking = new EventFieldService(id -> {
+            if (id == 1L) {
+                resolving.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return Optional.ofNullable(inputs.get(id));
+        }, new MultiSourceEngine(), 100, 2_000);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            inputs.put(1L, release(1L, 10L, 5.0, 270.0));
+            inputs.put(2L, release(2L, 20L, 5.0, 270.0));
+            Future<Optional<EventField>> slow = executor.submit(() -> blocking.get(1L));
+            assertTrue(resolving.await(10, TimeUnit.SECONDS));
+
+            // Event 2 refreshes while event 1 is still resolving
+            assertTrue(blocking.get(2L).isPresent());
+            assertFalse(slow.isDone());
+
+            release.countDown();
+            assertEquals(1, slow.get(10, TimeUnit.SECONDS).orElseThrow().getVersion());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+            blocking.shutdown();
+        }
+    }
+}
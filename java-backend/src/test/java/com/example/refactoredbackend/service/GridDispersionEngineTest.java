@@ -0,0 +1,112 @@
+package com.example.refactoredbackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GridDispersionEngineTest {
+
+    private final DispersionService dispersionService = new DispersionService();
+    private final GridDispersionEngine engine = new GridDispersionEngine();
+
+    @Test
+    public void testGridMatchesSinglePointModels() {
+        for (String modelType : List.of("plume", "puff", "instantaneous")) {
+            Map<String, Object> params = new HashMap<>();
+            params.put("model_type", modelType);
+            params.put("resolution", 50.0);
+            params.put("extent", 1000.0);
+            params.put("crosswind_extent", 100.0);
+            params.put("release_height", 10.0);
+            params.put("z_levels", List.of(1.5, 20.0));
+
+            ConcentrationField field = engine.compute(params);
+            GridSpec spec = field.getSpec();
+
+            for (int iz = 0; iz < spec.getNz(); iz++) {
+                for (int iy = 0; iy < spec.getNy(); iy++) {
+                    for (int ix = 0; ix < spec.getNx(); ix++) {
+                        Map<String, Object> pointParams = new HashMap<>(params);
+                        pointParams.put("x", spec.xAt(ix));
+                        pointParams.put("y", spec.yAt(iy));
+                        pointParams.put("z", spec.zAt(iz));
+                        double expected = singlePoint(modelType, pointParams);
+                        assertEquals(expected, field.valueAt(ix, iy, iz), Math.abs(expected) * 1e-9 + 1e-12,
+                            modelType + " at " + ix + "," + iy + "," + iz);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMaxAndArgmaxOnLargeGrid() {
+        Map<String, Object> params = new HashMap<>();
+        params.put("resolution", 1.0);
+        params.put("extent", 1000.0);
+        params.put("crosswind_extent", 499.0);
+
+        ConcentrationField field = engine.compute(params);
+
+        assertEquals(1000, field.getSpec().getNx());
+        assertEquals(999, field.getSpec().getNy());
+        double max = 0.0;
+        for (double value : field.getValues()) {
+            max = Math.max(max, value);
+        }
+        assertEquals(max, field.getMaxValue());
+        assertEquals(max, field.getValues()[field.getMaxIndex()]);
+        assertEquals(0.0, field.yOf(field.getMaxIndex()));
+    }
+
+    @Test
+    public void testStreamedRasterMatchesComputedField() throws Exception {
+        Map<String, Object> params = new HashMap<>();
+        params.put("model_type", "instantaneous");
+        params.put("resolution", 2.0);
+        params.put("extent", 1200.0);
+        params.put("crosswind_extent", 300.0);
+        params.put("z_levels", List.of(1.5, 10.0));
+        DispersionScenario scenario = DispersionScenario.fromParams(params);
+        GridSpec spec = GridSpec.fromParams(params);
+        ConcentrationField field = engine.compute(scenario, spec);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        engine.stream(scenario, spec, GridStreamWriters.raster(spec, out));
+
+        ByteBuffer raster = ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        int headerSize = GridRasterFormat.headerSize(spec.getNz());
+        assertEquals(headerSize + field.getValues().length * Float.BYTES, raster.remaining());
+        assertEquals(spec.getNx(), raster.getInt(8));
+        assertEquals(spec.getNy(), raster.getInt(12));
+        assertEquals(2, raster.getInt(16));
+        assertEquals(spec.yAt(0), raster.getDouble(32));
+        for (int i = 0; i < field.getValues().length; i += 13) {
+            assertEquals((float) field.getValues()[i], raster.getFloat(headerSize + i * Float.BYTES));
+        }
+    }
+
+    @Test
+    public void testRejectsOversizedGrid() {
+        Map<String, Object> params = new HashMap<>();
+        params.put("resolution", 0.01);
+        params.put("extent", 100000.0);
+        assertThrows(IllegalArgumentException.class, () -> engine.compute(params));
+    }
+
+    private double singlePoint(String modelType, Map<String, Object> params) {
+        Map<String, Object> result = switch (modelType) {
+            case "puff" -> dispersionService.calculatePuff(params);
+            case "instantaneous" -> dispersionService.calculateInstantaneous(params);
+            default -> dispersionService.calculatePlume(params);
+        };
+        return ((Number) result.get("concentration")).doubleValue();
+    }
+}
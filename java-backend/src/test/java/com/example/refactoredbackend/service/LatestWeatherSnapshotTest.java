@@ -0,0 +1,85 @@
+package com.example.refactoredbackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatestWeatherSnapshotTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 6, 1, 12, 0);
+
+    /** Newest stored reading per station, standing in for the indexed queries. */
+    private final Map<Long, WeatherReading> stored = new ConcurrentHashMap<>();
+    private final AtomicInteger stationQueries = new AtomicInteger();
+    private final AtomicInteger globalQueries = new AtomicInteger();
+    private final LatestWeatherSnapshot snapshot = new LatestWeatherSnapshot(
+        stationId -> {
+            stationQueries.incrementAndGet();
+            return Optional.ofNullable(stored.get(stationId));
+        },
+        () -> {
+            globalQueries.incrementAndGet();
+            return stored.values().stream().max((a, b) -> a.time().compareTo(b.time()));
+        });
+
+    private static WeatherReading reading(Long stationId, int minutes, double windSpeed) {
+        return new WeatherReading(stationId, T0.plusMinutes(minutes), windSpeed, 270.0, 70.0, 50.0, 29.9, 0.0);
+    }
+
+    @Test
+    public void testColdStartQueriesOncePerStation() {
+        stored.put(1L, reading(1L, 0, 5.0));
+        stored.put(2L, reading(2L, 10, 7.0));
+        for (int i = 0; i < 5; i++) {
+            assertEquals(5.0, snapshot.latest(1L).orElseThrow().windSpeed());
+            assertEquals(7.0, snapshot.latest().orElseThrow().windSpeed());
+            assertTrue(snapshot.latest(3L).isEmpty());
+        }
+        assertEquals(2, stationQueries.get());
+        assertEquals(1, globalQueries.get());
+        assertEquals(3L, snapshot.stats().get("loads"));
+        assertEquals(12L, snapshot.stats().get("hits"));
+        assertEquals(2, snapshot.stats().get("stations"));
+    }
+
+    @Test
+    public void testWritesUpdateStationAndGlobalWithoutQueries() {
+        stored.put(1L, reading(1L, 0, 5.0));
+        snapshot.latest(1L);
+        snapshot.latest();
+        assertTrue(snapshot.latest(2L).isEmpty());
+
+        snapshot.record(reading(2L, 20, 9.0));
+        snapshot.record(reading(1L, 15, 6.0));
+        assertEquals(9.0, snapshot.latest(2L).orElseThrow().windSpeed());
+        assertEquals(6.0, snapshot.latest(1L).orElseThrow().windSpeed());
+        assertEquals(9.0, snapshot.latest().orElseThrow().windSpeed());
+
+        snapshot.record(reading(null, 30, 11.0));
+        assertEquals(11.0, snapshot.latest().orElseThrow().windSpeed());
+        assertEquals(9.0, snapshot.latest(2L).orElseThrow().windSpeed());
+        assertEquals(2, stationQueries.get());
+        assertEquals(1, globalQueries.get());
+    }
+
+    @Test
+    public void testOlderReadingNeverReplacesNewer() {
+        snapshot.record(reading(1L, 30, 8.0));
+        // A cold-start query that read an older row before the write landed
+        stored.put(1L, reading(1L, 0, 5.0));
+        assertEquals(8.0, snapshot.latest(1L).orElseThrow().windSpeed());
+        snapshot.record(reading(1L, 10, 4.0));
+        assertEquals(8.0, snapshot.latest(1L).orElseThrow().windSpeed());
+        assertEquals(8.0, snapshot.latest().orElseThrow().windSpeed());
+        assertEquals(0, stationQueries.get());
+
+        snapshot.forget(1L);
+        assertEquals(5.0, snapshot.latest(1L).orElseThrow().windSpeed());
+    }
+}
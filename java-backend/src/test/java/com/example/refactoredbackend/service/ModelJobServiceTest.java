@@ -0,0 +1,123 @@
+package com.example.refactoredbackend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModelJobServiceTest {
+
+    private final ModelJobService service = new ModelJobService(1, 1, 3600, 100);
+
+    @AfterEach
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    private static void awaitFinished(ModelJob job) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!job.getStatus().isFinished()) {
+            assertTrue(System.nanoTime() < deadline, "job did not finish");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void testResultAndProgress() throws Exception {
+        List<Integer> percents = new ArrayList<>();
+        ModelJob job = service.submit("test", progress -> {
+            progress.start(200);
+            for (int i = 0; i < 200; i++) {
+                progress.advance(1);
+            }
+            return "result";
+        });
+        job.addListener(j -> {
+            synchronized (percents) {
+                percents.add((int) Math.round(j.getProgress() * 100));
+            }
+        });
+        awaitFinished(job);
+        assertEquals(ModelJob.Status.SUCCEEDED, job.getStatus());
+        assertEquals("result", job.getResult());
+        assertEquals(1.0, job.getProgress());
+        synchronized (percents) {
+            assertEquals(100, percents.get(percents.size() - 1));
+            for (int i = 1; i < percents.size(); i++) {
+                assertTrue(percents.get(i) >= percents.get(i - 1));
+            }
+        }
+        assertNotNull(job.getStarted());
+        assertTrue(service.get(job.getId()).isPresent());
+    }
+
+    @Test
+    public void testBoundedQueueAndCancellation() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        AtomicLong iterations = new AtomicLong();
+        ModelJob first = service.submit("spin", progress -> {
+            running.countDown();
+            while (true) {
+                progress.checkCancelled();
+                iterations.incrementAndGet();
+                Thread.onSpinWait();
+            }
+        });
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        ModelJob second = service.submit("queued", progress -> "never");
+        assertEquals(ModelJob.Status.QUEUED, second.getStatus());
+        assertEquals(1, service.queued());
+        assertThrows(RejectedExecutionException.class, () -> service.submit("rejected", progress -> "no room"));
+
+        service.cancel(second);
+        assertEquals(ModelJob.Status.CANCELLED, second.getStatus());
+        assertEquals(0, service.queued());
+
+        service.cancel(first);
+        awaitFinished(first);
+        assertEquals(ModelJob.Status.CANCELLED, first.getStatus());
+        assertTrue(iterations.get() > 0);
+
+        ModelJob third = service.submit("after", progress -> "ok");
+        awaitFinished(third);
+        assertEquals(ModelJob.Status.SUCCEEDED, third.getStatus());
+    }
+
+    @Test
+    public void testFailures() throws Exception {
+        ModelJob invalid = service.submit("invalid", progress -> {
+            throw new IllegalArgumentException("resolution must be positive");
+        });
+        ModelJob missing = service.submit("missing", progress -> {
+            throw new ModelJobService.JobFailedException(404, "event not found");
+        });
+        awaitFinished(invalid);
+        awaitFinished(missing);
+        assertEquals(ModelJob.Status.FAILED, invalid.getStatus());
+        assertEquals(400, invalid.getErrorStatus());
+        assertEquals("resolution must be positive", invalid.getError());
+        assertEquals(404, missing.getErrorStatus());
+    }
+
+    @Test
+    public void testGridEngineReportsRowsAndStopsWhenCancelled() {
+        GridDispersionEngine engine = new GridDispersionEngine();
+        DispersionScenario scenario = new DispersionScenario(DispersionScenario.PLUME, 10.0, 20.0, 5.0, 60.0, "C", 64.0);
+        GridSpec spec = new GridSpec(2.0, 400.0, 100.0, new double[]{1.5, 10.0});
+        ModelJob job = new ModelJob("grid", "run-grid");
+        engine.compute(scenario, spec, job);
+        assertEquals(1.0, job.getProgress(), 1e-12);
+
+        ModelJob cancelled = new ModelJob("cancelled", "run-grid");
+        cancelled.requestCancel();
+        assertThrows(CancellationException.class, () -> engine.compute(scenario, spec, cancelled));
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.refactoredbackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModelResultCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private ModelResultCache cache(int maxEntries, long maxBytes) {
+        return new ModelResultCache(maxEntries, maxBytes, 60, 6, clock::get);
+    }
+
+    @Test
+    public void testFloatNoiseSharesAnEntry() {
+        ModelResultCache cache = cache(16, 1 << 20);
+        AtomicInteger loads = new AtomicInteger();
+
+        Map<String, Object> a = new HashMap<>(Map.of("x", 100.0, "wind_speed", 5, "stability_class", "D"));
+        Map<String, Object> b = new HashMap<>(Map.of("stability_class", "D", "wind_speed", 5.0000000001, "x", 99.99999999));
+        Map<String, Object> c = new HashMap<>(Map.of("x", 100.1, "wind_speed", 5, "stability_class", "D"));
+        cache.get("plume", a, v -> 8, loads::incrementAndGet);
+        cache.get("plume", b, v -> 8, loads::incrementAndGet);
+        assertEquals(1, loads.get());
+        cache.get("plume", c, v -> 8, loads::incrementAndGet);
+        cache.get("puff", a, v -> 8, loads::incrementAndGet);
+        assertEquals(3, loads.get());
+
+        assertEquals(cache.key("grid", Map.of("z_levels", List.of(1.5, 10))),
+            cache.key("grid", Map.of("z_levels", List.of(1.5000000001, 10.0), "include_field", true)));
+        assertEquals(1L, cache.stats().get("hits"));
+        assertEquals(3L, cache.stats().get("misses"));
+    }
+
+    @Test
+    public void testEntriesExpireAfterTtl() {
+        ModelResultCache cache = cache(16, 1 << 20);
+        AtomicInteger loads = new AtomicInteger();
+        Map<String, Object> params = Map.of("x", 1.0);
+
+        cache.get("plume", params, v -> 8, loads::incrementAndGet);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        cache.get("plume", params, v -> 8, loads::incrementAndGet);
+        assertEquals(1, loads.get());
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        cache.get("plume", params, v -> 8, loads::incrementAndGet);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() {
+        ModelResultCache cache = cache(10, 1 << 20);
+        AtomicInteger loads = new AtomicInteger();
+        for (int i = 0; i < 10; i++) {
+            clock.incrementAndGet();
+            cache.get("plume", Map.of("x", i), v -> 8, loads::incrementAndGet);
+        }
+        // Touch the oldest entry so it survives the next eviction
+        clock.incrementAndGet();
+        cache.get("plume", Map.of("x", 0), v -> 8, loads::incrementAndGet);
+        clock.incrementAndGet();
+        cache.get("plume", Map.of("x", 10), v -> 8, loads::incrementAndGet);
+
+        assertTrue((int) cache.stats().get("entries") <= 9);
+        int before = loads.get();
+        cache.get("plume", Map.of("x", 0), v -> 8, loads::incrementAndGet);
+        assertEquals(before, loads.get());
+        cache.get("plume", Map.of("x", 1), v -> 8, loads::incrementAndGet);
+        assertEquals(before + 1, loads.get());
+    }
+
+    @Test
+    public void testSizeLimitEvictsLargeResults() {
+        ModelResultCache cache = cache(100, 10_000);
+        for (int i = 0; i < 5; i++) {
+            cache.get("run-grid", Map.of("extent", i), v -> 4_000, () -> new double[500]);
+        }
+        assertTrue((long) cache.stats().get("estimated_bytes") <= 10_000);
+        assertTrue((long) cache.stats().get("evictions") > 0);
+    }
+
+    @Test
+    public void testConcurrentIdenticalRequestsAreCoalesced() throws Exception {
+        ModelResultCache cache = cache(16, 1 << 20);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            Future<?>[] futures = new Future<?>[callers];
+            for (int i = 0; i < callers; i++) {
+                futures[i] = executor.submit(() -> cache.get("run-grid", Map.of("extent", 1000), v -> 8, () -> {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "field";
+                }));
+            }
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            release.countDown();
+            for (Future<?> future : futures) {
+                assertEquals("field", future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1L, cache.stats().get("misses"));
+    }
+
+    @Test
+    public void testLoadLongerThanTtlIsNotRestarted() throws Exception {
+        ModelResultCache cache = cache(16, 1 << 20);
+        Map<String, Object> params = Map.of("extent", 1000);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> first = executor.submit(() -> cache.get("run-grid", params, v -> 8, () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "field";
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            clock.addAndGet(TimeUnit.SECONDS.toNanos(90));
+            Future<Object> second = executor.submit(() -> cache.get("run-grid", params, v -> 8, () -> {
+                loads.incrementAndGet();
+                return "again";
+            }));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!Long.valueOf(1).equals(cache.stats().get("coalesced"))) {
+                assertTrue(System.nanoTime() < deadline, "second caller did not wait on the load");
+                Thread.sleep(5);
+            }
+            release.countDown();
+            assertEquals("field", first.get(5, TimeUnit.SECONDS));
+            assertEquals("field", second.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+
+        // The TTL runs from completion
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        assertEquals("field", cache.get("run-grid", params, v -> 8, () -> "again"));
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertEquals("again", cache.get("run-grid", params, v -> 8, () -> "again"));
+    }
+
+    @Test
+    public void testCancelledLoadIsRetriedByWaitingCaller() throws Exception {
+        ModelResultCache cache = cache(16, 1 << 20);
+        Map<String, Object> params = Map.of("extent", 1000);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> cancelled = executor.submit(() -> cache.get("run-grid", params, v -> 8, () -> {
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new CancellationException("job was cancelled");
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<Object> waiting = executor.submit(() -> cache.get("run-grid", params, v -> 8, () -> "field"));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!Long.valueOf(1).equals(cache.stats().get("coalesced"))) {
+                assertTrue(System.nanoTime() < deadline, "second caller did not wait on the load");
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> cancelled.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(CancellationException.class, failure.getCause());
+            assertEquals("field", waiting.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(2L, cache.stats().get("misses"));
+    }
+
+    @Test
+    public void testFailuresAreNotCached() {
+        ModelResultCache cache = cache(16, 1 << 20);
+        Map<String, Object> params = Map.of("Q", -1);
+        assertThrows(IllegalArgumentException.class, () -> cache.get("plume", params, v -> 8, () -> {
+            throw new IllegalArgumentException("Q must not be negative");
+        }));
+        assertEquals("ok", cache.get("plume", params, v -> 8, () -> "ok"));
+    }
+}
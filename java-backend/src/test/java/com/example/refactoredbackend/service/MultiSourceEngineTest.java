@@ -0,0 +1,81 @@
+package com.example.refactoredbackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MultiSourceEngineTest {
+
+    private final MultiSourceEngine engine = new MultiSourceEngine();
+
+    private static DispersionScenario plume(double Q, double height) {
+        return new DispersionScenario(DispersionScenario.PLUME, Q, height, 6.0, 60.0, "D", 64.0);
+    }
+
+    @Test
+    public void testFieldIsSumOfSourcesAboveCutoff() {
+        List<MultiSourceEngine.Source> sources = List.of(
+            new MultiSourceEngine.Source(1L, 29.760, -95.370, plume(20.0, 10.0)),
+            new MultiSourceEngine.Source(2L, 29.770, -95.350, plume(5.0, 2.0)),
+            new MultiSourceEngine.Source(3L, 29.745, -95.360,
+                new DispersionScenario(DispersionScenario.INSTANTANEOUS, 500.0, 5.0, 6.0, 60.0, "E", 17.0)));
+        double windDirection = 200.0;
+        double cutoff = 0.01;
+        CombinedField field = engine.compute(sources, windDirection, 50.0, 3000.0, 1.5, cutoff);
+
+        GeoFrame frame = field.getFrame();
+        double theta = Math.toRadians(windDirection);
+        double downEast = -Math.sin(theta);
+        double downNorth = -Math.cos(theta);
+        double[] values = field.getValues();
+        double expectedMax = 0.0;
+        for (int i = 0; i < values.length; i++) {
+            double expected = 0.0;
+            for (MultiSourceEngine.Source source : sources) {
+                double dEast = field.eastOf(i) - frame.east(source.getLon());
+                double dNorth = field.northOf(i) - frame.north(source.getLat());
+                double along = dEast * downEast + dNorth * downNorth;
+                double across = dNorth * downEast - dEast * downNorth;
+                double c = source.getScenario().concentrationAt(along, across, 1.5);
+                if (c >= cutoff) {
+                    expected += c;
+                }
+            }
+            assertEquals(expected, values[i], 1e-9 * Math.max(1.0, expected), "cell " + i);
+            expectedMax = Math.max(expectedMax, expected);
+        }
+        assertEquals(expectedMax, field.getMaxValue(), 1e-9 * expectedMax);
+        assertTrue(field.getMaxValue() > 0);
+        assertTrue(field.getEvaluated() < (long) values.length * sources.size() / 2,
+            "cutoffs should skip most source/cell pairs");
+    }
+
+    @Test
+    public void testGeoFrameRoundTrips() {
+        GeoFrame frame = new GeoFrame(45.0, -120.0);
+        assertEquals(GeoFrame.METERS_PER_DEGREE_LAT * 0.01, frame.north(45.01), 1e-6);
+        assertEquals(44.99, frame.lat(frame.north(44.99)), 1e-12);
+        assertEquals(-120.02, frame.lon(frame.east(-120.02)), 1e-12);
+    }
+
+    @Test
+    public void testRejectsEmptySourceList() {
+        assertThrows(IllegalArgumentException.class, () -> engine.compute(List.of(), 270.0, 50.0, 1000.0, 1.5, 1e-3));
+    }
+
+    @Test
+    public void testReportsRowsAndStopsWhenCancelled() {
+        List<MultiSourceEngine.Source> sources = List.of(new MultiSourceEngine.Source(1L, 29.76, -95.37, plume(20.0, 10.0)));
+        ModelJob job = new ModelJob("combined", "combined");
+        engine.compute(sources, 270.0, 50.0, 2000.0, 1.5, 1e-3, job);
+        assertEquals(1.0, job.getProgress(), 1e-12);
+
+        ModelJob cancelled = new ModelJob("cancelled", "combined");
+        cancelled.requestCancel();
+        assertThrows(CancellationException.class,
+            () -> engine.compute(sources, 270.0, 50.0, 2000.0, 1.5, 1e-3, cancelled));
+    }
+}
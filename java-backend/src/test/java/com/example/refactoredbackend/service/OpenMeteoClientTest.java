@@ -0,0 +1,206 @@
+package com.example.refactoredbackend.service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpenMeteoClientTest {
+
+    private static final String BODY = "{\"current\":{\"temperature_2m\":68.0,\"relative_humidity_2m\":55,"
+        + "\"pressure_msl\":1013.0,\"wind_speed_10m\":8.5,\"wind_direction_10m\":225}}";
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicBoolean failing = new AtomicBoolean();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private final List<String> queries = new ArrayList<>();
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+    private final AtomicLong now = new AtomicLong(1_000_000L * 900_000);
+    private final ExecutorService handlers = Executors.newCachedThreadPool();
+    private HttpServer server;
+    private OpenMeteoClient client;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(handlers);
+        server.createContext("/v1/forecast", exchange -> {
+            requests.incrementAndGet();
+            synchronized (queries) {
+                queries.add(exchange.getRequestURI().getQuery());
+            }
+            try {
+                gate.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            String query = exchange.getRequestURI().getQuery();
+            String latitudes = query.substring(query.indexOf("latitude=") + 9, query.indexOf('&'));
+            int locations = latitudes.split(",").length;
+            boolean fail = failing.get() || failuresLeft.getAndDecrement() > 0;
+            byte[] body = fail ? "upstream down".getBytes(StandardCharsets.UTF_8)
+                : (locations == 1 ? BODY : "[" + String.join(",", Collections.nCopies(locations, BODY)) + "]")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", fail ? "text/plain" : "application/json");
+            exchange.sendResponseHeaders(fail ? 503 : 200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        client = client(0);
+    }
+
+    private OpenMeteoClient client(int retries) {
+        return new OpenMeteoClient("http://127.0.0.1:" + server.getAddress().getPort() + "/v1/forecast",
+            0.01, 900, 1000, 5000, 100, 4, retries, 10, now::get);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        client.shutdown();
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    @Test
+    public void testNearbyCoordinatesShareOneRequest() {
+        Map<String, Object> first = client.current(29.7601, -95.3701);
+        Map<String, Object> nearby = client.current(29.7640, -95.3680);
+        assertEquals(1, requests.get());
+        assertSame(first, nearby);
+        assertEquals(8.5, first.get("wind_speed"));
+        assertEquals("C", first.get("stability_class"));
+        assertTrue(queries.get(0).contains("latitude=29.7600&longitude=-95.3700"), queries.get(0));
+
+        client.current(29.80, -95.37);
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void testEntryExpiresAtTheNextUpdateBoundary() {
+        now.addAndGet(600_000);
+        client.current(29.76, -95.37);
+        now.addAndGet(299_000);
+        client.current(29.76, -95.37);
+        assertEquals(1, requests.get());
+        // Past the quarter hour, even though the entry is only five minutes old
+        now.addAndGet(2_000);
+        client.current(29.76, -95.37);
+        assertEquals(2, requests.get());
+        assertEquals(1L, client.stats().get("refreshes"));
+    }
+
+    @Test
+    public void testConcurrentMissesCoalesce() throws Exception {
+        gate = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Map<String, Object>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(callers.submit(() -> client.current(29.76, -95.37)));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (((Number) client.stats().get("coalesced")).longValue() < 7) {
+                assertTrue(System.nanoTime() < deadline, "callers did not queue on the request");
+                Thread.sleep(5);
+            }
+            gate.countDown();
+            for (Future<Map<String, Object>> result : results) {
+                assertEquals(225.0, result.get(10, TimeUnit.SECONDS).get("wind_direction"));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void testStaleValueServedWhenRefreshFails() {
+        client.current(29.76, -95.37);
+        failing.set(true);
+        now.addAndGet(900_000);
+
+        Map<String, Object> stale = client.current(29.76, -95.37);
+        assertEquals(Boolean.TRUE, stale.get("stale"));
+        assertEquals(8.5, stale.get("wind_speed"));
+        // Retried after the back-off, not on every request
+        client.current(29.76, -95.37);
+        assertEquals(2, requests.get());
+        now.addAndGet(OpenMeteoClient.RETRY_AFTER_FAILURE_MILLIS);
+        client.current(29.76, -95.37);
+        assertEquals(3, requests.get());
+
+        failing.set(false);
+        now.addAndGet(OpenMeteoClient.RETRY_AFTER_FAILURE_MILLIS);
+        assertNull(client.current(29.76, -95.37).get("stale"));
+        assertThrows(RuntimeException.class, () -> {
+            failing.set(true);
+            client.current(40.0, -100.0);
+        });
+        assertEquals(1, client.stats().get("entries"));
+    }
+
+    @Test
+    public void testBulkFetchBatchesDistinctCells() {
+        client.current(30.0, -95.0);
+        List<double[]> points = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            points.add(new double[]{30.0 + (i % 250) * 0.05, -95.0});
+        }
+        requests.set(0);
+
+        List<OpenMeteoClient.PointWeather> results = client.currentAll(points);
+        assertEquals(500, results.size());
+        for (OpenMeteoClient.PointWeather result : results) {
+            assertNull(result.error());
+            assertEquals(8.5, result.weather().get("wind_speed"));
+        }
+        // 249 uncached cells in batches of 100
+        assertEquals(3, requests.get());
+        // Batches run in parallel, so their requests arrive in any order
+        assertTrue(queries.stream().anyMatch(query -> query.startsWith("latitude=30.0500,30.1000,")));
+        assertSame(results.get(0).weather(), results.get(250).weather());
+
+        client.currentAll(points);
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    public void testBulkFetchRetriesAndReportsFailures() {
+        client.shutdown();
+        client = client(2);
+        failuresLeft.set(2);
+        List<OpenMeteoClient.PointWeather> results = client.currentAll(List.of(new double[]{30.0, -95.0},
+            new double[]{31.0, -95.0}));
+        assertNotNull(results.get(1).weather());
+        assertEquals(3, requests.get());
+        assertEquals(2L, client.stats().get("retries"));
+
+        failing.set(true);
+        results = client.currentAll(List.of(new double[]{30.0, -95.0}, new double[]{32.0, -95.0}));
+        assertNotNull(results.get(0).weather());
+        assertNull(results.get(1).weather());
+        assertNotNull(results.get(1).error());
+        assertEquals(6, requests.get());
+    }
+}
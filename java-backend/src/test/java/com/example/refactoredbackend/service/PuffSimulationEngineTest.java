@@ -0,0 +1,133 @@
+package com.example.refactoredbackend.service;
+
+import com.example.refactoredbackend.model.Weather;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PuffSimulationEngineTest {
+
+    private final PuffSimulationEngine engine = new PuffSimulationEngine();
+
+    @Test
+    public void testSinglePuffIsAdvectedDownwind() {
+        // 10 mph from the west for 10 minutes: the puff should sit about 2682 m east of the source
+        SimulationSpec spec = new SimulationSpec(1000.0, true, 0.0, 600.0, 60.0, 10.0, 1.5, 28.97,
+            10.0, 4000.0, 1e-6);
+        WindSeries wind = WindSeries.constant(10.0, 270.0, "D");
+        double[] last = new double[3];
+
+        engine.run(spec, wind, (step, time, puffs, field, maxValue, maxIndex) -> {
+            last[0] = puffs;
+            last[1] = spec.coordinate(maxIndex % spec.getN());
+            last[2] = spec.coordinate(maxIndex / spec.getN());
+        });
+
+        assertEquals(1, (int) last[0]);
+        assertEquals(10 * 0.44704 * 600.0, last[1], spec.getResolution());
+        assertEquals(0.0, last[2], spec.getResolution());
+    }
+
+    @Test
+    public void testDownsampleKeepsBlockMaxima() {
+        double[] field = new double[5 * 5];
+        field[0] = 1.0;
+        field[1 * 5 + 1] = 3.0;
+        field[2 * 5 + 4] = 7.0;
+        field[4 * 5 + 4] = 2.0;
+
+        double[] snapshot = PuffSimulationEngine.downsample(field, 5, 2);
+
+        assertArrayEquals(new double[]{3.0, 0.0, 0.0, 0.0, 0.0, 7.0, 0.0, 0.0, 2.0}, snapshot);
+        assertArrayEquals(field, PuffSimulationEngine.downsample(field, 5, 1));
+        assertThrows(IllegalArgumentException.class, () -> PuffSimulationEngine.downsample(field, 5, 0));
+    }
+
+    @Test
+    public void testPuffsFollowTurningWindAndAreCulled() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<Weather> records = new ArrayList<>();
+        records.add(weather(start, 8.0, 270.0));            // from the west
+        records.add(weather(start.plusMinutes(30), 8.0, 180.0)); // from the south
+        WindSeries wind = WindSeries.fromWeather(records, start);
+
+        SimulationSpec spec = new SimulationSpec(50_000.0, false, 1800.0, 3 * 3600.0, 60.0, 2.0, 1.5, 64.0,
+            25.0, 6000.0, 1.0);
+        int[] peakPuffs = new int[1];
+        int[] finalPuffs = new int[1];
+        double[] finalMax = new double[3];
+
+        engine.run(spec, wind, (step, time, puffs, field, maxValue, maxIndex) -> {
+            peakPuffs[0] = Math.max(peakPuffs[0], puffs);
+            finalPuffs[0] = puffs;
+            if (step == 45 && maxIndex >= 0) {
+                finalMax[0] = maxValue;
+                finalMax[1] = spec.coordinate(maxIndex % spec.getN());
+                finalMax[2] = spec.coordinate(maxIndex / spec.getN());
+            }
+        });
+
+        assertTrue(peakPuffs[0] >= 25);
+        assertTrue(finalPuffs[0] < peakPuffs[0], "puffs should be culled as they dilute or leave the grid");
+        // After the turn the newest puffs travel north from the source
+        assertTrue(finalMax[0] > 0);
+        assertTrue(finalMax[2] > 0);
+    }
+
+    @Test
+    public void testSixHourRunOnLargeGrid() {
+        SimulationSpec spec = new SimulationSpec(100_000.0, false, 3600.0, 6 * 3600.0, 60.0, 10.0, 1.5, 64.0,
+            20.0, 5000.0, 1e-3);
+        assertEquals(501, spec.getN());
+        int[] steps = new int[1];
+
+        long start = System.nanoTime();
+        engine.run(spec, WindSeries.constant(3.0, 225.0, "F"), (step, time, puffs, field, maxValue, maxIndex) -> steps[0]++);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(360, steps[0]);
+        assertTrue(elapsedMillis < 60_000, "6 h run took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    public void testWindFieldOverridesSeriesPerPuff() {
+        // Series says west wind, but the field carries the air north at 4 m/s west of x = 0
+        // and east at 4 m/s from x = 500 m: the puff goes north, not east
+        int side = 9;
+        double[] east = new double[side * side];
+        double[] north = new double[side * side];
+        for (int j = 0; j < side; j++) {
+            for (int i = 0; i < side; i++) {
+                boolean eastSide = i >= 5;
+                east[j * side + i] = eastSide ? 4.0 : 0.0;
+                north[j * side + i] = eastSide ? 0.0 : 4.0;
+            }
+        }
+        WindField field = new WindField(new GeoFrame(40.0, -75.0), side, side, -2000.0, -2000.0, 500.0,
+            east, north, new int[side * side], 1);
+        SimulationSpec spec = new SimulationSpec(1000.0, true, 0.0, 300.0, 60.0, 10.0, 1.5, 28.97,
+            10.0, 4000.0, 1e-6);
+        double[] last = new double[2];
+
+        engine.run(spec, WindSeries.constant(10.0, 270.0, "D"), field, (step, time, puffs, values, maxValue, maxIndex) -> {
+            last[0] = spec.coordinate(maxIndex % spec.getN());
+            last[1] = spec.coordinate(maxIndex / spec.getN());
+        });
+
+        assertEquals(0.0, last[0], spec.getResolution());
+        assertEquals(4.0 * 300.0, last[1], spec.getResolution());
+    }
+
+    private static Weather weather(LocalDateTime time, double windSpeed, double windDirection) {
+        Weather weather = new Weather();
+        weather.setTime(time);
+        weather.setWind_speed(windSpeed);
+        weather.setWind_direction(windDirection);
+        weather.setTemperature(60.0);
+        return weather;
+    }
+}
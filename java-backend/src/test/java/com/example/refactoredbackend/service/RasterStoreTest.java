@@ -0,0 +1,168 @@
+package com.example.refactoredbackend.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RasterStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private static ConcentrationField field() {
+        DispersionScenario scenario = new DispersionScenario(DispersionScenario.PLUME, 10.0, 20.0, 5.0, 60.0, "C", 64.0);
+        return new GridDispersionEngine().compute(scenario, new GridSpec(10.0, 500.0, 100.0, new double[]{1.5, 20.0}));
+    }
+
+    @Test
+    public void testFieldRoundTrip() {
+        RasterStore store = new RasterStore(directory, 1L << 30);
+        ConcentrationField field = field();
+        String id = store.save(field);
+
+        StoredRaster raster = store.get(id).orElseThrow();
+        GridSpec spec = field.getSpec();
+        GridRasterFormat.Header header = raster.getHeader();
+        assertEquals(spec.getNx(), header.nx());
+        assertEquals(spec.getNy(), header.ny());
+        assertEquals(spec.getNz(), header.nz());
+        assertEquals(1, header.nt());
+        assertEquals(spec.yAt(0), header.y0());
+        assertArrayEquals(spec.getZLevels(), header.zLevels());
+        for (int iz = 0; iz < spec.getNz(); iz++) {
+            for (int iy = 0; iy < spec.getNy(); iy++) {
+                for (int ix = 0; ix < spec.getNx(); ix++) {
+                    assertEquals((float) field.valueAt(ix, iy, iz), raster.valueAt(0, iz, ix, iy));
+                }
+            }
+        }
+        assertSame(raster, store.get(id).orElseThrow());
+        assertEquals(1, store.list().size());
+    }
+
+    @Test
+    public void testTimeSlicesAndWindows() {
+        RasterStore store = new RasterStore(directory, 1L << 30);
+        int nx = 7;
+        int ny = 5;
+        String id;
+        try (RasterStore.Writer writer = store.create(new GridRasterFormat.Header(nx, ny, 3, 100.0, -20.0, 10.0, 10.0,
+                new double[]{1.5}))) {
+            for (int it = 0; it < 3; it++) {
+                double[] values = new double[nx * ny];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = it * 1000 + i;
+                }
+                writer.writePlane(it, 0, values, 0);
+            }
+            id = writer.commit();
+        }
+        StoredRaster raster = store.get(id).orElseThrow();
+        assertEquals(2000 + 3 * nx + 4, raster.valueAt(2, 0, 4, 3));
+
+        RasterWindow window = raster.window(1, 0, 2, 1, 5, 4, 1, RasterWindow.Mode.SAMPLE);
+        assertEquals(5, window.getNx());
+        assertEquals(4, window.getNy());
+        assertEquals(120.0, window.getX0());
+        assertEquals(-10.0, window.getY0());
+        assertEquals(1000 + 2 * nx + 3, window.get(1, 1));
+
+        RasterWindow sampled = raster.window(0, 0, 0, 0, nx, ny, 3, RasterWindow.Mode.SAMPLE);
+        RasterWindow max = raster.window(0, 0, 0, 0, nx, ny, 3, RasterWindow.Mode.MAX);
+        assertEquals(3, sampled.getNx());
+        assertEquals(2, sampled.getNy());
+        assertEquals(30.0, sampled.getDx());
+        assertEquals(3 * nx + 6, sampled.get(2, 1));
+        // Last block is clipped to column 6 and row 4
+        assertEquals(4 * nx + 6, max.get(2, 1));
+        assertEquals(2 * nx + 2, max.get(0, 0));
+
+        assertThrows(IllegalArgumentException.class, () -> raster.window(3, 0, 0, 0, 1, 1, 1, RasterWindow.Mode.MAX));
+        assertThrows(IllegalArgumentException.class, () -> raster.window(0, 0, 5, 0, 3, 1, 1, RasterWindow.Mode.MAX));
+
+        StoredRaster.Difference difference = raster.compare(2, 0, raster, 0, 0);
+        assertEquals(2000.0, difference.maxAbsolute());
+        assertEquals(2000.0, difference.rms(), 1e-9);
+    }
+
+    @Test
+    public void testWindowRasterOutput() throws Exception {
+        RasterStore store = new RasterStore(directory, 1L << 30);
+        StoredRaster raster = store.get(store.save(field())).orElseThrow();
+        for (int step : new int[]{1, 4}) {
+            RasterWindow window = raster.window(0, 1, 3, 2, 20, 9, step, RasterWindow.Mode.MAX);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            window.writeRaster(Channels.newChannel(out));
+
+            ByteBuffer bytes = ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+            GridRasterFormat.Header header = GridRasterFormat.read(bytes);
+            assertEquals(window.getNx(), header.nx());
+            assertEquals(window.getNy(), header.ny());
+            assertEquals(window.getDx(), header.dx());
+            assertEquals(20.0, header.zLevels()[0]);
+            assertEquals(header.fileBytes(), bytes.remaining());
+            FloatBuffer values = bytes.position(header.size()).slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            for (int j = 0; j < header.ny(); j++) {
+                for (int i = 0; i < header.nx(); i++) {
+                    assertEquals(window.get(i, j), values.get(j * header.nx() + i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUncommittedAndDeletedRasters() throws Exception {
+        RasterStore store = new RasterStore(directory, 1L << 30);
+        try (RasterStore.Writer writer = store.create(new GridRasterFormat.Header(2, 2, 1, 0, 0, 1, 1,
+                new double[]{0}))) {
+            writer.writePlane(0, 0, new double[4], 0);
+        }
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+
+        String id = store.save(field());
+        assertTrue(store.delete(id));
+        assertTrue(store.get(id).isEmpty());
+        assertFalse(store.delete(id));
+        assertTrue(store.get("../../etc/passwd").isEmpty());
+    }
+
+    @Test
+    public void testCorruptFileIsSkipped() throws Exception {
+        RasterStore store = new RasterStore(directory, 1L << 30);
+        String id = store.save(field());
+        String corrupt = "00000000-0000-0000-0000-000000000000";
+        Files.write(directory.resolve(corrupt + ".cyrs"), new byte[]{1, 2, 3});
+
+        assertTrue(store.get(corrupt).isEmpty());
+        assertEquals(1, store.list().size());
+        assertEquals(id, store.list().get(0).getId());
+    }
+
+    @Test
+    public void testOldestRastersArePruned() throws Exception {
+        ConcentrationField field = field();
+        long size = new GridRasterFormat.Header(field.getSpec().getNx(), field.getSpec().getNy(), 1, 0, 0, 1, 1,
+            field.getSpec().getZLevels()).fileBytes();
+        RasterStore store = new RasterStore(directory, 2 * size + size / 2);
+        String first = store.save(field);
+        Files.setLastModifiedTime(directory.resolve(first + ".cyrs"),
+            java.nio.file.attribute.FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+        String second = store.save(field);
+        String third = store.save(field);
+        assertTrue(store.get(first).isEmpty());
+        assertTrue(store.get(second).isPresent());
+        assertTrue(store.get(third).isPresent());
+        assertThrows(IllegalArgumentException.class, () -> new RasterStore(directory, 16).save(field));
+    }
+}
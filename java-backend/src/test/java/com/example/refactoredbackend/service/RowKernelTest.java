@@ -0,0 +1,71 @@
+package com.example.refactoredbackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class RowKernelTest {
+
+    @Test
+    public void testVectorKernelMatchesScalar() {
+        assumeTrue(RowKernels.vectorAvailable(), "SIMD kernel is only built and tested with -P simd");
+        RowKernel vector = RowKernels.select(RowKernels.SIMD);
+        assertEquals(RowKernels.SIMD, vector.name());
+
+        SplittableRandom random = new SplittableRandom(5);
+        for (int length : new int[]{1, 3, 8, 37, 1000}) {
+            double[] factor = new double[length + 5];
+            double[] k = new double[length + 5];
+            for (int i = 0; i < factor.length; i++) {
+                factor[i] = random.nextInt(4) == 0 ? 0.0 : random.nextDouble() * 1e4;
+                k[i] = random.nextDouble() * 1e-3;
+            }
+            double ySquared = 2500.0;
+            double[] expected = new double[length];
+            double[] actual = new double[length + 2];
+            int expectedMax = ScalarRowKernel.INSTANCE.fill(factor, k, 5, ySquared, expected, 0, length);
+            int actualMax = vector.fill(factor, k, 5, ySquared, actual, 2, length);
+            for (int i = 0; i < length; i++) {
+                assertEquals(expected[i], actual[i + 2], 1e-13 * expected[i]);
+            }
+            if (expectedMax >= 0) {
+                assertEquals(expected[expectedMax], actual[actualMax + 2], 1e-13 * expected[expectedMax]);
+            }
+        }
+    }
+
+    @Test
+    public void testAllZeroRowHasNoMaximum() {
+        double[] zeros = new double[16];
+        double[] out = new double[16];
+        assertEquals(-1, ScalarRowKernel.INSTANCE.fill(zeros, zeros, 0, 1.0, out, 0, 16));
+        assertEquals(-1, RowKernels.select(RowKernels.AUTO).fill(zeros, zeros, 0, 1.0, out, 0, 16));
+    }
+
+    @Test
+    public void testGridEngineKernelsAgree() {
+        assumeTrue(RowKernels.vectorAvailable(), "SIMD kernel is only built and tested with -P simd");
+        DispersionScenario scenario = new DispersionScenario(DispersionScenario.PLUME, 10.0, 20.0, 5.0, 60.0, "C", 64.0);
+        GridSpec spec = new GridSpec(5.0, 2000.0, 300.0, new double[]{1.5, 20.0});
+        GridDispersionEngine scalar = new GridDispersionEngine();
+        GridDispersionEngine simd = new GridDispersionEngine();
+        simd.setKernel(RowKernels.SIMD);
+        assertEquals(RowKernels.SCALAR, scalar.getKernelName());
+        assertEquals(RowKernels.SIMD, simd.getKernelName());
+
+        ConcentrationField a = scalar.compute(scenario, spec);
+        ConcentrationField b = simd.compute(scenario, spec);
+        for (int i = 0; i < a.getValues().length; i++) {
+            assertEquals(a.getValues()[i], b.getValues()[i], 1e-13 * a.getMaxValue());
+        }
+        assertEquals(a.getMaxValue(), b.getMaxValue(), 1e-13 * a.getMaxValue());
+    }
+
+    @Test
+    public void testRejectsUnknownKernel() {
+        assertThrows(IllegalArgumentException.class, () -> RowKernels.select("gpu"));
+    }
+}
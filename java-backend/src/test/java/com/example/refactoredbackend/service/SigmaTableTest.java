@@ -0,0 +1,45 @@
+package com.example.refactoredbackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SigmaTableTest {
+
+    private static final double RELATIVE_TOLERANCE = 1e-4;
+
+    @Test
+    public void testTableMatchesClosedFormForEveryClass() {
+        SigmaTable table = DispersionService.SIGMA_TABLE;
+        double[] expected = new double[2];
+        double[] actual = new double[2];
+
+        for (int stabilityIndex = -1; stabilityIndex <= 5; stabilityIndex++) {
+            // Log-spaced sweep that deliberately lands between table nodes and past both ends
+            for (double x = 0.25; x < 250_000.0; x *= 1.0037) {
+                DispersionService.getSigmas(stabilityIndex, x, expected);
+                table.lookup(stabilityIndex, x, actual);
+                assertEquals(expected[0], actual[0], expected[0] * RELATIVE_TOLERANCE,
+                    "sigma_y class " + stabilityIndex + " at x=" + x);
+                assertEquals(expected[1], actual[1], expected[1] * RELATIVE_TOLERANCE,
+                    "sigma_z class " + stabilityIndex + " at x=" + x);
+            }
+        }
+    }
+
+    @Test
+    public void testStabilityAliasesShareTables() {
+        assertArrayEquals(DispersionService.getSigmasByStability("d", 750.0),
+            DispersionService.getSigmasByStability("4", 750.0));
+        assertArrayEquals(DispersionService.getSigmasByStability("unknown", 750.0),
+            DispersionService.getSigmasByStability("", 750.0));
+    }
+
+    @Test
+    public void testNonPositiveDistanceUsesClosedFormFloor() {
+        double[] sigmas = new double[2];
+        DispersionService.SIGMA_TABLE.lookup(3, 0.0, sigmas);
+        assertEquals(1.0, sigmas[0]);
+        assertEquals(0.5, sigmas[1]);
+    }
+}
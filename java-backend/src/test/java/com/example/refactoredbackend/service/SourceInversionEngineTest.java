@@ -0,0 +1,109 @@
+package com.example.refactoredbackend.service;
+
+import com.example.refactoredbackend.model.Plume;
+import com.example.refactoredbackend.model.Station;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SourceInversionEngineTest {
+
+    private static final double SOURCE_LAT = 29.70;
+    private static final double SOURCE_LON = -95.20;
+    private static final double SO2 = 64.066;
+
+    private final SourceInversionEngine engine = new SourceInversionEngine();
+
+    /**
+     * Synthetic observations from a known source on a ring of stations under shifting winds.
+     */
+    private static List<Plume> observations(double Q, double height, double noisePpb) {
+        GeoFrame frame = new GeoFrame(SOURCE_LAT, SOURCE_LON);
+        SplittableRandom random = new SplittableRandom(11);
+        List<Station> stations = new ArrayList<>();
+        for (int s = 0; s < 24; s++) {
+            double angle = Math.toRadians(s * 15.0);
+            double distance = 800 + 300 * (s % 5);
+            Station station = new Station();
+            station.setLat(frame.lat(distance * Math.cos(angle)));
+            station.setLon(frame.lon(distance * Math.sin(angle)));
+            stations.add(station);
+        }
+        List<Plume> plumes = new ArrayList<>();
+        for (int hour = 0; hour < 120; hour++) {
+            double direction = (hour * 37.0) % 360;
+            double speed = 2.0 + (hour % 4);
+            DispersionScenario scenario = new DispersionScenario(DispersionScenario.PLUME, Q, height,
+                speed / 0.44704, 60.0, "D", SO2);
+            double theta = Math.toRadians(direction);
+            for (Station station : stations) {
+                double east = frame.east(station.getLon());
+                double north = frame.north(station.getLat());
+                double along = -east * Math.sin(theta) - north * Math.cos(theta);
+                double across = -north * Math.sin(theta) + east * Math.cos(theta);
+                double ppb = scenario.concentrationAt(along, across, 1.5) * InversionObservations.MOLAR_VOLUME / SO2;
+                Plume plume = new Plume();
+                plume.setStation(station);
+                plume.setWind_dir_deg(direction);
+                plume.setWind_speed_ms(speed);
+                plume.setSo2_ppb(Math.max(0.0, ppb + noisePpb * (random.nextDouble() - 0.5)));
+                plume.setSo2_error_ppb(noisePpb);
+                plumes.add(plume);
+            }
+        }
+        return plumes;
+    }
+
+    @Test
+    public void testRecoversEmissionRateAtKnownLocation() {
+        InversionObservations obs = InversionObservations.fromPlumes(observations(25.0, 30.0, 0.0),
+            new GeoFrame(SOURCE_LAT, SOURCE_LON), SO2);
+        InversionResult result = engine.invert(obs, new InversionSpec(30.0, "D", 1.5, false, false, 0.0, 300.0));
+        assertEquals(25.0, result.getQ(), 1e-6 * 25.0);
+        assertEquals(0.0, result.getRmsePpb(), 1e-6);
+        assertEquals(2880, result.getObservations());
+    }
+
+    @Test
+    public void testRecoversPositionAndHeightFromOffsetGuess() {
+        // Start the search 600 m east and 400 m south of the true source
+        GeoFrame guess = new GeoFrame(SOURCE_LAT - 400 / GeoFrame.METERS_PER_DEGREE_LAT,
+            new GeoFrame(SOURCE_LAT, SOURCE_LON).lon(600));
+        InversionObservations obs = InversionObservations.fromPlumes(observations(40.0, 60.0, 0.5), guess, SO2);
+        InversionResult result = engine.invert(obs, new InversionSpec(20.0, "D", 1.5, true, true, 1500.0, 200.0));
+
+        GeoFrame truth = new GeoFrame(SOURCE_LAT, SOURCE_LON);
+        assertEquals(0.0, truth.east(result.getLon()), 25.0);
+        assertEquals(0.0, truth.north(result.getLat()), 25.0);
+        assertEquals(60.0, result.getReleaseHeight(), 10.0);
+        assertEquals(40.0, result.getQ(), 0.1 * 40.0);
+        assertTrue(result.getCorrelation() > 0.95);
+    }
+
+    @Test
+    public void testRejectsWindowWithoutUsableObservations() {
+        Plume unassigned = new Plume();
+        unassigned.setWind_speed_ms(3.0);
+        assertThrows(IllegalArgumentException.class,
+            () -> InversionObservations.fromPlumes(List.of(unassigned), new GeoFrame(0, 0), SO2));
+    }
+
+    @Test
+    public void testReportsFullProgressOnEarlyConvergenceAndStopsWhenCancelled() {
+        InversionObservations obs = InversionObservations.fromPlumes(observations(25.0, 30.0, 0.0),
+            new GeoFrame(SOURCE_LAT, SOURCE_LON), SO2);
+        InversionSpec spec = new InversionSpec(30.0, "D", 1.5, true, false, 500.0, 300.0);
+        ModelJob job = new ModelJob("invert", "invert");
+        engine.invert(obs, spec, job);
+        assertEquals(1.0, job.getProgress(), 1e-12);
+
+        ModelJob cancelled = new ModelJob("cancelled", "invert");
+        cancelled.requestCancel();
+        assertThrows(CancellationException.class, () -> engine.invert(obs, spec, cancelled));
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.refactoredbackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ThresholdExtentSolverTest {
+
+    private final ThresholdExtentSolver solver = new ThresholdExtentSolver();
+
+    /** Dense logarithmic scan: {nearest, farthest, max half-width} above the threshold. */
+    private static double[] bruteForce(DispersionScenario scenario, ThresholdSpec spec) {
+        int samples = 200_000;
+        double lnMin = Math.log(ThresholdExtentSolver.MIN_DISTANCE);
+        double lnMax = Math.log(spec.getMaxDistance());
+        double[] terms = new double[2];
+        double nearest = Double.NaN;
+        double farthest = Double.NaN;
+        double halfWidth = 0.0;
+        for (int i = 0; i <= samples; i++) {
+            double x = Math.exp(lnMin + (lnMax - lnMin) * i / samples);
+            scenario.columnTerms(x, spec.getZ(), terms);
+            if (terms[0] >= spec.getThreshold()) {
+                if (Double.isNaN(nearest)) {
+                    nearest = x;
+                }
+                farthest = x;
+                halfWidth = Math.max(halfWidth, Math.sqrt(Math.log(terms[0] / spec.getThreshold()) / terms[1]));
+            }
+        }
+        return new double[]{nearest, farthest, halfWidth};
+    }
+
+    private void assertMatchesBruteForce(DispersionScenario scenario, ThresholdSpec spec) {
+        ThresholdExtent extent = solver.solve(scenario, spec);
+        double[] expected = bruteForce(scenario, spec);
+        assertTrue(extent.isExceeded());
+        assertEquals(expected[0], extent.getNearestDistance(), 2e-3 * expected[0]);
+        assertEquals(expected[1], extent.getDownwindDistance(), 2e-3 * expected[1]);
+        assertEquals(expected[2], extent.getMaxHalfWidth(), 2e-3 * expected[2]);
+        assertTrue(extent.getEvaluations() < 150, "evaluations: " + extent.getEvaluations());
+        assertTrue(extent.getPeakConcentration() >= spec.getThreshold());
+    }
+
+    @Test
+    public void testElevatedPlume() {
+        DispersionScenario scenario = new DispersionScenario(DispersionScenario.PLUME, 50.0, 40.0, 8.0, 60.0, "D", 64.0);
+        ThresholdExtent extent = solver.solve(scenario, new ThresholdSpec(100.0, 1.5, 100_000.0, 1e-4));
+        // An elevated plume only reaches the threshold at ground level some distance downwind
+        assertTrue(extent.getNearestDistance() > 50.0);
+        assertTrue(extent.getPeakDistance() > extent.getNearestDistance());
+        assertTrue(extent.getPeakDistance() < extent.getDownwindDistance());
+        assertMatchesBruteForce(scenario, new ThresholdSpec(100.0, 1.5, 100_000.0, 1e-4));
+    }
+
+    @Test
+    public void testGroundReleaseTensOfKilometres() {
+        DispersionScenario scenario = new DispersionScenario(DispersionScenario.PLUME, 20.0, 0.0, 3.0, 60.0, "F", 64.0);
+        ThresholdSpec spec = new ThresholdSpec(10.0, 1.5, 200_000.0, 1e-4);
+        ThresholdExtent extent = solver.solve(scenario, spec);
+        assertTrue(extent.getDownwindDistance() > 10_000.0, "distance: " + extent.getDownwindDistance());
+        assertFalse(extent.isBeyondMaxDistance());
+        assertMatchesBruteForce(scenario, spec);
+    }
+
+    @Test
+    public void testPuffAndInstantaneous() {
+        DispersionScenario puff = new DispersionScenario(DispersionScenario.PUFF, 1000.0, 10.0, 10.0, 300.0, "C", 64.0);
+        assertMatchesBruteForce(puff, new ThresholdSpec(10.0, 1.5, 50_000.0, 1e-4));
+        DispersionScenario instantaneous = new DispersionScenario(DispersionScenario.INSTANTANEOUS, 100.0, 5.0, 5.0,
+            60.0, "B", 64.0);
+        assertMatchesBruteForce(instantaneous, new ThresholdSpec(50.0, 1.5, 50_000.0, 1e-4));
+    }
+
+    @Test
+    public void testBelowThresholdAndSearchLimit() {
+        DispersionScenario scenario = new DispersionScenario(DispersionScenario.PLUME, 0.001, 100.0, 20.0, 60.0, "A", 64.0);
+        ThresholdExtent none = solver.solve(scenario, new ThresholdSpec(1e6, 1.5, 10_000.0, 1e-3));
+        assertFalse(none.isExceeded());
+        assertEquals(0.0, none.getDownwindDistance());
+
+        DispersionScenario strong = new DispersionScenario(DispersionScenario.PLUME, 1000.0, 0.0, 5.0, 60.0, "E", 64.0);
+        ThresholdExtent capped = solver.solve(strong, new ThresholdSpec(1.0, 1.5, 2_000.0, 1e-3));
+        assertTrue(capped.isBeyondMaxDistance());
+        assertEquals(2_000.0, capped.getDownwindDistance(), 1e-6);
+    }
+
+    @Test
+    public void testRejectsInvalidSpec() {
+        assertThrows(IllegalArgumentException.class, () -> new ThresholdSpec(0.0, 1.5, 1000.0, 1e-3));
+        assertThrows(IllegalArgumentException.class, () -> new ThresholdSpec(1.0, 1.5, 1e7, 1e-3));
+        assertThrows(IllegalArgumentException.class, () -> ThresholdSpec.fromParams(java.util.Map.of("z", 2.0)));
+    }
+}
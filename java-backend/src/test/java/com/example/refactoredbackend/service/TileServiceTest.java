@@ -0,0 +1,97 @@
+package com.example.refactoredbackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TileServiceTest {
+
+    private static final double LAT = 40.0;
+    private static final double LON = -100.0;
+
+    private final TileService service = new TileService(new ThresholdExtentSolver(), 4, 100, 1L << 24, 3600);
+
+    private TileRun run() {
+        // Wind from the west carries the plume east of the source
+        DispersionScenario scenario = new DispersionScenario(DispersionScenario.PLUME, 50.0, 10.0, 8.0, 60.0, "D", 64.0);
+        return service.register(scenario, LAT, LON, 270.0, 1.5, 1.0, Double.NaN);
+    }
+
+    private static double tileX(double lon, int zoom) {
+        return (lon + 180) / 360 * (1 << zoom);
+    }
+
+    private static double tileY(double lat, int zoom) {
+        double phi = Math.toRadians(lat);
+        return (1 - Math.log(Math.tan(phi) + 1 / Math.cos(phi)) / Math.PI) / 2 * (1 << zoom);
+    }
+
+    /** Alpha of the pixel covering lat/lon at this zoom. */
+    private int alphaAt(TileRun run, int zoom, double lat, double lon) throws Exception {
+        double x = tileX(lon, zoom);
+        double y = tileY(lat, zoom);
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(service.tile(run, zoom, (int) x, (int) y)));
+        int px = (int) ((x - Math.floor(x)) * TileService.TILE_SIZE);
+        int py = (int) ((y - Math.floor(y)) * TileService.TILE_SIZE);
+        return image.getRGB(px, py) >>> 24;
+    }
+
+    @Test
+    public void testTileGeometry() {
+        assertEquals(85.0511, TileService.tileLat(0, 1), 1e-4);
+        assertEquals(0.0, TileService.tileLat(1, 2), 1e-12);
+        assertEquals(-180.0, TileService.tileLon(0, 4), 1e-12);
+        assertEquals(90.0, TileService.tileLon(3, 4), 1e-12);
+        assertEquals(7.0, Math.floor(tileY(TileService.tileLat(7.5, 16), 4)), 1e-12);
+    }
+
+    @Test
+    public void testPlumeIsDrawnDownwindOnly() throws Exception {
+        TileRun run = run();
+        assertTrue(run.getReach() > 1000.0);
+        assertTrue(run.getMaxConcentration() > run.getMinConcentration());
+
+        GeoFrame frame = run.getFrame();
+        double downwindLon = frame.lon(1000.0);
+        double upwindLon = frame.lon(-1000.0);
+        double sideLat = frame.lat(run.getHalfWidth() + 500.0);
+        assertTrue(alphaAt(run, 15, LAT, downwindLon) > 0);
+        assertEquals(0, alphaAt(run, 15, LAT, upwindLon));
+        assertEquals(0, alphaAt(run, 15, sideLat, downwindLon));
+    }
+
+    @Test
+    public void testTilesAreCachedAndDistantTilesSkipped() {
+        TileRun run = run();
+        int zoom = 14;
+        int x = (int) tileX(run.getFrame().lon(800.0), zoom);
+        int y = (int) tileY(LAT, zoom);
+        byte[] first = service.tile(run, zoom, x, y);
+        assertSame(first, service.tile(run, zoom, x, y));
+        assertEquals(1L, service.stats().get("rendered"));
+        assertEquals(1L, service.stats().get("hits"));
+
+        byte[] far = service.tile(run, zoom, x + 200, y);
+        byte[] otherFar = service.tile(run, zoom, x, y + 200);
+        assertSame(far, otherFar);
+        assertEquals(2L, service.stats().get("empty"));
+        assertEquals(1L, service.stats().get("rendered"));
+
+        assertThrows(IllegalArgumentException.class, () -> service.tile(run, 3, 8, 0));
+        assertThrows(IllegalArgumentException.class, () -> service.tile(run, 23, 0, 0));
+    }
+
+    @Test
+    public void testOldestRunsAreDropped() {
+        TileRun first = run();
+        for (int i = 0; i < 4; i++) {
+            run();
+        }
+        assertTrue(service.getRun(first.getId()).isEmpty());
+        assertEquals(4, service.stats().get("runs"));
+    }
+}
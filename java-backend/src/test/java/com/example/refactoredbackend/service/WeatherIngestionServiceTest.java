@@ -0,0 +1,146 @@
+package com.example.refactoredbackend.service;
+
+import com.example.refactoredbackend.model.Station;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WeatherIngestionServiceTest {
+
+    private static final Map<String, Object> WEATHER = Map.of("wind_speed", 8.5, "wind_direction", 225.0,
+        "temperature", 68.0, "humidity", 55.0, "pressure", 29.9, "precipitation", 0.0);
+
+    private final List<List<WeatherReading>> batches = new CopyOnWriteArrayList<>();
+    private final List<Long> notified = new CopyOnWriteArrayList<>();
+    private WeatherIngestionService service;
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        service.close(5_000);
+    }
+
+    private static List<Station> stations(int count) {
+        List<Station> stations = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Station station = new Station("station " + i, 29.0 + i * 0.01, -95.0, "open-meteo");
+            station.setId((long) i + 1);
+            stations.add(station);
+        }
+        return stations;
+    }
+
+    private WeatherIngestionService service(List<Station> stations, Consumer<List<WeatherReading>> writer,
+                                            int bufferCapacity, int batchSize) {
+        return new WeatherIngestionService(() -> stations,
+            all -> Collections.nCopies(all.size(), new OpenMeteoClient.PointWeather(WEATHER, null)),
+            writer, notified::add, false, bufferCapacity, batchSize, 50, 10_000, 10);
+    }
+
+    private long rowsWritten() {
+        return batches.stream().mapToLong(List::size).sum();
+    }
+
+    private static void await(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, message);
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Waits until the writer has stored the rows and the write stage has finished with them:
+     * the counters and station notifications are updated after the writer returns.
+     */
+    private void awaitRows(long rows, int notifications) throws InterruptedException {
+        await(() -> rowsWritten() >= rows && stat("write", "rows") >= rows && notified.size() >= notifications,
+            "readings were not written");
+    }
+
+    @SuppressWarnings("unchecked")
+    private long stat(String stage, String name) {
+        return ((Number) ((Map<String, Object>) service.stats().get(stage)).get(name)).longValue();
+    }
+
+    @Test
+    public void testReadingsAreWrittenInBatchesAndLinkedToStations() throws Exception {
+        List<Station> stations = stations(250);
+        service = service(stations, batch -> batches.add(List.copyOf(batch)), 1_000, 100);
+        assertEquals(250, service.poll());
+        awaitRows(250, 250);
+
+        assertTrue(batches.size() >= 3);
+        for (List<WeatherReading> batch : batches) {
+            assertTrue(batch.size() <= 100);
+        }
+        WeatherReading first = batches.get(0).get(0);
+        assertEquals(1L, first.stationId());
+        assertEquals(8.5, first.windSpeed());
+        assertEquals(29.9, first.pressure());
+        assertEquals(250, notified.size());
+        assertEquals(250, stat("write", "rows"));
+        assertEquals(250, stat("poll", "stations"));
+    }
+
+    @Test
+    public void testFailedAndStaleStationsAreSkipped() throws Exception {
+        List<Station> stations = stations(3);
+        service = new WeatherIngestionService(() -> stations, all -> List.of(
+            new OpenMeteoClient.PointWeather(WEATHER, null),
+            new OpenMeteoClient.PointWeather(null, "503 Service Unavailable"),
+            new OpenMeteoClient.PointWeather(Map.of("wind_speed", 3.0, "stale", true), null)),
+            batch -> batches.add(List.copyOf(batch)), notified::add, false, 10, 10, 50, 1_000, 10);
+        assertEquals(1, service.poll());
+        awaitRows(1, 1);
+        assertEquals(List.of(1L), notified);
+        assertEquals(1, stat("poll", "fetch_failures"));
+        assertEquals(1, stat("poll", "stale_skipped"));
+    }
+
+    @Test
+    public void testSlowWriterFillsTheBufferWithoutLosingReadings() throws Exception {
+        List<Station> stations = stations(200);
+        service = service(stations, batch -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            batches.add(List.copyOf(batch));
+        }, 20, 10);
+        assertEquals(200, service.poll());
+        awaitRows(200, 200);
+
+        assertTrue(stat("buffer", "waits") > 0);
+        assertEquals(0, stat("buffer", "dropped"));
+        assertEquals(20, stat("buffer", "high_water"));
+    }
+
+    @Test
+    public void testFailedBatchIsRetried() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        service = service(stations(5), batch -> {
+            if (attempts.incrementAndGet() <= 2) {
+                throw new IllegalStateException("database unavailable");
+            }
+            batches.add(List.copyOf(batch));
+        }, 100, 100);
+        service.poll();
+        awaitRows(5, 5);
+
+        assertEquals(2, stat("write", "failures"));
+        assertEquals(5, stat("write", "rows"));
+        assertEquals(0, stat("write", "abandoned"));
+    }
+}
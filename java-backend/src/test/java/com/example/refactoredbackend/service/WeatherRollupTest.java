@@ -0,0 +1,96 @@
+package com.example.refactoredbackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WeatherRollupTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 6, 1, 12, 0);
+
+    private static WeatherReading reading(Long stationId, int minutes, double windSpeed, double windDirection,
+                                          double temperature) {
+        return new WeatherReading(stationId, T0.plusMinutes(minutes), windSpeed, windDirection, temperature,
+            50.0, 29.9, 0.1);
+    }
+
+    @Test
+    public void testWindDirectionIsVectorAveraged() {
+        WeatherRollup rollup = new WeatherRollup(1L, T0);
+        rollup.add(reading(1L, 0, 5.0, 350.0, 70.0));
+        rollup.add(reading(1L, 15, 7.0, 10.0, 72.0));
+
+        // Arithmetic mean would say 180; the wind was northerly throughout
+        double direction = rollup.getWindDirectionMean();
+        assertTrue(direction < 1e-9 || direction > 360 - 1e-9, "direction " + direction);
+        assertEquals(Math.cos(Math.toRadians(10)), rollup.getWindDirectionSteadiness(), 1e-12);
+        assertEquals(5.0, rollup.getWindSpeedMin());
+        assertEquals(7.0, rollup.getWindSpeedMax());
+        assertEquals(6.0, rollup.getWindSpeedMean(), 1e-12);
+        assertEquals(71.0, rollup.getTemperatureMean(), 1e-12);
+        assertEquals(0.2, rollup.getPrecipitationSum(), 1e-12);
+    }
+
+    @Test
+    public void testMergeMatchesAddingEveryReading() {
+        List<WeatherReading> readings = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            readings.add(reading(1L, i, 2.0 + i % 7, (i * 37) % 360, 60.0 + i));
+        }
+        WeatherRollup all = new WeatherRollup(1L, T0);
+        readings.forEach(all::add);
+        WeatherRollup first = new WeatherRollup(1L, T0);
+        WeatherRollup second = new WeatherRollup(1L, T0);
+        readings.subList(0, 8).forEach(first::add);
+        readings.subList(8, 20).forEach(second::add);
+        first.merge(second);
+
+        assertEquals(all.getSamples(), first.getSamples());
+        assertEquals(all.getWindSpeedMin(), first.getWindSpeedMin());
+        assertEquals(all.getWindSpeedMax(), first.getWindSpeedMax());
+        assertEquals(all.getWindSpeedMean(), first.getWindSpeedMean(), 1e-12);
+        assertEquals(all.getWindDirectionMean(), first.getWindDirectionMean(), 1e-9);
+        assertEquals(all.getTemperatureMin(), first.getTemperatureMin());
+        assertEquals(all.getTemperatureMax(), first.getTemperatureMax());
+        assertEquals(all.getHumidityMean(), first.getHumidityMean(), 1e-12);
+    }
+
+    @Test
+    public void testAggregateGroupsByStationAndBucket() {
+        List<WeatherReading> readings = List.of(
+            reading(1L, 0, 5.0, 270.0, 70.0),
+            reading(1L, 30, 6.0, 270.0, 70.0),
+            reading(1L, 60, 7.0, 270.0, 70.0),
+            reading(2L, 10, 8.0, 270.0, 70.0),
+            reading(null, 10, 9.0, 270.0, 70.0));
+
+        Map<String, Long> hourly = WeatherRollupService.aggregate(readings, WeatherRollupService.Resolution.HOUR)
+            .stream().collect(Collectors.toMap(r -> r.getStationId() + "@" + r.getBucket().getHour(),
+                WeatherRollup::getSamples));
+        assertEquals(Map.of("1@12", 2L, "1@13", 1L, "2@12", 1L, "0@12", 1L), hourly);
+
+        Map<Long, Long> daily = WeatherRollupService.aggregate(readings, WeatherRollupService.Resolution.DAY)
+            .stream().collect(Collectors.toMap(WeatherRollup::getStationId, WeatherRollup::getSamples));
+        assertEquals(Map.of(1L, 3L, 2L, 1L, 0L, 1L), daily);
+    }
+
+    @Test
+    public void testChoosePicksCoarsestResolutionWithEnoughPoints() {
+        assertEquals(WeatherRollupService.Resolution.DAY, WeatherRollupService.choose(T0, T0.plusDays(365), 200));
+        assertEquals(WeatherRollupService.Resolution.HOUR, WeatherRollupService.choose(T0, T0.plusDays(30), 200));
+        assertEquals(WeatherRollupService.Resolution.RAW, WeatherRollupService.choose(T0, T0.plusDays(2), 200));
+        assertEquals(WeatherRollupService.Resolution.HOUR, WeatherRollupService.choose(T0, T0.plusDays(2), 48));
+    }
+
+    @Test
+    public void testResolutionNames() {
+        assertEquals(WeatherRollupService.Resolution.HOUR, WeatherRollupService.Resolution.fromName("hour"));
+        assertThrows(IllegalArgumentException.class, () -> WeatherRollupService.Resolution.fromName("week"));
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.refactoredbackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WindFieldServiceTest {
+
+    private static final double MPH_TO_MS = 0.44704;
+
+    private final List<WindFieldService.StationWind> stations = new ArrayList<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final WindFieldService service = new WindFieldService(() -> {
+        loads.incrementAndGet();
+        return List.copyOf(stations);
+    }, 4, 2.0, 100, 4);
+
+    @Test
+    public void testIndexMatchesBruteForce() {
+        Random random = new Random(7);
+        int n = 500;
+        double[] east = new double[n];
+        double[] north = new double[n];
+        for (int i = 0; i < n; i++) {
+            east[i] = random.nextDouble() * 200_000 - 100_000;
+            north[i] = random.nextDouble() * 200_000 - 100_000;
+        }
+        StationIndex index = new StationIndex(east, north, 10_000);
+        int[] nearest = new int[5];
+        double[] distancesSq = new double[5];
+        for (int q = 0; q < 200; q++) {
+            double x = random.nextDouble() * 300_000 - 150_000;
+            double y = random.nextDouble() * 300_000 - 150_000;
+            double maxDistance = q % 2 == 0 ? Double.POSITIVE_INFINITY : 20_000;
+            int found = index.nearest(x, y, 5, maxDistance, nearest, distancesSq);
+
+            double[] expected = new double[n];
+            for (int i = 0; i < n; i++) {
+                expected[i] = (east[i] - x) * (east[i] - x) + (north[i] - y) * (north[i] - y);
+            }
+            Arrays.sort(expected);
+            int inRange = (int) Arrays.stream(expected).limit(5).filter(d -> d <= maxDistance * maxDistance).count();
+            assertEquals(inRange, found);
+            for (int k = 0; k < found; k++) {
+                assertEquals(expected[k], distancesSq[k], 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void testFieldInterpolatesBetweenStations() {
+        // 10 mph from the west at the west station, from the south at the east station
+        stations.add(new WindFieldService.StationWind(40.0, -75.1, 10.0, 270.0, 70.0));
+        stations.add(new WindFieldService.StationWind(40.0, -74.9, 10.0, 180.0, 70.0));
+
+        WindField field = service.field(40.0, -75.0, 9000, 1000).orElseThrow();
+        assertEquals(19, field.getNx());
+        assertEquals(2, field.getStations());
+
+        // Equidistant midpoint: the mean of the two vectors
+        double[] velocity = new double[2];
+        field.velocityAt(0.0, 0.0, velocity);
+        assertEquals(5.0 * MPH_TO_MS, velocity[0], 1e-6);
+        assertEquals(5.0 * MPH_TO_MS, velocity[1], 1e-6);
+
+        // Closer to the west station: mostly its wind
+        field.velocityAt(-5000.0, 0.0, velocity);
+        assertTrue(velocity[0] > 3 * velocity[1], Arrays.toString(velocity));
+        assertEquals(225.0, field.directionAt(9, 9), 1e-6);
+    }
+
+    @Test
+    public void testFieldIsCachedUntilAReadingArrives() {
+        stations.add(new WindFieldService.StationWind(40.0, -75.0, 10.0, 270.0, 70.0));
+
+        WindField first = service.field(40.0, -75.0, 2000, 500).orElseThrow();
+        assertSame(first, service.field(40.0, -75.0, 2000, 500).orElseThrow());
+        assertEquals(1, loads.get());
+
+        stations.set(0, new WindFieldService.StationWind(40.0, -75.0, 10.0, 90.0, 70.0));
+        service.onInputChanged(ModelInputChanged.event(1L));
+        assertSame(first, service.field(40.0, -75.0, 2000, 500).orElseThrow());
+
+        service.onInputChanged(ModelInputChanged.weather(1L));
+        WindField second = service.field(40.0, -75.0, 2000, 500).orElseThrow();
+        assertNotSame(first, second);
+        assertEquals(2, loads.get());
+        assertEquals(90.0, second.directionAt(0, 0), 1e-6);
+    }
+
+    @Test
+    public void testFullCacheEvictsLeastRecentlyUsedField() {
+        stations.add(new WindFieldService.StationWind(40.0, -75.0, 10.0, 270.0, 70.0));
+        WindField[] fields = new WindField[4];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = service.field(40.0 + i * 0.01, -75.0, 2000, 500).orElseThrow();
+        }
+        // Use the oldest field again, then build a fifth; the second field is now the coldest
+        assertSame(fields[0], service.field(40.0, -75.0, 2000, 500).orElseThrow());
+        service.field(40.1, -75.0, 2000, 500).orElseThrow();
+
+        assertSame(fields[0], service.field(40.0, -75.0, 2000, 500).orElseThrow());
+        assertSame(fields[2], service.field(40.02, -75.0, 2000, 500).orElseThrow());
+        assertNotSame(fields[1], service.field(40.01, -75.0, 2000, 500).orElseThrow());
+    }
+
+    @Test
+    public void testNoReadingsGiveNoField() {
+        assertTrue(service.field(40.0, -75.0, 2000, 500).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> service.field(40.0, -75.0, 1e6, 1));
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.refactoredbackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WindRoseTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 6, 1, 12, 0);
+
+    private static WeatherReading reading(Long stationId, int minutes, double windSpeed, double windDirection) {
+        return new WeatherReading(stationId, T0.plusMinutes(minutes), windSpeed, windDirection, 70.0, 50.0, 29.9, 0.0);
+    }
+
+    @Test
+    public void testSectorsAreCentredOnCompassPoints() {
+        assertEquals(0, WindRose.sector(0.0));
+        assertEquals(0, WindRose.sector(359.0));
+        assertEquals(0, WindRose.sector(11.0));
+        assertEquals(1, WindRose.sector(11.25));
+        assertEquals(4, WindRose.sector(90.0));
+        assertEquals(12, WindRose.sector(-90.0));
+        assertEquals(8, WindRose.sector(540.0));
+
+        assertEquals(0, WindRose.speedBin(0.5));
+        assertEquals(1, WindRose.speedBin(1.0));
+        assertEquals(3, WindRose.speedBin(12.9));
+        assertEquals(WindRose.SPEED_BINS - 1, WindRose.speedBin(60.0));
+    }
+
+    @Test
+    public void testHourlyCellsSumToTheDailyRose() {
+        List<WeatherReading> readings = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            readings.add(reading(1L + i % 2, i * 2, (i * 7) % 30 + 0.5, (i * 53) % 360));
+        }
+        readings.add(reading(1L, 0, Double.NaN, 90.0));
+
+        WindRose hourly = rose(WindRoseService.count(readings, ChronoUnit.HOURS));
+        WindRose daily = rose(WindRoseService.count(readings, ChronoUnit.DAYS));
+
+        assertEquals(500, hourly.total());
+        for (int s = 0; s < WindRose.SECTORS; s++) {
+            assertArrayEquals(daily.sector(s), hourly.sector(s));
+        }
+        assertEquals(daily.calm(), hourly.calm());
+        assertTrue(hourly.calm() > 0);
+    }
+
+    /** Sums histogram cells the way WindRoseService.query does with the stored rows. */
+    private static WindRose rose(Map<WindRoseService.Cell, Long> cells) {
+        WindRose rose = new WindRose();
+        cells.forEach((cell, samples) -> rose.add(cell.sector(), cell.speedBin(), samples));
+        return rose;
+    }
+
+    @Test
+    public void testCountGroupsReadingsIntoHistogramCells() {
+        List<WeatherReading> readings = List.of(
+            reading(1L, 0, 5.0, 270.0),
+            reading(1L, 30, 6.0, 275.0),
+            reading(1L, 60, 5.0, 270.0),
+            reading(null, 0, 0.2, 90.0));
+
+        Map<WindRoseService.Cell, Long> hourly = WindRoseService.count(readings, ChronoUnit.HOURS);
+        assertEquals(3, hourly.size());
+        assertEquals(2L, hourly.get(new WindRoseService.Cell(1L, T0, 12, 2)));
+        assertEquals(1L, hourly.get(new WindRoseService.Cell(0L, T0, 4, 0)));
+
+        Map<WindRoseService.Cell, Long> daily = WindRoseService.count(readings, ChronoUnit.DAYS);
+        assertEquals(3L, daily.get(new WindRoseService.Cell(1L, T0.truncatedTo(ChronoUnit.DAYS), 12, 2)));
+    }
+
+    @Test
+    public void testSpansUseDailyBucketsForWholeDays() {
+        LocalDateTime day = T0.truncatedTo(ChronoUnit.DAYS);
+        assertEquals(List.of(
+                new WindRoseService.Span(WindRoseService.HOURLY_TABLE, T0, day.plusDays(1)),
+                new WindRoseService.Span(WindRoseService.DAILY_TABLE, day.plusDays(1), day.plusDays(366)),
+                new WindRoseService.Span(WindRoseService.HOURLY_TABLE, day.plusDays(366), day.plusDays(366).plusHours(6))),
+            WindRoseService.spans(T0.plusMinutes(20), day.plusDays(366).plusHours(6)));
+
+        assertEquals(List.of(new WindRoseService.Span(WindRoseService.DAILY_TABLE, day, day.plusDays(7))),
+            WindRoseService.spans(day, day.plusDays(7)));
+
+        assertEquals(List.of(new WindRoseService.Span(WindRoseService.HOURLY_TABLE, T0, T0.plusHours(5))),
+            WindRoseService.spans(T0, T0.plusHours(5)));
+    }
+}